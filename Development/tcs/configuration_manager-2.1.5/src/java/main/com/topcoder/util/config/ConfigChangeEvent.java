@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) ConfigChangeEvent.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.Set;
+
+/**
+ * The event sent to a <code>ConfigChangeListener</code> when a namespace was
+ * reloaded and some of its values changed. The changed keys are the full
+ * dotted keys of the properties whose values were added, removed or modified.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+public class ConfigChangeEvent extends EventObject {
+
+    /**
+     * The reloaded namespace.
+     */
+    private final String namespace;
+
+    /**
+     * The keys whose values changed, sorted.
+     */
+    private final Set changedKeys;
+
+    /**
+     * Creates a new <code>ConfigChangeEvent</code>.
+     *
+     * @param  source the <code>ConfigManager</code> which reloaded the namespace
+     * @param  namespace the reloaded namespace
+     * @param  changedKeys the keys whose values changed
+     * @throws IllegalArgumentException if given <code>source</code> is <code>
+     *         null</code>
+     * @throws NullPointerException if given <code>namespace</code> or <code>
+     *         changedKeys</code> is <code>null</code>
+     */
+    public ConfigChangeEvent(ConfigManager source, String namespace, Set changedKeys) {
+        super(source);
+        if (namespace == null) {
+            throw new NullPointerException("parameter namespace is null");
+        }
+        if (changedKeys == null) {
+            throw new NullPointerException("parameter changedKeys is null");
+        }
+        this.namespace = namespace;
+        this.changedKeys = Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * Gets the reloaded namespace.
+     *
+     * @return the reloaded namespace
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * Gets the keys whose values were added, removed or modified.
+     *
+     * @return an unmodifiable <code>Set</code> of the changed keys
+     */
+    public Set getChangedKeys() {
+        return changedKeys;
+    }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) ConfigChangeListener.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import java.util.EventListener;
+
+/**
+ * A listener of the changes of the properties of the namespaces. The
+ * listeners registered with <code>ConfigManager.addConfigChangeListener()
+ * </code> are notified when a namespace is reloaded, by <code>refresh()
+ * </code>, <code>refreshAll()</code>, <code>commit()</code> or by the file
+ * watcher, and some of its values changed.
+ *
+ * <p>The listeners are notified by the thread reloading the namespace, once
+ * the new properties can be read from <code>ConfigManager</code>.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+public interface ConfigChangeListener extends EventListener {
+
+    /**
+     * Receives notification that some values of a namespace changed.
+     *
+     * @param  event the event holding the namespace and the changed keys
+     */
+    void configurationChanged(ConfigChangeEvent event);
+
+}
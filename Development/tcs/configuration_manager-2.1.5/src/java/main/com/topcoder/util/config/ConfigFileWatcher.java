@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) ConfigFileWatcher.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A watcher of the files of the namespaces of a <code>DefaultConfigManager
+ * </code>, started by <code>ConfigManager.startWatching()</code>. A daemon
+ * thread polls the modification time and the length of the files at a fixed
+ * interval, and the namespaces of a file are reloaded once a change of the
+ * file was stable for a whole interval, so that a file being written is not
+ * read, nor reloaded for each write. The namespaces of the other files are
+ * neither read nor parsed.
+ *
+ * <p>The files are compared with their stamps taken when their namespaces
+ * were loaded, so that a change made before the first poll is not missed.
+ * The namespaces of the pluggable format are not watched, since their
+ * properties are not read from their file.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+final class ConfigFileWatcher implements Runnable {
+
+    /**
+     * The config manager whose namespaces are watched.
+     */
+    private final DefaultConfigManager manager;
+
+    /**
+     * The polling interval, in milliseconds.
+     */
+    private final long interval;
+
+    /**
+     * The polling thread, <code>null</code> once stopped.
+     */
+    private volatile Thread thread = null;
+
+    /**
+     * The stamps of the files at the previous poll, by file name.
+     */
+    private final Map polledStamps = new HashMap();
+
+    /**
+     * Creates a new <code>ConfigFileWatcher</code>.
+     *
+     * @param  manager the config manager whose namespaces are watched
+     * @param  interval the polling interval, in milliseconds
+     */
+    ConfigFileWatcher(DefaultConfigManager manager, long interval) {
+        this.manager = manager;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts the polling thread.
+     */
+    void start() {
+        thread = new Thread(this, "ConfigManager file watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the polling thread. A reload in progress is completed.
+     */
+    void stop() {
+        Thread current = thread;
+        thread = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Polls the files until the watcher is stopped.
+     */
+    public void run() {
+        while (thread == Thread.currentThread()) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ie) {
+                continue;
+            }
+            try {
+                poll();
+            } catch (RuntimeException re) {
+                System.err.println("encounter exception watching config files : " + re.getMessage());
+                re.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Gets the stamp of a file, made of its modification time and length.
+     *
+     * @param  file the file
+     * @return the stamp of the file
+     */
+    static String getStamp(File file) {
+        return file.lastModified() + "/" + file.length();
+    }
+
+    /**
+     * Checks the files of the namespaces once, and reloads the namespaces of
+     * the files which changed since they were loaded, once the change was
+     * already seen by the previous poll.
+     */
+    void poll() {
+        Map files = manager.getWatchedFiles();
+        for (Iterator itr = files.entrySet().iterator(); itr.hasNext();) {
+            Map.Entry entry = (Map.Entry) itr.next();
+            String filename = (String) entry.getKey();
+            List namespaces = (List) entry.getValue();
+            String stamp = getStamp(new File(filename));
+            String polledStamp = (String) polledStamps.put(filename, stamp);
+            if (stamp.equals(polledStamp) && isChanged(namespaces, stamp)) {
+                manager.reloadFile(namespaces, stamp);
+            }
+        }
+        // forget the files of the removed namespaces
+        polledStamps.keySet().retainAll(files.keySet());
+    }
+
+    /**
+     * Tells whether some of the given namespaces were loaded from another
+     * version of their file.
+     *
+     * @param  namespaces the namespaces of the file
+     * @param  stamp the current stamp of the file
+     * @return whether the namespaces need to be reloaded
+     */
+    private static boolean isChanged(List namespaces, String stamp) {
+        for (Iterator itr = namespaces.iterator(); itr.hasNext();) {
+            if (!stamp.equals(((Namespace) itr.next()).getFileStamp())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -44,6 +44,8 @@ import java.io.UnsupportedEncodingException;
  *      <li>remove namespaces from memory</li>
  *      <li>remove properties and their values from namespaces</li>
  *      <li>nest the properties within other properties as deep as needed</li>
+ *      <li>reload the namespaces whose files changed, and notify listeners of
+ *          the changed properties</li>
  *    </ol>
  *
  * <p>The ConfigManager has it's own configuration file named <code>
@@ -65,8 +67,8 @@ import java.io.UnsupportedEncodingException;
  * <pre>
  *
  *      // First an instance of ConfigManager should be obtained. This will also
- *      // load the predefined set of namespaces and their properties into
- *      // memory
+ *      // register the predefined set of namespaces, whose properties are
+ *      // loaded into memory when they are first used
  *
  *     ConfigManager manager = ConfigManager.getInstance();
  *
@@ -125,6 +127,12 @@ import java.io.UnsupportedEncodingException;
  *
  *     manager.add("pluggable.namespace", "somefile.config",
  *         ConfigManager.CONFIG_PLUGGABLE_FORMAT );
+ *
+ *     // since Configuration Manager 2.1.5 the files of the namespaces may be
+ *     // watched, and the changes listened to
+ *
+ *     manager.addConfigChangeListener(listener);
+ *     manager.startWatching(5000);
  * </pre>
  *
  * @author  ilya
@@ -180,9 +188,20 @@ public abstract class ConfigManager implements ConfigManagerInterface {
     public final static int EXCEPTIONS_MAJOR = 1;
 
     /**
-     * A single per JVM instance of <code>ConfigManager</code>
+     * Holds the single per JVM instance of <code>ConfigManager</code>. The
+     * instance is created on the first call to <code>getInstance()</code>, and
+     * the class loader guarantees this happens once even when several threads
+     * call it, without any lock on the later calls.
+     *
+     * @since 2.1.5
      */
-    private static ConfigManager defaultConfigManager = null;
+    private static class InstanceHolder {
+
+        /**
+         * A single per JVM instance of <code>ConfigManager</code>
+         */
+        static final ConfigManager INSTANCE = createInstance();
+    }
 
     /**
      * Load a filename with a URL. This method searches the classpath for the specific file.
@@ -237,12 +256,22 @@ public abstract class ConfigManager implements ConfigManagerInterface {
      *         otherwise a new one.
      */
     public static ConfigManager getInstance() {
-        if (defaultConfigManager != null) {
-            return defaultConfigManager;
-        }
-        defaultConfigManager = new DefaultConfigManager();
+        return InstanceHolder.INSTANCE;
+    }
 
-        // preload namepaces
+    /**
+     * Creates the instance of the config manager for this JVM. The namespaces
+     * listed in <code>com/topcoder/util/config/ConfigManager.properties</code>
+     * are only registered : each one is loaded when it is first used, and the
+     * errors loading it are then reported to the standard error output.
+     *
+     * @return a new instance of <code>ConfigManager</code>.
+     * @since  2.1.5
+     */
+    private static ConfigManager createInstance() {
+        DefaultConfigManager defaultConfigManager = new DefaultConfigManager();
+
+        // register preload namepaces
         try {
             // load into a Properties
             InputStream is = getURL("com/topcoder/util/config/ConfigManager.properties").openStream();
@@ -257,38 +286,7 @@ public abstract class ConfigManager implements ConfigManagerInterface {
             // get all namespaces
             for (Enumeration enu = properties.propertyNames(); enu.hasMoreElements();) {
                 String namespace = (String) enu.nextElement();
-                String filename = properties.getProperty(namespace);
-
-                try {
-                    // TCS Component
-                    if (filename == null || filename.length() == 0) {
-                        defaultConfigManager.add(namespace, CONFIG_XML_FORMAT);
-                        continue;
-                    }
-
-                    // judge file type from extension
-                    String lower = filename.toLowerCase();
-                    if (lower.endsWith(CONFIG_PROPERTIES_FORMAT)) {
-                        // properties
-                        defaultConfigManager.add(namespace, filename, CONFIG_PROPERTIES_FORMAT);
-                    } else if (lower.endsWith(CONFIG_PLUGGABLE_FORMAT)) {
-                        // pluggable
-                        defaultConfigManager.add(namespace, filename, CONFIG_PLUGGABLE_FORMAT);
-                    } else if (lower.endsWith(CONFIG_XML_FORMAT)) {
-                        // xml, whether multiple namespace?
-                        Enumeration test = XMLConfigProperties.getNamespaces(getURL(filename));
-                        if (test != null && test.hasMoreElements()) {
-                            defaultConfigManager.add(namespace, filename, CONFIG_MULTIPLE_XML_FORMAT);
-                        } else {
-                            defaultConfigManager.add(namespace, filename, CONFIG_XML_FORMAT);
-                        }
-                    } else {
-                        System.err.println("unrecognized file type : " + filename);
-                    }
-                } catch (Exception exception) {
-                    System.err.println("encounter exception loading " + filename + " : " + exception.getMessage());
-                    exception.printStackTrace();
-                }
+                defaultConfigManager.addPending(namespace, properties.getProperty(namespace));
             }
         } catch (Exception exception) {
             exception.printStackTrace();
@@ -788,4 +786,47 @@ public abstract class ConfigManager implements ConfigManagerInterface {
      */
     public abstract void removeNamespace(String namespace) throws UnknownNamespaceException;
 
+    /**
+     * Adds a listener notified when a namespace is reloaded and some of its
+     * values changed.
+     *
+     * @param  listener the listener to add
+     * @throws NullPointerException if given listener is null
+     * @since  2.1.5
+     */
+    public abstract void addConfigChangeListener(ConfigChangeListener listener);
+
+    /**
+     * Removes a listener added by <code>addConfigChangeListener()</code>.
+     *
+     * @param  listener the listener to remove
+     * @throws NullPointerException if given listener is null
+     * @since  2.1.5
+     */
+    public abstract void removeConfigChangeListener(ConfigChangeListener listener);
+
+    /**
+     * Starts watching the files of the namespaces. A daemon thread checks the
+     * files at given interval, and reloads the namespaces of a file once its
+     * change was stable for a whole interval. The namespaces of the unchanged
+     * files are not read. A namespace which fails to reload keeps its
+     * properties, and the error is reported to the standard error output.
+     *
+     * <p>If the files are already watched, the watching is restarted with the
+     * given interval.
+     *
+     * @param  interval the interval between two checks, in milliseconds
+     * @throws IllegalArgumentException if given interval is not positive
+     * @since  2.1.5
+     */
+    public abstract void startWatching(long interval);
+
+    /**
+     * Stops watching the files of the namespaces. Nothing happens if they
+     * are not watched.
+     *
+     * @since  2.1.5
+     */
+    public abstract void stopWatching();
+
 }
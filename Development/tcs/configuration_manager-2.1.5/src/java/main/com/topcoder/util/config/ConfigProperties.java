@@ -37,6 +37,14 @@ abstract class ConfigProperties {
      */
     private Property root = null;
 
+    /**
+     * The flat index of the properties tree, built on demand for the current
+     * root and list delimiter.
+     *
+     * @since 2.1.5
+     */
+    private volatile PropertyIndex index = null;
+
     /**
      * Constructs an instance of <code>ConfigProperties</code>
      */
@@ -68,6 +76,42 @@ abstract class ConfigProperties {
         return listDelimiter;
     }
 
+    /**
+     * Gets the flat index of the properties tree. The index is built on the
+     * first call after the root or the list delimiter changed, so it must only
+     * be used for a tree which is not modified in place.
+     *
+     * @return the index of the current properties tree
+     * @since 2.1.5
+     */
+    PropertyIndex getIndex() {
+        Property currentRoot = root;
+        char currentDelimiter = listDelimiter;
+        PropertyIndex currentIndex = index;
+        if (currentIndex == null || !currentIndex.isIndexOf(currentRoot, currentDelimiter)) {
+            currentIndex = new PropertyIndex(currentRoot, currentDelimiter);
+            index = currentIndex;
+        }
+        return currentIndex;
+    }
+
+    /**
+     * Loads the properties and their values from persistent storage into a
+     * copy of this object, which is left unchanged. The copy is indexed, so
+     * that it can be published to the readers in place of this object.
+     *
+     * @return the loaded copy
+     * @throws IOException if any exception related to underlying persistent
+     *         storage occurs
+     * @since 2.1.5
+     */
+    ConfigProperties loadCopy() throws IOException {
+        ConfigProperties copy = (ConfigProperties) clone();
+        copy.load();
+        copy.getIndex();
+        return copy;
+    }
+
     /**
      * Saves the data(properties and their values) from properties tree into
      * persistent storage.
@@ -7,14 +7,17 @@
  */
 package com.topcoder.util.config;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -30,15 +33,45 @@ import java.util.Vector;
 class DefaultConfigManager extends ConfigManager {
 
     /**
-     * A set of namespaces with properties existing within ConfigManager.
+     * The current snapshot of the namespaces with properties existing within
+     * ConfigManager, and of the temporary properties used to modify them. The
+     * readers use it without locking, the writers publish a modified copy
+     * while holding <code>writeLock</code>.
+     *
+     * @since 2.1.5
+     */
+    private volatile Snapshot snapshot = new Snapshot(new HashMap(), new HashMap());
+
+    /**
+     * The lock serializing the publications of new snapshots.
+     *
+     * @since 2.1.5
      */
-    private Map namespaces = Collections.synchronizedMap(new HashMap());
+    private final Object writeLock = new Object();
 
     /**
-     * A set of temporary properties used to modify the namespaces existing
-     * within ConfigManager.
+     * The namespaces registered by <code>addPending()</code> and not loaded yet,
+     * mapped to their file names. A namespace is loaded on its first use, and
+     * is never both pending and loaded.
+     *
+     * @since 2.1.5
      */
-    private Map tempProperties = Collections.synchronizedMap(new HashMap());
+    private Map pendingNamespaces = Collections.synchronizedMap(new HashMap());
+
+    /**
+     * The listeners notified of the changes of the namespaces.
+     *
+     * @since 2.1.5
+     */
+    private final List listeners = new ArrayList();
+
+    /**
+     * The watcher of the files of the namespaces, <code>null</code> if they
+     * are not watched.
+     *
+     * @since 2.1.5
+     */
+    private ConfigFileWatcher watcher = null;
 
     /**
      * Part of ConfigManagerInterface implementation.  Returns the namespace
@@ -77,7 +110,30 @@ class DefaultConfigManager extends ConfigManager {
      */
     private void addURL(String namespace, URL url, String format, int exceptionLevel)
             throws ConfigManagerException {
-        if (namespaces.containsKey(namespace)) {
+        addURL(namespace, url, format, exceptionLevel, null, getFileStamp(url));
+    }
+
+    /**
+     * Adds properties into namespace, reading the XML formats from the given
+     * parsed URL instead of parsing the URL again.
+     *
+     * @param  namespace namespace to add properties in URL to.
+     * @param  url       location where data is to be read from.
+     * @param  format    a format constant from this file describing type of URL.
+     * @param  exceptionLevel a level of exceptions
+     * @param  parser    the parser of the URL, which built all its namespaces,
+     *         or <code>null</code> to read the URL
+     * @param  stamp     the stamp of the file of the URL taken before it was
+     *         read, <code>null</code> if unknown
+     * @throws NamespaceAlreadyExistsException when namespace already exists.
+     * @throws UnknownConfigFormatException if format is not a known constant
+     * @throws ConfigManagerException if any error using the URL or other
+     *         problems in the config manager
+     * @since  2.1.5
+     */
+    private void addURL(String namespace, URL url, String format, int exceptionLevel, XMLConfigParser parser,
+            String stamp) throws ConfigManagerException {
+        if (getNamespace(namespace) != null) {
             throw new NamespaceAlreadyExistsException(namespace + "already exists");
         }
 
@@ -85,11 +141,12 @@ class DefaultConfigManager extends ConfigManager {
         ConfigProperties cp;
         try {
             if (format.equals(CONFIG_XML_FORMAT)) {
-                cp = new XMLConfigProperties(url);
+                cp = parser == null ? new XMLConfigProperties(url) : new XMLConfigProperties(url, null, parser);
             } else if (format.equals(CONFIG_PROPERTIES_FORMAT)) {
                 cp = new PropConfigProperties(url);
             } else if (format.equals(CONFIG_MULTIPLE_XML_FORMAT)) {
-                cp = new XMLConfigProperties(url, namespace);
+                cp = parser == null ? new XMLConfigProperties(url, namespace)
+                        : new XMLConfigProperties(url, namespace, parser);
             } else if (format.equals(CONFIG_PLUGGABLE_FORMAT)) {
                 cp = new PluggableConfigProperties(url);
             } else {
@@ -100,8 +157,90 @@ class DefaultConfigManager extends ConfigManager {
         }
 
         // add the namespace at last!
-        namespaces.put(namespace, new Namespace(namespace, url, format, exceptionLevel, cp));
-        tempProperties.remove(namespace);
+        Namespace ns = new Namespace(namespace, url, format, exceptionLevel, cp);
+        ns.setFileStamp(stamp);
+        putNamespace(ns);
+    }
+
+    /**
+     * Publishes a snapshot containing the given namespace, without temporary
+     * properties. The namespace is checked again, since it may have been
+     * added while its properties were read.
+     *
+     * @param  ns the namespace to add.
+     * @throws NamespaceAlreadyExistsException when namespace already exists.
+     * @since  2.1.5
+     */
+    private void putNamespace(Namespace ns) throws NamespaceAlreadyExistsException {
+        synchronized (writeLock) {
+            if (snapshot.namespaces.containsKey(ns.getName())) {
+                throw new NamespaceAlreadyExistsException(ns.getName() + "already exists");
+            }
+            Map namespaces = new HashMap(snapshot.namespaces);
+            Map tempProperties = new HashMap(snapshot.tempProperties);
+            namespaces.put(ns.getName(), ns);
+            tempProperties.remove(ns.getName());
+            snapshot = new Snapshot(namespaces, tempProperties);
+        }
+    }
+
+    /**
+     * Publishes a snapshot without the given namespace and its temporary
+     * properties.
+     *
+     * @param  namespace the namespace to remove.
+     * @return <code>true</code> if the namespace existed.
+     * @since  2.1.5
+     */
+    private boolean removeNamespaceEntry(String namespace) {
+        synchronized (writeLock) {
+            if (!snapshot.namespaces.containsKey(namespace)) {
+                return false;
+            }
+            Map namespaces = new HashMap(snapshot.namespaces);
+            Map tempProperties = new HashMap(snapshot.tempProperties);
+            namespaces.remove(namespace);
+            tempProperties.remove(namespace);
+            snapshot = new Snapshot(namespaces, tempProperties);
+            return true;
+        }
+    }
+
+    /**
+     * Publishes a snapshot with the given temporary properties of a namespace,
+     * or without them if they are <code>null</code>.
+     *
+     * @param  namespace the namespace.
+     * @param  properties the temporary properties, or <code>null</code>.
+     * @since  2.1.5
+     */
+    private void putTemporary(String namespace, ConfigProperties properties) {
+        synchronized (writeLock) {
+            Map tempProperties = new HashMap(snapshot.tempProperties);
+            if (properties == null) {
+                tempProperties.remove(namespace);
+            } else {
+                tempProperties.put(namespace, properties);
+            }
+            snapshot = new Snapshot(snapshot.namespaces, tempProperties);
+        }
+    }
+
+    /**
+     * Gets the temporary properties of the given namespace.
+     *
+     * @param  namespace the name of the namespace.
+     * @return the temporary properties.
+     * @throws UnknownNamespaceException if the temporary properties for this
+     *         namespace have not yet been created
+     * @since  2.1.5
+     */
+    private ConfigProperties getTemporary(String namespace) throws UnknownNamespaceException {
+        ConfigProperties properties = (ConfigProperties) snapshot.tempProperties.get(namespace);
+        if (properties == null) {
+            throw new UnknownNamespaceException(namespace + " is unknown");
+        }
+        return properties;
     }
 
     /**
@@ -218,13 +357,7 @@ class DefaultConfigManager extends ConfigManager {
         }
 
         // try to locate absolute url
-        URL url = ConfigManager.getURL(filename);
-
-        // for each namespace, create url
-        for (Enumeration enu = XMLConfigProperties.getNamespaces(url); enu.hasMoreElements();) {
-            String namespace = (String) enu.nextElement();
-            addURL(namespace, url, CONFIG_MULTIPLE_XML_FORMAT, exceptionLevel);
-        }
+        addURLs(ConfigManager.getURL(filename), exceptionLevel);
     }
 
     /**
@@ -257,11 +390,176 @@ class DefaultConfigManager extends ConfigManager {
      * @throws ConfigManagerException if url is invalid or error occur while parsing file.
      */
     private void addURLs(URL url, int exceptionLevel) throws ConfigManagerException {
+        // the file is parsed once for all its namespaces
+        String stamp = getFileStamp(url);
+        XMLConfigParser parser = parse(url);
+
         // for each namespace name, add it to CM
-        for (Enumeration enu = XMLConfigProperties.getNamespaces(url); enu.hasMoreElements();) {
+        for (Enumeration enu = parser.getNamespaces(); enu.hasMoreElements();) {
             String namespace = (String) enu.nextElement();
-            addURL(namespace, url, CONFIG_MULTIPLE_XML_FORMAT, exceptionLevel);
+            addURL(namespace, url, CONFIG_MULTIPLE_XML_FORMAT, exceptionLevel, parser, stamp);
+        }
+    }
+
+    /**
+     * Gets the modification time and length of the file of given URL, so that
+     * the file watcher can tell whether the file changed since it was read.
+     *
+     * @param  url the location of the file.
+     * @return the stamp of the file, or <code>null</code> if the URL is not a
+     *         file.
+     * @since  2.1.5
+     */
+    static String getFileStamp(URL url) {
+        if (!url.getProtocol().equals("file")) {
+            return null;
+        }
+        try {
+            return ConfigFileWatcher.getStamp(new File(ConfigManager.decodeURL(url.getFile())));
+        } catch (ConfigManagerException cme) {
+            // not a valid file name
+            return null;
+        }
+    }
+
+    /**
+     * Parses the XML file at given URL, building all its namespaces.
+     *
+     * @param  url location where data is to be read from.
+     * @return the parser of the file
+     * @throws ConfigManagerException if url is invalid or error occur while parsing file.
+     * @since  2.1.5
+     */
+    private static XMLConfigParser parse(URL url) throws ConfigManagerException {
+        XMLConfigParser parser = new XMLConfigParser(true);
+        try {
+            parser.parse(url, null);
+            return parser;
+        } catch (ConfigManagerException cme) {
+            throw cme;
+        } catch (IOException ioe) {
+            throw new ConfigParserException(ioe.getMessage());
+        }
+    }
+
+    /**
+     * Registers the given namespace, to be loaded from the given file when it
+     * is first used. The format of the file is judged from its extension, and
+     * an XML file is checked for multiple namespaces when it is loaded. An
+     * empty file name stands for the XML file named after the namespace, as
+     * <code>add(namespace, CONFIG_XML_FORMAT)</code> does.
+     *
+     * <p>The namespaces listed in the configuration file of ConfigManager are
+     * registered this way, so that the startup does not parse the files of the
+     * namespaces which are never used. Nothing is registered if the namespace
+     * is already loaded.
+     *
+     * @param  namespace the namespace to register.
+     * @param  filename the file of the namespace, or <code>null</code>.
+     * @since  2.1.5
+     */
+    void addPending(String namespace, String filename) {
+        synchronized (pendingNamespaces) {
+            if (!snapshot.namespaces.containsKey(namespace)) {
+                pendingNamespaces.put(namespace, filename == null ? "" : filename);
+            }
+        }
+    }
+
+    /**
+     * Loads the given namespace if it is pending. The errors are reported to
+     * the standard error output, and leave the namespace unknown.
+     *
+     * <p>The other pending namespaces registered with the same multi-namespace
+     * XML file are loaded from the same parse, so that each file is
+     * parsed once.
+     *
+     * @param  namespace the namespace to load.
+     * @return <code>true</code> if the namespace was pending.
+     * @since  2.1.5
+     */
+    private boolean loadPending(String namespace) {
+        synchronized (pendingNamespaces) {
+            String filename = (String) pendingNamespaces.remove(namespace);
+            if (filename == null) {
+                return false;
+            }
+
+            try {
+                // TCS Component
+                if (filename.length() == 0) {
+                    add(namespace, CONFIG_XML_FORMAT);
+                    return true;
+                }
+
+                // judge file type from extension
+                String lower = filename.toLowerCase();
+                if (lower.endsWith(CONFIG_PROPERTIES_FORMAT)) {
+                    // properties
+                    add(namespace, filename, CONFIG_PROPERTIES_FORMAT);
+                } else if (lower.endsWith(CONFIG_PLUGGABLE_FORMAT)) {
+                    // pluggable
+                    add(namespace, filename, CONFIG_PLUGGABLE_FORMAT);
+                } else if (lower.endsWith(CONFIG_XML_FORMAT)) {
+                    // xml, whether multiple namespace?
+                    URL url = ConfigManager.getURL(filename);
+                    String stamp = getFileStamp(url);
+                    XMLConfigParser parser = parse(url);
+                    if (parser.getNamespaces().hasMoreElements()) {
+                        addURL(namespace, url, CONFIG_MULTIPLE_XML_FORMAT, EXCEPTIONS_ALL, parser, stamp);
+                        loadPendingSiblings(filename, url, parser, stamp);
+                    } else {
+                        addURL(namespace, url, CONFIG_XML_FORMAT, EXCEPTIONS_ALL, parser, stamp);
+                    }
+                } else {
+                    System.err.println("unrecognized file type : " + filename);
+                }
+            } catch (Exception exception) {
+                System.err.println("encounter exception loading " + filename + " : " + exception.getMessage());
+                exception.printStackTrace();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Loads the pending namespaces registered with the given multi-namespace
+     * XML file from its parse. Must be called while holding the lock
+     * of the pending namespaces.
+     *
+     * @param  filename the file of the namespaces.
+     * @param  url the location of the file.
+     * @param  parser the parser of the file.
+     * @param  stamp the stamp of the file taken before it was parsed.
+     */
+    private void loadPendingSiblings(String filename, URL url, XMLConfigParser parser, String stamp) {
+        for (Iterator itr = pendingNamespaces.entrySet().iterator(); itr.hasNext();) {
+            Map.Entry entry = (Map.Entry) itr.next();
+            if (entry.getValue().equals(filename)) {
+                itr.remove();
+                try {
+                    addURL((String) entry.getKey(), url, CONFIG_MULTIPLE_XML_FORMAT, EXCEPTIONS_ALL, parser, stamp);
+                } catch (Exception exception) {
+                    System.err.println("encounter exception loading " + filename + " : " + exception.getMessage());
+                    exception.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the given namespace, loading it if it is pending.
+     *
+     * @param  namespace the name of the namespace.
+     * @return the namespace, or <code>null</code> if it is unknown.
+     * @since  2.1.5
+     */
+    private Namespace getNamespace(String namespace) {
+        Namespace ns = (Namespace) snapshot.namespaces.get(namespace);
+        if (ns == null && loadPending(namespace)) {
+            ns = (Namespace) snapshot.namespaces.get(namespace);
         }
+        return ns;
     }
 
     /**
@@ -344,15 +642,14 @@ class DefaultConfigManager extends ConfigManager {
      */
     public void refreshAll() throws ConfigManagerException {
         String message = "";
-        // get a copy of the key set
-        for (Iterator itr = new HashSet(namespaces.keySet()).iterator(); itr.hasNext();) {
-            String namespace = (String) itr.next();
+        // the snapshot is not modified by the removals
+        for (Iterator itr = snapshot.namespaces.values().iterator(); itr.hasNext();) {
+            Namespace ns = (Namespace) itr.next();
             try {
-                ((Namespace) namespaces.get(namespace)).getProperties().load();
+                reload(ns);
             } catch (Exception exception) {
                 // remove namespace and accumulate error messages
-                namespaces.remove(namespace);
-                tempProperties.remove(namespace);
+                removeNamespaceEntry(ns.getName());
                 message += exception.getMessage();
             }
         }
@@ -375,19 +672,192 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
         try {
-            ((Namespace) namespaces.get(namespace)).getProperties().load();
+            reload(ns);
         } catch (IOException ioe) {
             // remove namespace
-            namespaces.remove(namespace);
-            tempProperties.remove(namespace);
+            removeNamespaceEntry(namespace);
             throw new ConfigManagerException(ioe.getMessage());
         }
     }
 
+    /**
+     * Reloads the properties of given namespace. The properties are loaded
+     * into a copy, which replaces the previous ones once complete, so that
+     * the readers are never blocked nor see partly loaded properties.
+     *
+     * @param  ns the namespace to reload
+     * @throws IOException if the properties can not be loaded
+     * @since  2.1.5
+     */
+    private void reload(Namespace ns) throws IOException {
+        synchronized (ns) {
+            String stamp = getFileStamp(ns.getFile());
+            publish(ns, ns.getProperties().loadCopy());
+            ns.setFileStamp(stamp);
+        }
+    }
+
+    /**
+     * Replaces the properties of given namespace with given loaded ones, and
+     * notifies the listeners of the changed values.
+     *
+     * @param  ns the reloaded namespace
+     * @param  properties the loaded properties
+     * @since  2.1.5
+     */
+    private void publish(Namespace ns, ConfigProperties properties) {
+        PropertyIndex index = properties.getIndex();
+        ConfigProperties previous = ns.getProperties();
+        ns.setProperties(properties);
+        Set changedKeys = previous.getIndex().getChangedKeys(index);
+        if (!changedKeys.isEmpty()) {
+            ConfigChangeListener[] current;
+            synchronized (listeners) {
+                current = (ConfigChangeListener[]) listeners.toArray(new ConfigChangeListener[listeners.size()]);
+            }
+            ConfigChangeEvent event = new ConfigChangeEvent(this, ns.getName(), changedKeys);
+            for (int i = 0; i < current.length; ++i) {
+                try {
+                    current[i].configurationChanged(event);
+                } catch (RuntimeException re) {
+                    System.err.println("encounter exception notifying the change of " + ns.getName()
+                            + " : " + re.getMessage());
+                    re.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a listener notified when a namespace is reloaded and some of its
+     * values changed.
+     *
+     * @param  listener the listener to add
+     * @throws NullPointerException if given listener is null
+     * @since  2.1.5
+     */
+    public void addConfigChangeListener(ConfigChangeListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("parameter listener is null");
+        }
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener added by <code>addConfigChangeListener()</code>.
+     *
+     * @param  listener the listener to remove
+     * @throws NullPointerException if given listener is null
+     * @since  2.1.5
+     */
+    public void removeConfigChangeListener(ConfigChangeListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("parameter listener is null");
+        }
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Starts watching the files of the namespaces, restarting the watching if
+     * the files are already watched.
+     *
+     * @param  interval the interval between two checks, in milliseconds
+     * @throws IllegalArgumentException if given interval is not positive
+     * @since  2.1.5
+     */
+    public synchronized void startWatching(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("parameter interval is illegal");
+        }
+        stopWatching();
+        watcher = new ConfigFileWatcher(this, interval);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the files of the namespaces.
+     *
+     * @since  2.1.5
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Gets the loaded namespaces whose file can be watched, that is the
+     * namespaces read from a local file, except the pluggable ones.
+     *
+     * @return the lists of namespaces, by file name
+     * @since  2.1.5
+     */
+    Map getWatchedFiles() {
+        Map files = new HashMap();
+        for (Iterator itr = snapshot.namespaces.values().iterator(); itr.hasNext();) {
+            Namespace ns = (Namespace) itr.next();
+            if (!ns.getFile().getProtocol().equals("file") || ns.getFormat().equals(CONFIG_PLUGGABLE_FORMAT)) {
+                continue;
+            }
+            try {
+                String filename = ConfigManager.decodeURL(ns.getFile().getFile());
+                List list = (List) files.get(filename);
+                if (list == null) {
+                    list = new ArrayList();
+                    files.put(filename, list);
+                }
+                list.add(ns);
+            } catch (ConfigManagerException cme) {
+                // not a valid file name
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Reloads the given namespaces of a changed file. The namespaces of a
+     * multi-namespace XML file are loaded from a single parse. A namespace
+     * which fails to reload keeps its properties, and the error is reported
+     * to the standard error output; it is not reloaded again until the file
+     * changes again.
+     *
+     * @param  file the namespaces of the file
+     * @param  stamp the stamp of the file taken before it is read
+     * @since  2.1.5
+     */
+    void reloadFile(List file, String stamp) {
+        XMLConfigParser parser = null;
+        for (Iterator itr = file.iterator(); itr.hasNext();) {
+            Namespace ns = (Namespace) itr.next();
+            ns.setFileStamp(stamp);
+            try {
+                synchronized (ns) {
+                    if (ns.getFormat().equals(CONFIG_MULTIPLE_XML_FORMAT)) {
+                        if (parser == null) {
+                            parser = parse(ns.getFile());
+                        }
+                        publish(ns, new XMLConfigProperties(ns.getFile(), ns.getName(), parser));
+                    } else {
+                        publish(ns, ns.getProperties().loadCopy());
+                    }
+                }
+            } catch (Exception exception) {
+                System.err.println("encounter exception reloading " + ns.getName() + " : " + exception.getMessage());
+                exception.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Gets the property specified from the specified namespace.
      *
@@ -425,10 +895,11 @@ class DefaultConfigManager extends ConfigManager {
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        return ((Namespace) namespaces.get(namespace)).getProperties().getRoot().getProperty(key);
+        return ns.getProperties().getIndex().getProperty(key);
     }
 
     /**
@@ -446,15 +917,18 @@ class DefaultConfigManager extends ConfigManager {
      * @throws NullPointerException if any of given arguments is null
      */
     public String getString(String namespace, String key) throws UnknownNamespaceException {
-        Property property = getPropertyObject(namespace, key);
-        if (property == null || property.getValue() == null) {
-            return null;
-        } else {
-            // construct a delimeted string
-            char listDelimiter = ((Namespace) namespaces.get(namespace)).getProperties().getListDelimiter();
-            String[] values = property.getValues();
-            return mergeEscaped(values, listDelimiter);
+        if (namespace == null) {
+            throw new NullPointerException("parameter namespace is null");
+        }
+        if (key == null) {
+            throw new NullPointerException("parameter key is null");
         }
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
+            throw new UnknownNamespaceException(namespace + " is unknown");
+        }
+        // the delimeted string is merged once per load of the namespace
+        return ns.getProperties().getIndex().getString(key);
     }
 
     /**
@@ -495,10 +969,11 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        return ((Namespace) namespaces.get(namespace)).getProperties().getRoot().propertyNames();
+        return ns.getProperties().getRoot().propertyNames();
     }
 
     /**
@@ -512,7 +987,7 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        return namespaces.containsKey(namespace);
+        return getNamespace(namespace) != null;
     }
 
     /**
@@ -528,10 +1003,11 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        return ((Namespace) namespaces.get(namespace)).getFormat();
+        return ns.getFormat();
     }
 
     /**
@@ -547,20 +1023,42 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        return ((Namespace) namespaces.get(namespace)).getFile().getFile();
+        return ns.getFile().getFile();
     }
 
     /**
-     * Gets an <code>Iterator</code> over list of existing namespaces.
+     * Gets an <code>Iterator</code> over list of existing namespaces. The
+     * pending namespaces are loaded first, so that only the namespaces which
+     * were successfully loaded are listed. The iterator is over the namespaces
+     * existing when it is created, and does not support removal.
      *
      * @return an <code>Iterator</code> over all existing namespaces.
      */
     public Iterator getAllNamespaces() {
-        // make a copy to prevent modification
-        return new HashSet(namespaces.keySet()).iterator();
+        synchronized (pendingNamespaces) {
+            while (!pendingNamespaces.isEmpty()) {
+                loadPending((String) pendingNamespaces.keySet().iterator().next());
+            }
+        }
+        // the snapshot is never modified
+        return Collections.unmodifiableSet(snapshot.namespaces.keySet()).iterator();
+    }
+
+    /**
+     * Gets an <code>Iterator</code> over the names of the loaded namespaces,
+     * without loading the pending ones. The iterator is over the namespaces
+     * loaded when it is created, and does not support removal.
+     *
+     * @return an <code>Iterator</code> over the loaded namespaces.
+     * @since  2.1.5
+     */
+    Iterator getLoadedNamespaces() {
+        // the snapshot is never modified
+        return Collections.unmodifiableSet(snapshot.namespaces.keySet()).iterator();
     }
 
     /**
@@ -585,33 +1083,33 @@ class DefaultConfigManager extends ConfigManager {
         if (user == null) {
             throw new NullPointerException("parameter user is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
 
         // get namespace
-        Namespace ns = (Namespace) namespaces.get(namespace);
+        Namespace ns = (Namespace) snapshot.namespaces.get(namespace);
+        if (ns == null) {
+            throw new UnknownNamespaceException(namespace + " is unknown");
+        }
         if (!ns.canLock(user)) {
             throw new ConfigLockedException(namespace + " is currently locked by another user");
         }
         ns.lock(user);
         try {
-            ((ConfigProperties) tempProperties.get(namespace)).save();
+            properties.save();
         } catch (UnsupportedOperationException uoe) {
             throw new ConfigManagerException(uoe.getMessage());
         } catch (IOException ioe) {
             throw new ConfigManagerException(ioe.getMessage());
         } finally {
-            tempProperties.remove(namespace);
+            putTemporary(namespace, null);
             ns.releaseLock();
 
             // refresh namespaces sharing the same source
-            for (Iterator itr = new HashSet(namespaces.keySet()).iterator(); itr.hasNext();) {
-                String shareNamespace = (String) itr.next();
+            for (Iterator itr = snapshot.namespaces.values().iterator(); itr.hasNext();) {
                 try {
-                    Namespace share = (Namespace) namespaces.get(shareNamespace);
+                    Namespace share = (Namespace) itr.next();
                     if (share.getFile().getFile().equals(ns.getFile().getFile())) {
-                        share.getProperties().load();
+                        reload(share);
                     }
                 } catch (Exception exception) {
                     // ignore
@@ -638,10 +1136,11 @@ class DefaultConfigManager extends ConfigManager {
         if (user == null) {
             throw new NullPointerException("parameter user is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        ((Namespace) namespaces.get(namespace)).lock(user);
+        ns.lock(user);
     }
 
     /**
@@ -662,15 +1161,14 @@ class DefaultConfigManager extends ConfigManager {
         if (user == null) {
             throw new NullPointerException("parameter user is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
 
-        Namespace ns = (Namespace) namespaces.get(namespace);
-        for (Iterator itr = new HashSet(namespaces.keySet()).iterator(); itr.hasNext();) {
-            String shareNamespace = (String) itr.next();
+        for (Iterator itr = snapshot.namespaces.values().iterator(); itr.hasNext();) {
             try {
-                Namespace share = (Namespace) namespaces.get(shareNamespace);
+                Namespace share = (Namespace) itr.next();
                 if (share.getFile().getFile().equals(ns.getFile().getFile())) {
                     if (!share.canLock(user)) {
                         return false;
@@ -696,15 +1194,14 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
 
-        Namespace ns = (Namespace) namespaces.get(namespace);
-        for (Iterator itr = new HashSet(namespaces.keySet()).iterator(); itr.hasNext();) {
-            String shareNamespace = (String) itr.next();
+        for (Iterator itr = snapshot.namespaces.values().iterator(); itr.hasNext();) {
             try {
-                Namespace share = (Namespace) namespaces.get(shareNamespace);
+                Namespace share = (Namespace) itr.next();
                 if (share.getFile().getFile().equals(ns.getFile().getFile())) {
                     share.releaseLock();
                 }
@@ -731,10 +1228,11 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        Namespace ns = getNamespace(namespace);
+        if (ns == null) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        tempProperties.put(namespace, ((Namespace) namespaces.get(namespace)).getProperties().clone());
+        putTemporary(namespace, (ConfigProperties) ns.getProperties().clone());
     }
 
     /**
@@ -755,10 +1253,7 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
-        return ((ConfigProperties) tempProperties.get(namespace)).getRoot().propertyNames();
+        return getTemporary(namespace).getRoot().propertyNames();
     }
 
     /**
@@ -781,9 +1276,9 @@ class DefaultConfigManager extends ConfigManager {
             return null;
         } else {
             // construct a delimeted string
-            char listDelimiter = ((Namespace) namespaces.get(namespace)).getProperties().getListDelimiter();
+            char listDelimiter = ((Namespace) snapshot.namespaces.get(namespace)).getProperties().getListDelimiter();
             String[] values = property.getValues();
-            return mergeEscaped(values, listDelimiter);
+            return PropertyIndex.mergeEscaped(values, listDelimiter);
         }
     }
 
@@ -806,13 +1301,11 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
-        return ((ConfigProperties) tempProperties.get(namespace)).getRoot().getProperty(key);
+        return properties.getRoot().getProperty(key);
     }
 
     /**
@@ -859,16 +1352,14 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
         if (value == null) {
             throw new NullPointerException("parameter value is null");
         }
-        ((ConfigProperties) tempProperties.get(namespace)).getRoot().setProperty(key, value);
+        properties.getRoot().setProperty(key, value);
     }
 
     /**
@@ -890,16 +1381,14 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
         if (values == null) {
             throw new NullPointerException("parameter values is null");
         }
-        ((ConfigProperties) tempProperties.get(namespace)).getRoot().setProperty(key, values);
+        properties.getRoot().setProperty(key, values);
     }
 
     /**
@@ -920,20 +1409,18 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
         if (value == null) {
             throw new NullPointerException("parameter value is null");
         }
-        Property property = ((ConfigProperties) tempProperties.get(namespace)).getRoot().getProperty(key);
+        Property property = properties.getRoot().getProperty(key);
         if (property != null) {
             property.addValue(value);
         } else {
-            ((ConfigProperties) tempProperties.get(namespace)).getRoot().setProperty(key, value);
+            properties.getRoot().setProperty(key, value);
         }
     }
 
@@ -952,13 +1439,11 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
-        ((ConfigProperties) tempProperties.get(namespace)).getRoot().removeProperty(key);
+        properties.getRoot().removeProperty(key);
     }
 
     /**
@@ -978,16 +1463,14 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!tempProperties.containsKey(namespace)) {
-            throw new UnknownNamespaceException(namespace + " is unknown");
-        }
+        ConfigProperties properties = getTemporary(namespace);
         if (key == null) {
             throw new NullPointerException("parameter key is null");
         }
         if (value == null) {
             throw new NullPointerException("parameter value is null");
         }
-        Property property = ((ConfigProperties) tempProperties.get(namespace)).getRoot().getProperty(key);
+        Property property = properties.getRoot().getProperty(key);
         if (property != null) {
             property.removeValue(value);
         }
@@ -1005,38 +1488,47 @@ class DefaultConfigManager extends ConfigManager {
         if (namespace == null) {
             throw new NullPointerException("parameter namespace is null");
         }
-        if (!namespaces.containsKey(namespace)) {
+        // a pending namespace is removed without being loaded
+        if (pendingNamespaces.remove(namespace) != null) {
+            return;
+        }
+        if (!removeNamespaceEntry(namespace)) {
             throw new UnknownNamespaceException(namespace + " is unknown");
         }
-        namespaces.remove(namespace);
-        tempProperties.remove(namespace);
     }
 
     /**
-     * Merge a list of values into a single value with specified list delimiter.
-     * Possible occurance of list delimiter in the value itself should be escaped.
+     * An immutable view of the namespaces and of their temporary properties.
+     * A namespace is never modified by a new snapshot, its properties being
+     * replaced as a whole when it is reloaded.
      *
-     * @param  values an array of values to merge
-     * @param  listDelimiter the list delimiter to use
-     * @return the merged string
+     * @author  TCSDEVELOPER
+     * @version 2.1.5
+     * @since   2.1.5
      */
-    private static String mergeEscaped(String[] values, char listDelimiter) {
-        StringBuffer buffer = new StringBuffer();
-        for (int i = 0; i < values.length; ++i) {
-            if (i > 0) {
-                buffer.append(listDelimiter);
-            }
-            for (int k = 0; k < values[i].length(); ++k) {
-                char ch = values[i].charAt(k);
-                if (ch == listDelimiter) {
-                    buffer.append('\\');
-                    buffer.append(ch);
-                } else {
-                    buffer.append(ch);
-                }
-            }
+    private static final class Snapshot {
+
+        /**
+         * The namespaces, by name.
+         */
+        final Map namespaces;
+
+        /**
+         * The temporary properties, by namespace name.
+         */
+        final Map tempProperties;
+
+        /**
+         * Creates a snapshot of the given maps, which must not be modified
+         * afterwards. A map may be shared with the previous snapshot.
+         *
+         * @param  namespaces the namespaces, by name.
+         * @param  tempProperties the temporary properties, by namespace name.
+         */
+        Snapshot(Map namespaces, Map tempProperties) {
+            this.namespaces = namespaces;
+            this.tempProperties = tempProperties;
         }
-        return buffer.toString();
     }
 
 }
@@ -65,9 +65,11 @@ class Namespace {
     private int exceptionLevel = 0;
 
     /**
-     * A properties existing within this namespace.
+     * A properties existing within this namespace. A reload of the namespace
+     * replaces them as a whole, so that the readers see either the previous or
+     * the new properties.
      */
-    private ConfigProperties properties = null;
+    private volatile ConfigProperties properties = null;
 
     /**
      * A "semaphore" signaling that namespace is already locked by some user for
@@ -80,6 +82,14 @@ class Namespace {
      */
     private String user = null;
 
+    /**
+     * The modification time and length of the file of this namespace when its
+     * properties were last loaded, <code>null</code> if unknown.
+     *
+     * @since 2.1.5
+     */
+    private volatile String fileStamp = null;
+
     /**
      * Constructs a new <code>Namespace</code> with given name, data source,
      * format, exception level and properties.
@@ -140,6 +150,28 @@ class Namespace {
         return file;
     }
 
+    /**
+     * Gets the modification time and length of the file of this namespace
+     * when its properties were last loaded.
+     *
+     * @return the stamp of the file, <code>null</code> if unknown.
+     * @since  2.1.5
+     */
+    String getFileStamp() {
+        return fileStamp;
+    }
+
+    /**
+     * Sets the modification time and length of the file of this namespace
+     * when its properties were loaded.
+     *
+     * @param  fileStamp the stamp of the file, <code>null</code> if unknown.
+     * @since  2.1.5
+     */
+    void setFileStamp(String fileStamp) {
+        this.fileStamp = fileStamp;
+    }
+
     /**
      * Gets the exception level associated with this <code>Namespace</code>.
      *
@@ -195,9 +227,10 @@ class Namespace {
             throw new ConfigLockedException(newUser + " can not lock namespace " + name);
         }
 
-        // check whether another namespace has locked the same source
-        ConfigManager cm = ConfigManager.getInstance();
-        for (Iterator itr = cm.getAllNamespaces(); itr.hasNext();) {
+        // check whether another namespace has locked the same source, a
+        // pending namespace can not hold a lock so it is not loaded for that
+        DefaultConfigManager cm = (DefaultConfigManager) ConfigManager.getInstance();
+        for (Iterator itr = cm.getLoadedNamespaces(); itr.hasNext();) {
             String namespace = (String) itr.next();
             String filename = cm.getConfigFilename(namespace);
             if (file.getFile().equals(filename) && !cm.canLock(namespace, newUser)) {
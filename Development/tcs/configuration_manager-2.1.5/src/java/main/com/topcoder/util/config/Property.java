@@ -10,9 +10,10 @@ package com.topcoder.util.config;
 import java.util.Vector;
 import java.util.Enumeration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Iterator;
-import java.util.StringTokenizer;
+import java.util.Map;
 
 /**
  * An element of configuration data representing some property. A property may
@@ -58,6 +59,13 @@ public class Property implements Cloneable {
      */
     private List subproperties = null;
 
+    /**
+     * The properties directly nested within this property, by their names.
+     * It is kept in sync with the list of subproperties, so that the compound
+     * names are resolved without scanning the lists.
+     */
+    private Map subpropertyIndex = null;
+
     /**
      * A <code>List</code> of mulpile <code>String</code> values associated
      * with this <code>Property</code>
@@ -113,6 +121,7 @@ public class Property implements Cloneable {
         }
         this.name = name;
         subproperties = new ArrayList();
+        subpropertyIndex = new HashMap();
         values = new ArrayList();
     }
 
@@ -177,6 +186,7 @@ public class Property implements Cloneable {
     Property() {
         name = "";
         subproperties = new ArrayList();
+        subpropertyIndex = new HashMap();
         values = new ArrayList();
     }
 
@@ -265,13 +275,12 @@ public class Property implements Cloneable {
             throw new NullPointerException("parameter property is null");
         }
 
-        for (Iterator itr = subproperties.iterator(); itr.hasNext();) {
-            if (((Property) itr.next()).name.equals(property.name)) {
-                throw new DuplicatePropertyException("property " + name + " already exists");
-            }
+        if (subpropertyIndex.containsKey(property.name)) {
+            throw new DuplicatePropertyException("property " + name + " already exists");
         }
 
         subproperties.add(property);
+        subpropertyIndex.put(property.name, property);
     }
 
     /**
@@ -330,10 +339,9 @@ public class Property implements Cloneable {
 
         // remove it
         name = name.substring(lastPos + 1);
-        for (Iterator itr = property.subproperties.iterator(); itr.hasNext();) {
-            if (((Property) itr.next()).name.equals(name)) {
-                itr.remove();
-            }
+        Property subproperty = (Property) property.subpropertyIndex.remove(name);
+        if (subproperty != null) {
+            property.subproperties.remove(subproperty);
         }
     }
 
@@ -681,25 +689,21 @@ public class Property implements Cloneable {
      *         this property; <code>null</code> otherwise
      */
     Property find(String name) {
-        // tokenize
-        StringTokenizer tokenizer = new StringTokenizer(name, ".");
         Property property = this;
-        while (tokenizer.hasMoreTokens()) {
-            name = tokenizer.nextToken();
-            boolean found = false;
-            // locate property
-            for (Iterator itr = property.subproperties.iterator(); itr.hasNext();) {
-                Property nextProp = (Property) itr.next();
-                if (nextProp.name.equals(name)) {
-                    property = nextProp;
-                    found = true;
-                    break;
-                }
+        // walk the dot-separated parts, skipping the empty ones
+        for (int start = 0; start < name.length(); ++start) {
+            int end = name.indexOf('.', start);
+            if (end == -1) {
+                end = name.length();
             }
-            // if not found, then the target property does not exist
-            if (!found) {
-                return null;
+            if (end > start) {
+                property = (Property) property.subpropertyIndex.get(name.substring(start, end));
+                // if not found, then the target property does not exist
+                if (property == null) {
+                    return null;
+                }
             }
+            start = end;
         }
         return property;
     }
@@ -726,24 +730,24 @@ public class Property implements Cloneable {
             throw new IllegalArgumentException("parameter name is empty");
         }
 
-        // tokenize
-        StringTokenizer tokenizer = new StringTokenizer(name, ".");
         Property property = this;
-        while (tokenizer.hasMoreTokens()) {
-            name = tokenizer.nextToken();
-            boolean found = false;
-            // locate property
-            for (Iterator itr = property.subproperties.iterator(); itr.hasNext();) {
-                Property nextProp = (Property) itr.next();
-                if (nextProp.name.equals(name)) {
-                    property = nextProp;
-                    found = true;
-                    break;
-                }
+        // walk the dot-separated parts, skipping the empty ones
+        for (int start = 0; start < name.length(); ++start) {
+            int end = name.indexOf('.', start);
+            if (end == -1) {
+                end = name.length();
+            }
+            if (end == start) {
+                continue;
             }
-            // if not found, create!
-            if (!found) {
-                Property newProp = new Property(name);
+            String part = name.substring(start, end);
+            start = end;
+            Property nextProp = (Property) property.subpropertyIndex.get(part);
+            if (nextProp != null) {
+                property = nextProp;
+            } else {
+                // if not found, create!
+                Property newProp = new Property(part);
                 try {
                     property.addProperty(newProp);
                 } catch (DuplicatePropertyException dpe) {
@@ -767,7 +771,9 @@ public class Property implements Cloneable {
         property.values = new ArrayList(values);
         property.subproperties = new ArrayList();
         for (Iterator itr = subproperties.iterator(); itr.hasNext();) {
-            property.subproperties.add(((Property) itr.next()).clone());
+            Property subproperty = (Property) ((Property) itr.next()).clone();
+            property.subproperties.add(subproperty);
+            property.subpropertyIndex.put(subproperty.name, subproperty);
         }
         if (comments != null) {
             property.comments = new ArrayList(comments);
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) PropertyIndex.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A flat index of a properties tree, used by <code>ConfigManager</code> to
+ * resolve the keys of a namespace without walking the tree. Every property
+ * nested within the root is mapped by its full dotted key, and the merged
+ * string value returned by <code>getString</code> is computed once for each
+ * property holding values.
+ *
+ * <p>The index is immutable. It is built for a given root and list delimiter,
+ * and <code>ConfigProperties</code> builds a new one when either changes,
+ * that is when the namespace is loaded again by a refresh or a commit. The
+ * tree must not be modified while it is indexed, which holds for the trees of
+ * the namespaces : only the temporary properties are modified in place.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+final class PropertyIndex {
+
+    /**
+     * The indexed "root" property.
+     */
+    private final Property root;
+
+    /**
+     * The list delimiter used to merge the values.
+     */
+    private final char listDelimiter;
+
+    /**
+     * The properties nested within the root, by their full dotted keys.
+     */
+    private final Map properties = new HashMap();
+
+    /**
+     * The merged values of the properties holding values, by their full dotted
+     * keys.
+     */
+    private final Map strings = new HashMap();
+
+    /**
+     * Builds the index of the given properties tree.
+     *
+     * @param  root the "root" property of the tree
+     * @param  listDelimiter the list delimiter used to merge the values
+     */
+    PropertyIndex(Property root, char listDelimiter) {
+        this.root = root;
+        this.listDelimiter = listDelimiter;
+        index(root, null);
+    }
+
+    /**
+     * Adds the properties nested within given property to the index.
+     *
+     * @param  property the property whose nested properties are indexed
+     * @param  prefix the full key of the property, or <code>null</code> for
+     *         the root
+     */
+    private void index(Property property, String prefix) {
+        for (Iterator itr = property.list().iterator(); itr.hasNext();) {
+            Property subproperty = (Property) itr.next();
+            String key = prefix == null ? subproperty.getName() : prefix + "." + subproperty.getName();
+            properties.put(key, subproperty);
+            if (subproperty.getValue() != null) {
+                strings.put(key, mergeEscaped(subproperty.getValues(), listDelimiter));
+            }
+            index(subproperty, key);
+        }
+    }
+
+    /**
+     * Checks whether this index was built for given tree and list delimiter.
+     *
+     * @param  root a "root" property
+     * @param  listDelimiter a list delimiter
+     * @return <code>true</code> if this index can be used for given tree and
+     *         list delimiter
+     */
+    boolean isIndexOf(Property root, char listDelimiter) {
+        return this.root == root && this.listDelimiter == listDelimiter;
+    }
+
+    /**
+     * Gets the property specified by given key. A key which is not a plain
+     * dotted key, such as "a..b" or ".a", is resolved through the tree as
+     * <code>Property.getProperty</code> does.
+     *
+     * @param  key a compound name pointing to requested property
+     * @return the requested property or <code>null</code> if it does not exist
+     */
+    Property getProperty(String key) {
+        Property property = (Property) properties.get(key);
+        if (property == null && !isPlainKey(key)) {
+            property = root.find(key);
+        }
+        return property;
+    }
+
+    /**
+     * Gets the merged value of the property specified by given key.
+     *
+     * @param  key a compound name pointing to requested property
+     * @return the values of the property merged with the list delimiter, or
+     *         <code>null</code> if the property does not exist or has no value
+     */
+    String getString(String key) {
+        String string = (String) strings.get(key);
+        if (string == null && !isPlainKey(key)) {
+            Property property = root.find(key);
+            if (property != null && property.getValue() != null) {
+                string = mergeEscaped(property.getValues(), listDelimiter);
+            }
+        }
+        return string;
+    }
+
+    /**
+     * Gets the keys whose merged values differ between this index and given
+     * one, that is the keys of the values added, removed or modified.
+     *
+     * @param  other the index of another tree
+     * @return the sorted changed keys
+     */
+    Set getChangedKeys(PropertyIndex other) {
+        Set keys = new TreeSet();
+        for (Iterator itr = strings.entrySet().iterator(); itr.hasNext();) {
+            Map.Entry entry = (Map.Entry) itr.next();
+            if (!entry.getValue().equals(other.strings.get(entry.getKey()))) {
+                keys.add(entry.getKey());
+            }
+        }
+        for (Iterator itr = other.strings.keySet().iterator(); itr.hasNext();) {
+            Object key = itr.next();
+            if (!strings.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Checks whether given key is a plain dotted key, that is a non empty key
+     * with no empty part. Only such keys are indexed.
+     *
+     * @param  key the key to check
+     * @return <code>true</code> if the key is a plain dotted key
+     */
+    private static boolean isPlainKey(String key) {
+        int length = key.length();
+        if (length == 0 || key.charAt(0) == '.' || key.charAt(length - 1) == '.') {
+            return false;
+        }
+        for (int i = 1; i < length; ++i) {
+            if (key.charAt(i) == '.' && key.charAt(i - 1) == '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merge a list of values into a single value with specified list delimiter.
+     * Possible occurance of list delimiter in the value itself should be escaped.
+     *
+     * @param  values an array of values to merge
+     * @param  listDelimiter the list delimiter to use
+     * @return the merged string
+     */
+    static String mergeEscaped(String[] values, char listDelimiter) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
+                buffer.append(listDelimiter);
+            }
+            for (int k = 0; k < values[i].length(); ++k) {
+                char ch = values[i].charAt(k);
+                if (ch == listDelimiter) {
+                    buffer.append('\\');
+                    buffer.append(ch);
+                } else {
+                    buffer.append(ch);
+                }
+            }
+        }
+        return buffer.toString();
+    }
+
+}
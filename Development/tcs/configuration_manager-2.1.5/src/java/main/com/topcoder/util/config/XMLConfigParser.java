@@ -0,0 +1,759 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) XMLConfigParser.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A SAX handler building the properties trees of an XML configuration file in
+ * a single pass, without building the DOM tree of the file. It is used by
+ * <code>XMLConfigProperties</code> to load its properties, and by <code>
+ * DefaultConfigManager</code> to load all the namespaces of a multi-namespace
+ * file from a single parse.
+ *
+ * <p>The trees, the comments, the list delimiters and the errors are the same
+ * as those of the previous DOM loader, which this class replaces:
+ * <ul>
+ * <li>the "root" node of the single-namespace format is the first
+ * <code>CMConfig</code> element, the one of a namespace is the first <code>
+ * Config</code> element named after it. A <code>Config</code> element with no
+ * name met before it is an incorrect format.</li>
+ * <li>the comments are attached to the next property holding values at the
+ * same level. The comments directly within a property are seen at its own
+ * level and at the level of its nested properties.</li>
+ * <li>a <code>ListDelimiter</code> element applies to the values following it.
+ * </li>
+ * </ul>
+ * An error found while building a tree is reported for its namespace only,
+ * and only once the whole file was parsed, so that the errors of the XML
+ * parser are reported first.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+final class XMLConfigParser extends DefaultHandler implements LexicalHandler {
+
+    /**
+     * The SAX property used to register the lexical handler.
+     */
+    private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+
+    /**
+     * The namespace to build, or <code>null</code> for the single-namespace
+     * format. Ignored if all the namespaces are built.
+     */
+    private final String namespace;
+
+    /**
+     * Whether all the namespaces are built, together with the single-namespace
+     * format.
+     */
+    private final boolean all;
+
+    /**
+     * Whether any namespace is built.
+     */
+    private final boolean build;
+
+    /**
+     * The list delimiter the trees are built with at first.
+     */
+    private final char listDelimiter;
+
+    /**
+     * The builder of the single-namespace format, or <code>null</code> if the
+     * <code>CMConfig</code> element was not found.
+     */
+    private Builder rootBuilder = null;
+
+    /**
+     * The builders of the namespaces, by their names.
+     */
+    private final Map builders = new HashMap();
+
+    /**
+     * The builders receiving the events, that is those whose "root" element
+     * is currently open.
+     */
+    private final List activeBuilders = new ArrayList();
+
+    /**
+     * Whether a <code>Config</code> element with no name was found. The
+     * namespaces found after it can not be located.
+     */
+    private boolean namelessConfig = false;
+
+    /**
+     * The names of the namespaces of the file, that is of the <code>Config
+     * </code> elements not nested within another one.
+     */
+    private final Vector namespaces = new Vector();
+
+    /**
+     * Whether one of the <code>Config</code> elements listed in the namespaces
+     * has no name.
+     */
+    private boolean namelessNamespace = false;
+
+    /**
+     * The number of currently open <code>Config</code> elements.
+     */
+    private int configDepth = 0;
+
+    /**
+     * Creates a new <code>XMLConfigParser</code> that builds the properties of
+     * given namespace.
+     *
+     * @param  namespace the namespace to build, or <code>null</code> for a
+     *         single-namespace file
+     * @param  listDelimiter the list delimiter to start with
+     */
+    XMLConfigParser(String namespace, char listDelimiter) {
+        this.namespace = namespace;
+        this.all = false;
+        this.build = true;
+        this.listDelimiter = listDelimiter;
+    }
+
+    /**
+     * Creates a new <code>XMLConfigParser</code> that builds the properties of
+     * all the namespaces and of the single-namespace format, starting with the
+     * default list delimiter, or that only lists the namespaces.
+     *
+     * @param  build whether the properties are built
+     */
+    XMLConfigParser(boolean build) {
+        this.namespace = null;
+        this.all = build;
+        this.build = build;
+        this.listDelimiter = ';';
+    }
+
+    /**
+     * Parses the XML file at given URL.
+     *
+     * @param  url the url of the file to parse
+     * @param  errorHandler the handler of the parsing errors, or <code>null
+     *         </code> for the default one
+     * @throws ConfigParserException if a parsing error occurs
+     * @throws IOException if the file can not be opened
+     */
+    void parse(URL url, ErrorHandler errorHandler) throws IOException {
+        // create SAX parser
+        XMLReader reader = null;
+        try {
+            reader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+            reader.setContentHandler(this);
+            reader.setErrorHandler(errorHandler == null ? this : errorHandler);
+            reader.setProperty(LEXICAL_HANDLER, this);
+        } catch (FactoryConfigurationError e) {
+            throw new ConfigParserException("Error occurred obtaining SAX Parser Factory: " + e.getMessage());
+        } catch (ParserConfigurationException e) {
+            throw new ConfigParserException("The underlying parser does not support the requested features: " + e.getMessage());
+        } catch (SAXException e) {
+            throw new ConfigParserException("The underlying parser does not support the requested features: " + e.getMessage());
+        }
+        InputStream stream = url.openStream();
+        try {
+            reader.parse(new InputSource(stream));
+        } catch (SAXException saxe) {
+            throw new ConfigParserException(saxe.getMessage());
+        } catch (IOException ioe) {
+            throw new ConfigParserException(ioe.getMessage());
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Gets the list of namespaces defined in the parsed file.
+     *
+     * @return all namespaces stored in the file, none for a single-namespace
+     *         file.
+     * @throws ConfigParserException if a namespace has no name.
+     */
+    Enumeration getNamespaces() throws ConfigParserException {
+        if (namelessNamespace) {
+            throw new ConfigParserException("incorrect xml format");
+        }
+        return namespaces.elements();
+    }
+
+    /**
+     * Gets the built properties of given namespace.
+     *
+     * @param  namespace the namespace, or <code>null</code> for a
+     *         single-namespace file
+     * @return the "root" property of the namespace
+     * @throws ConfigParserException if the namespace can not be located, or
+     *         its format is incorrect
+     */
+    Property getRoot(String namespace) throws ConfigParserException {
+        Builder builder = getBuilder(namespace);
+        if (builder == null) {
+            if (namespace != null && namelessConfig) {
+                throw new ConfigParserException("incorrect xml format");
+            }
+            throw new ConfigParserException("can not locate namespace " + namespace);
+        }
+        if (builder.error != null) {
+            throw builder.error;
+        }
+        return builder.root;
+    }
+
+    /**
+     * Gets the list delimiter of given namespace, that is the one set by the
+     * namespace before any error, or the one it started with.
+     *
+     * @param  namespace the namespace, or <code>null</code> for a
+     *         single-namespace file
+     * @return the list delimiter of the namespace
+     */
+    char getListDelimiter(String namespace) {
+        Builder builder = getBuilder(namespace);
+        return builder == null ? listDelimiter : builder.listDelimiter;
+    }
+
+    /**
+     * Gets the builder of given namespace.
+     *
+     * @param  namespace the namespace, or <code>null</code> for a
+     *         single-namespace file
+     * @return the builder, or <code>null</code> if the namespace was not found
+     */
+    private Builder getBuilder(String namespace) {
+        return namespace == null ? rootBuilder : (Builder) builders.get(namespace);
+    }
+
+    /**
+     * Receives the start of an element. The element is passed to the active
+     * builders, and starts a new one if it is the "root" node of a namespace
+     * to build.
+     *
+     * @param  uri the namespace URI, unused
+     * @param  localName the local name, unused
+     * @param  qName the name of the element
+     * @param  attributes the attributes of the element
+     */
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            ((Builder) itr.next()).startElement(qName, attributes);
+        }
+
+        if (qName.equals("CMConfig")) {
+            if (build && (all || namespace == null) && rootBuilder == null) {
+                rootBuilder = new Builder(listDelimiter);
+                activeBuilders.add(rootBuilder);
+            }
+        } else if (qName.equals("Config")) {
+            String name = attributes.getValue("name");
+            if (configDepth == 0) {
+                if (name == null) {
+                    namelessNamespace = true;
+                } else {
+                    namespaces.add(name);
+                }
+            }
+            ++configDepth;
+
+            if (name == null) {
+                namelessConfig = true;
+            } else if (build && !namelessConfig && (all || name.equals(namespace)) && !builders.containsKey(name)) {
+                Builder builder = new Builder(listDelimiter);
+                builders.put(name, builder);
+                activeBuilders.add(builder);
+            }
+        }
+    }
+
+    /**
+     * Receives the end of an element, and passes it to the active builders.
+     *
+     * @param  uri the namespace URI, unused
+     * @param  localName the local name, unused
+     * @param  qName the name of the element
+     */
+    public void endElement(String uri, String localName, String qName) {
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            Builder builder = (Builder) itr.next();
+            if (builder.endElement()) {
+                itr.remove();
+            }
+        }
+        if (qName.equals("Config")) {
+            --configDepth;
+        }
+    }
+
+    /**
+     * Receives character data, and passes it to the active builders.
+     *
+     * @param  ch the characters
+     * @param  start the start position in the array
+     * @param  length the number of characters
+     */
+    public void characters(char[] ch, int start, int length) {
+        if (length == 0) {
+            return;
+        }
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            ((Builder) itr.next()).characters(ch, start, length);
+        }
+    }
+
+    /**
+     * Receives ignorable whitespace, which is kept as character data.
+     *
+     * @param  ch the characters
+     * @param  start the start position in the array
+     * @param  length the number of characters
+     */
+    public void ignorableWhitespace(char[] ch, int start, int length) {
+        characters(ch, start, length);
+    }
+
+    /**
+     * Receives a processing instruction, and passes it to the active builders.
+     *
+     * @param  target the target of the instruction
+     * @param  data the data of the instruction
+     */
+    public void processingInstruction(String target, String data) {
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            ((Builder) itr.next()).otherNode();
+        }
+    }
+
+    /**
+     * Receives a comment, and passes it to the active builders.
+     *
+     * @param  ch the characters
+     * @param  start the start position in the array
+     * @param  length the number of characters
+     */
+    public void comment(char[] ch, int start, int length) {
+        if (activeBuilders.isEmpty()) {
+            return;
+        }
+        String comment = new String(ch, start, length);
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            ((Builder) itr.next()).comment(comment);
+        }
+    }
+
+    /**
+     * Receives the start of a CDATA section, and passes it to the active
+     * builders.
+     */
+    public void startCDATA() {
+        for (Iterator itr = activeBuilders.iterator(); itr.hasNext();) {
+            ((Builder) itr.next()).otherNode();
+        }
+    }
+
+    /**
+     * Receives the end of a CDATA section, ignored.
+     */
+    public void endCDATA() {
+    }
+
+    /**
+     * Receives the start of the DTD, ignored.
+     *
+     * @param  name the document type name
+     * @param  publicId the public identifier
+     * @param  systemId the system identifier
+     */
+    public void startDTD(String name, String publicId, String systemId) {
+    }
+
+    /**
+     * Receives the end of the DTD, ignored.
+     */
+    public void endDTD() {
+    }
+
+    /**
+     * Receives the start of an entity, ignored since the entities are
+     * expanded.
+     *
+     * @param  name the name of the entity
+     */
+    public void startEntity(String name) {
+    }
+
+    /**
+     * Receives the end of an entity, ignored since the entities are expanded.
+     *
+     * @param  name the name of the entity
+     */
+    public void endEntity(String name) {
+    }
+
+    /**
+     * An element being built, or ignored.
+     */
+    private static final class Frame {
+
+        /**
+         * The "root" element of the namespace.
+         */
+        static final int ROOT = 0;
+
+        /**
+         * A <code>Property</code> element.
+         */
+        static final int PROPERTY = 1;
+
+        /**
+         * A <code>Value</code> element.
+         */
+        static final int VALUE = 2;
+
+        /**
+         * A <code>ListDelimiter</code> element.
+         */
+        static final int DELIMITER = 3;
+
+        /**
+         * An element whose content is ignored.
+         */
+        static final int IGNORED = 4;
+
+        /**
+         * The type of the element.
+         */
+        final int type;
+
+        /**
+         * The frame of the enclosing element.
+         */
+        final Frame parent;
+
+        /**
+         * The full key of a property, <code>null</code> for the "root" element.
+         */
+        final String key;
+
+        /**
+         * The comments waiting for the next property holding values among the
+         * children of the element.
+         */
+        List comments = null;
+
+        /**
+         * The values of a property.
+         */
+        List values = null;
+
+        /**
+         * The text of a value or a list delimiter, <code>null</code> until
+         * some text is found.
+         */
+        StringBuffer text = null;
+
+        /**
+         * Creates a new frame.
+         *
+         * @param  type the type of the element
+         * @param  parent the frame of the enclosing element
+         * @param  key the full key of a property
+         */
+        Frame(int type, Frame parent, String key) {
+            this.type = type;
+            this.parent = parent;
+            this.key = key;
+            if (type == ROOT || type == PROPERTY) {
+                comments = new ArrayList();
+            }
+            if (type == PROPERTY) {
+                values = new ArrayList();
+            }
+        }
+
+        /**
+         * Gets the prefix of the keys of the properties nested within the
+         * element.
+         *
+         * @return the prefix of the nested keys
+         */
+        String getPrefix() {
+            return key == null ? "" : key + ".";
+        }
+    }
+
+    /**
+     * The builder of the properties tree of a namespace. It stops at the
+     * first error, which is kept to be reported.
+     */
+    private static final class Builder {
+
+        /**
+         * The built "root" property.
+         */
+        final Property root = new Property();
+
+        /**
+         * The current list delimiter.
+         */
+        char listDelimiter;
+
+        /**
+         * The first error found, or <code>null</code>.
+         */
+        ConfigParserException error = null;
+
+        /**
+         * The frames of the open elements, the "root" element first.
+         */
+        private final List frames = new ArrayList();
+
+        /**
+         * Creates a new builder, whose "root" element was just started.
+         *
+         * @param  listDelimiter the list delimiter to start with
+         */
+        Builder(char listDelimiter) {
+            this.listDelimiter = listDelimiter;
+            frames.add(new Frame(Frame.ROOT, null, null));
+        }
+
+        /**
+         * Gets the frame of the innermost open element.
+         *
+         * @return the current frame
+         */
+        private Frame top() {
+            return (Frame) frames.get(frames.size() - 1);
+        }
+
+        /**
+         * Checks whether the builder stopped, either at an error or at the end
+         * of its "root" element.
+         *
+         * @return <code>true</code> if the builder stopped
+         */
+        private boolean isStopped() {
+            return error != null || frames.isEmpty();
+        }
+
+        /**
+         * Records an error, which stops the builder.
+         *
+         * @param  exception the error
+         */
+        private void fail(Exception exception) {
+            if (exception instanceof ConfigParserException) {
+                error = (ConfigParserException) exception;
+            } else {
+                error = new ConfigParserException(exception.getMessage());
+            }
+        }
+
+        /**
+         * Receives the start of an element.
+         *
+         * @param  name the name of the element
+         * @param  attributes the attributes of the element
+         */
+        void startElement(String name, Attributes attributes) {
+            if (isStopped()) {
+                return;
+            }
+            try {
+                Frame top = top();
+                switch (top.type) {
+                    case Frame.ROOT:
+                    case Frame.PROPERTY: {
+                        if (name.equals("Property")) {
+                            String value = attributes.getValue("name");
+                            if (value == null) {
+                                throw new ConfigParserException("incorrect xml format");
+                            }
+                            frames.add(new Frame(Frame.PROPERTY, top, top.getPrefix() + value));
+                        } else if (name.equals("Value")) {
+                            // values directly in the "root" element are ignored
+                            frames.add(new Frame(top.type == Frame.ROOT ? Frame.IGNORED : Frame.VALUE, top, null));
+                        } else if (top.type == Frame.ROOT && name.equals("ListDelimiter")) {
+                            frames.add(new Frame(Frame.DELIMITER, top, null));
+                        } else {
+                            throw new ConfigParserException("unrecognized element " + name);
+                        }
+                        break;
+                    }
+                    case Frame.IGNORED: {
+                        frames.add(new Frame(Frame.IGNORED, top, null));
+                        break;
+                    }
+                    default: {
+                        otherNode();
+                    }
+                }
+            } catch (Exception exception) {
+                fail(exception);
+            }
+        }
+
+        /**
+         * Receives the end of an element.
+         *
+         * @return <code>true</code> if the builder stopped
+         */
+        boolean endElement() {
+            if (isStopped()) {
+                return true;
+            }
+            try {
+                Frame frame = (Frame) frames.remove(frames.size() - 1);
+                switch (frame.type) {
+                    case Frame.PROPERTY: {
+                        endProperty(frame);
+                        break;
+                    }
+                    case Frame.VALUE: {
+                        if (frame.text == null) {
+                            frame.parent.values.add("");
+                        } else {
+                            frame.parent.values.addAll(
+                                    PropConfigProperties.parseValueString(frame.text.toString(), listDelimiter));
+                        }
+                        break;
+                    }
+                    case Frame.DELIMITER: {
+                        if (frame.text == null || frame.text.length() != 1) {
+                            throw new ConfigParserException("invalid delimiter");
+                        }
+                        listDelimiter = frame.text.charAt(0);
+                        break;
+                    }
+                    default: {
+                        break;
+                    }
+                }
+            } catch (Exception exception) {
+                fail(exception);
+            }
+            return isStopped();
+        }
+
+        /**
+         * Sets the values of an ended property, with the comments waiting at
+         * its level.
+         *
+         * @param  frame the frame of the property
+         * @throws ConfigParserException if the property already holds values
+         */
+        private void endProperty(Frame frame) throws ConfigParserException {
+            if (frame.values.size() > 0) {
+                Property property = root.find(frame.key);
+                if (property != null && property.getValue() != null) {
+                    throw new ConfigParserException("contains duplicate property " + frame.key);
+                }
+                root.setProperty(frame.key, (String[]) frame.values.toArray(new String[frame.values.size()]));
+                List comments = frame.parent.comments;
+                if (comments.size() > 0) {
+                    property = root.find(frame.key);
+                    for (Iterator itr = comments.iterator(); itr.hasNext();) {
+                        property.addComment((String) itr.next());
+                    }
+                    comments.clear();
+                }
+            }
+        }
+
+        /**
+         * Receives character data.
+         *
+         * @param  ch the characters
+         * @param  start the start position in the array
+         * @param  length the number of characters
+         */
+        void characters(char[] ch, int start, int length) {
+            if (isStopped()) {
+                return;
+            }
+            Frame top = top();
+            if (top.type == Frame.VALUE || top.type == Frame.DELIMITER) {
+                if (top.text == null) {
+                    top.text = new StringBuffer();
+                }
+                top.text.append(ch, start, length);
+            }
+        }
+
+        /**
+         * Receives a comment.
+         *
+         * @param  comment the comment
+         */
+        void comment(String comment) {
+            if (isStopped()) {
+                return;
+            }
+            Frame top = top();
+            if (top.type == Frame.PROPERTY) {
+                // seen at the level of the property and at the nested one
+                top.parent.comments.add(comment);
+                top.comments.add(comment);
+            } else if (top.type == Frame.ROOT) {
+                top.comments.add(comment);
+            } else {
+                otherNode();
+            }
+        }
+
+        /**
+         * Receives a node other than text, which is not allowed within a value
+         * or a list delimiter.
+         */
+        void otherNode() {
+            if (isStopped()) {
+                return;
+            }
+            try {
+                Frame top = top();
+                if (top.type == Frame.VALUE) {
+                    // the text before is parsed first
+                    if (top.text != null) {
+                        PropConfigProperties.parseValueString(top.text.toString(), listDelimiter);
+                    }
+                    throw new ConfigParserException("invalid subnode");
+                } else if (top.type == Frame.DELIMITER) {
+                    if (top.text == null || top.text.length() != 1) {
+                        throw new ConfigParserException("invalid delimiter");
+                    }
+                    throw new ConfigParserException("invalid subnode");
+                }
+            } catch (Exception exception) {
+                fail(exception);
+            }
+        }
+    }
+
+}
@@ -8,7 +8,6 @@
 package com.topcoder.util.config;
 
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Enumeration;
 import java.util.Vector;
@@ -16,6 +15,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.parsers.ParserConfigurationException;
@@ -29,7 +29,6 @@ import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.DocumentType;
 import org.w3c.dom.Comment;
-import org.w3c.dom.Text;
 import org.xml.sax.InputSource;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
@@ -53,6 +52,15 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
      */
     private Document document = null;
 
+    /**
+     * Whether the XML document was parsed or set. The properties are loaded
+     * without the document, which is only parsed when it is needed, that is
+     * to save the properties.
+     *
+     * @since 2.1.5
+     */
+    private boolean documentLoaded = false;
+
     /**
      * A source .xml file containing the configuration properties.
      *
@@ -102,6 +110,26 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
         load();
     }
 
+    /**
+     * Creates a new <code>XMLConfigProperties</code> that holds the properties
+     * for given namespace read from an already parsed source. This allows the
+     * namespaces of a multi-namespace XML file to share a single parse of the
+     * file.
+     *
+     * @param  source a file containing properties data
+     * @param  namespace a namespace to get the properties for, or <code>null
+     *         </code> for a single-namespace XML file
+     * @param  parser the parser of the source, which built all its namespaces
+     * @throws ConfigParserException if the source does not contain the
+     *         namespace, or its format is incorrect
+     * @since  2.1.5
+     */
+    XMLConfigProperties(URL source, String namespace, XMLConfigParser parser) throws ConfigParserException {
+        this.source = source;
+        this.namespace = namespace;
+        load(parser);
+    }
+
     /**
      * Creates a new <code>XMLConfigProperties</code> that holds the properties
      * read from given InputStream. Assumes that given stream is a
@@ -127,40 +155,15 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
      * @throws ConfigParserException for badly formed files.
      */
     static Enumeration getNamespaces(URL url) throws ConfigParserException {
-        // create DOM parser and parse
-        DocumentBuilderFactory factory = null;
-        DocumentBuilder builder = null;
-        try {
-            factory = DocumentBuilderFactory.newInstance();
-            builder = factory.newDocumentBuilder();
-        } catch (FactoryConfigurationError e) {
-            throw new ConfigParserException("Error occurred obtaining Document Builder Factory: " + e.getMessage());
-        } catch (ParserConfigurationException e) {
-            throw new ConfigParserException("The underlying parser does not support the requested features: " + e.getMessage());
-        }
-        Document doc = null;
+        XMLConfigParser parser = new XMLConfigParser(false);
         try {
-            InputSource is = new InputSource(url.openStream());
-            doc = builder.parse(is);
-        } catch (SAXException saxe) {
-            throw new ConfigParserException(saxe.getMessage());
+            parser.parse(url, null);
+        } catch (ConfigParserException cpe) {
+            throw cpe;
         } catch (IOException ioe) {
             throw new ConfigParserException(ioe.getMessage());
         }
-
-        // retrieve namespaces from document
-        Vector namespaceNodes = new Vector();
-        traverseToGetNamespaceNodes(doc, namespaceNodes);
-        Vector namespaces = new Vector();
-        for (Enumeration enu = namespaceNodes.elements(); enu.hasMoreElements();) {
-            Node value = ((Element) enu.nextElement()).getAttributeNode("name");
-            if (value == null) {
-                throw new ConfigParserException("incorrect xml format");
-            } else {
-                namespaces.add(value.getNodeValue());
-            }
-        }
-        return namespaces.elements();
+        return parser.getNamespaces();
     }
 
     /**
@@ -189,17 +192,39 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
      */
     void setDocument(Document doc) {
         this.document = doc;
+        this.documentLoaded = true;
     }
 
     /**
-     * Returns the document for this XMLConfigProperties.
+     * Returns the document for this XMLConfigProperties. The document is
+     * parsed on the first call since the properties were loaded.
      *
-     * @return document for this XMLConfigProperties.
+     * @return document for this XMLConfigProperties, or <code>null</code> if
+     *         the source can not be parsed.
      */
     Document getDocument(){
+        try {
+            loadDocument();
+        } catch (IOException ioe) {
+            return null;
+        }
         return document;
     }
 
+    /**
+     * Parses the document of the source, unless it was parsed or set since
+     * the properties were loaded.
+     *
+     * @throws IOException if the source can not be parsed
+     * @since  2.1.5
+     */
+    private void loadDocument() throws IOException {
+        if (!documentLoaded) {
+            document = parse(source, this);
+            documentLoaded = true;
+        }
+    }
+
     /**
      * Update DOM tree with property tree.
      *
@@ -403,6 +428,7 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
         }
 
         // remove the properties
+        loadDocument();
         Node node = getNamespaceRootNode(document);
         while (node.getFirstChild() != null) {
             node.removeChild(node.getFirstChild());
@@ -470,122 +496,28 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
     }
 
     /**
-     * Load node as a property.
-     *
-     * @param  root the root property
-     * @param  node the current node
-     * @param  prefix the prefix of the property
+     * Loads the properties and their values from persistent storage.
      *
      * @throws IOException if any exception related to underlying persistent
      *         storage occurs
      */
-    private void loadNode(Property root, Node node, String prefix) throws IOException {
-        List comments = new ArrayList();
-        NodeList list = node.getChildNodes();
-        for (int i = 0; i < list.getLength(); ++i) {
-            node = list.item(i);
-
-            // put commment into cache
-            if (node.getNodeType() == Node.COMMENT_NODE) {
-                comments.add(((Comment) node).getData());
-                continue;
-            }
-
-            // find a property
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                if (node.getNodeName().equals("Property")) {
-                    boolean nested = false;
-                    Node value = ((Element) node).getAttributeNode("name");
-                    if (value == null) {
-                        throw new ConfigParserException("incorrect xml format");
-                    }
-                    String key = prefix + value.getNodeValue();
-
-                    // retrieve all values
-                    List valueList = new ArrayList();
-                    NodeList values = node.getChildNodes();
-                    for (int j = 0; j < values.getLength(); ++j) {
-                        Node subNode = values.item(j);
-
-                        // put comment into cache
-                        if (subNode.getNodeType() == Node.COMMENT_NODE) {
-                            comments.add(((Comment) subNode).getData());
-                            continue;
-                        }
-
-                        if (subNode.getNodeType() == Node.ELEMENT_NODE) {
-                            // nested element
-                            if (subNode.getNodeName().equals("Property")) {
-                                nested = true;
-                            } else if (subNode.getNodeName().equals("Value")) {
-                                Node text = subNode.getFirstChild();
-                                if (text == null) {
-                                    valueList.add("");
-                                } else if (text.getNodeType() == Node.TEXT_NODE) {
-                                    valueList.addAll(PropConfigProperties.parseValueString(
-                                            ((Text) text).getData(), getListDelimiter()));
-                                } else {
-                                    throw new ConfigParserException("invalid subnode");
-                                }
-                                if (text != null && text.getNextSibling() != null) {
-                                    throw new ConfigParserException("invalid subnode");
-                                }
-                            } else {
-                                throw new ConfigParserException("unrecognized element " + subNode.getNodeName());
-                            }
-                        }
-                    }
-
-                    // construct property
-                    if (valueList.size() > 0) {
-                        Property property = root.find(key);
-                        if (property != null && property.getValue() != null) {
-                            throw new ConfigParserException("contains duplicate property " + key);
-                        }
-                        root.setProperty(key, (String[]) valueList.toArray(new String[valueList.size()]));
-                        if (comments.size() > 0) {
-                            property = root.find(key);
-                            for (Iterator itr = comments.iterator(); itr.hasNext();) {
-                                property.addComment((String) itr.next());
-                            }
-                            comments.clear();
-                        }
-                    }
-                    if (nested) {
-                        loadNode(root, node, key + ".");
-                    }
-                } else if (node.getNodeName().equals("ListDelimiter")) {
-
-                    // find a list delimiter
-                    Node text = node.getFirstChild();
-                    if (text == null) {
-                        throw new ConfigParserException("invalid delimiter");
-                    } else if (text.getNodeType() == Node.TEXT_NODE) {
-                        String delim = ((Text) text).getData();
-                        if (delim == null || delim.length() != 1) {
-                            throw new ConfigParserException("invalid delimiter");
-                        }
-                        setListDelimiter(delim.charAt(0));
-                    } else {
-                        throw new ConfigParserException("invalid delimiter");
-                    }
-                    if (text.getNextSibling() != null) {
-                        throw new ConfigParserException("invalid subnode");
-                    }
-                } else if (!node.getNodeName().equals("Value")) {
-                    throw new ConfigParserException("unrecognized element " + node.getNodeName());
-                }
-            }
-        }
+    protected void load() throws IOException {
+        XMLConfigParser parser = new XMLConfigParser(namespace, getListDelimiter());
+        parser.parse(source, this);
+        load(parser);
     }
 
     /**
-     * Loads the properties and their values from persistent storage.
+     * Parses the XML file at given URL with a DOM parser.
      *
-     * @throws IOException if any exception related to underlying persistent
-     *         storage occurs
+     * @param  url the url of the file to parse
+     * @param  errorHandler the handler of the parsing errors
+     * @return the parsed document
+     * @throws ConfigParserException if a parsing error occurs
+     * @throws IOException if the file can not be opened
+     * @since  2.1.5
      */
-    protected void load() throws IOException {
+    private static Document parse(URL url, ErrorHandler errorHandler) throws IOException {
         // create DOM parser and parse
         DocumentBuilderFactory factory = null;
         DocumentBuilder builder = null;
@@ -597,32 +529,34 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
         } catch (ParserConfigurationException e) {
             throw new ConfigParserException("The underlying parser does not support the requested features: " + e.getMessage());
         }
-        builder.setErrorHandler(this);
-        InputSource is = new InputSource(source.openStream());
+        builder.setErrorHandler(errorHandler);
+        InputStream stream = url.openStream();
         try {
-            document = builder.parse(is);
+            return builder.parse(new InputSource(stream));
         } catch (SAXException saxe) {
             throw new ConfigParserException(saxe.getMessage());
         } catch (IOException ioe) {
             throw new ConfigParserException(ioe.getMessage());
+        } finally {
+            stream.close();
         }
+    }
 
-        // retrieve namespace root node
-        Node node = getNamespaceRootNode(document);
-        if (node == null) {
-            throw new ConfigParserException("can not locate namespace " + namespace);
-        }
-
-        try {
-            // load property tree
-            Property root = new Property();
-            loadNode(root, node, "");
-            setRoot(root);
-        } catch (IOException ioe) {
-            throw ioe;
-        } catch (Exception exception) {
-            throw new ConfigParserException(exception.getMessage());
-        }
+    /**
+     * Loads the properties and their values from a parsed source. The list
+     * delimiter set before an error of the format is kept, as the properties
+     * are kept.
+     *
+     * @param  parser the parser of the source
+     * @throws ConfigParserException if the source does not contain the
+     *         namespace, or its format is incorrect
+     * @since  2.1.5
+     */
+    private void load(XMLConfigParser parser) throws ConfigParserException {
+        document = null;
+        documentLoaded = false;
+        setListDelimiter(parser.getListDelimiter(namespace));
+        setRoot(parser.getRoot(namespace));
     }
 
     /**
@@ -672,6 +606,7 @@ class XMLConfigProperties extends ConfigProperties implements ErrorHandler {
         properties.source = source;
         properties.namespace = namespace;
         properties.document = document;
+        properties.documentLoaded = documentLoaded;
         properties.setRoot((Property) getRoot().clone());
         return properties;
     }
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) ConfigFileWatcherTestCase.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the watching of the files of the namespaces, and the notification of
+ * the changes.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ */
+public class ConfigFileWatcherTestCase extends TestCase {
+
+    /**
+     * The modification time of the last written file.
+     */
+    private static long clock = System.currentTimeMillis();
+
+    /**
+     * The config manager to test.
+     */
+    private DefaultConfigManager manager = null;
+
+    /**
+     * The properties config file.
+     */
+    private File propertiesFile = null;
+
+    /**
+     * The multi-namespace config file.
+     */
+    private File xmlFile = null;
+
+    /**
+     * The events received by the listener.
+     */
+    private final List events = new ArrayList();
+
+    /**
+     * The listener collecting the events.
+     */
+    private final ConfigChangeListener listener = new ConfigChangeListener() {
+        public void configurationChanged(ConfigChangeEvent event) {
+            synchronized (events) {
+                events.add(event.getNamespace() + event.getChangedKeys());
+                events.notifyAll();
+            }
+        }
+    };
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        manager = new DefaultConfigManager();
+        propertiesFile = File.createTempFile("unittest", ".properties", new File("test_files"));
+        xmlFile = File.createTempFile("unittest", ".xml", new File("test_files"));
+        writeProperties("value1");
+        writeXML("a", "b");
+        manager.add("props", propertiesFile.getAbsolutePath(), ConfigManager.CONFIG_PROPERTIES_FORMAT);
+        manager.add(xmlFile.getAbsolutePath());
+        manager.addConfigChangeListener(listener);
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        manager.stopWatching();
+        manager = null;
+        propertiesFile.delete();
+        xmlFile.delete();
+    }
+
+    /**
+     * Writes the properties config file.
+     *
+     * @param  value the value of prop1.
+     * @throws Exception to JUnit.
+     */
+    private void writeProperties(String value) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(propertiesFile));
+        writer.println("prop1=" + value);
+        writer.println("prop2=value2");
+        writer.close();
+        touch(propertiesFile);
+    }
+
+    /**
+     * Writes the multi-namespace config file.
+     *
+     * @param  value1 the value of prop1 in ns1.
+     * @param  value2 the value of prop1 in ns2.
+     * @throws Exception to JUnit.
+     */
+    private void writeXML(String value1, String value2) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(xmlFile));
+        writer.println("<?xml version=\"1.0\"?>");
+        writer.println("<CMConfig>");
+        writer.println("    <Config name=\"ns1\"><Property name=\"prop1\"><Value>" + value1 + "</Value></Property></Config>");
+        writer.println("    <Config name=\"ns2\"><Property name=\"prop1\"><Value>" + value2 + "</Value></Property></Config>");
+        writer.println("</CMConfig>");
+        writer.close();
+        touch(xmlFile);
+    }
+
+    /**
+     * Sets the modification time of given file to a later time than the
+     * previous writes, since it may be rounded to the second.
+     *
+     * @param  file the file.
+     */
+    private static synchronized void touch(File file) {
+        clock += 2000;
+        file.setLastModified(clock);
+    }
+
+    /**
+     * Tests a change is reloaded once it was seen by two polls, only for the
+     * namespaces of the changed file, and the listeners get the changed keys.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testPoll() throws Exception {
+        ConfigFileWatcher watcher = new ConfigFileWatcher(manager, 1000);
+        watcher.poll();
+        writeXML("a", "c");
+        watcher.poll();
+        assertEquals("b", manager.getString("ns2", "prop1"));
+        watcher.poll();
+        assertEquals("c", manager.getString("ns2", "prop1"));
+        assertEquals("[ns2[prop1]]", events.toString());
+
+        // a change still in progress is not reloaded
+        events.clear();
+        writeProperties("value3");
+        watcher.poll();
+        writeProperties("value4;value5");
+        watcher.poll();
+        assertEquals("value1", manager.getString("props", "prop1"));
+        watcher.poll();
+        assertEquals("value4;value5", manager.getString("props", "prop1"));
+        assertEquals("[props[prop1]]", events.toString());
+    }
+
+    /**
+     * Tests a change made after the namespaces were loaded but before the
+     * first poll is reloaded.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testPollChangeBeforeFirstPoll() throws Exception {
+        ConfigFileWatcher watcher = new ConfigFileWatcher(manager, 1000);
+        writeXML("a", "c");
+        watcher.poll();
+        assertEquals("b", manager.getString("ns2", "prop1"));
+        watcher.poll();
+        assertEquals("c", manager.getString("ns2", "prop1"));
+        assertEquals("[ns2[prop1]]", events.toString());
+
+        // an unchanged file is not reloaded again
+        events.clear();
+        watcher.poll();
+        watcher.poll();
+        assertTrue(events.isEmpty());
+    }
+
+    /**
+     * Tests a namespace failing to reload keeps its properties.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testPollFailure() throws Exception {
+        ConfigFileWatcher watcher = new ConfigFileWatcher(manager, 1000);
+        watcher.poll();
+        PrintWriter writer = new PrintWriter(new FileWriter(xmlFile));
+        writer.println("<CMConfig>");
+        writer.close();
+        touch(xmlFile);
+        watcher.poll();
+        watcher.poll();
+        assertEquals("a", manager.getString("ns1", "prop1"));
+        assertTrue(events.isEmpty());
+
+        writeXML("d", "b");
+        watcher.poll();
+        watcher.poll();
+        assertEquals("d", manager.getString("ns1", "prop1"));
+        assertEquals("[ns1[prop1]]", events.toString());
+    }
+
+    /**
+     * Tests refresh() and commit() notify the listeners too.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testRefresh() throws Exception {
+        manager.refresh("props");
+        assertTrue(events.isEmpty());
+        writeProperties("value3");
+        manager.refresh("props");
+        assertEquals("[props[prop1]]", events.toString());
+
+        events.clear();
+        manager.createTemporaryProperties("props");
+        manager.setProperty("props", "prop3", "value3");
+        manager.removeProperty("props", "prop2");
+        manager.commit("props", "user");
+        assertEquals("[props[prop2, prop3]]", events.toString());
+
+        manager.removeConfigChangeListener(listener);
+        writeProperties("value4");
+        manager.refresh("props");
+        assertEquals(1, events.size());
+    }
+
+    /**
+     * Tests the watching thread reloads a changed file.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testStartWatching() throws Exception {
+        manager.startWatching(50);
+        Thread.sleep(200);
+        synchronized (events) {
+            writeProperties("value3");
+            events.wait(5000);
+        }
+        assertEquals("[props[prop1]]", events.toString());
+        assertEquals("value3", manager.getString("props", "prop1"));
+        manager.stopWatching();
+
+        try {
+            manager.startWatching(0);
+            fail("Should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException iae) {
+        }
+        try {
+            manager.addConfigChangeListener(null);
+            fail("Should have thrown NullPointerException");
+        } catch (NullPointerException npe) {
+        }
+    }
+
+}
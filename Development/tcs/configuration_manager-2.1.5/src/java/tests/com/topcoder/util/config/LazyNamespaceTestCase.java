@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) LazyNamespaceTestCase.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the namespaces registered to be loaded on first use.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ */
+public class LazyNamespaceTestCase extends TestCase {
+
+    /**
+     * The config manager to test.
+     */
+    private DefaultConfigManager manager = null;
+
+    /**
+     * The multi-namespace config file.
+     */
+    private File file = null;
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        manager = new DefaultConfigManager();
+        file = File.createTempFile("unittest", ".xml", new File("test_files"));
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        manager = null;
+        file.delete();
+    }
+
+    /**
+     * Writes the multi-namespace config file.
+     *
+     * @param  namespaces the number of namespaces.
+     * @param  properties the number of properties of each namespace.
+     * @throws Exception to JUnit.
+     */
+    private void writeFile(int namespaces, int properties) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        writer.println("<?xml version=\"1.0\"?>");
+        writer.println("<CMConfig>");
+        for (int i = 0; i < namespaces; ++i) {
+            writer.println("    <Config name=\"ns" + i + "\">");
+            for (int j = 0; j < properties; ++j) {
+                writer.println("        <Property name=\"prop" + j + "\"><Value>" + i + "." + j + "</Value></Property>");
+            }
+            writer.println("    </Config>");
+        }
+        writer.println("</CMConfig>");
+        writer.close();
+    }
+
+    /**
+     * Tests the pending namespaces are loaded on first use, and the namespaces
+     * of a multi-namespace file are loaded from a single parse.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testLoadPending() throws Exception {
+        writeFile(3, 1);
+        String filename = file.getAbsolutePath();
+        manager.addPending("ns0", filename);
+        manager.addPending("ns1", filename);
+        manager.addPending("ns2", filename);
+        manager.addPending("unknown", "test_files/unknown.properties");
+
+        assertEquals("0.0", manager.getString("ns0", "prop0"));
+        assertEquals(ConfigManager.CONFIG_MULTIPLE_XML_FORMAT, manager.getConfigFormat("ns1"));
+        // the other namespaces were loaded with the first one
+        file.delete();
+        assertEquals("1.0", manager.getString("ns1", "prop0"));
+        assertTrue(manager.existsNamespace("ns2"));
+
+        // errors leave the namespace unknown
+        assertFalse(manager.existsNamespace("unknown"));
+        try {
+            manager.getString("unknown", "prop0");
+            fail("Should have thrown UnknownNamespaceException");
+        } catch (UnknownNamespaceException une) {
+        }
+    }
+
+    /**
+     * Tests the other operations on pending namespaces.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testPendingOperations() throws Exception {
+        writeFile(2, 1);
+        String filename = file.getAbsolutePath();
+        manager.addPending("ns0", filename);
+        manager.addPending("ns1", filename);
+        manager.addPending("ns2", filename);
+
+        // a pending namespace is removed without being loaded
+        manager.removeNamespace("ns1");
+        assertFalse(manager.existsNamespace("ns1"));
+
+        // a pending namespace already exists
+        try {
+            manager.add("ns0", filename, ConfigManager.CONFIG_MULTIPLE_XML_FORMAT);
+            fail("Should have thrown NamespaceAlreadyExistsException");
+        } catch (NamespaceAlreadyExistsException naee) {
+        }
+
+        // only the loaded namespaces are listed
+        Set names = new HashSet();
+        for (Iterator itr = manager.getAllNamespaces(); itr.hasNext();) {
+            names.add(itr.next());
+        }
+        Set expected = new HashSet();
+        expected.add("ns0");
+        assertEquals(expected, names);
+    }
+
+    /**
+     * Tests locking a namespace does not load the pending namespaces.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testLockKeepsPending() throws Exception {
+        writeFile(2, 1);
+        String filename = file.getAbsolutePath();
+        DefaultConfigManager cm = (DefaultConfigManager) ConfigManager.getInstance();
+        cm.add("ns0", filename, ConfigManager.CONFIG_MULTIPLE_XML_FORMAT);
+        cm.addPending("ns1", filename);
+        try {
+            cm.lock("ns0", "user");
+            for (Iterator itr = cm.getLoadedNamespaces(); itr.hasNext();) {
+                assertFalse("ns1".equals(itr.next()));
+            }
+            cm.forceUnlock("ns0");
+        } finally {
+            cm.removeNamespace("ns0");
+            cm.removeNamespace("ns1");
+        }
+    }
+
+    /**
+     * Tests getInstance() returns the same instance to concurrent callers.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testGetInstance() throws Exception {
+        final List instances = new ArrayList();
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread() {
+                public void run() {
+                    ConfigManager cm = ConfigManager.getInstance();
+                    synchronized (instances) {
+                        instances.add(cm);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+        assertEquals(threads.length, instances.size());
+        for (Iterator itr = instances.iterator(); itr.hasNext();) {
+            assertSame(ConfigManager.getInstance(), itr.next());
+        }
+    }
+
+}
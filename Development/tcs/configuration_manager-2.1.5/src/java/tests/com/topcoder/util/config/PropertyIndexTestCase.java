@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) PropertyIndexTestCase.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.FileWriter;
+import java.util.Iterator;
+
+/**
+ * Tests the indexed lookups of Property and ConfigManager.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ */
+public class PropertyIndexTestCase extends TestCase {
+
+    /**
+     * The singleton ConfigManager instance.
+     */
+    private ConfigManager cm = null;
+
+    /**
+     * The properties config file.
+     */
+    private File file = null;
+
+    /**
+     * Set up testing environment.
+     * Clear the config manager and prepare the config file.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        cm = ConfigManager.getInstance();
+        for (Iterator itr = cm.getAllNamespaces(); itr.hasNext();) {
+            cm.removeNamespace((String) itr.next());
+        }
+        file = File.createTempFile("unittest", ".properties", new File("test_files"));
+        writeFile("value1");
+    }
+
+    /**
+     * Tear down testing environment.
+     * Clear the config manager and remove the config file.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        for (Iterator itr = cm.getAllNamespaces(); itr.hasNext();) {
+            cm.removeNamespace((String) itr.next());
+        }
+        cm = null;
+        file.delete();
+    }
+
+    /**
+     * Writes the config file.
+     *
+     * @param  value the value of prop1.
+     * @throws Exception to JUnit.
+     */
+    private void writeFile(String value) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        writer.println("prop1=" + value);
+        writer.println("prop1.prop2=value2;value3");
+        writer.println("prop1.prop2.prop3=a\\;b");
+        writer.close();
+    }
+
+    /**
+     * Tests the resolution of compound names through the children indexes.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testFind() throws Exception {
+        Property root = new Property();
+        root.setProperty("a.b.c", "value");
+        Property c = root.getProperty("a.b.c");
+        assertEquals("value", c.getValue());
+        // empty parts are skipped
+        assertSame(c, root.getProperty(".a..b.c."));
+        assertSame(root, root.getProperty(""));
+        assertNull(root.getProperty("a.c"));
+        // the index follows removals
+        root.removeProperty("a.b");
+        assertNull(root.getProperty("a.b.c"));
+        root.getProperty("a").addProperty(new Property("b"));
+        assertNotNull(root.getProperty("a.b"));
+        try {
+            root.addProperty(new Property("a"));
+            fail("Should have thrown DuplicatePropertyException");
+        } catch (DuplicatePropertyException dpe) {
+        }
+        // the clone has its own index
+        Property clone = (Property) root.clone();
+        clone.removeProperty("a");
+        assertNull(clone.getProperty("a"));
+        assertNotNull(root.getProperty("a.b"));
+    }
+
+    /**
+     * Tests getPropertyObject() and getString() through the namespace index.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testGetString() throws Exception {
+        cm.add("test.ns", file.getAbsolutePath(), ConfigManager.CONFIG_PROPERTIES_FORMAT);
+        assertEquals("value2;value3", cm.getString("test.ns", "prop1.prop2"));
+        assertEquals("a\\;b", cm.getString("test.ns", "prop1.prop2.prop3"));
+        assertEquals("value2;value3", cm.getString("test.ns", ".prop1..prop2"));
+        assertNull(cm.getString("test.ns", "prop1.unknown"));
+        assertNull(cm.getString("test.ns", ""));
+        assertSame(cm.getPropertyObject("test.ns", "prop1.prop2"),
+                cm.getPropertyObject("test.ns", "prop1..prop2"));
+        assertEquals("prop1", cm.getPropertyObject("test.ns", "prop1").getName());
+        assertEquals("", cm.getPropertyObject("test.ns", "").getName());
+        try {
+            cm.getString("unknown.ns", "prop1");
+            fail("Should have thrown UnknownNamespaceException");
+        } catch (UnknownNamespaceException une) {
+        }
+        try {
+            cm.getString("test.ns", null);
+            fail("Should have thrown NullPointerException");
+        } catch (NullPointerException npe) {
+        }
+    }
+
+    /**
+     * Tests the lookups are updated by refresh() and commit(), while the
+     * temporary changes are not seen before the commit.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testUpdates() throws Exception {
+        cm.add("test.ns", file.getAbsolutePath(), ConfigManager.CONFIG_PROPERTIES_FORMAT);
+        assertEquals("value1", cm.getString("test.ns", "prop1"));
+        writeFile("refreshed");
+        cm.refresh("test.ns");
+        assertEquals("refreshed", cm.getString("test.ns", "prop1"));
+
+        cm.createTemporaryProperties("test.ns");
+        cm.setProperty("test.ns", "prop1", "committed");
+        cm.setProperty("test.ns", "prop4", "new");
+        assertEquals("committed", cm.getTemporaryString("test.ns", "prop1"));
+        assertEquals("refreshed", cm.getString("test.ns", "prop1"));
+        assertNull(cm.getString("test.ns", "prop4"));
+        cm.commit("test.ns", "user");
+        assertEquals("committed", cm.getString("test.ns", "prop1"));
+        assertEquals("new", cm.getString("test.ns", "prop4"));
+    }
+
+}
@@ -19,12 +19,16 @@ public class UnitTests extends TestCase {
         suite.addTest(new TestSuite(ConfigManagerJarTestCase.class));
         suite.addTest(new TestSuite(ExceptionTestCase.class));
         suite.addTest(new TestSuite(PropertyTestCase.class));
+        suite.addTest(new TestSuite(PropertyIndexTestCase.class));
         suite.addTest(new TestSuite(ConfigPropertiesTestCase.class));
         suite.addTest(new TestSuite(PropConfigPropertiesTestCase.class));
         suite.addTest(new TestSuite(XMLConfigPropertiesTestCase.class));
         suite.addTest(new TestSuite(XMLConfigPropertiesMultipleTestCase.class));
+        suite.addTest(new TestSuite(XMLConfigParserTestCase.class));
         suite.addTest(new TestSuite(PluggableConfigPropertiesTestCase.class));
         suite.addTest(new TestSuite(NamespaceTestCase.class));
+        suite.addTest(new TestSuite(LazyNamespaceTestCase.class));
+        suite.addTest(new TestSuite(ConfigFileWatcherTestCase.class));
         suite.addTest(new TestSuite(ConfigManagerTestCase.class));
 
         suite.addTest(new TestSuite(EscapeEnhancementTest.class));
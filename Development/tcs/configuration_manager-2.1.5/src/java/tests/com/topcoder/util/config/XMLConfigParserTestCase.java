@@ -0,0 +1,449 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) XMLConfigParserTestCase.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config;
+
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Comment;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests the SAX loader of the XML formats against the DOM loader it replaces.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ */
+public class XMLConfigParserTestCase extends TestCase {
+
+    /**
+     * The config file.
+     */
+    private File file = null;
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        file = File.createTempFile("unittest", ".xml", new File("test_files"));
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * Writes the config file.
+     *
+     * @param  content the content of the file.
+     * @throws Exception to JUnit.
+     */
+    private void writeFile(String content) throws Exception {
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        writer.println("<?xml version=\"1.0\"?>");
+        writer.print(content);
+        writer.close();
+    }
+
+    /**
+     * Tests the single-namespace format, with comments at every level, nested
+     * properties and a list delimiter.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testSingleNamespace() throws Exception {
+        writeFile("<!-- outside -->\n<CMConfig>\n"
+                + "  <!-- c1 --><Value>ignored<x/></Value>\n"
+                + "  <Property name=\"a\"><!-- c2 --><Value>1;2</Value>\n"
+                + "    <Property name=\"b\"><!-- c3 --><Value/><Value>x\\;y</Value></Property><!-- c4 -->\n"
+                + "    <Property name=\"c\"><Property name=\"d\"><Value>&amp;d</Value></Property></Property>\n"
+                + "    <Value>3</Value>\n"
+                + "  </Property>\n"
+                + "  <!-- c5 --><Property name=\"e\"><!-- c6 --></Property>\n"
+                + "  <ListDelimiter>,</ListDelimiter>\n"
+                + "  <Property name=\"f.g\"><Value>1,2;3</Value></Property>\n"
+                + "  <Property name=\"f\"><Value>4</Value></Property>\n"
+                + "</CMConfig>\n");
+        assertSameLoad(null);
+
+        XMLConfigProperties properties = new XMLConfigProperties(file.toURL());
+        Property root = properties.getRoot();
+        assertEquals(',', properties.getListDelimiter());
+        assertEquals("[1, 2, 3]", toString(root.getProperty("a").getValues()));
+        assertEquals("[ c1 ,  c2 ,  c4 ]", root.getProperty("a").getComments().toString());
+        assertEquals("[ c2 ,  c3 ]", root.getProperty("a.b").getComments().toString());
+        assertEquals("[, x;y]", toString(root.getProperty("a.b").getValues()));
+        assertEquals("&d", root.getProperty("a.c.d").getValue());
+        assertEquals("[ c5 ,  c6 ]", root.getProperty("f.g").getComments().toString());
+        assertEquals("[1, 2;3]", toString(root.getProperty("f.g").getValues()));
+        assertNull(root.getProperty("e"));
+    }
+
+    /**
+     * Tests the multi-namespace format, and the namespaces built together.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testMultipleNamespaces() throws Exception {
+        writeFile("<CMConfig>\n"
+                + "  <Config name=\"ns1\"><!-- c1 --><Property name=\"a\"><Value>1</Value></Property></Config>\n"
+                + "  <Group><Config name=\"ns2\"><ListDelimiter>|</ListDelimiter>"
+                + "<Property name=\"a\"><Value>1|2</Value></Property></Config></Group>\n"
+                + "  <Config name=\"ns1\"><Config name=\"ns3\"/><Property name=\"b\"><Value>2</Value></Property></Config>\n"
+                + "</CMConfig>\n");
+        assertSameLoad("ns1");
+        assertSameLoad("ns2");
+        assertSameLoad("ns3");
+        assertSameLoad("unknown");
+        assertSameLoad(null);
+
+        XMLConfigParser parser = new XMLConfigParser(true);
+        parser.parse(file.toURL(), null);
+        List namespaces = new ArrayList();
+        for (Enumeration enu = parser.getNamespaces(); enu.hasMoreElements();) {
+            namespaces.add(enu.nextElement());
+        }
+        assertEquals("[ns1, ns2, ns1]", namespaces.toString());
+        assertEquals("1", parser.getRoot("ns1").getProperty("a").getValue());
+        assertEquals('|', parser.getListDelimiter("ns2"));
+        assertEquals(2, parser.getRoot("ns2").getProperty("a").getValues().length);
+        assertEquals(0, parser.getRoot("ns3").list().size());
+    }
+
+    /**
+     * Tests the errors of the format are the same.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testErrors() throws Exception {
+        String[] contents = new String[] {
+            "<CMConfig><Property><Value>1</Value></Property></CMConfig>",
+            "<CMConfig><Unknown/></CMConfig>",
+            "<CMConfig><Property name=\"a\"><ListDelimiter>,</ListDelimiter></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value><![CDATA[1]]></Value></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value>1<!-- c --></Value></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value>1\\<?pi?></Value></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value>1<x/></Value></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value>1\\x</Value></Property></CMConfig>",
+            "<CMConfig><Property name=\"a\"><Value>1</Value></Property>"
+                + "<Property name=\"a\"><Value>2</Value></Property></CMConfig>",
+            "<CMConfig><ListDelimiter/></CMConfig>",
+            "<CMConfig><ListDelimiter>,,</ListDelimiter></CMConfig>",
+            "<CMConfig><ListDelimiter><!-- c --></ListDelimiter></CMConfig>",
+            "<CMConfig><ListDelimiter>,<!-- c --></ListDelimiter></CMConfig>",
+            "<CMConfig><ListDelimiter>,</ListDelimiter><Unknown/></CMConfig>",
+            "<CMConfig><Config><Property name=\"a\"><Value>1</Value></Property></Config></CMConfig>",
+            "<CMConfig><Config name=\"ns1\"><Unknown/></Config></CMConfig>",
+            "<Root/>",
+            "<CMConfig><Property name=\"a\"><Value>1</Value></CMConfig>",
+        };
+        for (int i = 0; i < contents.length; ++i) {
+            writeFile(contents[i]);
+            assertSameLoad(null);
+            assertSameLoad("ns1");
+        }
+    }
+
+    /**
+     * Tests the document is parsed to save the properties.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testSave() throws Exception {
+        writeFile("<CMConfig><Config name=\"ns1\"><Property name=\"a\"><Value>1</Value></Property></Config>"
+                + "<Config name=\"ns2\"><Property name=\"b\"><Value>2</Value></Property></Config></CMConfig>");
+        XMLConfigProperties properties = new XMLConfigProperties(file.toURL(), "ns1");
+        properties.getRoot().setProperty("a", "3");
+        properties.save();
+        assertEquals("3", new XMLConfigProperties(file.toURL(), "ns1").getRoot().getProperty("a").getValue());
+        assertEquals("2", new XMLConfigProperties(file.toURL(), "ns2").getRoot().getProperty("b").getValue());
+    }
+
+    /**
+     * Checks the SAX loader gives the same tree, list delimiter or error as
+     * the DOM loader for given namespace of the config file.
+     *
+     * @param  namespace the namespace, or <code>null</code> for the
+     *         single-namespace format.
+     * @throws Exception to JUnit.
+     */
+    private void assertSameLoad(String namespace) throws Exception {
+        String expected;
+        try {
+            DOMLoader loader = new DOMLoader(parseDocument(file.toURL()), namespace);
+            expected = loader.listDelimiter + toString(loader.root);
+        } catch (ConfigParserException cpe) {
+            expected = "error: " + cpe.getMessage();
+        }
+        String actual;
+        try {
+            XMLConfigParser parser = new XMLConfigParser(namespace, ';');
+            parser.parse(file.toURL(), null);
+            Property root = parser.getRoot(namespace);
+            actual = parser.getListDelimiter(namespace) + toString(root);
+        } catch (ConfigParserException cpe) {
+            actual = "error: " + cpe.getMessage();
+        }
+        assertEquals(expected, actual);
+
+        // the same when all the namespaces are built
+        try {
+            XMLConfigParser parser = new XMLConfigParser(true);
+            parser.parse(file.toURL(), null);
+            Property root = parser.getRoot(namespace);
+            actual = parser.getListDelimiter(namespace) + toString(root);
+        } catch (ConfigParserException cpe) {
+            actual = "error: " + cpe.getMessage();
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Formats a properties tree with its values and comments.
+     *
+     * @param  property the property.
+     * @return the formatted tree.
+     */
+    private static String toString(Property property) {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(property.getName());
+        buffer.append(toString(property.getValues()));
+        buffer.append(property.getComments());
+        buffer.append('{');
+        for (Iterator itr = property.list().iterator(); itr.hasNext();) {
+            buffer.append(toString((Property) itr.next()));
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+
+    /**
+     * Formats an array of values.
+     *
+     * @param  values the values.
+     * @return the formatted values.
+     */
+    private static String toString(String[] values) {
+        if (values == null) {
+            return "null";
+        }
+        List list = new ArrayList();
+        for (int i = 0; i < values.length; ++i) {
+            list.add(values[i]);
+        }
+        return list.toString();
+    }
+
+    /**
+     * Parses the XML file at given URL with a DOM parser.
+     *
+     * @param  url the url of the file.
+     * @return the document.
+     * @throws ConfigParserException if the file is not well-formed.
+     * @throws Exception to JUnit.
+     */
+    private static Document parseDocument(URL url) throws Exception {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        builder.setErrorHandler(new DefaultHandler());
+        try {
+            return builder.parse(url.openStream());
+        } catch (SAXException saxe) {
+            throw new ConfigParserException(saxe.getMessage());
+        }
+    }
+
+    /**
+     * The DOM loader of the previous versions of <code>XMLConfigProperties
+     * </code>, used as the reference.
+     */
+    private static class DOMLoader {
+
+        /**
+         * The loaded tree.
+         */
+        private final Property root = new Property();
+
+        /**
+         * The list delimiter.
+         */
+        private char listDelimiter = ';';
+
+        /**
+         * The namespace to load.
+         */
+        private final String namespace;
+
+        /**
+         * Loads given namespace from given document.
+         *
+         * @param  document the document.
+         * @param  namespace the namespace, or <code>null</code> for the
+         *         single-namespace format.
+         * @throws ConfigParserException if the format is incorrect.
+         */
+        DOMLoader(Document document, String namespace) throws ConfigParserException {
+            this.namespace = namespace;
+            Node node = getNamespaceRootNode(document);
+            if (node == null) {
+                throw new ConfigParserException("can not locate namespace " + namespace);
+            }
+            try {
+                loadNode(node, "");
+            } catch (ConfigParserException cpe) {
+                throw cpe;
+            } catch (Exception exception) {
+                throw new ConfigParserException(exception.getMessage());
+            }
+        }
+
+        /**
+         * Gets the root node of the namespace.
+         *
+         * @param  node the current node.
+         * @return the root node, or <code>null</code> if it does not exist.
+         * @throws ConfigParserException if a namespace has no name.
+         */
+        private Node getNamespaceRootNode(Node node) throws ConfigParserException {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                if (namespace == null) {
+                    if (node.getNodeName().equals("CMConfig")) {
+                        return node;
+                    }
+                } else if (node.getNodeName().equals("Config")) {
+                    Node value = ((Element) node).getAttributeNode("name");
+                    if (value == null) {
+                        throw new ConfigParserException("incorrect xml format");
+                    } else if (value.getNodeValue().equals(namespace)) {
+                        return node;
+                    }
+                }
+            }
+            NodeList list = node.getChildNodes();
+            for (int i = 0; i < list.getLength(); ++i) {
+                Node ret = getNamespaceRootNode(list.item(i));
+                if (ret != null) {
+                    return ret;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Loads a node as a property.
+         *
+         * @param  node the current node.
+         * @param  prefix the prefix of the property.
+         * @throws ConfigParserException if the format is incorrect.
+         */
+        private void loadNode(Node node, String prefix) throws ConfigParserException {
+            List comments = new ArrayList();
+            NodeList list = node.getChildNodes();
+            for (int i = 0; i < list.getLength(); ++i) {
+                node = list.item(i);
+                if (node.getNodeType() == Node.COMMENT_NODE) {
+                    comments.add(((Comment) node).getData());
+                    continue;
+                }
+                if (node.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+                if (node.getNodeName().equals("Property")) {
+                    boolean nested = false;
+                    Node value = ((Element) node).getAttributeNode("name");
+                    if (value == null) {
+                        throw new ConfigParserException("incorrect xml format");
+                    }
+                    String key = prefix + value.getNodeValue();
+                    List valueList = new ArrayList();
+                    NodeList values = node.getChildNodes();
+                    for (int j = 0; j < values.getLength(); ++j) {
+                        Node subNode = values.item(j);
+                        if (subNode.getNodeType() == Node.COMMENT_NODE) {
+                            comments.add(((Comment) subNode).getData());
+                            continue;
+                        }
+                        if (subNode.getNodeType() == Node.ELEMENT_NODE) {
+                            if (subNode.getNodeName().equals("Property")) {
+                                nested = true;
+                            } else if (subNode.getNodeName().equals("Value")) {
+                                Node text = subNode.getFirstChild();
+                                if (text == null) {
+                                    valueList.add("");
+                                } else if (text.getNodeType() == Node.TEXT_NODE) {
+                                    valueList.addAll(PropConfigProperties.parseValueString(
+                                            ((Text) text).getData(), listDelimiter));
+                                } else {
+                                    throw new ConfigParserException("invalid subnode");
+                                }
+                                if (text != null && text.getNextSibling() != null) {
+                                    throw new ConfigParserException("invalid subnode");
+                                }
+                            } else {
+                                throw new ConfigParserException("unrecognized element " + subNode.getNodeName());
+                            }
+                        }
+                    }
+                    if (valueList.size() > 0) {
+                        Property property = root.find(key);
+                        if (property != null && property.getValue() != null) {
+                            throw new ConfigParserException("contains duplicate property " + key);
+                        }
+                        root.setProperty(key, (String[]) valueList.toArray(new String[valueList.size()]));
+                        if (comments.size() > 0) {
+                            property = root.find(key);
+                            for (Iterator itr = comments.iterator(); itr.hasNext();) {
+                                property.addComment((String) itr.next());
+                            }
+                            comments.clear();
+                        }
+                    }
+                    if (nested) {
+                        loadNode(node, key + ".");
+                    }
+                } else if (node.getNodeName().equals("ListDelimiter")) {
+                    Node text = node.getFirstChild();
+                    if (text == null || text.getNodeType() != Node.TEXT_NODE) {
+                        throw new ConfigParserException("invalid delimiter");
+                    }
+                    String delim = ((Text) text).getData();
+                    if (delim.length() != 1) {
+                        throw new ConfigParserException("invalid delimiter");
+                    }
+                    listDelimiter = delim.charAt(0);
+                    if (text.getNextSibling() != null) {
+                        throw new ConfigParserException("invalid subnode");
+                    }
+                } else if (!node.getNodeName().equals("Value")) {
+                    throw new ConfigParserException("unrecognized element " + node.getNodeName());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) ConfigManagerThroughputStressTests.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config.stresstests;
+
+import com.topcoder.util.config.ConfigManager;
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+
+/**
+ * Measures the read throughput of ConfigManager while a writer keeps
+ * committing changes to the same namespace, and checks the readers never see
+ * a partly committed property.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+public class ConfigManagerThroughputStressTests extends TestCase {
+
+    /**
+     * The namespace read and written by the test.
+     */
+    private static final String NAMESPACE = "ThroughputSpace";
+
+    /**
+     * The number of properties of the namespace.
+     */
+    private static final int PROPERTIES = 100;
+
+    /**
+     * The number of values of the property rewritten by the writer.
+     */
+    private static final int VALUES = 5;
+
+    /**
+     * The duration of each measure, in milliseconds.
+     */
+    private static final long DURATION = 1000;
+
+    /**
+     * The config manager to test.
+     */
+    private ConfigManager cm = null;
+
+    /**
+     * The properties config file.
+     */
+    private File file = null;
+
+    /**
+     * Whether the readers and the writer should stop.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * The first error of the readers or the writer.
+     */
+    private Throwable error = null;
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        file = File.createTempFile("stress", ".properties", new File("test_files"));
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        for (int i = 0; i < PROPERTIES; ++i) {
+            writer.println("property" + i + "=" + i);
+        }
+        writer.close();
+        cm = ConfigManager.getInstance();
+        cm.add(NAMESPACE, file.getAbsolutePath(), ConfigManager.CONFIG_PROPERTIES_FORMAT);
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        if (cm.existsNamespace(NAMESPACE)) {
+            cm.removeNamespace(NAMESPACE);
+        }
+        file.delete();
+    }
+
+    /**
+     * Records the first error of the readers or the writer.
+     *
+     * @param  throwable the error.
+     */
+    private synchronized void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        stopped = true;
+    }
+
+    /**
+     * Measures the reads per second of 1, 2 and 4 readers, while a writer
+     * commits a new value of a multi-valued property in a loop.
+     *
+     * @throws Throwable to JUnit.
+     */
+    public void testMixedReadWrite() throws Throwable {
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            Reader[] readers = new Reader[threads];
+            for (int i = 0; i < threads; ++i) {
+                readers[i] = new Reader();
+            }
+            Writer writer = new Writer();
+
+            stopped = false;
+            writer.start();
+            for (int i = 0; i < threads; ++i) {
+                readers[i].start();
+            }
+            Thread.sleep(DURATION);
+            stopped = true;
+            writer.join();
+            long reads = 0;
+            for (int i = 0; i < threads; ++i) {
+                readers[i].join();
+                reads += readers[i].reads;
+            }
+            if (error != null) {
+                throw error;
+            }
+
+            System.out.println(threads + " reader(s) with a writer : " + (reads * 1000 / DURATION)
+                    + " reads/s, " + (writer.commits * 1000 / DURATION) + " commits/s");
+        }
+    }
+
+    /**
+     * A thread reading the properties of the namespace.
+     */
+    private class Reader extends Thread {
+
+        /**
+         * The number of reads.
+         */
+        long reads = 0;
+
+        /**
+         * Reads the properties until stopped, checking the values of the
+         * rewritten property are all equal.
+         */
+        public void run() {
+            try {
+                for (int i = 0; !stopped; ++i) {
+                    String value = cm.getString(NAMESPACE, "property" + (i % PROPERTIES));
+                    assertNotNull(value);
+                    String[] values = cm.getStringArray(NAMESPACE, "written");
+                    if (values != null) {
+                        assertEquals(VALUES, values.length);
+                        for (int j = 1; j < values.length; ++j) {
+                            assertEquals(values[0], values[j]);
+                        }
+                    }
+                    reads += 2;
+                }
+            } catch (Throwable throwable) {
+                fail(throwable);
+            }
+        }
+    }
+
+    /**
+     * A thread committing new values of the rewritten property.
+     */
+    private class Writer extends Thread {
+
+        /**
+         * The number of commits.
+         */
+        long commits = 0;
+
+        /**
+         * Commits new values until stopped.
+         */
+        public void run() {
+            try {
+                while (!stopped) {
+                    String[] values = new String[VALUES];
+                    for (int i = 0; i < VALUES; ++i) {
+                        values[i] = String.valueOf(commits);
+                    }
+                    cm.createTemporaryProperties(NAMESPACE);
+                    cm.setProperty(NAMESPACE, "written", values);
+                    cm.commit(NAMESPACE, "writer");
+                    ++commits;
+                    // leave the readers some time on a single processor
+                    Thread.yield();
+                }
+            } catch (Throwable throwable) {
+                fail(throwable);
+            }
+        }
+    }
+
+}
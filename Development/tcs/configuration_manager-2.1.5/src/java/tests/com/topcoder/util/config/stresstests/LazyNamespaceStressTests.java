@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) LazyNamespaceStressTests.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config.stresstests;
+
+import com.topcoder.util.config.ConfigManager;
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+
+/**
+ * Measures the startup time saved by loading the namespaces of a large
+ * multi-namespace file on first use, rather than preloading all of them.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+public class LazyNamespaceStressTests extends TestCase {
+
+    /**
+     * The number of namespaces of the file.
+     */
+    private static final int NAMESPACES = 200;
+
+    /**
+     * The number of properties of each namespace of the file.
+     */
+    private static final int PROPERTIES = 20;
+
+    /**
+     * The number of namespaces used after the startup.
+     */
+    private static final int USED = 5;
+
+    /**
+     * The config manager to test.
+     */
+    private ConfigManager cm = null;
+
+    /**
+     * The multi-namespace config file.
+     */
+    private File file = null;
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        file = File.createTempFile("stress", ".xml", new File("test_files"));
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        writer.println("<?xml version=\"1.0\"?>");
+        writer.println("<CMConfig>");
+        for (int i = 0; i < NAMESPACES; ++i) {
+            writer.println("    <Config name=\"LazyStress" + i + "\">");
+            for (int j = 0; j < PROPERTIES; ++j) {
+                writer.println("        <Property name=\"prop" + j + "\"><Value>" + i + "." + j + "</Value></Property>");
+            }
+            writer.println("    </Config>");
+        }
+        writer.println("</CMConfig>");
+        writer.close();
+        cm = ConfigManager.getInstance();
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        removeAll();
+        file.delete();
+    }
+
+    /**
+     * Removes the namespaces of the file which are loaded.
+     *
+     * @throws Exception to JUnit.
+     */
+    private void removeAll() throws Exception {
+        for (int i = 0; i < NAMESPACES; ++i) {
+            if (cm.existsNamespace("LazyStress" + i)) {
+                cm.removeNamespace("LazyStress" + i);
+            }
+        }
+    }
+
+    /**
+     * Loads the given namespaces of the file and reads a property of each.
+     *
+     * @param  step the step between the loaded namespaces.
+     * @return the time taken, in milliseconds.
+     * @throws Exception to JUnit.
+     */
+    private long load(int step) throws Exception {
+        String filename = file.getAbsolutePath();
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < NAMESPACES; i += step) {
+            cm.add("LazyStress" + i, filename, ConfigManager.CONFIG_MULTIPLE_XML_FORMAT);
+            assertEquals(i + ".0", cm.getString("LazyStress" + i, "prop0"));
+        }
+        return System.currentTimeMillis() - time;
+    }
+
+    /**
+     * Compares the time to load all the namespaces of the file, as the
+     * startup of the previous versions did, with the time to load only the
+     * few namespaces which are used.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testStartup() throws Exception {
+        long eagerTime = load(1);
+        removeAll();
+        long lazyTime = load(NAMESPACES / USED);
+
+        System.out.println("Preloading " + NAMESPACES + " namespaces took " + eagerTime + " ms");
+        System.out.println("Loading the " + USED + " namespaces used took " + lazyTime + " ms");
+    }
+
+}
@@ -15,6 +15,9 @@ public class StressTests extends TestCase {
     public static Test suite() {
         final TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(ConfigManagerStressTests.class));
+        suite.addTest(new TestSuite(ConfigManagerThroughputStressTests.class));
+        suite.addTest(new TestSuite(LazyNamespaceStressTests.class));
+        suite.addTest(new TestSuite(XMLLoadStressTests.class));
 
         return suite;
     }
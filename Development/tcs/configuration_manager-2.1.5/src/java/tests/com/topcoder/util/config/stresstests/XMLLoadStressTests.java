@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2003, TopCoder Software, Inc. All rights reserved.
+ *
+ * @(#) XMLLoadStressTests.java
+ *
+ * 2.1.5
+ */
+package com.topcoder.util.config.stresstests;
+
+import com.topcoder.util.config.ConfigManager;
+import junit.framework.TestCase;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+
+/**
+ * Measures the time and the memory of ConfigManager loading all the
+ * namespaces of a large multi-namespace XML file, against a DOM parse of the
+ * same file, which the loader of the previous versions held while building
+ * the trees.
+ *
+ * @author  TCSDEVELOPER
+ * @version 2.1.5
+ * @since   2.1.5
+ */
+public class XMLLoadStressTests extends TestCase {
+
+    /**
+     * The number of namespaces of the file.
+     */
+    private static final int NAMESPACES = 50;
+
+    /**
+     * The number of properties of each namespace of the file.
+     */
+    private static final int PROPERTIES = 100;
+
+    /**
+     * The number of loads measured.
+     */
+    private static final int ROUNDS = 3;
+
+    /**
+     * The config manager to test.
+     */
+    private ConfigManager cm = null;
+
+    /**
+     * The multi-namespace config file.
+     */
+    private File file = null;
+
+    /**
+     * Set up testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        file = File.createTempFile("stress", ".xml", new File("test_files"));
+        PrintWriter writer = new PrintWriter(new FileWriter(file));
+        writer.println("<?xml version=\"1.0\"?>");
+        writer.println("<CMConfig>");
+        for (int i = 0; i < NAMESPACES; ++i) {
+            writer.println("    <Config name=\"XMLStress" + i + "\">");
+            for (int j = 0; j < PROPERTIES; ++j) {
+                writer.println("        <!-- property " + j + " -->");
+                writer.println("        <Property name=\"prop" + j + "\"><Value>" + i + "." + j + "</Value>");
+                writer.println("            <Property name=\"nested\"><Value>a</Value><Value>b</Value></Property>");
+                writer.println("        </Property>");
+            }
+            writer.println("    </Config>");
+        }
+        writer.println("</CMConfig>");
+        writer.close();
+        cm = ConfigManager.getInstance();
+    }
+
+    /**
+     * Tear down testing environment.
+     *
+     * @throws Exception to JUnit.
+     */
+    protected void tearDown() throws Exception {
+        removeAll();
+        file.delete();
+    }
+
+    /**
+     * Removes the namespaces of the file which are loaded.
+     *
+     * @throws Exception to JUnit.
+     */
+    private void removeAll() throws Exception {
+        for (int i = 0; i < NAMESPACES; ++i) {
+            if (cm.existsNamespace("XMLStress" + i)) {
+                cm.removeNamespace("XMLStress" + i);
+            }
+        }
+    }
+
+    /**
+     * Loads all the namespaces of the file with ConfigManager.
+     *
+     * @throws Exception to JUnit.
+     */
+    private void loadAll() throws Exception {
+        removeAll();
+        cm.add(file.getAbsolutePath());
+        assertEquals(2, cm.getStringArray("XMLStress" + (NAMESPACES - 1), "prop0.nested").length);
+    }
+
+    /**
+     * Parses the file into a DOM document.
+     *
+     * @return the document.
+     * @throws Exception to JUnit.
+     */
+    private Document parseAll() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+    }
+
+    /**
+     * Gets the memory used after a garbage collection.
+     *
+     * @return the used memory, in bytes.
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Compares the time and the memory of loading the file with the DOM
+     * parse of the file.
+     *
+     * @throws Exception to JUnit.
+     */
+    public void testLoad() throws Exception {
+        // warm up both
+        for (int i = 0; i < 2; ++i) {
+            loadAll();
+            parseAll();
+        }
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; ++i) {
+            loadAll();
+        }
+        long loadTime = (System.currentTimeMillis() - time) / ROUNDS;
+        time = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; ++i) {
+            parseAll();
+        }
+        long domTime = (System.currentTimeMillis() - time) / ROUNDS;
+
+        removeAll();
+        long base = usedMemory();
+        loadAll();
+        long loadMemory = usedMemory() - base;
+        base = usedMemory();
+        Document document = parseAll();
+        long domMemory = usedMemory() - base;
+        assertNotNull(document);
+
+        System.out.println("Loading " + NAMESPACES + " namespaces of " + PROPERTIES + " properties ("
+                + file.length() / 1024 + " KB) took " + loadTime + " ms and held " + loadMemory / 1024 + " KB");
+        System.out.println("Parsing the same file with DOM took " + domTime + " ms and held "
+                + domMemory / 1024 + " KB");
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The BulkConverter interface extends Converter with a bulk operation, which converts a whole slice of the
+ * values of a column in one call. When a Converter registered with a Mapper implements this interface, the
+ * remap operations of CustomResultSet call the bulk operation once per range of rows instead of calling
+ * convert once per value, which lets the implementation hoist its per-column work (looking up the metadata,
+ * preparing a formatter, ...) out of the loop.
+ * </p>
+ * <p>
+ * When a CustomResultSet remaps in parallel, the bulk operation may be called concurrently for disjoint ranges
+ * of the same column, so the implementations used that way must be thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public interface BulkConverter extends Converter {
+    /**
+     * <p>
+     * Converts the values of the given range in place: values[i] is replaced by the converted value for every
+     * i in [from, to). The result must be the same as calling convert on each value of the range.
+     * </p>
+     *
+     * @param values the values of the column, the range is replaced by the converted values
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param column the column the values came from
+     * @param metaData metadata for the result set
+     * @throws IllegalMappingException when mapping is illegal (implementation defined - for example, invalid
+     *             input)
+     */
+    public void convert(Object[] values, int from, int to, int column, CustomResultSetMetaData metaData)
+        throws IllegalMappingException;
+}
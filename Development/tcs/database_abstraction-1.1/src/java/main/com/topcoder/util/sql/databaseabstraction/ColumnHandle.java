@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * <p>
+ * The ColumnHandle class is a column of a CustomResultSet resolved once by name, through
+ * CustomResultSet.getColumnHandle. It reads the column on the current row of the result set through the index
+ * based getters, so that a loop reading columns by name does not look the names up on every row.
+ * </p>
+ * <p>
+ * Typical usage:<br>
+ *
+ * <pre>
+ *               ColumnHandle total = customRS.getColumnHandle(&quot;total&quot;);
+ *               while (customRS.next()) {
+ *                       sum += total.getLong();
+ *               }
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * Thread Safety: - This class is immutable, but reads the current row of a CustomResultSet, which is not
+ * thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public final class ColumnHandle {
+
+    /**
+     * <p>
+     * The result set the column belongs to. It is set in the constructor, and is never null.
+     * </p>
+     */
+    private final CustomResultSet resultSet;
+
+    /**
+     * <p>
+     * The 1-based index of the column in the result set. It is set in the constructor, and is always valid.
+     * </p>
+     */
+    private final int columnIndex;
+
+    /**
+     * <p>
+     * Creates a new ColumnHandle.
+     * </p>
+     *
+     * @param resultSet the result set the column belongs to
+     * @param columnIndex the valid 1-based index of the column
+     */
+    ColumnHandle(CustomResultSet resultSet, int columnIndex) {
+        this.resultSet = resultSet;
+        this.columnIndex = columnIndex;
+    }
+
+    /**
+     * <p>
+     * Gets the result set the column belongs to.
+     * </p>
+     *
+     * @return the result set
+     */
+    public CustomResultSet getResultSet() {
+        return resultSet;
+    }
+
+    /**
+     * <p>
+     * Gets the index of the column in the result set.
+     * </p>
+     *
+     * @return the 1-based column index
+     */
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as an Object, see CustomResultSet.getObject(int).
+     * </p>
+     *
+     * @return the data as an Object
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to an Object
+     */
+    public Object getObject() throws InvalidCursorStateException {
+        return resultSet.getObject(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row converted to the desired type, see
+     * CustomResultSet.getObject(int, Class).
+     * </p>
+     *
+     * @param desiredType The type of the desired return value
+     * @return The value in the column as the desired type
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException If the value can not be converted to the desired type.
+     * @throws IllegalArgumentException If desiredType is null
+     */
+    public Object getObject(Class desiredType) throws InvalidCursorStateException {
+        return resultSet.getObject(columnIndex, desiredType);
+    }
+
+    /**
+     * <p>
+     * Determines whether the data of the column on the current row is of the desired type or can be converted
+     * to it, see CustomResultSet.isAvailable(int, Class).
+     * </p>
+     *
+     * @param desiredType The desired type to learn about convertibility
+     * @return True if the data could be converted, false otherwise
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws IllegalArgumentException If desiredType is null.
+     */
+    public boolean isAvailable(Class desiredType) throws InvalidCursorStateException {
+        return resultSet.isAvailable(columnIndex, desiredType);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a String, see CustomResultSet.getString(int).
+     * </p>
+     *
+     * @return the data as a String
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a String
+     */
+    public String getString() throws InvalidCursorStateException {
+        return resultSet.getString(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a boolean, see CustomResultSet.getBoolean(int).
+     * </p>
+     *
+     * @return the data as a boolean
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a boolean
+     * @throws NullPointerException If null object is found.
+     */
+    public boolean getBoolean() throws InvalidCursorStateException {
+        return resultSet.getBoolean(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a byte, see CustomResultSet.getByte(int).
+     * </p>
+     *
+     * @return the data as a byte
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a byte
+     * @throws NullPointerException If null object is found.
+     */
+    public byte getByte() throws InvalidCursorStateException {
+        return resultSet.getByte(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a short, see CustomResultSet.getShort(int).
+     * </p>
+     *
+     * @return the data as a short
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a short
+     * @throws NullPointerException If null object is found.
+     */
+    public short getShort() throws InvalidCursorStateException {
+        return resultSet.getShort(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as an int, see CustomResultSet.getInt(int).
+     * </p>
+     *
+     * @return the data as an int
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to an int
+     * @throws NullPointerException If null object is found.
+     */
+    public int getInt() throws InvalidCursorStateException {
+        return resultSet.getInt(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a long, see CustomResultSet.getLong(int).
+     * </p>
+     *
+     * @return the data as a long
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a long
+     * @throws NullPointerException If null object is found.
+     */
+    public long getLong() throws InvalidCursorStateException {
+        return resultSet.getLong(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a float, see CustomResultSet.getFloat(int).
+     * </p>
+     *
+     * @return the data as a float
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a float
+     * @throws NullPointerException If null object is found.
+     */
+    public float getFloat() throws InvalidCursorStateException {
+        return resultSet.getFloat(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a double, see CustomResultSet.getDouble(int).
+     * </p>
+     *
+     * @return the data as a double
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a double
+     * @throws NullPointerException If null object is found.
+     */
+    public double getDouble() throws InvalidCursorStateException {
+        return resultSet.getDouble(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a BigDecimal, see CustomResultSet.getBigDecimal(int).
+     * </p>
+     *
+     * @return the data as a BigDecimal
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a BigDecimal
+     */
+    public BigDecimal getBigDecimal() throws InvalidCursorStateException {
+        return resultSet.getBigDecimal(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a byte array, see CustomResultSet.getBytes(int).
+     * </p>
+     *
+     * @return the data as a byte array
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a byte array
+     */
+    public byte[] getBytes() throws InvalidCursorStateException {
+        return resultSet.getBytes(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a Date, see CustomResultSet.getDate(int).
+     * </p>
+     *
+     * @return the data as a Date
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a Date
+     */
+    public Date getDate() throws InvalidCursorStateException {
+        return resultSet.getDate(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a Time, see CustomResultSet.getTime(int).
+     * </p>
+     *
+     * @return the data as a Time
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a Time
+     */
+    public Time getTime() throws InvalidCursorStateException {
+        return resultSet.getTime(columnIndex);
+    }
+
+    /**
+     * <p>
+     * Get the data of the column on the current row as a Timestamp, see CustomResultSet.getTimestamp(int).
+     * </p>
+     *
+     * @return the data as a Timestamp
+     * @throws InvalidCursorStateException when the result set is not positioned on a row
+     * @throws ClassCastException when value can not be converted to a Timestamp
+     */
+    public Timestamp getTimestamp() throws InvalidCursorStateException {
+        return resultSet.getTimestamp(columnIndex);
+    }
+}
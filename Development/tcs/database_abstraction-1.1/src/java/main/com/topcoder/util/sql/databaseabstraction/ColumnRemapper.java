@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * The ColumnRemapper class is the explicit mapping engine of CustomResultSet. It applies the Converters of a
+ * Mapper to the mapped values of the columns whose type name they are registered for. A Converter implementing
+ * BulkConverter converts each range of rows in one call; any other Converter is called once per value.
+ * </p>
+ * <p>
+ * The rows can be split into ranges converted by different threads: the calling thread converts the first range
+ * and one new thread is started for each of the other ranges. Each thread converts its range for all the mapped
+ * columns, in column order, and stops at its first failure. The failure reported is then the one of the lowest
+ * column, and of the lowest range in that column, which is the failure the sequential mapping would report.
+ * The mapping is only done in parallel when asked to, as the Converters used that way must be thread-safe.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is immutable, but the columns must not be accessed while remapping.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+final class ColumnRemapper {
+
+    /**
+     * <p>
+     * The minimum number of rows converted by each thread when remapping in parallel.
+     * </p>
+     */
+    static final int MIN_ROWS_PER_THREAD = 1024;
+
+    /**
+     * <p>
+     * The 1-based indices of the columns to remap, in increasing order.
+     * </p>
+     */
+    private final int[] columnIndices;
+
+    /**
+     * <p>
+     * The mapped values of the columns to remap, in the order of columnIndices.
+     * </p>
+     */
+    private final Object[][] values;
+
+    /**
+     * <p>
+     * The converters of the columns to remap, in the order of columnIndices.
+     * </p>
+     */
+    private final Converter[] converters;
+
+    /**
+     * <p>
+     * The metadata of the result set, given to the converters.
+     * </p>
+     */
+    private final CustomResultSetMetaData metaData;
+
+    /**
+     * <p>
+     * Creates a ColumnRemapper applying the converters of the given map to the columns. The mapped values of
+     * the columns that have a converter are materialized here, on the calling thread.
+     * </p>
+     *
+     * @param columns all the columns of the result set
+     * @param metaData the metadata of the result set
+     * @param map the map from the lower case column type names to the Converters
+     */
+    ColumnRemapper(ColumnValues[] columns, CustomResultSetMetaData metaData, Map map) {
+        int[] indices = new int[columns.length];
+        Converter[] found = new Converter[columns.length];
+        int count = 0;
+        for (int i = 1; i <= columns.length; ++i) {
+            if (metaData.getColumnTypeName(i) == null) {
+                continue;
+            }
+            Converter converter = (Converter) map.get(metaData.getColumnTypeName(i).toLowerCase());
+            if (converter != null) {
+                indices[count] = i;
+                found[count] = converter;
+                ++count;
+            }
+        }
+        columnIndices = new int[count];
+        converters = new Converter[count];
+        values = new Object[count][];
+        for (int i = 0; i < count; ++i) {
+            columnIndices[i] = indices[i];
+            converters[i] = found[i];
+            values[i] = columns[indices[i] - 1].getMappedValues();
+        }
+        this.metaData = metaData;
+    }
+
+    /**
+     * <p>
+     * Converts the mapped values of all the rows, splitting the rows between at most the given number of
+     * threads.
+     * </p>
+     *
+     * @param rowCount the number of rows to convert
+     * @param parallelism the maximum number of threads to use, the calling thread included
+     * @throws IllegalMappingException when mapping is illegal
+     */
+    void remap(int rowCount, int parallelism) throws IllegalMappingException {
+        int parts = Math.min(parallelism, rowCount / MIN_ROWS_PER_THREAD);
+        if (columnIndices.length == 0 || parts < 2) {
+            remapRange(0, rowCount).rethrow();
+            return;
+        }
+        RemapThread[] threads = new RemapThread[parts];
+        for (int i = 1; i < parts; ++i) {
+            threads[i] = new RemapThread((int) ((long) rowCount * i / parts),
+                (int) ((long) rowCount * (i + 1) / parts));
+            threads[i].start();
+        }
+        Failure failure = remapRange(0, rowCount / parts);
+        for (int i = 1; i < parts; ++i) {
+            Failure other = threads[i].finish();
+            if (other.column < failure.column) {
+                failure = other;
+            }
+        }
+        failure.rethrow();
+    }
+
+    /**
+     * <p>
+     * Converts the mapped values of the given range of rows, column by column, stopping at the first failure.
+     * </p>
+     *
+     * @param from the first row of the range, inclusive
+     * @param to the last row of the range, exclusive
+     * @return the failure of the range, whose column is Integer.MAX_VALUE if there was none
+     */
+    private Failure remapRange(int from, int to) {
+        for (int i = 0; i < columnIndices.length; ++i) {
+            try {
+                if (converters[i] instanceof BulkConverter) {
+                    ((BulkConverter) converters[i]).convert(values[i], from, to, columnIndices[i], metaData);
+                } else {
+                    for (int j = from; j < to; ++j) {
+                        values[i][j] = converters[i].convert(values[i][j], columnIndices[i], metaData);
+                    }
+                }
+            } catch (Exception exception) {
+                return new Failure(columnIndices[i], exception);
+            } catch (Error error) {
+                return new Failure(columnIndices[i], error);
+            }
+        }
+        return new Failure(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * <p>
+     * The failure of the conversion of a range of rows.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private static class Failure {
+
+        /**
+         * The 1-based index of the column the failure occurred in, Integer.MAX_VALUE if there was none.
+         */
+        private final int column;
+
+        /**
+         * The cause of the failure, null if there was none.
+         */
+        private final Throwable cause;
+
+        /**
+         * Creates a Failure.
+         *
+         * @param column the 1-based index of the column the failure occurred in
+         * @param cause the cause of the failure
+         */
+        Failure(int column, Throwable cause) {
+            this.column = column;
+            this.cause = cause;
+        }
+
+        /**
+         * Throws the failure if there was one. As in version 1.1, an Exception is reported as an
+         * IllegalMappingException, and an Error is rethrown as is.
+         *
+         * @throws IllegalMappingException when mapping is illegal
+         */
+        void rethrow() throws IllegalMappingException {
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause != null) {
+                throw new IllegalMappingException("mapping is illegal." + cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * The thread converting one range of rows with remapRange. Its failure is kept and reported to the calling
+     * thread by finish.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private class RemapThread extends Thread {
+
+        /**
+         * The first row of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last row of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * The failure of the range, set when the thread ends.
+         */
+        private Failure failure = null;
+
+        /**
+         * Creates a RemapThread for the given range.
+         *
+         * @param from the first row of the range, inclusive
+         * @param to the last row of the range, exclusive
+         */
+        RemapThread(int from, int to) {
+            super("CustomResultSet-remap");
+            setDaemon(true);
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Converts the range.
+         */
+        public void run() {
+            failure = remapRange(from, to);
+        }
+
+        /**
+         * Waits for the conversion of the range to end, and returns its failure.
+         *
+         * @return the failure of the range
+         */
+        Failure finish() {
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return failure;
+        }
+    }
+}
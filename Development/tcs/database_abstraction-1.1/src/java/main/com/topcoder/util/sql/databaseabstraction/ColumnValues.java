@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.Types;
+import java.util.BitSet;
+
+/**
+ * <p>
+ * The ColumnValues class is the columnar storage for all values of a single column in a CustomResultSet. It
+ * replaces the per-cell RowDataValue objects of version 1.1: the original JDBC values are kept in one array per
+ * column (a primitive array for the numeric column types, see the subclasses), with a null bitmap recording
+ * which rows held SQL NULL. The explicitly mapped values are only materialized, as an Object array, once a
+ * remap operation actually changes the column; until then the mapped value of a row is its original value.
+ * </p>
+ * <p>
+ * Subclasses only accept values of the exact class the JDBC specification prescribes for their column type. When
+ * a driver returns something else, addValue returns false and the caller is expected to fall back to
+ * toObjectColumnValues, so the original JDBC objects are always preserved.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+abstract class ColumnValues implements Cloneable {
+
+    /**
+     * <p>
+     * The initial capacity of the value arrays, used while the row count is still unknown.
+     * </p>
+     */
+    static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * <p>
+     * The number of rows stored in this column. It is increased by addValue and reset by clear.
+     * </p>
+     */
+    private int size = 0;
+
+    /**
+     * <p>
+     * The rows whose original value is SQL NULL. It is only used by the primitive subclasses, and is created
+     * lazily when the first null value is added.
+     * </p>
+     */
+    private BitSet nulls = null;
+
+    /**
+     * <p>
+     * The explicitly mapped values of the rows. It is null as long as no remap operation changed this column,
+     * in which case the mapped value of every row is its original value.
+     * </p>
+     */
+    private Object[] mappedValues = null;
+
+    /**
+     * <p>
+     * Creates an empty ColumnValues instance.
+     * </p>
+     */
+    ColumnValues() {
+        // do nothing.
+    }
+
+    /**
+     * <p>
+     * Creates the ColumnValues implementation best suited to store the values of a column of the given
+     * java.sql.Types type. Numeric types get a primitive backed implementation, all the others an Object backed
+     * one.
+     * </p>
+     *
+     * @param columnType the java.sql.Types type of the column
+     * @return an empty ColumnValues for the column type
+     */
+    static ColumnValues createColumnValues(int columnType) {
+        switch (columnType) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+            return new IntColumnValues();
+        case Types.BIGINT:
+            return new LongColumnValues();
+        case Types.FLOAT:
+        case Types.DOUBLE:
+            return new DoubleColumnValues();
+        case Types.REAL:
+            return new FloatColumnValues();
+        default:
+            return new ObjectColumnValues();
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of rows stored in this column.
+     * </p>
+     *
+     * @return the number of rows
+     */
+    final int size() {
+        return size;
+    }
+
+    /**
+     * <p>
+     * Appends the original value of the next row to this column.
+     * </p>
+     *
+     * @param value the value from the JDBC result set (may be null)
+     * @return true if the value was stored, false if this implementation can not store it without losing its
+     *         type
+     */
+    final boolean addValue(Object value) {
+        if (value == null) {
+            ensureCapacity(size + 1);
+            if (nulls == null) {
+                nulls = new BitSet();
+            }
+            nulls.set(size);
+        } else if (acceptsValue(value)) {
+            ensureCapacity(size + 1);
+            setValue(size, value);
+        } else {
+            return false;
+        }
+        ++size;
+        return true;
+    }
+
+    /**
+     * <p>
+     * Gets the original JDBC value of the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the original value, may be null
+     */
+    final Object getOriginalValue(int row) {
+        return isNull(row) ? null : getValue(row);
+    }
+
+    /**
+     * <p>
+     * Gets the currently explicitly mapped value of the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the mapped value, may be null
+     */
+    final Object getMappedValue(int row) {
+        return mappedValues == null ? getOriginalValue(row) : mappedValues[row];
+    }
+
+    /**
+     * <p>
+     * Sets the explicitly mapped value of the given row. The first call materializes the mapped values of all
+     * the rows of this column.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the new mapped value, may be null
+     */
+    final void setMappedValue(int row, Object value) {
+        getMappedValues()[row] = value;
+    }
+
+    /**
+     * <p>
+     * Gets the explicitly mapped values of all the rows, materializing them if no remap operation changed this
+     * column yet. The returned array is the storage of this column, so changing its items changes the mapped
+     * values; it is used by the remap operations to convert whole ranges of rows at once.
+     * </p>
+     *
+     * @return the mapped values, indexed by 0-based row
+     */
+    final Object[] getMappedValues() {
+        if (mappedValues == null) {
+            mappedValues = new Object[size];
+            for (int i = 0; i < size; ++i) {
+                mappedValues[i] = getOriginalValue(i);
+            }
+        }
+        return mappedValues;
+    }
+
+    /**
+     * <p>
+     * Determines whether some remap operation has changed the values of this column. If not, the mapped value
+     * of every row is its original value, and the typed accessors of the subclasses can be used directly.
+     * </p>
+     *
+     * @return true if the mapped values have been materialized
+     */
+    final boolean isMapped() {
+        return mappedValues != null;
+    }
+
+    /**
+     * <p>
+     * Determines whether the original value of the given row is SQL NULL.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return true if the original value is null
+     */
+    boolean isNull(int row) {
+        return nulls != null && nulls.get(row);
+    }
+
+    /**
+     * <p>
+     * Re-arranges the rows of this column so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    final void reorder(int[] order) {
+        reorderValues(order);
+        if (nulls != null) {
+            BitSet reordered = new BitSet(size);
+            for (int i = 0; i < size; ++i) {
+                if (nulls.get(order[i])) {
+                    reordered.set(i);
+                }
+            }
+            nulls = reordered;
+        }
+        if (mappedValues != null) {
+            Object[] reordered = new Object[size];
+            for (int i = 0; i < size; ++i) {
+                reordered[i] = mappedValues[order[i]];
+            }
+            mappedValues = reordered;
+        }
+    }
+
+    /**
+     * <p>
+     * Creates an Object backed copy of this column, holding the same original and mapped values.
+     * </p>
+     *
+     * @return the Object backed copy of this column
+     */
+    final ColumnValues toObjectColumnValues() {
+        ColumnValues copy = new ObjectColumnValues();
+        for (int i = 0; i < size; ++i) {
+            copy.addValue(getOriginalValue(i));
+        }
+        if (mappedValues != null) {
+            copy.mappedValues = (Object[]) mappedValues.clone();
+        }
+        return copy;
+    }
+
+    /**
+     * <p>
+     * Creates a copy of this column for CustomResultSet.snapshot. The value arrays and the null bitmap are
+     * shared, as the operations changing a loaded column replace them instead of writing into them; the mapped
+     * values are copied, as the remap operations change them in place.
+     * </p>
+     *
+     * @return the copy of this column
+     */
+    final ColumnValues copy() {
+        ColumnValues copy;
+        try {
+            copy = (ColumnValues) clone();
+        } catch (CloneNotSupportedException e) {
+            // can not happen, this class is Cloneable
+            throw new IllegalStateException("ColumnValues should be cloneable.");
+        }
+        if (mappedValues != null) {
+            copy.mappedValues = (Object[]) mappedValues.clone();
+        }
+        return copy;
+    }
+
+    /**
+     * <p>
+     * Removes all the rows of this column. The value array keeps its capacity, so that it can be reused.
+     * </p>
+     */
+    final void clear() {
+        size = 0;
+        nulls = null;
+        mappedValues = null;
+    }
+
+    /**
+     * <p>
+     * Releases the unused capacity of the value arrays, once all the rows have been added.
+     * </p>
+     */
+    final void trimToSize() {
+        resize(size);
+    }
+
+    /**
+     * <p>
+     * Makes sure the value array can hold at least the given number of rows, growing it geometrically.
+     * </p>
+     *
+     * @param minCapacity the number of rows that must fit
+     */
+    private void ensureCapacity(int minCapacity) {
+        int capacity = getCapacity();
+        if (minCapacity > capacity) {
+            resize(Math.max(minCapacity, Math.max(INITIAL_CAPACITY, capacity * 2)));
+        }
+    }
+
+    /**
+     * <p>
+     * Determines whether the given non-null value can be stored by this implementation.
+     * </p>
+     *
+     * @param value the non-null value to check
+     * @return true if setValue can store the value without losing its type
+     */
+    abstract boolean acceptsValue(Object value);
+
+    /**
+     * <p>
+     * Stores the given non-null value, already checked by acceptsValue, at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the non-null value to store
+     */
+    abstract void setValue(int row, Object value);
+
+    /**
+     * <p>
+     * Gets the value stored at the given row, as an object. The row is known not to be null.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the value stored at the row
+     */
+    abstract Object getValue(int row);
+
+    /**
+     * <p>
+     * Compares the values stored at the given rows, in the natural ordering of their type. The rows are known
+     * not to be null.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first value is less than, equal to, or greater
+     *         than the second
+     * @throws ClassCastException if the values are not Comparable with each other
+     */
+    abstract int compareValues(int rowA, int rowB);
+
+    /**
+     * <p>
+     * Gets the current length of the value array.
+     * </p>
+     *
+     * @return the number of rows the value array can hold
+     */
+    abstract int getCapacity();
+
+    /**
+     * <p>
+     * Replaces the value array by one of the given length, keeping the first size() values.
+     * </p>
+     *
+     * @param capacity the new length of the value array
+     */
+    abstract void resize(int capacity);
+
+    /**
+     * <p>
+     * Re-arranges the value array so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    abstract void reorderValues(int[] order);
+}
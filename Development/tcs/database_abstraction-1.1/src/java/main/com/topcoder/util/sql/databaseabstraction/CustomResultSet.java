@@ -16,12 +16,8 @@ import java.sql.SQLException;
 import java.sql.Struct;
 import java.sql.Time;
 import java.sql.Timestamp;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -43,31 +39,57 @@ import java.util.Map;
  * to be applied to both the original or mapped value.
  * </p>
  * <p>
+ * Version 1.2 stores the data column by column instead of row by row. Each column is held by a ColumnValues
+ * instance chosen from the column type in the metadata: the numeric types are kept in primitive arrays with a
+ * null bitmap, and the mapped values are only materialized for the columns that a remap operation changes. The
+ * getInt, getLong, getFloat and getDouble methods read the primitive arrays directly when the column has not
+ * been remapped, with no boxing. The on-demand conversions go through an OnDemandDispatchTable, which
+ * remembers the converter used for each column, source class and desired type, and asks it to convert the
+ * value in a single pass. The columns are looked up by name through a hash index of the labels, and can be
+ * resolved once into a ColumnHandle. The sort methods sort an int[] permutation of the rows with RowSorter,
+ * comparing the primitive columns without boxing, and in parallel for large results. The explicit mapping is
+ * done by ColumnRemapper, which calls the BulkConverters once per range of rows, and can split the rows between
+ * several threads when a mapping parallelism greater than 1 is configured. A loaded result set can be copied
+ * by snapshot, sharing its values, so that a cached result can be given to several readers at once.
+ * </p>
+ * <p>
  * Thread Safety: - This class is mutable, and not thread-safe.
  * </p>
  *
  * @author argolite, WishingBone
- * @author aubergineanode, justforplay
- * @version 1.1
+ * @author aubergineanode, justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.0
  */
 public class CustomResultSet {
 
     /**
-     * The data that makes up the CustomResultSet. The contents of this field are also Lists, and the contents
-     * of these Lists are all RowDataValue objects. Items in both lists are required to be non-null. The
-     * number of items in this list is the number of rows in the ResultSet that was used in constructing the
-     * CustomResultSet, and each list in this list contains as many RowDataValue items as there are columns.
-     * This field is immutable, although its contents can be changed, through mapping or sorting. This field
-     * is the main data storage for this class, and as such is used in almost every method.
+     * <p>
+     * The data that makes up the CustomResultSet, one ColumnValues per column. Each item is non-null and holds
+     * the original and mapped values of rowCount rows. An item may be replaced by an Object backed copy while
+     * the data is loaded, and the contents can be changed through mapping or sorting. This field is the main
+     * data storage for this class, and as such is used in almost every method.
+     * </p>
+     *
+     * @since 1.2
      */
-    private final List rows = new ArrayList();
+    private final ColumnValues[] columns;
 
     /**
-     * The current row that the result set is positioned at. The current row accessed in the rows List is
+     * <p>
+     * The number of rows in the ResultSet that was used in constructing the CustomResultSet. It is set while
+     * the data is loaded, and never changes afterwards.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private int rowCount = 0;
+
+    /**
+     * The current row that the result set is positioned at. The current row accessed in the columns is
      * given by currentRow - 1. (The -1 is needed because the CustomResultSet uses JDBC 1-based indexing while
-     * the rows list uses java-style 0-based indexing.) A value of 0 means that the result set is positioned
-     * before the first row, while a value > rows.size() means that the result set is positioned after all
+     * the columns use java-style 0-based indexing.) A value of 0 means that the result set is positioned
+     * before the first row, while a value > rowCount means that the result set is positioned after all
      * rows. This field is used in all the get methods of this class, the positioning methods (afterLast,
      * beforeFirst, absolute). It is also set to 0 in the sortAscending/Descending methods. This field is
      * mutable.
@@ -95,6 +117,27 @@ public class CustomResultSet {
      */
     private final OnDemandMapper onDemandMapper;
 
+    /**
+     * <p>
+     * The converters of onDemandMapper resolved per column, source class and desired type. It is created
+     * lazily by the first on-demand conversion, and stays null if onDemandMapper is null.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private OnDemandDispatchTable dispatchTable = null;
+
+    /**
+     * <p>
+     * The maximum number of threads used by the remap operations, the calling thread included. It is 1 by
+     * default, in which case the mapping is done on the calling thread only; greater values require the
+     * registered Converters to be thread-safe. It is always positive.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private int mappingParallelism = 1;
+
     /**
      * <p>
      * Creates a new CustomResultSet from the given JDBC result set.
@@ -115,6 +158,7 @@ public class CustomResultSet {
             throw new NullPointerException("rs should not be null.");
         }
         metaData = new CustomResultSetMetaData(rs.getMetaData());
+        columns = new ColumnValues[metaData.getColumnCount()];
         setRowsFromRs(rs);
         this.onDemandMapper = OnDemandMapper.createDefaultOnDemandMapper();
     }
@@ -154,10 +198,36 @@ public class CustomResultSet {
      */
     public CustomResultSet(ResultSet rs, Mapper mapper, OnDemandMapper onDemandMapper) throws SQLException,
         IllegalMappingException {
+        this(rs, mapper, onDemandMapper, 1);
+    }
+
+    /**
+     * <p>
+     * Creates a new CustomResultSet that does explicit mapping of values using mapper, splitting the rows
+     * between at most mappingParallelism threads, and also allows values to be accessed (and converted on the
+     * fly) through the use of the onDemandMapper. The mapping parallelism is kept for the later remap
+     * operations.
+     * </p>
+     *
+     * @param rs The result set to load data from
+     * @param mapper The explicit mapping to apply to the column values - can be null
+     * @param onDemandMapper The mapper to use for on-demand conversion - can be null
+     * @param mappingParallelism the maximum number of threads used to map the values; the Converters of the
+     *            mappers must be thread-safe if it is greater than 1
+     * @throws NullPointerException thrown if rs is null.
+     * @throws IllegalArgumentException if mappingParallelism is not positive
+     * @throws SQLException When there is an error reading the data
+     * @throws IllegalMappingException when mapping is illegal.
+     * @since 1.2
+     */
+    public CustomResultSet(ResultSet rs, Mapper mapper, OnDemandMapper onDemandMapper, int mappingParallelism)
+        throws SQLException, IllegalMappingException {
         if (rs == null) {
             throw new NullPointerException("rs should not be null.");
         }
+        setMappingParallelism(mappingParallelism);
         metaData = new CustomResultSetMetaData(rs.getMetaData());
+        columns = new ColumnValues[metaData.getColumnCount()];
         setRowsFromRs(rs);
         remap(mapper);
         this.onDemandMapper = onDemandMapper;
@@ -165,20 +235,142 @@ public class CustomResultSet {
 
     /**
      * <p>
-     * Add values from ResultSet to rows. This is private function only invoked by constructors.
+     * Add values from ResultSet to columns. This is private function only invoked by constructors.
+     * </p>
+     * <p>
+     * Version 1.2 stores the values in the ColumnValues matching each column type. If the driver returns a
+     * value the column storage does not accept, the column falls back to Object storage.
      * </p>
      *
      * @param rs The result set to load data from
      * @throws SQLException When there is an error reading the data
      */
     private void setRowsFromRs(ResultSet rs) throws SQLException {
+        createColumns();
         for (; rs.next();) {
-            List vrow = new ArrayList();
-            for (int i = 1; i <= metaData.getColumnCount(); ++i) {
-                vrow.add(new RowDataValue(rs.getObject(i)));
+            addRow(rs);
+        }
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i].trimToSize();
+        }
+    }
+
+    /**
+     * <p>
+     * Creates an empty ColumnValues for each column, matching the column type in the metadata.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private void createColumns() {
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = ColumnValues.createColumnValues(metaData.getColumnType(i + 1));
+        }
+    }
+
+    /**
+     * <p>
+     * Appends the row the given result set is positioned on to the columns. If the driver returns a value the
+     * column storage does not accept, the column falls back to Object storage.
+     * </p>
+     *
+     * @param rs The result set to load the row from
+     * @throws SQLException When there is an error reading the data
+     * @since 1.2
+     */
+    private void addRow(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; ++i) {
+            Object value = rs.getObject(i + 1);
+            if (!columns[i].addValue(value)) {
+                columns[i] = columns[i].toObjectColumnValues();
+                columns[i].addValue(value);
             }
-            rows.add(vrow);
         }
+        ++rowCount;
+    }
+
+    /**
+     * <p>
+     * Creates a CustomResultSet that holds no rows yet. It is used by StreamingCustomResultSet, which loads
+     * one row at a time through loadRow.
+     * </p>
+     *
+     * @param metaData the metadata of the result set
+     * @param onDemandMapper The mapper to use for on-demand conversion - can be null
+     * @since 1.2
+     */
+    CustomResultSet(CustomResultSetMetaData metaData, OnDemandMapper onDemandMapper) {
+        this.metaData = metaData;
+        this.onDemandMapper = onDemandMapper;
+        columns = new ColumnValues[metaData.getColumnCount()];
+        createColumns();
+    }
+
+    /**
+     * <p>
+     * Creates a copy of the given result set, positioned before the first row. The loaded values are shared,
+     * and copied by each column only when a remap or sort operation would change them.
+     * </p>
+     *
+     * @param source the result set to copy
+     * @since 1.2
+     */
+    private CustomResultSet(CustomResultSet source) {
+        metaData = source.metaData.copy();
+        onDemandMapper = source.onDemandMapper;
+        mappingParallelism = source.mappingParallelism;
+        rowCount = source.rowCount;
+        columns = new ColumnValues[source.columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = source.columns[i].copy();
+        }
+    }
+
+    /**
+     * <p>
+     * Creates an independent copy of this result set, positioned before the first row, with the same rows,
+     * mapped values, metadata, on-demand mapper and mapping parallelism. Moving the cursor, remapping or sorting
+     * one of them does not change the other. The copy shares the loaded values, so it is cheap, and several
+     * snapshots of a result set which is no longer changed can be taken concurrently. The metadata is copied, as
+     * the converters may change it and it indexes the column labels lazily.
+     * </p>
+     *
+     * @return the copy of this result set
+     * @since 1.2
+     */
+    public CustomResultSet snapshot() {
+        return new CustomResultSet(this);
+    }
+
+    /**
+     * <p>
+     * Replaces the data of this result set by the single row the given result set is positioned on, and
+     * positions this result set on it. The column storage is reused from row to row.
+     * </p>
+     *
+     * @param rs The result set to load the row from
+     * @throws SQLException When there is an error reading the data
+     * @since 1.2
+     */
+    final void loadRow(ResultSet rs) throws SQLException {
+        clearRows();
+        addRow(rs);
+        currentRow = 1;
+    }
+
+    /**
+     * <p>
+     * Removes all the rows of this result set, and positions it before the first row.
+     * </p>
+     *
+     * @since 1.2
+     */
+    final void clearRows() {
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i].clear();
+        }
+        rowCount = 0;
+        currentRow = 0;
     }
 
     /**
@@ -192,13 +384,13 @@ public class CustomResultSet {
      */
     public boolean absolute(int row) {
         if (row < 0) {
-            row += rows.size() + 1;
+            row += rowCount + 1;
         }
         if (row < 1) {
             currentRow = 0;
             return false;
-        } else if (row > rows.size()) {
-            currentRow = rows.size() + 1;
+        } else if (row > rowCount) {
+            currentRow = rowCount + 1;
             return false;
         } else {
             currentRow = row;
@@ -212,7 +404,7 @@ public class CustomResultSet {
      * </p>
      */
     public void afterLast() {
-        currentRow = rows.size() + 1;
+        currentRow = rowCount + 1;
     }
 
     /**
@@ -228,19 +420,35 @@ public class CustomResultSet {
      * <p>
      * Find the column index with specified column name, returning 0 if no column has the given name.
      * </p>
+     * <p>
+     * In version 1.2, the lookup goes through the label index of the metadata, and falls back to a
+     * case-insensitive match if no label is exactly equal to columnName.
+     * </p>
      *
      * @return the column index, 0 if not found
      * @param columnName the column name to find
      */
     public int findColumn(String columnName) {
-        if (columnName != null) {
-            for (int i = 1; i <= metaData.getColumnCount(); ++i) {
-                if (columnName.equals(metaData.getColumnLabel(i))) {
-                    return i;
-                }
-            }
+        return metaData.findColumn(columnName);
+    }
+
+    /**
+     * <p>
+     * Gets a handle on the column with the given name, resolved once so that the column can be read on every
+     * row without looking it up again.
+     * </p>
+     *
+     * @return the handle on the column
+     * @param columnName the column name to find, matched as in findColumn
+     * @throws IllegalArgumentException if no column has the given name
+     * @since 1.2
+     */
+    public ColumnHandle getColumnHandle(String columnName) {
+        int columnIndex = findColumn(columnName);
+        if (columnIndex == 0) {
+            throw new IllegalArgumentException("There is no column named " + columnName + ".");
         }
-        return 0;
+        return new ColumnHandle(this, columnIndex);
     }
 
     /**
@@ -252,7 +460,7 @@ public class CustomResultSet {
      */
     public boolean first() {
         currentRow = 1;
-        return rows.size() > 0;
+        return rowCount > 0;
     }
 
     /**
@@ -642,6 +850,10 @@ public class CustomResultSet {
      *             found.
      */
     public double getDouble(int columnIndex) throws InvalidCursorStateException {
+        ColumnValues column = getUnmappedColumn(columnIndex);
+        if (column instanceof DoubleColumnValues) {
+            return ((DoubleColumnValues) column).getDouble(currentRow - 1);
+        }
         return ((Double) getObject(columnIndex, Double.class)).doubleValue();
     }
 
@@ -675,6 +887,10 @@ public class CustomResultSet {
      *             found.
      */
     public float getFloat(int columnIndex) throws InvalidCursorStateException {
+        ColumnValues column = getUnmappedColumn(columnIndex);
+        if (column instanceof FloatColumnValues) {
+            return ((FloatColumnValues) column).getFloat(currentRow - 1);
+        }
         return ((Float) getObject(columnIndex, Float.class)).floatValue();
     }
 
@@ -708,6 +924,10 @@ public class CustomResultSet {
      *             found.
      */
     public int getInt(int columnIndex) throws InvalidCursorStateException {
+        ColumnValues column = getUnmappedColumn(columnIndex);
+        if (column instanceof IntColumnValues) {
+            return ((IntColumnValues) column).getInt(currentRow - 1);
+        }
         return ((Integer) getObject(columnIndex, Integer.class)).intValue();
     }
 
@@ -741,6 +961,10 @@ public class CustomResultSet {
      *             found.
      */
     public long getLong(int columnIndex) throws InvalidCursorStateException {
+        ColumnValues column = getUnmappedColumn(columnIndex);
+        if (column instanceof LongColumnValues) {
+            return ((LongColumnValues) column).getLong(currentRow - 1);
+        }
         return ((Long) getObject(columnIndex, Long.class)).longValue();
     }
 
@@ -760,6 +984,33 @@ public class CustomResultSet {
         return getLong(findColumn(columnName));
     }
 
+    /**
+     * <p>
+     * Gets the storage of the given column if its value for the current row can be read directly from the
+     * typed ColumnValues accessors, that is if the column has not been remapped and the value is not null.
+     * </p>
+     *
+     * @param columnIndex index of the column to get
+     * @return the column storage, or null if the value must be read through getObject
+     * @throws InvalidCursorStateException when cursor state is invalid (i.e. currentRow &lt;= 0 or &gt;
+     *             rows.size)
+     * @since 1.2
+     */
+    private ColumnValues getUnmappedColumn(int columnIndex) throws InvalidCursorStateException {
+        if (currentRow < 1 || currentRow > rowCount) {
+            throw new InvalidCursorStateException("current row of CustomResultSet -- " + currentRow
+                + " is invalid.");
+        }
+        if (columnIndex < 1 || columnIndex > columns.length) {
+            return null;
+        }
+        ColumnValues column = columns[columnIndex - 1];
+        if (column.isMapped() || column.isNull(currentRow - 1)) {
+            return null;
+        }
+        return column;
+    }
+
     /**
      * <p>
      * Get data as an Object. Return the mapped value for the given column for the current row. If columnIndex
@@ -773,14 +1024,14 @@ public class CustomResultSet {
      * @throws ClassCastException when value can not be converted to an Object
      */
     public Object getObject(int columnIndex) throws InvalidCursorStateException {
-        if (currentRow < 1 || currentRow > rows.size()) {
+        if (currentRow < 1 || currentRow > rowCount) {
             throw new InvalidCursorStateException("currentRow of CustomResultSet -- " + currentRow
                 + " -- is invalid.");
         }
         if (columnIndex < 1 || columnIndex > metaData.getColumnCount()) {
             return null;
         }
-        return ((RowDataValue) ((List) rows.get(currentRow - 1)).get(columnIndex - 1)).getMappedValue();
+        return columns[columnIndex - 1].getMappedValue(currentRow - 1);
     }
 
     /**
@@ -805,7 +1056,7 @@ public class CustomResultSet {
      * @return the count number of records
      */
     public int getRecordCount() {
-        return rows.size();
+        return rowCount;
     }
 
     /**
@@ -1077,7 +1328,7 @@ public class CustomResultSet {
      * @return whether the current row is after the last one
      */
     public boolean isAfterLast() {
-        return currentRow > rows.size();
+        return currentRow > rowCount;
     }
 
     /**
@@ -1095,7 +1346,7 @@ public class CustomResultSet {
      * @return whether the current row is the first one
      */
     public boolean isFirst() {
-        return currentRow == 1 && rows.size() > 0;
+        return currentRow == 1 && rowCount > 0;
     }
 
     /**
@@ -1104,7 +1355,7 @@ public class CustomResultSet {
      * @return whether the current row is the last one
      */
     public boolean isLast() {
-        return currentRow > 0 && currentRow == rows.size();
+        return currentRow > 0 && currentRow == rowCount;
     }
 
     /**
@@ -1113,7 +1364,7 @@ public class CustomResultSet {
      * @return whether the last row exists
      */
     public boolean last() {
-        currentRow = rows.size();
+        currentRow = rowCount;
         return currentRow > 0;
     }
 
@@ -1123,10 +1374,10 @@ public class CustomResultSet {
      * @return whether the next row exists
      */
     public boolean next() {
-        if (currentRow <= rows.size()) {
+        if (currentRow <= rowCount) {
             ++currentRow;
         }
-        return currentRow <= rows.size();
+        return currentRow <= rowCount;
     }
 
     /**
@@ -1138,7 +1389,7 @@ public class CustomResultSet {
         if (currentRow >= 1) {
             --currentRow;
         }
-        return currentRow >= 1 && rows.size() > 0;
+        return currentRow >= 1 && rowCount > 0;
     }
 
     /**
@@ -1161,6 +1412,11 @@ public class CustomResultSet {
      * In version 1.1 remapping will reserve the original value using DataRowValue to store the original and
      * mapped value.
      * </p>
+     * <p>
+     * Version 1.2 converts the rows with ColumnRemapper: a BulkConverter is called once per range of rows, and
+     * the rows are split between at most getMappingParallelism() threads. The values and the exception thrown
+     * are the same as when mapping one value at a time on the calling thread.
+     * </p>
      *
      * @param mapper the mapper to use (may be null, in which case nothing is done)
      * @throws IllegalMappingException when mapping is illegal
@@ -1169,25 +1425,37 @@ public class CustomResultSet {
         if (mapper == null || mapper.getMap() == null) {
             return;
         }
-        Map map = mapper.getMap();
-        for (int i = 1; i <= metaData.getColumnCount(); ++i) {
-            if (metaData.getColumnTypeName(i) == null) {
-                continue;
-            }
-            Converter converter = (Converter) map.get(metaData.getColumnTypeName(i).toLowerCase());
-            if (converter != null) {
-                Iterator itr = rows.iterator();
-                for (int j = 0; j < rows.size(); ++j) {
-                    List vrow = (List) itr.next();
-                    try {
-                        RowDataValue dataValue = (RowDataValue) vrow.get(i - 1);
-                        dataValue.setMappedValue(converter.convert(dataValue.getMappedValue(), i, metaData));
-                    } catch (Exception exception) {
-                        throw new IllegalMappingException("mapping is illegal." + exception.getMessage());
-                    }
-                }
-            }
+        new ColumnRemapper(columns, metaData, mapper.getMap()).remap(rowCount, mappingParallelism);
+    }
+
+    /**
+     * <p>
+     * Gets the maximum number of threads used by the remap operations, the calling thread included.
+     * </p>
+     *
+     * @return the mapping parallelism, always positive
+     * @since 1.2
+     */
+    public int getMappingParallelism() {
+        return mappingParallelism;
+    }
+
+    /**
+     * <p>
+     * Sets the maximum number of threads used by the remap operations, the calling thread included. With a
+     * value greater than 1, large results are split into ranges of rows mapped concurrently, so the Converters
+     * of the mappers given to remap must be thread-safe.
+     * </p>
+     *
+     * @param mappingParallelism the mapping parallelism
+     * @throws IllegalArgumentException if mappingParallelism is not positive
+     * @since 1.2
+     */
+    public void setMappingParallelism(int mappingParallelism) {
+        if (mappingParallelism < 1) {
+            throw new IllegalArgumentException("mappingParallelism should be positive.");
         }
+        this.mappingParallelism = mappingParallelism;
     }
 
     /**
@@ -1202,8 +1470,7 @@ public class CustomResultSet {
      * @throws ClassCastException when the items in the given column do not implement the Comparable interface
      */
     public void sortAscending(int columnIndex) {
-        Collections.sort(rows, new SimpleComparator(columnIndex, null, false));
-        currentRow = 0;
+        sortRows(new int[] {columnIndex}, null, false);
     }
 
     /**
@@ -1235,8 +1502,7 @@ public class CustomResultSet {
      * @throws ClassCastException When the comparator can not compare the objects
      */
     public void sortAscending(int columnIndex, Comparator comparator) {
-        Collections.sort(rows, new SimpleComparator(columnIndex, comparator, false));
-        currentRow = 0;
+        sortRows(new int[] {columnIndex}, new Comparator[] {comparator}, false);
     }
 
     /**
@@ -1267,8 +1533,7 @@ public class CustomResultSet {
      * @throws ClassCastException when the items in the given column do not implement the Comparable interface
      */
     public void sortAscending(int[] columnIndices) {
-        Collections.sort(rows, new ArrayComparator(columnIndices, null, false));
-        currentRow = 0;
+        sortRows(columnIndices, null, false);
     }
 
     /**
@@ -1312,8 +1577,7 @@ public class CustomResultSet {
      * @throws IndexOutOfBoundsException if comparators is a shorter array than columnIndices
      */
     public void sortAscending(int[] columnIndices, Comparator[] comparators) {
-        Collections.sort(rows, new ArrayComparator(columnIndices, comparators, false));
-        currentRow = 0;
+        sortRows(columnIndices, comparators, false);
     }
 
     /**
@@ -1356,8 +1620,7 @@ public class CustomResultSet {
      * @throws ClassCastException when the items in the given column do not implement the Comparable interface
      */
     public void sortDescending(int columnIndex) {
-        Collections.sort(rows, new SimpleComparator(columnIndex, null, true));
-        currentRow = 0;
+        sortRows(new int[] {columnIndex}, null, true);
     }
 
     /**
@@ -1388,8 +1651,7 @@ public class CustomResultSet {
      * @throws ClassCastException When the comparator can not compare the objects
      */
     public void sortDescending(int columnIndex, Comparator comparator) {
-        Collections.sort(rows, new SimpleComparator(columnIndex, comparator, true));
-        currentRow = 0;
+        sortRows(new int[] {columnIndex}, new Comparator[] {comparator}, true);
     }
 
     /**
@@ -1420,8 +1682,7 @@ public class CustomResultSet {
      * @throws ClassCastException when the items in the given column do not implement the Comparable interface
      */
     public void sortDescending(int[] columnIndices) {
-        Collections.sort(rows, new ArrayComparator(columnIndices, null, true));
-        currentRow = 0;
+        sortRows(columnIndices, null, true);
     }
 
     /**
@@ -1465,8 +1726,7 @@ public class CustomResultSet {
      * @throws IndexOutOfBoundsException if comparators is a shorter array than columnIndices
      */
     public void sortDescending(int[] columnIndices, Comparator[] comparators) {
-        Collections.sort(rows, new ArrayComparator(columnIndices, comparators, true));
-        currentRow = 0;
+        sortRows(columnIndices, comparators, true);
     }
 
     /**
@@ -1496,6 +1756,28 @@ public class CustomResultSet {
         sortDescending(columnIndices, comparators);
     }
 
+    /**
+     * <p>
+     * Sorts the rows on the given columns, with RowSorter. The resulting permutation of the rows is applied to
+     * every column, and the result set is re-positioned to before the first row. The sort is stable.
+     * </p>
+     *
+     * @param columnIndices the indices of the columns to sort on, in order
+     * @param comparators the comparators to use for the columns, null or containing nulls for the natural
+     *            ordering
+     * @param isDescending whether to sort in descending order
+     * @throws ClassCastException when the values of the rows can not be compared
+     * @throws IndexOutOfBoundsException if comparators is a shorter array than columnIndices
+     * @since 1.2
+     */
+    void sortRows(int[] columnIndices, Comparator[] comparators, boolean isDescending) {
+        int[] permutation = new RowSorter(columns, columnIndices, comparators, isDescending).sort(rowCount);
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i].reorder(permutation);
+        }
+        currentRow = 0;
+    }
+
     /**
      * <p>
      * Gets the object in the given column for the current row that the result set is positioned on, returning
@@ -1526,7 +1808,7 @@ public class CustomResultSet {
             throw new IllegalArgumentException("desiredType should not be null.");
         }
         // Validate currentRow.
-        if (currentRow < 1 || currentRow > rows.size()) {
+        if (currentRow < 1 || currentRow > rowCount) {
             throw new InvalidCursorStateException("current row of CustomResultSet -- " + currentRow
                 + " is invalid.");
         }
@@ -1534,31 +1816,34 @@ public class CustomResultSet {
         if (columnIndex < 1 || columnIndex > metaData.getColumnCount()) {
             return null;
         }
-        RowDataValue dataValue = (RowDataValue) ((List) rows.get(currentRow - 1)).get(columnIndex - 1);
-        if (dataValue.getMappedValue() == null
-            || desiredType.isAssignableFrom(dataValue.getMappedValue().getClass())) {
+        ColumnValues column = columns[columnIndex - 1];
+        Object mappedValue = column.getMappedValue(currentRow - 1);
+        Object originalValue = column.getOriginalValue(currentRow - 1);
+        if (mappedValue == null
+            || desiredType.isAssignableFrom(mappedValue.getClass())) {
             // If mapped value is null or desiredType is assignable from mapped value, return the mapped
             // value.
-            return dataValue.getMappedValue();
+            return mappedValue;
 
-        } else if (dataValue.getOriginalValue() == null
-            || desiredType.isAssignableFrom(dataValue.getOriginalValue().getClass())) {
+        } else if (originalValue == null
+            || desiredType.isAssignableFrom(originalValue.getClass())) {
             // If original value is null or desiredType is assignable from original value, return the
             // original value.
-            return dataValue.getOriginalValue();
+            return originalValue;
         }
         if (onDemandMapper != null) {
+            if (dispatchTable == null) {
+                dispatchTable = new OnDemandDispatchTable(onDemandMapper, metaData);
+            }
             try {
-                if (onDemandMapper.canConvert(dataValue.getOriginalValue(), columnIndex, metaData,
-                    desiredType)) {
-                    // If original value can be converted to desired type, return converted value.
-                    return onDemandMapper.convert(dataValue.getOriginalValue(), columnIndex, metaData,
-                        desiredType);
-                } else if (onDemandMapper.canConvert(dataValue.getMappedValue(), columnIndex, metaData,
-                    desiredType)) {
+                // If original value can be converted to desired type, return converted value.
+                Object converted = dispatchTable.convert(originalValue, columnIndex, desiredType);
+                if (converted == null && mappedValue != originalValue) {
                     // If mapped value can be converted to desired type, return converted value.
-                    return onDemandMapper.convert(dataValue.getMappedValue(), columnIndex, metaData,
-                        desiredType);
+                    converted = dispatchTable.convert(mappedValue, columnIndex, desiredType);
+                }
+                if (converted != null) {
+                    return converted;
                 }
             } catch (IllegalMappingException e) {
                 throw new ClassCastException("fail to cast value to desired type -- " + desiredType + ","
@@ -1622,7 +1907,7 @@ public class CustomResultSet {
             throw new IllegalArgumentException("desiredType should not be null.");
         }
         // Validate currentRow.
-        if (currentRow < 1 || currentRow > rows.size()) {
+        if (currentRow < 1 || currentRow > rowCount) {
             throw new InvalidCursorStateException("current row of CustomResultSet -- " + currentRow
                 + " is invalid.");
         }
@@ -1630,21 +1915,23 @@ public class CustomResultSet {
         if (columnIndex < 1 || columnIndex > metaData.getColumnCount()) {
             return false;
         }
-        RowDataValue dataValue = (RowDataValue) ((List) rows.get(currentRow - 1)).get(columnIndex - 1);
-        if (dataValue.getMappedValue() == null
-            || desiredType.isAssignableFrom(dataValue.getMappedValue().getClass())) {
+        ColumnValues column = columns[columnIndex - 1];
+        Object mappedValue = column.getMappedValue(currentRow - 1);
+        Object originalValue = column.getOriginalValue(currentRow - 1);
+        if (mappedValue == null
+            || desiredType.isAssignableFrom(mappedValue.getClass())) {
             // If mapped value is null or desiredType is assignable from mapped value, return true.
             return true;
-        } else if (dataValue.getOriginalValue() == null
-            || desiredType.isAssignableFrom(dataValue.getOriginalValue().getClass())) {
+        } else if (originalValue == null
+            || desiredType.isAssignableFrom(originalValue.getClass())) {
             // If original value is null or desiredType is assignable from original value, then return true.
             return true;
         }
         if (onDemandMapper != null) {
-            if (onDemandMapper.canConvert(dataValue.getOriginalValue(), columnIndex, metaData, desiredType)) {
+            if (onDemandMapper.canConvert(originalValue, columnIndex, metaData, desiredType)) {
                 // If original value can be converted to the desired type, return true.
                 return true;
-            } else if (onDemandMapper.canConvert(dataValue.getMappedValue(), columnIndex, metaData,
+            } else if (onDemandMapper.canConvert(mappedValue, columnIndex, metaData,
                 desiredType)) {
                 // If mapped value can be converted to the desired type, return true.
                 return true;
@@ -1677,160 +1964,4 @@ public class CustomResultSet {
     public boolean isAvailable(String columnName, Class desiredType) throws InvalidCursorStateException {
         return isAvailable(findColumn(columnName), desiredType);
     }
-
-    /**
-     * Simple Comparator.This Comparator holds only one comparator.
-     *
-     * @author argolite, WishingBone
-     * @author aubergineanode, justforplay
-     * @version 1.1
-     * @since 1.0
-     */
-    class SimpleComparator implements Comparator {
-
-        /**
-         * Whether it is descending.
-         */
-        private boolean isDescending;
-
-        /**
-         * The column index to compare.
-         */
-        private int columnIndex;
-
-        /**
-         * The comparator to use, null for Comparable.
-         */
-        private Comparator comparator;
-
-        /**
-         * Constructor with column index, comparator and whether descending.
-         *
-         * @param columnIndex column index
-         * @param comparator the comparator the use, null for Comparable
-         * @param isDescending whether it is descending
-         */
-        public SimpleComparator(int columnIndex, Comparator comparator, boolean isDescending) {
-            this.columnIndex = columnIndex;
-            this.comparator = comparator;
-            this.isDescending = isDescending;
-        }
-
-        /**
-         * Compare method.Compare specified two objects using stored comparator.
-         *
-         * @return a positive value when o1 is earlier then o2, a negative value when o1 is later than o2, or
-         *         0 if they equals each other
-         * @param o1 the first row
-         * @param o2 the second row
-         * @throws ClassCastException if o1 is not null and is not Comparable.
-         */
-        public int compare(Object o1, Object o2) {
-            if (isDescending) {
-                Object tmp = o1;
-                o1 = o2;
-                o2 = tmp;
-            }
-            if (columnIndex > 0 && columnIndex <= metaData.getColumnCount()) {
-                o1 = ((RowDataValue) ((List) o1).get(columnIndex - 1)).getMappedValue();
-                o2 = ((RowDataValue) ((List) o2).get(columnIndex - 1)).getMappedValue();
-                if (o1 != null && o2 != null) {
-                    if (comparator != null) {
-                        return comparator.compare(o1, o2);
-                    } else if (o1 instanceof Comparable) {
-                        return ((Comparable) o1).compareTo(o2);
-                    } else if (o1 != null) {
-                        throw new ClassCastException();
-                    }
-                }
-            }
-            return 0;
-        }
-    }
-
-    /**
-     * Array Comparator.This Comparator holds many comparators stored in array, when comparing objects, the
-     * first(i.e, index in array is zero) comparator is used first, the second comparator is used when unable
-     * to determine the order only using the first comparator, ..... and so on.
-     *
-     * @author argolite, WishingBone
-     * @author aubergineanode, justforplay
-     * @version 1.1
-     * @since 1.0
-     */
-    class ArrayComparator implements Comparator {
-
-        /**
-         * Whether it is descending.
-         */
-        private boolean isDescending;
-
-        /**
-         * The column indices to compare.
-         */
-        private int[] columnIndices;
-
-        /**
-         * The comparators to use.
-         */
-        private Comparator[] comparators;
-
-        /**
-         * Constructor with column indices, comparators and whether descending.
-         *
-         * @param columnIndices column indices
-         * @param comparators the comparators the use, null for Comparable
-         * @param isDescending whether it is descending
-         */
-        public ArrayComparator(int[] columnIndices, Comparator[] comparators, boolean isDescending) {
-            this.columnIndices = columnIndices;
-            this.comparators = comparators;
-            this.isDescending = isDescending;
-        }
-
-        /**
-         * Compare method. Compare values using comparator in comparators[] orderly.
-         *
-         * @return a positive value when o1 is earlier then o2, a negative value when o1 is later than o2, or
-         *         0 if they equals each other
-         * @param o1 the first row
-         * @param o2 the second row
-         * @throws ClassCastException if o1 is not null and is not Comparable.
-         * @throws IndexOutOfBoundsException if comparators is a shorter array than column length.
-         */
-        public int compare(Object o1, Object o2) {
-            if (isDescending) {
-                Object tmp = o1;
-                o1 = o2;
-                o2 = tmp;
-            }
-            for (int i = 0; i < columnIndices.length; ++i) {
-                int columnIndex = columnIndices[i];
-                Comparator comparator = null;
-                if (comparators != null) {
-                    comparator = comparators[i];
-                }
-                if (columnIndex > 0 && columnIndex <= metaData.getColumnCount()) {
-                    Object oo1 = ((RowDataValue) ((List) o1).get(columnIndex - 1)).getMappedValue();
-                    Object oo2 = ((RowDataValue) ((List) o2).get(columnIndex - 1)).getMappedValue();
-                    if (oo1 != null && oo2 != null) {
-                        if (comparator != null) {
-                            int ret = comparator.compare(oo1, oo2);
-                            if (ret != 0) {
-                                return ret;
-                            }
-                        } else if (oo1 instanceof Comparable) {
-                            int ret = ((Comparable) oo1).compareTo(oo2);
-                            if (ret != 0) {
-                                return ret;
-                            }
-                        } else if (oo1 != null) {
-                            throw new ClassCastException();
-                        }
-                    }
-                }
-            }
-            return 0;
-        }
-    }
 }
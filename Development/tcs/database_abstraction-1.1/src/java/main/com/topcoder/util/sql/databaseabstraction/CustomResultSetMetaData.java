@@ -6,7 +6,11 @@ package com.topcoder.util.sql.databaseabstraction;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * <p>
@@ -16,12 +20,16 @@ import java.util.List;
  * allows some pieces of data to for each column to be set in addition to being retrieved.
  * </p>
  * <p>
+ * Version 1.2 adds findColumn, which looks a column up by label through a hash index instead of a linear scan.
+ * The index is built on first use, and rebuilt after setColumnLabel.
+ * </p>
+ * <p>
  * Thread Safety: - This class is mutable, and not thread-safe.
  * </p>
  *
  * @author argolite, WishingBone
- * aubergineanode, justforplay
- * @version 1.1
+ * aubergineanode, justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.0
  */
 public class CustomResultSetMetaData {
@@ -40,6 +48,28 @@ public class CustomResultSetMetaData {
      */
     private final List columns;
 
+    /**
+     * <p>
+     * The index of the column labels. The keys are the non-null labels, and the values the Integer 1-based
+     * index of the first column having the label. It is built lazily by findColumn, and reset to null by
+     * setColumnLabel.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private Map labelIndex = null;
+
+    /**
+     * <p>
+     * The case-insensitive index of the column labels. The keys are the non-null labels in lower case, and the
+     * values the Integer 1-based index of the first column having the label, ignoring case. It is built and
+     * reset together with labelIndex.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private Map lowerCaseLabelIndex = null;
+
     /**
      * <p>
      * Constructor with ResultSetMetaData to convert from.In version 1.1, column name is initialized.
@@ -60,6 +90,38 @@ public class CustomResultSetMetaData {
         }
     }
 
+    /**
+     * <p>
+     * Creates an empty metadata, whose columns are added by copy.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private CustomResultSetMetaData() {
+        columns = new ArrayList();
+    }
+
+    /**
+     * <p>
+     * Creates a copy of this metadata, with its own Column instances, so that setColumnClassName and
+     * setColumnLabel on one do not change the other. It is used by CustomResultSet.snapshot.
+     * </p>
+     *
+     * @return the copy of this metadata
+     * @since 1.2
+     */
+    CustomResultSetMetaData copy() {
+        CustomResultSetMetaData copy = new CustomResultSetMetaData();
+        for (Iterator it = columns.iterator(); it.hasNext();) {
+            Column column = (Column) it.next();
+            copy.columns.add(new Column(column.getColumnClassName(), column.getColumnDisplaySize(), column
+                .getColumnLabel(), column.getColumnType(), column.getColumnTypeName(), column.getColumnPrecision(),
+                column.getColumnScale(), column.isAutoIncrement(), column.isCurrency(), column.isSigned(), column
+                .getColumnName()));
+        }
+        return copy;
+    }
+
     /**
      * <p>
      * Gets the java class name of the type of items that are in the columnIndex column of the result set
@@ -292,6 +354,56 @@ public class CustomResultSetMetaData {
     public void setColumnLabel(int columnIndex, String label) {
         if (columnIndex > 0 && columnIndex <= columns.size()) {
             ((Column) columns.get(columnIndex - 1)).setColumnLabel(label);
+            labelIndex = null;
+            lowerCaseLabelIndex = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Finds the index of the column with the given label. The first column whose label is equal to the given
+     * one is returned; if there is none, the first column whose label is equal to it ignoring case, as JDBC
+     * drivers do.
+     * </p>
+     *
+     * @param label the label of the column to find
+     * @return the 1-based column index, 0 if label is null or no column has the label
+     * @since 1.2
+     */
+    public int findColumn(String label) {
+        if (label == null) {
+            return 0;
+        }
+        if (labelIndex == null) {
+            buildLabelIndex();
+        }
+        Integer index = (Integer) labelIndex.get(label);
+        if (index == null) {
+            index = (Integer) lowerCaseLabelIndex.get(label.toLowerCase(Locale.ENGLISH));
+        }
+        return (index == null) ? 0 : index.intValue();
+    }
+
+    /**
+     * <p>
+     * Builds the index of the column labels, keeping the first column for duplicated labels.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private void buildLabelIndex() {
+        Map exact = new HashMap();
+        Map lowerCase = new HashMap();
+        for (int i = columns.size(); i >= 1; --i) {
+            // iterate backwards, so that the first column having a label wins
+            String label = ((Column) columns.get(i - 1)).getColumnLabel();
+            if (label != null) {
+                Integer index = new Integer(i);
+                exact.put(label, index);
+                lowerCase.put(label.toLowerCase(Locale.ENGLISH), index);
+            }
         }
+        labelIndex = exact;
+        lowerCaseLabelIndex = lowerCase;
     }
 }
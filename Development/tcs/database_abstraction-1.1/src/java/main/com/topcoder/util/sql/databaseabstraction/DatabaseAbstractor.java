@@ -3,8 +3,10 @@
  */
 package com.topcoder.util.sql.databaseabstraction;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * <p>
@@ -17,6 +19,12 @@ import java.sql.SQLException;
  * not of the desired type to get.
  * </p>
  * <p>
+ * Version 1.2 adds the streamResultSet methods, which create a forward-only StreamingCustomResultSet reading
+ * the rows on demand instead of loading the whole result set. It also adds the mapping parallelism, given to
+ * the CustomResultSets created by convertResultSet to spread the explicit mapping of large results over several
+ * threads.
+ * </p>
+ * <p>
  * Thread Safety: - This class is mutable, and not thread-safe.
  * </p>
  * <p>
@@ -39,8 +47,8 @@ import java.sql.SQLException;
  * </p>
  *
  * @author argolite,WishingBone
- * @author aubergineanode,justforplay
- * @version 1.1
+ * @author aubergineanode,justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.0
  */
 public class DatabaseAbstractor {
@@ -63,6 +71,15 @@ public class DatabaseAbstractor {
      */
     private OnDemandMapper onDemandMapper;
 
+    /**
+     * The maximum number of threads used by the CustomResultSets created by the convertResultSet methods to
+     * apply the explicit mapping. This field is 1 by default, can be accessed by the get/setMappingParallelism
+     * methods, and is always positive.
+     *
+     * @since 1.2
+     */
+    private int mappingParallelism = 1;
+
     /**
      * <p>
      * Creates a new DatabaseAbstractor which does no mapping.
@@ -113,7 +130,7 @@ public class DatabaseAbstractor {
      */
     public CustomResultSet convertResultSet(ResultSet rs) throws IllegalMappingException, SQLException {
         // no need to check dataTypeMapper.
-        return new CustomResultSet(rs, dataTypeMapper, onDemandMapper);
+        return new CustomResultSet(rs, dataTypeMapper, onDemandMapper, mappingParallelism);
 
     }
 
@@ -135,8 +152,45 @@ public class DatabaseAbstractor {
      */
     public CustomResultSet convertResultSet(ResultSet rs, Mapper mapper) throws IllegalMappingException,
         SQLException {
-        return new CustomResultSet(rs, mapper, onDemandMapper);
+        return new CustomResultSet(rs, mapper, onDemandMapper, mappingParallelism);
+
+    }
+
+    /**
+     * <p>
+     * Wraps the result set in a forward-only StreamingCustomResultSet, using the dataTypeMapper and
+     * onDemandMapper fields. The rows are read from rs as the cursor moves, and rs is closed once the cursor
+     * has moved past the last row; the caller keeps the ownership of its statement and connection.
+     * </p>
+     *
+     * @return the streaming custom result set
+     * @param rs the result set to be wrapped
+     * @throws SQLException if SQL exception takes place
+     * @throws NullPointerException if rs is null.
+     * @since 1.2
+     */
+    public StreamingCustomResultSet streamResultSet(ResultSet rs) throws SQLException {
+        return new StreamingCustomResultSet(rs, dataTypeMapper, onDemandMapper);
+    }
 
+    /**
+     * <p>
+     * Wraps the result set in a forward-only StreamingCustomResultSet, using the dataTypeMapper and
+     * onDemandMapper fields. The returned instance takes the ownership of the given resources, and closes them
+     * once the cursor has moved past the last row or when it is closed explicitly.
+     * </p>
+     *
+     * @return the streaming custom result set
+     * @param connection the connection to close with the result set, may be null
+     * @param statement the statement to close with the result set, may be null
+     * @param rs the result set to be wrapped
+     * @throws SQLException if SQL exception takes place
+     * @throws NullPointerException if rs is null.
+     * @since 1.2
+     */
+    public StreamingCustomResultSet streamResultSet(Connection connection, Statement statement, ResultSet rs)
+        throws SQLException {
+        return new StreamingCustomResultSet(connection, statement, rs, dataTypeMapper, onDemandMapper);
     }
 
     /**
@@ -179,4 +233,31 @@ public class DatabaseAbstractor {
     public OnDemandMapper getOnDemandMapper() {
         return onDemandMapper;
     }
+
+    /**
+     * Gets the maximum number of threads used to apply the explicit mapping in the CustomResultSets created by
+     * the convertResultSet methods.
+     *
+     * @return the mapping parallelism, always positive
+     * @since 1.2
+     */
+    public int getMappingParallelism() {
+        return mappingParallelism;
+    }
+
+    /**
+     * Sets the maximum number of threads used to apply the explicit mapping in the CustomResultSets created by
+     * the convertResultSet methods. With a value greater than 1, the Converters of the mappers must be
+     * thread-safe.
+     *
+     * @param mappingParallelism the mapping parallelism
+     * @throws IllegalArgumentException if mappingParallelism is not positive
+     * @since 1.2
+     */
+    public void setMappingParallelism(int mappingParallelism) {
+        if (mappingParallelism < 1) {
+            throw new IllegalArgumentException("mappingParallelism should be positive.");
+        }
+        this.mappingParallelism = mappingParallelism;
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The DoubleColumnValues class stores the values of a FLOAT and DOUBLE column in a double[], so that reading them
+ * through CustomResultSet.getDouble requires no boxing. Only Double values are accepted, which is the class the
+ * JDBC specification maps these column types to.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+class DoubleColumnValues extends ColumnValues {
+
+    /**
+     * <p>
+     * The original values of the column. The entries of the null rows are 0.
+     * </p>
+     */
+    private double[] values = new double[0];
+
+    /**
+     * <p>
+     * Creates an empty DoubleColumnValues.
+     * </p>
+     */
+    DoubleColumnValues() {
+        // do nothing.
+    }
+
+    /**
+     * <p>
+     * Gets the original value of the given row as a double. The row must not be null.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the original value of the row
+     */
+    double getDouble(int row) {
+        return values[row];
+    }
+
+    /**
+     * <p>
+     * Determines whether the given non-null value is a Double.
+     * </p>
+     *
+     * @param value the non-null value to check
+     * @return true if the value is a Double
+     */
+    boolean acceptsValue(Object value) {
+        return value instanceof Double;
+    }
+
+    /**
+     * <p>
+     * Stores the given Double at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the Double to store
+     */
+    void setValue(int row, Object value) {
+        values[row] = ((Double) value).doubleValue();
+    }
+
+    /**
+     * <p>
+     * Gets the value stored at the given row, boxed into a Double.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the boxed value stored at the row
+     */
+    Object getValue(int row) {
+        return new Double(values[row]);
+    }
+
+    /**
+     * <p>
+     * Compares the values stored at the given rows, without boxing them. The rows are known not to be null.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first value is less than, equal to, or greater
+     *         than the second
+     */
+    int compareValues(int rowA, int rowB) {
+        return Double.compare(values[rowA], values[rowB]);
+    }
+
+    /**
+     * <p>
+     * Gets the current length of the value array.
+     * </p>
+     *
+     * @return the length of the value array
+     */
+    int getCapacity() {
+        return values.length;
+    }
+
+    /**
+     * <p>
+     * Replaces the value array by one of the given length, keeping the first size() values.
+     * </p>
+     *
+     * @param capacity the new length of the value array
+     */
+    void resize(int capacity) {
+        if (capacity != values.length) {
+            double[] resized = new double[capacity];
+            System.arraycopy(values, 0, resized, 0, Math.min(size(), capacity));
+            values = resized;
+        }
+    }
+
+    /**
+     * <p>
+     * Re-arranges the value array so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    void reorderValues(int[] order) {
+        double[] reordered = new double[values.length];
+        for (int i = 0; i < size(); ++i) {
+            reordered[i] = values[order[i]];
+        }
+        values = reordered;
+    }
+}
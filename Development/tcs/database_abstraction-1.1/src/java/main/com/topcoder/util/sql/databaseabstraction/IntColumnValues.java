@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The IntColumnValues class stores the values of a TINYINT, SMALLINT and INTEGER column in a int[], so that reading them
+ * through CustomResultSet.getInt requires no boxing. Only Integer values are accepted, which is the class the
+ * JDBC specification maps these column types to.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+class IntColumnValues extends ColumnValues {
+
+    /**
+     * <p>
+     * The original values of the column. The entries of the null rows are 0.
+     * </p>
+     */
+    private int[] values = new int[0];
+
+    /**
+     * <p>
+     * Creates an empty IntColumnValues.
+     * </p>
+     */
+    IntColumnValues() {
+        // do nothing.
+    }
+
+    /**
+     * <p>
+     * Gets the original value of the given row as an int. The row must not be null.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the original value of the row
+     */
+    int getInt(int row) {
+        return values[row];
+    }
+
+    /**
+     * <p>
+     * Determines whether the given non-null value is an Integer.
+     * </p>
+     *
+     * @param value the non-null value to check
+     * @return true if the value is an Integer
+     */
+    boolean acceptsValue(Object value) {
+        return value instanceof Integer;
+    }
+
+    /**
+     * <p>
+     * Stores the given Integer at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the Integer to store
+     */
+    void setValue(int row, Object value) {
+        values[row] = ((Integer) value).intValue();
+    }
+
+    /**
+     * <p>
+     * Gets the value stored at the given row, boxed into an Integer.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the boxed value stored at the row
+     */
+    Object getValue(int row) {
+        return new Integer(values[row]);
+    }
+
+    /**
+     * <p>
+     * Compares the values stored at the given rows, without boxing them. The rows are known not to be null.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first value is less than, equal to, or greater
+     *         than the second
+     */
+    int compareValues(int rowA, int rowB) {
+        int a = values[rowA];
+        int b = values[rowB];
+        return (a < b) ? -1 : ((a == b) ? 0 : 1);
+    }
+
+    /**
+     * <p>
+     * Gets the current length of the value array.
+     * </p>
+     *
+     * @return the length of the value array
+     */
+    int getCapacity() {
+        return values.length;
+    }
+
+    /**
+     * <p>
+     * Replaces the value array by one of the given length, keeping the first size() values.
+     * </p>
+     *
+     * @param capacity the new length of the value array
+     */
+    void resize(int capacity) {
+        if (capacity != values.length) {
+            int[] resized = new int[capacity];
+            System.arraycopy(values, 0, resized, 0, Math.min(size(), capacity));
+            values = resized;
+        }
+    }
+
+    /**
+     * <p>
+     * Re-arranges the value array so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    void reorderValues(int[] order) {
+        int[] reordered = new int[values.length];
+        for (int i = 0; i < size(); ++i) {
+            reordered[i] = values[order[i]];
+        }
+        values = reordered;
+    }
+}
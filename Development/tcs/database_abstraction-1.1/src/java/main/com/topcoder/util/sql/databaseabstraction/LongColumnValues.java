@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The LongColumnValues class stores the values of a BIGINT column in a long[], so that reading them
+ * through CustomResultSet.getLong requires no boxing. Only Long values are accepted, which is the class the
+ * JDBC specification maps these column types to.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+class LongColumnValues extends ColumnValues {
+
+    /**
+     * <p>
+     * The original values of the column. The entries of the null rows are 0.
+     * </p>
+     */
+    private long[] values = new long[0];
+
+    /**
+     * <p>
+     * Creates an empty LongColumnValues.
+     * </p>
+     */
+    LongColumnValues() {
+        // do nothing.
+    }
+
+    /**
+     * <p>
+     * Gets the original value of the given row as a long. The row must not be null.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the original value of the row
+     */
+    long getLong(int row) {
+        return values[row];
+    }
+
+    /**
+     * <p>
+     * Determines whether the given non-null value is a Long.
+     * </p>
+     *
+     * @param value the non-null value to check
+     * @return true if the value is a Long
+     */
+    boolean acceptsValue(Object value) {
+        return value instanceof Long;
+    }
+
+    /**
+     * <p>
+     * Stores the given Long at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the Long to store
+     */
+    void setValue(int row, Object value) {
+        values[row] = ((Long) value).longValue();
+    }
+
+    /**
+     * <p>
+     * Gets the value stored at the given row, boxed into a Long.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the boxed value stored at the row
+     */
+    Object getValue(int row) {
+        return new Long(values[row]);
+    }
+
+    /**
+     * <p>
+     * Compares the values stored at the given rows, without boxing them. The rows are known not to be null.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first value is less than, equal to, or greater
+     *         than the second
+     */
+    int compareValues(int rowA, int rowB) {
+        long a = values[rowA];
+        long b = values[rowB];
+        return (a < b) ? -1 : ((a == b) ? 0 : 1);
+    }
+
+    /**
+     * <p>
+     * Gets the current length of the value array.
+     * </p>
+     *
+     * @return the length of the value array
+     */
+    int getCapacity() {
+        return values.length;
+    }
+
+    /**
+     * <p>
+     * Replaces the value array by one of the given length, keeping the first size() values.
+     * </p>
+     *
+     * @param capacity the new length of the value array
+     */
+    void resize(int capacity) {
+        if (capacity != values.length) {
+            long[] resized = new long[capacity];
+            System.arraycopy(values, 0, resized, 0, Math.min(size(), capacity));
+            values = resized;
+        }
+    }
+
+    /**
+     * <p>
+     * Re-arranges the value array so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    void reorderValues(int[] order) {
+        long[] reordered = new long[values.length];
+        for (int i = 0; i < size(); ++i) {
+            reordered[i] = values[order[i]];
+        }
+        values = reordered;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The ObjectColumnValues class stores the values of a column in an Object[]. It is used for all the column
+ * types that have no primitive backed implementation, and for the numeric columns whose driver returned
+ * values of an unexpected class.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+class ObjectColumnValues extends ColumnValues {
+
+    /**
+     * <p>
+     * The original values of the column. The entries of the null rows are null.
+     * </p>
+     */
+    private Object[] values = new Object[0];
+
+    /**
+     * <p>
+     * Creates an empty ObjectColumnValues.
+     * </p>
+     */
+    ObjectColumnValues() {
+        // do nothing.
+    }
+
+    /**
+     * <p>
+     * Any value can be stored in an Object[], so this method always returns true.
+     * </p>
+     *
+     * @param value the non-null value to check
+     * @return true
+     */
+    boolean acceptsValue(Object value) {
+        return true;
+    }
+
+    /**
+     * <p>
+     * Stores the given value at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @param value the value to store
+     */
+    void setValue(int row, Object value) {
+        values[row] = value;
+    }
+
+    /**
+     * <p>
+     * Gets the value stored at the given row.
+     * </p>
+     *
+     * @param row the 0-based row index
+     * @return the value stored at the row
+     */
+    Object getValue(int row) {
+        return values[row];
+    }
+
+    /**
+     * <p>
+     * Compares the values stored at the given rows with their natural ordering. The rows are known not to be
+     * null.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first value is less than, equal to, or greater
+     *         than the second
+     * @throws ClassCastException if the values are not Comparable with each other
+     */
+    int compareValues(int rowA, int rowB) {
+        return ((Comparable) values[rowA]).compareTo(values[rowB]);
+    }
+
+    /**
+     * <p>
+     * Gets the current length of the value array.
+     * </p>
+     *
+     * @return the length of the value array
+     */
+    int getCapacity() {
+        return values.length;
+    }
+
+    /**
+     * <p>
+     * Replaces the value array by one of the given length, keeping the first size() values.
+     * </p>
+     *
+     * @param capacity the new length of the value array
+     */
+    void resize(int capacity) {
+        if (capacity != values.length) {
+            Object[] resized = new Object[capacity];
+            System.arraycopy(values, 0, resized, 0, Math.min(size(), capacity));
+            values = resized;
+        }
+    }
+
+    /**
+     * <p>
+     * Re-arranges the value array so that the new row i is the old row order[i].
+     * </p>
+     *
+     * @param order the permutation to apply, of length size()
+     */
+    void reorderValues(int[] order) {
+        Object[] reordered = new Object[values.length];
+        for (int i = 0; i < size(); ++i) {
+            reordered[i] = values[order[i]];
+        }
+        values = reordered;
+    }
+}
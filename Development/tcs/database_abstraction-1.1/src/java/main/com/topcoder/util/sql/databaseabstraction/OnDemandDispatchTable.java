@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * The OnDemandDispatchTable class caches, for one CustomResultSet, which converter of an OnDemandMapper handles
+ * the on-demand conversions of each column, source class and desired type. The first conversion of such a
+ * combination tries all the converters of the mapper, and remembers the one that succeeded; the next ones go
+ * directly to that converter, and only fall back to trying all the converters if it can not convert the value
+ * (which can happen with converters depending on the value itself, like StringConverter).
+ * </p>
+ * <p>
+ * The table is cleared whenever the converters of the mapper change.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe. Each CustomResultSet has its own table.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+final class OnDemandDispatchTable {
+
+    /**
+     * <p>
+     * The mapper whose converters are dispatched to. It is set in the constructor and never null.
+     * </p>
+     */
+    private final OnDemandMapper mapper;
+
+    /**
+     * <p>
+     * The metadata of the result set the converted values come from. It is set in the constructor and never
+     * null.
+     * </p>
+     */
+    private final CustomResultSetMetaData metaData;
+
+    /**
+     * <p>
+     * The resolved converters, by 0-based column index. Each element is null until a value of the column is
+     * converted, then a Map from the non-null source Class to a Map from the non-null desired Class to the
+     * non-null OnDemandConverter that converted it last.
+     * </p>
+     */
+    private final Map[] columns;
+
+    /**
+     * <p>
+     * The modification count of the mapper when the table was last cleared.
+     * </p>
+     */
+    private int modificationCount;
+
+    /**
+     * <p>
+     * Creates an empty OnDemandDispatchTable.
+     * </p>
+     *
+     * @param mapper the mapper whose converters are dispatched to
+     * @param metaData the metadata of the result set the converted values come from
+     */
+    OnDemandDispatchTable(OnDemandMapper mapper, CustomResultSetMetaData metaData) {
+        this.mapper = mapper;
+        this.metaData = metaData;
+        this.columns = new Map[metaData.getColumnCount()];
+        this.modificationCount = mapper.getModificationCount();
+    }
+
+    /**
+     * <p>
+     * Converts the value, coming from the given column, into an instance of desiredType, using the converter
+     * resolved for the column, the class of the value and desiredType if there is one.
+     * </p>
+     *
+     * @param value the non-null value to convert
+     * @param column the 1-based index of the column the value came from
+     * @param desiredType the desired return type
+     * @return value converted to the desired type, or null if no converter can convert it
+     * @throws IllegalMappingException If a converter claims to be able to handle the conversion, but fails
+     *             when doing it
+     */
+    Object convert(Object value, int column, Class desiredType) throws IllegalMappingException {
+        if (modificationCount != mapper.getModificationCount()) {
+            for (int i = 0; i < columns.length; ++i) {
+                columns[i] = null;
+            }
+            modificationCount = mapper.getModificationCount();
+        }
+        Map bySourceType = columns[column - 1];
+        if (bySourceType == null) {
+            bySourceType = new HashMap();
+            columns[column - 1] = bySourceType;
+        }
+        Map byDesiredType = (Map) bySourceType.get(value.getClass());
+        if (byDesiredType == null) {
+            byDesiredType = new HashMap();
+            bySourceType.put(value.getClass(), byDesiredType);
+        }
+        OnDemandConverter resolved = (OnDemandConverter) byDesiredType.get(desiredType);
+        if (resolved != null) {
+            Object result = OnDemandMapper.tryConvert(resolved, value, column, metaData, desiredType);
+            if (result != null) {
+                return result;
+            }
+        }
+        OnDemandConverter[] converters = mapper.getConverterArray();
+        for (int i = 0; i < converters.length; i++) {
+            if (converters[i] != resolved) {
+                Object result = OnDemandMapper.tryConvert(converters[i], value, column, metaData, desiredType);
+                if (result != null) {
+                    byDesiredType.put(desiredType, converters[i]);
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+}
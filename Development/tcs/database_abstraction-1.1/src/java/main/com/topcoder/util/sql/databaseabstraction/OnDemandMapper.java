@@ -4,7 +4,6 @@
 package com.topcoder.util.sql.databaseabstraction;
 
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import com.topcoder.util.sql.databaseabstraction.ondemandconversion.BigDecimalConverter;
@@ -31,11 +30,18 @@ import com.topcoder.util.sql.databaseabstraction.ondemandconversion.TimestampCon
  * of methods than the Mapper class.
  * </p>
  * <p>
+ * Version 1.2 makes the conversion single-pass: converters implementing SinglePassOnDemandConverter are asked
+ * to convert directly through tryConvert, instead of canConvert followed by convert. The converters are also
+ * kept in an array, rebuilt only when the set changes, so that no iterator is created per conversion. The
+ * CustomResultSet goes one step further and resolves the converter to use once per column, source class and
+ * desired type, see OnDemandDispatchTable.
+ * </p>
+ * <p>
  * Thread Safety: - This class is mutable, and not thread-safe.
  * </p>
  *
- * @author aubergineanode, justforplay
- * @version 1.1
+ * @author aubergineanode, justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.1
  */
 public class OnDemandMapper {
@@ -50,6 +56,26 @@ public class OnDemandMapper {
      */
     private final Set converters = new HashSet();
 
+    /**
+     * <p>
+     * The converters set, as an array. It is rebuilt lazily by getConverterArray after the set has changed, in
+     * which case it is null.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private OnDemandConverter[] converterArray = null;
+
+    /**
+     * <p>
+     * The number of times the converters set has changed. It allows the dispatch tables built from this mapper
+     * to detect that they are stale.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private int modificationCount = 0;
+
     /**
      * <p>
      * Creates a new OnDemandMapper, which initially has no converters available.
@@ -73,6 +99,7 @@ public class OnDemandMapper {
         for (int i = 0; i < converters.length; i++) {
             this.converters.add(converters[i]);
         }
+        modified();
     }
 
     /**
@@ -86,7 +113,11 @@ public class OnDemandMapper {
      */
     public boolean addConverter(OnDemandConverter converter) {
         AbstractionHelper.checkNull(converter, "converter");
-        return converters.add(converter);
+        if (converters.add(converter)) {
+            modified();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -100,7 +131,11 @@ public class OnDemandMapper {
      */
     public boolean removeConverter(OnDemandConverter converter) {
         AbstractionHelper.checkNull(converter, "converter");
-        return converters.remove(converter);
+        if (converters.remove(converter)) {
+            modified();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -111,7 +146,46 @@ public class OnDemandMapper {
      * @return All items in the converters set, as an array
      */
     public OnDemandConverter[] getConverters() {
-        return (OnDemandConverter[]) converters.toArray(new OnDemandConverter[converters.size()]);
+        return (OnDemandConverter[]) getConverterArray().clone();
+    }
+
+    /**
+     * <p>
+     * Gets all converters in the mapper, without copying them. The returned array must not be modified.
+     * </p>
+     *
+     * @return All items in the converters set, as an array
+     * @since 1.2
+     */
+    OnDemandConverter[] getConverterArray() {
+        if (converterArray == null) {
+            converterArray = (OnDemandConverter[]) converters.toArray(new OnDemandConverter[converters.size()]);
+        }
+        return converterArray;
+    }
+
+    /**
+     * <p>
+     * Gets the number of times the converters set has changed.
+     * </p>
+     *
+     * @return the modification count of the converters set
+     * @since 1.2
+     */
+    int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * <p>
+     * Records a change of the converters set.
+     * </p>
+     *
+     * @since 1.2
+     */
+    private void modified() {
+        converterArray = null;
+        ++modificationCount;
     }
 
     /**
@@ -130,9 +204,9 @@ public class OnDemandMapper {
         AbstractionHelper.checkNull(metaData, "metaData");
         AbstractionHelper.checkNull(desiredType, "desiredType");
         AbstractionHelper.checkColumnIndex(column, metaData.getColumnCount());
-        for (Iterator it = converters.iterator(); it.hasNext();) {
-            OnDemandConverter converter = (OnDemandConverter) it.next();
-            if (converter.canConvert(value, column, metaData, desiredType)) {
+        OnDemandConverter[] all = getConverterArray();
+        for (int i = 0; i < all.length; i++) {
+            if (all[i].canConvert(value, column, metaData, desiredType)) {
                 return true;
             }
         }
@@ -159,10 +233,11 @@ public class OnDemandMapper {
         AbstractionHelper.checkNull(metaData, "metaData");
         AbstractionHelper.checkNull(desiredType, "desiredType");
         AbstractionHelper.checkColumnIndex(column, metaData.getColumnCount());
-        for (Iterator it = converters.iterator(); it.hasNext();) {
-            OnDemandConverter converter = (OnDemandConverter) it.next();
-            if (converter.canConvert(value, column, metaData, desiredType)) {
-                return converter.convert(value, column, metaData, desiredType);
+        OnDemandConverter[] all = getConverterArray();
+        for (int i = 0; i < all.length; i++) {
+            Object result = tryConvert(all[i], value, column, metaData, desiredType);
+            if (result != null) {
+                return result;
             }
         }
         throw new IllegalMappingException("No OnDemandConverter can converted the value to the desired type.");
@@ -175,6 +250,34 @@ public class OnDemandMapper {
      */
     public void clearConverters() {
         converters.clear();
+        modified();
+    }
+
+    /**
+     * <p>
+     * Converts value with the given converter if it can, and returns null otherwise. SinglePassOnDemandConverter
+     * instances are asked through tryConvert, the others through canConvert followed by convert.
+     * </p>
+     *
+     * @param converter The converter to use
+     * @param value The value to convert
+     * @param column The column in the result set that value came from
+     * @param metaData The metadata for the result set that value came from
+     * @param desiredType The desired return type
+     * @return value converted to the desired type, or null if the converter can not convert it
+     * @throws IllegalMappingException If the converter claims to be able to handle the conversion, but fails
+     *             when doing it
+     * @since 1.2
+     */
+    static Object tryConvert(OnDemandConverter converter, Object value, int column,
+        CustomResultSetMetaData metaData, Class desiredType) throws IllegalMappingException {
+        if (converter instanceof SinglePassOnDemandConverter) {
+            return ((SinglePassOnDemandConverter) converter).tryConvert(value, column, metaData, desiredType);
+        }
+        if (converter.canConvert(value, column, metaData, desiredType)) {
+            return converter.convert(value, column, metaData, desiredType);
+        }
+        return null;
     }
 
     /**
@@ -10,6 +10,10 @@ package com.topcoder.util.sql.databaseabstraction;
  * contains only simple getters and setters.
  * </p>
  * <p>
+ * Since version 1.2 the CustomResultSet keeps its data in ColumnValues instead, which hold the original and
+ * mapped values of a whole column.
+ * </p>
+ * <p>
  * Thread Safety: - This class is mutable, and not thread-safe.
  * </p>
  *
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.util.Comparator;
+
+/**
+ * <p>
+ * The RowSorter class is the sort engine of CustomResultSet. It sorts the row indices of the columnar storage,
+ * as an int[] permutation, with a stable merge sort, and the caller then re-orders every column once with the
+ * permutation. The rows are compared on one or more sort keys (a column and an optional Comparator):
+ * the values of the columns that have not been remapped are compared directly in their ColumnValues storage,
+ * so the primitive columns are compared with no boxing, and nothing is allocated per comparison.
+ * </p>
+ * <p>
+ * Results with at least PARALLEL_THRESHOLD rows are sorted in parallel when all the keys use the natural
+ * ordering: the permutation is split into one range per available processor, each range is sorted by its own
+ * thread, and the sorted ranges are then merged pairwise, also in parallel. When a custom Comparator is given,
+ * the sort stays on the calling thread, as the Comparator may not be thread-safe.
+ * </p>
+ * <p>
+ * As in version 1.1, a null value is considered equal to any other value, and a column index out of range
+ * considers all the rows equal.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is immutable, but the columns must not be modified while sorting.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+final class RowSorter {
+
+    /**
+     * <p>
+     * The minimum number of rows for which the sort is done in parallel.
+     * </p>
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * <p>
+     * The length under which the ranges are sorted by insertion instead of being merged.
+     * </p>
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * <p>
+     * The columns of the sort keys, in order. An item is null if the column index of the key is out of range.
+     * </p>
+     */
+    private final ColumnValues[] keyColumns;
+
+    /**
+     * <p>
+     * The Comparators of the sort keys, in order. An item is null if the natural ordering of the values is
+     * used.
+     * </p>
+     */
+    private final Comparator[] keyComparators;
+
+    /**
+     * <p>
+     * Whether the rows are sorted in descending order.
+     * </p>
+     */
+    private final boolean isDescending;
+
+    /**
+     * <p>
+     * Whether the sort may be done in parallel, that is whether all the keys use the natural ordering.
+     * </p>
+     */
+    private final boolean parallelizable;
+
+    /**
+     * <p>
+     * Creates a RowSorter over the given columns.
+     * </p>
+     *
+     * @param columns all the columns of the result set
+     * @param columnIndices the 1-based indices of the key columns
+     * @param comparators the comparators of the key columns, may be null, and may contain nulls for natural
+     *            ordering
+     * @param isDescending whether to sort in descending order
+     * @throws NullPointerException if columnIndices is null
+     * @throws IndexOutOfBoundsException if comparators is a shorter array than columnIndices
+     */
+    RowSorter(ColumnValues[] columns, int[] columnIndices, Comparator[] comparators, boolean isDescending) {
+        keyColumns = new ColumnValues[columnIndices.length];
+        keyComparators = new Comparator[columnIndices.length];
+        boolean naturalOrdering = true;
+        for (int i = 0; i < columnIndices.length; ++i) {
+            if (columnIndices[i] > 0 && columnIndices[i] <= columns.length) {
+                keyColumns[i] = columns[columnIndices[i] - 1];
+            }
+            if (comparators != null) {
+                keyComparators[i] = comparators[i];
+                naturalOrdering &= keyComparators[i] == null;
+            }
+        }
+        this.isDescending = isDescending;
+        this.parallelizable = naturalOrdering;
+    }
+
+    /**
+     * <p>
+     * Sorts the rows and returns the permutation to apply to the columns: the row i of the sorted result is the
+     * row permutation[i] of the columns. The sort is stable.
+     * </p>
+     *
+     * @param rowCount the number of rows to sort
+     * @return the sorted permutation of the row indices
+     * @throws ClassCastException when the values can not be compared
+     */
+    int[] sort(int rowCount) {
+        int[] order = new int[rowCount];
+        for (int i = 0; i < rowCount; ++i) {
+            order[i] = i;
+        }
+        int[] buffer = (int[]) order.clone();
+        int parts = Runtime.getRuntime().availableProcessors();
+        if (parallelizable && parts > 1 && rowCount >= PARALLEL_THRESHOLD) {
+            parallelSort(buffer, order, 0, rowCount, Math.min(parts, rowCount / INSERTION_SORT_THRESHOLD));
+        } else {
+            mergeSort(buffer, order, 0, rowCount);
+        }
+        return order;
+    }
+
+    /**
+     * <p>
+     * Compares two rows on all the sort keys.
+     * </p>
+     *
+     * @param rowA the 0-based index of the first row
+     * @param rowB the 0-based index of the second row
+     * @return a negative value, zero, or a positive value as the first row comes before, ties with, or comes
+     *         after the second
+     * @throws ClassCastException when the values can not be compared
+     */
+    int compare(int rowA, int rowB) {
+        if (isDescending) {
+            int tmp = rowA;
+            rowA = rowB;
+            rowB = tmp;
+        }
+        for (int i = 0; i < keyColumns.length; ++i) {
+            ColumnValues column = keyColumns[i];
+            if (column == null) {
+                continue;
+            }
+            int result;
+            if (column.isMapped() || keyComparators[i] != null) {
+                Object valueA = column.getMappedValue(rowA);
+                Object valueB = column.getMappedValue(rowB);
+                if (valueA == null || valueB == null) {
+                    continue;
+                }
+                if (keyComparators[i] != null) {
+                    result = keyComparators[i].compare(valueA, valueB);
+                } else {
+                    result = ((Comparable) valueA).compareTo(valueB);
+                }
+            } else {
+                if (column.isNull(rowA) || column.isNull(rowB)) {
+                    continue;
+                }
+                result = column.compareValues(rowA, rowB);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * <p>
+     * Sorts the range of src into dest, with a stable top-down merge sort. On entry, src and dest hold the same
+     * values in the range; src is used as scratch space.
+     * </p>
+     *
+     * @param src the scratch array, with the same range content as dest
+     * @param dest the array to sort
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     */
+    private void mergeSort(int[] src, int[] dest, int from, int to) {
+        int length = to - from;
+        if (length < INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; ++i) {
+                for (int j = i; j > from && compare(dest[j - 1], dest[j]) > 0; --j) {
+                    int tmp = dest[j];
+                    dest[j] = dest[j - 1];
+                    dest[j - 1] = tmp;
+                }
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // sort both halves into src, using dest as the scratch space
+        mergeSort(dest, src, from, middle);
+        mergeSort(dest, src, middle, to);
+        merge(src, dest, from, middle, to);
+    }
+
+    /**
+     * <p>
+     * Merges the two consecutive sorted ranges of src into the same range of dest. On equal rows, the row of
+     * the first range comes first, which keeps the sort stable.
+     * </p>
+     *
+     * @param src the array holding the two sorted ranges
+     * @param dest the array to merge into
+     * @param from the first index of the first range, inclusive
+     * @param middle the first index of the second range
+     * @param to the last index of the second range, exclusive
+     */
+    private void merge(int[] src, int[] dest, int from, int middle, int to) {
+        if (compare(src[middle - 1], src[middle]) <= 0) {
+            // already in order
+            System.arraycopy(src, from, dest, from, to - from);
+            return;
+        }
+        int p = from;
+        int q = middle;
+        for (int i = from; i < to; ++i) {
+            if (q >= to || (p < middle && compare(src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Sorts the range of src into dest like mergeSort, splitting the work between the given number of threads:
+     * the two halves of the range are sorted concurrently, one of them by a new thread, and then merged.
+     * </p>
+     *
+     * @param src the scratch array, with the same range content as dest
+     * @param dest the array to sort
+     * @param from the first index of the range, inclusive
+     * @param to the last index of the range, exclusive
+     * @param parts the number of threads to use for the range
+     * @throws ClassCastException when the values can not be compared
+     */
+    private void parallelSort(final int[] src, final int[] dest, final int from, final int to, final int parts) {
+        if (parts < 2) {
+            mergeSort(src, dest, from, to);
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        SortThread forked = new SortThread(dest, src, from, middle, parts / 2);
+        forked.start();
+        try {
+            parallelSort(dest, src, middle, to, parts - parts / 2);
+        } finally {
+            // the forked half is waited for even when this half fails, so that no thread outlives the sort
+            forked.await();
+        }
+        forked.checkFailure();
+        merge(src, dest, from, middle, to);
+    }
+
+    /**
+     * <p>
+     * The thread sorting one half of a range in parallelSort. A RuntimeException or Error thrown while sorting
+     * (typically a ClassCastException from the comparison) is kept and rethrown in the parent thread by
+     * checkFailure.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private class SortThread extends Thread {
+
+        /**
+         * The scratch array.
+         */
+        private final int[] src;
+
+        /**
+         * The array to sort.
+         */
+        private final int[] dest;
+
+        /**
+         * The first index of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The last index of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * The number of threads to use for the range.
+         */
+        private final int parts;
+
+        /**
+         * The failure of the sort, null if it succeeded.
+         */
+        private Throwable failure = null;
+
+        /**
+         * Creates a SortThread for the given range.
+         *
+         * @param src the scratch array
+         * @param dest the array to sort
+         * @param from the first index of the range, inclusive
+         * @param to the last index of the range, exclusive
+         * @param parts the number of threads to use for the range
+         */
+        SortThread(int[] src, int[] dest, int from, int to, int parts) {
+            super("CustomResultSet-sort");
+            setDaemon(true);
+            this.src = src;
+            this.dest = dest;
+            this.from = from;
+            this.to = to;
+            this.parts = parts;
+        }
+
+        /**
+         * Sorts the range.
+         */
+        public void run() {
+            try {
+                parallelSort(src, dest, from, to, parts);
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Waits for the sort of the range to end, even if the current thread is interrupted.
+         */
+        void await() {
+            boolean interrupted = false;
+            while (isAlive()) {
+                try {
+                    join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Rethrows the failure of the ended sort of the range, if any.
+         *
+         * @throws ClassCastException when the values can not be compared
+         */
+        void checkFailure() {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+/**
+ * <p>
+ * The SinglePassOnDemandConverter interface extends OnDemandConverter with a try-convert operation, which
+ * determines whether a value can be converted and converts it in a single pass. For converters whose
+ * canConvert method has to do the actual work (for example parsing a String), this avoids doing that work twice
+ * for every converted value. OnDemandMapper uses tryConvert instead of canConvert followed by convert for the
+ * converters implementing this interface; all the default converters do.
+ * </p>
+ * <p>
+ * This interface makes no thread-safety or mutability requirements.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public interface SinglePassOnDemandConverter extends OnDemandConverter {
+    /**
+     * <p>
+     * Converts value into an instance of desiredType if this converter can, and returns null otherwise. The
+     * result must be the same as calling convert if canConvert returns true for the same arguments, and null if
+     * canConvert returns false.
+     * </p>
+     *
+     * @param value The object we want to convert (may be null)
+     * @param column The index of the column that the value is in the CustomResultSet. This can be used to
+     *            retrieve metadata about the column
+     * @param metaData The metadata for the result set the object comes from
+     * @param desiredType The type that we want to convert the object to
+     * @return value converted into an instance of desiredType, or null if this converter can not convert it
+     * @throws IllegalArgumentException If metaData or desiredType is null or column is &lt;= 0 or &gt; column
+     *             count of metadata
+     * @throws IllegalMappingException If this converter can handle the conversion, but fails when doing it
+     */
+    public Object tryConvert(Object value, int column, CustomResultSetMetaData metaData, Class desiredType)
+        throws IllegalMappingException;
+}
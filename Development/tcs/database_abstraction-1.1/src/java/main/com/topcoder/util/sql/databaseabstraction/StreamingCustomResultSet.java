@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>
+ * The StreamingCustomResultSet class is a forward-only CustomResultSet that reads its rows from a live JDBC
+ * ResultSet as the cursor moves, instead of loading the whole result when it is created. Only the current row
+ * is held in memory, so the memory used does not depend on the size of the result, and the first row is
+ * available as soon as the driver returns it. The explicit mappers are applied to each row when it is read,
+ * and the on-demand conversions work exactly as in CustomResultSet.
+ * </p>
+ * <p>
+ * The instance owns the JDBC resources it is given: the ResultSet, and optionally the Statement and Connection
+ * that produced it, are closed as soon as the cursor moves past the last row, when afterLast is called, or when
+ * close is called explicitly. Callers that stop reading early must call close.
+ * </p>
+ * <p>
+ * The operations that need to move backwards or to know the whole result (previous, last, isLast,
+ * getRecordCount, the sort methods, snapshot, and absolute or relative moves to an earlier row) are not
+ * supported and throw UnsupportedOperationException. As the positioning methods of CustomResultSet can not
+ * throw SQLException, a failure of the driver while moving the cursor is reported as an IllegalStateException
+ * wrapping it.
+ * </p>
+ * <p>
+ * Thread Safety: - This class is mutable, and not thread-safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class StreamingCustomResultSet extends CustomResultSet {
+
+    /**
+     * <p>
+     * The live result set the rows are read from. It is set in the constructor and never null.
+     * </p>
+     */
+    private final ResultSet resultSet;
+
+    /**
+     * <p>
+     * The statement that produced the result set, closed with it. It is set in the constructor and may be
+     * null.
+     * </p>
+     */
+    private final Statement statement;
+
+    /**
+     * <p>
+     * The connection the statement was created from, closed with it. It is set in the constructor and may be
+     * null.
+     * </p>
+     */
+    private final Connection connection;
+
+    /**
+     * <p>
+     * The mappers to apply, in order, to every row when it is read. It holds the mapper given to the
+     * constructor and those given to remap. Items are non-null Mapper instances.
+     * </p>
+     */
+    private final List mappers = new ArrayList();
+
+    /**
+     * <p>
+     * The 1-based number of the current row, or 0 if the cursor is before the first row or after the last one.
+     * </p>
+     */
+    private int rowNumber = 0;
+
+    /**
+     * <p>
+     * Whether the cursor has moved past the last row. Once true, the JDBC resources are closed.
+     * </p>
+     */
+    private boolean afterLast = false;
+
+    /**
+     * <p>
+     * Creates a new StreamingCustomResultSet reading from the given result set. The caller keeps the ownership
+     * of the statement and connection that produced it.
+     * </p>
+     *
+     * @param rs The result set to read the rows from, positioned before its first row
+     * @param mapper The explicit mapping to apply to the column values - can be null
+     * @param onDemandMapper The mapper to use for on-demand conversion - can be null
+     * @throws NullPointerException thrown if rs is null.
+     * @throws SQLException When there is an error reading the metadata
+     */
+    public StreamingCustomResultSet(ResultSet rs, Mapper mapper, OnDemandMapper onDemandMapper)
+        throws SQLException {
+        this(null, null, rs, mapper, onDemandMapper);
+    }
+
+    /**
+     * <p>
+     * Creates a new StreamingCustomResultSet reading from the given result set, and taking the ownership of
+     * the statement and connection that produced it: they are closed together with the result set.
+     * </p>
+     *
+     * @param connection The connection to close when the iteration ends - can be null
+     * @param statement The statement to close when the iteration ends - can be null
+     * @param rs The result set to read the rows from, positioned before its first row
+     * @param mapper The explicit mapping to apply to the column values - can be null
+     * @param onDemandMapper The mapper to use for on-demand conversion - can be null
+     * @throws NullPointerException thrown if rs is null.
+     * @throws SQLException When there is an error reading the metadata
+     */
+    public StreamingCustomResultSet(Connection connection, Statement statement, ResultSet rs, Mapper mapper,
+        OnDemandMapper onDemandMapper) throws SQLException {
+        super(createMetaData(rs), onDemandMapper);
+        this.resultSet = rs;
+        this.statement = statement;
+        this.connection = connection;
+        if (mapper != null && mapper.getMap() != null) {
+            mappers.add(mapper);
+        }
+    }
+
+    /**
+     * <p>
+     * Creates the metadata of the given result set.
+     * </p>
+     *
+     * @param rs the result set
+     * @return the metadata of the result set
+     * @throws NullPointerException If rs is null.
+     * @throws SQLException When there is an error reading the metadata
+     */
+    private static CustomResultSetMetaData createMetaData(ResultSet rs) throws SQLException {
+        if (rs == null) {
+            throw new NullPointerException("rs should not be null.");
+        }
+        return new CustomResultSetMetaData(rs.getMetaData());
+    }
+
+    /**
+     * <p>
+     * Moves the cursor to the next row, reading it from the underlying result set and applying the mappers. When
+     * there is no more row, the JDBC resources are closed.
+     * </p>
+     *
+     * @return whether the next row exists
+     * @throws IllegalStateException if reading or mapping the row fails; the JDBC resources are then closed
+     */
+    public boolean next() {
+        if (afterLast) {
+            return false;
+        }
+        try {
+            if (resultSet.next()) {
+                loadRow(resultSet);
+                for (Iterator it = mappers.iterator(); it.hasNext();) {
+                    super.remap((Mapper) it.next());
+                }
+                ++rowNumber;
+                return true;
+            }
+        } catch (SQLException e) {
+            finish();
+            throw createIllegalStateException("fail to read the next row", e);
+        } catch (IllegalMappingException e) {
+            finish();
+            throw createIllegalStateException("fail to map the next row", e);
+        }
+        finish();
+        return false;
+    }
+
+    /**
+     * <p>
+     * Moves the cursor forward to the given row. Only forward moves are supported.
+     * </p>
+     *
+     * @return whether the row exists
+     * @param row the row to move to
+     * @throws UnsupportedOperationException if row is not positive or is before the current row
+     * @throws IllegalStateException if reading or mapping a row fails
+     */
+    public boolean absolute(int row) {
+        if (row < 1 || row < rowNumber) {
+            throw new UnsupportedOperationException("The StreamingCustomResultSet is forward-only.");
+        }
+        if (row == rowNumber && !afterLast) {
+            return true;
+        }
+        while (rowNumber < row) {
+            if (!next()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Moves the cursor forward by the given number of rows. Only forward moves are supported.
+     * </p>
+     *
+     * @return whether the row exists
+     * @param row the number of rows to move
+     * @throws UnsupportedOperationException if row is negative
+     * @throws IllegalStateException if reading or mapping a row fails
+     */
+    public boolean relative(int row) {
+        if (row < 0) {
+            throw new UnsupportedOperationException("The StreamingCustomResultSet is forward-only.");
+        }
+        return absolute(rowNumber + row);
+    }
+
+    /**
+     * <p>
+     * Positions the cursor after the last row, skipping the remaining rows and closing the JDBC resources.
+     * </p>
+     */
+    public void afterLast() {
+        finish();
+    }
+
+    /**
+     * <p>
+     * Positions the cursor before the first row. This is only possible while no row has been read.
+     * </p>
+     *
+     * @throws UnsupportedOperationException if a row has already been read
+     */
+    public void beforeFirst() {
+        if (rowNumber != 0 || afterLast) {
+            throw new UnsupportedOperationException("The StreamingCustomResultSet is forward-only.");
+        }
+    }
+
+    /**
+     * <p>
+     * Positions the cursor on the first row. This is only possible while the cursor has not moved past it.
+     * </p>
+     *
+     * @return whether the first row exists
+     * @throws UnsupportedOperationException if the cursor has moved past the first row
+     * @throws IllegalStateException if reading or mapping the row fails
+     */
+    public boolean first() {
+        return absolute(1);
+    }
+
+    /**
+     * <p>
+     * This operation is not supported by a forward-only result set.
+     * </p>
+     *
+     * @return never returns
+     * @throws UnsupportedOperationException always
+     */
+    public boolean last() {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet is forward-only.");
+    }
+
+    /**
+     * <p>
+     * This operation is not supported by a forward-only result set.
+     * </p>
+     *
+     * @return never returns
+     * @throws UnsupportedOperationException always
+     */
+    public boolean previous() {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet is forward-only.");
+    }
+
+    /**
+     * <p>
+     * Determines whether the cursor is after the last row.
+     * </p>
+     *
+     * @return whether the cursor is after the last row
+     */
+    public boolean isAfterLast() {
+        return afterLast;
+    }
+
+    /**
+     * <p>
+     * Determines whether the cursor is before the first row.
+     * </p>
+     *
+     * @return whether the cursor is before the first row
+     */
+    public boolean isBeforeFirst() {
+        return rowNumber == 0 && !afterLast;
+    }
+
+    /**
+     * <p>
+     * Determines whether the cursor is on the first row.
+     * </p>
+     *
+     * @return whether the cursor is on the first row
+     */
+    public boolean isFirst() {
+        return rowNumber == 1;
+    }
+
+    /**
+     * <p>
+     * This operation is not supported by a forward-only result set, as it would require reading ahead.
+     * </p>
+     *
+     * @return never returns
+     * @throws UnsupportedOperationException always
+     */
+    public boolean isLast() {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet can not look ahead.");
+    }
+
+    /**
+     * <p>
+     * Gets the 1-based number of the current row.
+     * </p>
+     *
+     * @return the current row number, or 0 if the cursor is not on a row
+     */
+    public int getRow() {
+        return rowNumber;
+    }
+
+    /**
+     * <p>
+     * This operation is not supported, as the size of the result is not known until it has been read.
+     * </p>
+     *
+     * @return never returns
+     * @throws UnsupportedOperationException always
+     */
+    public int getRecordCount() {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet does not know its record count.");
+    }
+
+    /**
+     * <p>
+     * Remaps the current row with the given mapper, and registers it to be applied to all the rows read
+     * afterwards as well. If mapper is null, nothing is done.
+     * </p>
+     *
+     * @param mapper the mapper to use (may be null, in which case nothing is done)
+     * @throws IllegalMappingException when mapping is illegal
+     */
+    public void remap(Mapper mapper) throws IllegalMappingException {
+        if (mapper == null || mapper.getMap() == null) {
+            return;
+        }
+        mappers.add(mapper);
+        super.remap(mapper);
+    }
+
+    /**
+     * <p>
+     * Sorting is not supported by a forward-only result set. All the sortAscending and sortDescending methods
+     * end up here.
+     * </p>
+     *
+     * @param columnIndices the indices of the columns to sort on
+     * @param comparators the comparators to use for the columns
+     * @param isDescending whether to sort in descending order
+     * @throws UnsupportedOperationException always
+     */
+    void sortRows(int[] columnIndices, Comparator[] comparators, boolean isDescending) {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet can not be sorted.");
+    }
+
+    /**
+     * <p>
+     * A snapshot is not supported by a forward-only result set, which holds a single row at a time.
+     * </p>
+     *
+     * @return never
+     * @throws UnsupportedOperationException always
+     */
+    public CustomResultSet snapshot() {
+        throw new UnsupportedOperationException("The StreamingCustomResultSet can not be copied.");
+    }
+
+    /**
+     * <p>
+     * Positions the cursor after the last row and closes the JDBC resources. Calling this method more than once
+     * has no effect.
+     * </p>
+     *
+     * @throws SQLException if closing one of the resources fails; the others are closed anyway
+     */
+    public void close() throws SQLException {
+        if (afterLast) {
+            return;
+        }
+        afterLast = true;
+        rowNumber = 0;
+        clearRows();
+        SQLException failure = null;
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            failure = e;
+        }
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            failure = (failure == null) ? e : failure;
+        }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            failure = (failure == null) ? e : failure;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * <p>
+     * Creates the IllegalStateException reporting a failure while moving the cursor.
+     * </p>
+     *
+     * @param message the error message
+     * @param cause the cause of the failure
+     * @return the IllegalStateException to throw
+     */
+    private static IllegalStateException createIllegalStateException(String message, Exception cause) {
+        IllegalStateException e = new IllegalStateException(message + " -- " + cause.getMessage());
+        e.initCause(cause);
+        return e;
+    }
+
+    /**
+     * <p>
+     * Closes the JDBC resources at the end of the iteration, ignoring the failures as there is nobody to
+     * report them to.
+     * </p>
+     */
+    private void finish() {
+        try {
+            close();
+        } catch (SQLException e) {
+            // ignore, the cursor is positioned after the last row anyway
+        }
+    }
+}
@@ -9,7 +9,7 @@ import java.io.InputStream;
 import com.topcoder.util.sql.databaseabstraction.AbstractionHelper;
 import com.topcoder.util.sql.databaseabstraction.CustomResultSetMetaData;
 import com.topcoder.util.sql.databaseabstraction.IllegalMappingException;
-import com.topcoder.util.sql.databaseabstraction.OnDemandConverter;
+import com.topcoder.util.sql.databaseabstraction.SinglePassOnDemandConverter;
 
 /**
  * <p>
@@ -21,14 +21,18 @@ import com.topcoder.util.sql.databaseabstraction.OnDemandConverter;
  * byte[] and is not null, and desiredType is InputStream.
  * </p>
  * <p>
+ * Version 1.2 implements SinglePassOnDemandConverter, so that OnDemandMapper checks and converts a value in a
+ * single call.
+ * </p>
+ * <p>
  * Thread Safety: - This class is immutable, and therefore thread-safe.
  * </p>
  *
- * @author aubergineanode, justforplay
- * @version 1.1
+ * @author aubergineanode, justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.1
  */
-public class ByteArrayConverter implements OnDemandConverter {
+public class ByteArrayConverter implements SinglePassOnDemandConverter {
 
     /**
      * Create a new ByteArrayConverter.
@@ -82,6 +86,43 @@ public class ByteArrayConverter implements OnDemandConverter {
             throw new IllegalMappingException("value can't be converted to the desired type -- "
                 + desiredType + " -- by ByteArrayConverter.");
         }
+        return doConvert(value, desiredType);
+    }
+
+    /**
+     * <p>
+     * Converts value into an instance of desiredType if this converter can, and returns null otherwise. The
+     * value is only checked once, by canConvert.
+     * </p>
+     *
+     * @param value The object we want to convert (may be null)
+     * @param column The index of the column that the value is in the CustomResultSet. This can be used to
+     *            retrieve metadata about the column
+     * @param metaData The metadata for the result set the object comes from
+     * @param desiredType The type that we want to convert the object to
+     * @return value converted into an instance of desiredType, or null if it can not be converted
+     * @throws IllegalArgumentException If metaData or desiredType is null or column is &lt;= 0 or &gt; column
+     *             count of metadata
+     * @throws IllegalMappingException If the conversion fails
+     * @since 1.2
+     */
+    public Object tryConvert(Object value, int column, CustomResultSetMetaData metaData, Class desiredType)
+        throws IllegalMappingException {
+        // Validation of metaData, desiredType and column is done at canConvert().
+        return canConvert(value, column, metaData, desiredType) ? doConvert(value, desiredType) : null;
+    }
+
+    /**
+     * <p>
+     * Converts value, already checked by canConvert, into an instance of desiredType.
+     * </p>
+     *
+     * @param value The object to convert
+     * @param desiredType The type to convert the object to
+     * @return value converted into an instance of desiredType
+     * @since 1.2
+     */
+    private Object doConvert(Object value, Class desiredType) {
         return new ByteArrayInputStream((byte[]) value);
     }
 }
@@ -20,7 +20,7 @@ import java.text.ParseException;
 import com.topcoder.util.sql.databaseabstraction.AbstractionHelper;
 import com.topcoder.util.sql.databaseabstraction.CustomResultSetMetaData;
 import com.topcoder.util.sql.databaseabstraction.IllegalMappingException;
-import com.topcoder.util.sql.databaseabstraction.OnDemandConverter;
+import com.topcoder.util.sql.databaseabstraction.SinglePassOnDemandConverter;
 
 /**
  * <p>
@@ -36,14 +36,18 @@ import com.topcoder.util.sql.databaseabstraction.OnDemandConverter;
  * not null).
  * </p>
  * <p>
+ * Version 1.2 implements SinglePassOnDemandConverter. The String value is parsed only once by tryConvert, while
+ * canConvert followed by convert parses it twice.
+ * </p>
+ * <p>
  * Thread Safety: - This class is immutable, and therefore thread-safe.
  * </p>
  *
- * @author aubergineanode, justforplay
- * @version 1.1
+ * @author aubergineanode, justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.1
  */
-public class StringConverter implements OnDemandConverter {
+public class StringConverter implements SinglePassOnDemandConverter {
 
     /**
      * value of max char allowed if converted to InputStream.
@@ -200,74 +204,117 @@ public class StringConverter implements OnDemandConverter {
             throw new IllegalMappingException("value can't be converted to the desired type.");
         }
         // canConvert is not invoked here, for invoking it will parse the value twice.
-        String valueStr = (String) value;
+        Object result;
+        try {
+            result = parse((String) value, desiredType);
+        } catch (ParseException e) {
+            throw new IllegalMappingException("value can't be converted to the desired type -- "
+                + desiredType + " -- by StringConverter", e);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalMappingException("value can't be converted to the desired type -- "
+                + desiredType + " -- by StringConverter", e);
+        }
+        if (result == null) {
+            throw new IllegalMappingException("value can't be converted to the desired type -- " + desiredType
+                + " -- by StringConverter");
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Converts value into an instance of desiredType if this converter can, and returns null otherwise. The
+     * String value is parsed only once.
+     * </p>
+     *
+     * @param value The object we want to convert (may be null)
+     * @param column The index of the column that the value is in the CustomResultSet. This can be used to
+     *            retrieve metadata about the column
+     * @param metaData The metadata for the result set the object comes from
+     * @param desiredType The type that we want to convert the object to
+     * @return value converted into an instance of desiredType, or null if it can not be converted
+     * @throws IllegalArgumentException If metaData or desiredType is null or column is &lt;= 0 or &gt; column
+     *             count of metadata
+     * @since 1.2
+     */
+    public Object tryConvert(Object value, int column, CustomResultSetMetaData metaData, Class desiredType) {
+        AbstractionHelper.checkNull(metaData, "metaData");
+        AbstractionHelper.checkNull(desiredType, "desiredType");
+        AbstractionHelper.checkColumnIndex(column, metaData.getColumnCount());
+        if (value == null || (!String.class.isAssignableFrom(value.getClass()))) {
+            return null;
+        }
+        try {
+            return parse((String) value, desiredType);
+        } catch (ParseException e) {
+            // thrown by dateFormat.parse()
+            return null;
+        } catch (IllegalArgumentException e) {
+            // thrown by *.valueOf() and the number parsing
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Parses the String value into an instance of desiredType.
+     * </p>
+     *
+     * @param valueStr the String value to parse
+     * @param desiredType the type to parse the value into
+     * @return the parsed value, or null if desiredType is not supported or, for java.io.InputStream, the String
+     *         has characters &lt;0 or &gt;127
+     * @throws ParseException if dateFormat fails to parse the value
+     * @throws IllegalArgumentException if the value can not be parsed into the number or date type
+     * @since 1.2
+     */
+    private Object parse(String valueStr, Class desiredType) throws ParseException {
         if (desiredType.isAssignableFrom(InputStream.class)) {
             byte[] btArr = new byte[valueStr.length()];
             for (int i = 0; i < valueStr.length(); i++) {
                 if (valueStr.charAt(i) >= 0 && valueStr.charAt(i) <= MAX_CHAR_VALUE) {
                     btArr[i] = (byte) valueStr.charAt(i);
                 } else {
-                    throw new IllegalMappingException("value can't be converted to the desired type -- "
-                        + desiredType + " by StringConverter, character in String is <0 or >127.");
+                    return null;
                 }
             }
             return new ByteArrayInputStream(btArr);
         } else if (desiredType.isAssignableFrom(Reader.class)) {
             return new StringReader(valueStr);
-        } else {
-            try {
-                if (desiredType.isAssignableFrom(Byte.class)) {
-                    return Byte.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(Short.class)) {
-                    return Short.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(Integer.class)) {
-                    return Integer.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(Long.class)) {
-                    return Long.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(Double.class)) {
-                    return Double.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(Float.class)) {
-                    return Float.valueOf(valueStr);
-                } else if (desiredType.isAssignableFrom(BigDecimal.class)) {
-                    return new BigDecimal(valueStr);
-                } else { // Date,Time, Timestamp
-                    try {
-                        if (desiredType.isAssignableFrom(Date.class)) {
-                            if (dateFormat == null) {
-                                return Date.valueOf(valueStr);
-                            } else {
-                                return new Date(dateFormat.parse(valueStr).getTime());
-                            }
-                        } else if (desiredType.isAssignableFrom(Time.class)) {
-                            if (dateFormat == null) {
-                                return Time.valueOf(valueStr);
-                            } else {
-                                return new Time(dateFormat.parse(valueStr).getTime());
-                            }
-
-                        } else if (desiredType.isAssignableFrom(Timestamp.class)) {
-                            if (dateFormat == null) {
-                                return Timestamp.valueOf(valueStr);
-                            } else {
-                                return new Timestamp(dateFormat.parse(valueStr).getTime());
-                            }
-
-                        }
-
-                    } catch (ParseException e) {
-                        throw new IllegalMappingException("value can't be converted to the desired type -- "
-                            + desiredType + " -- by StringConverter", e);
-                    } catch (IllegalArgumentException e) {
-                        throw new IllegalMappingException("value can't be converted to the desired type -- "
-                            + desiredType + " -- by StringConverter", e);
-                    }
-                }
-            } catch (NumberFormatException e) {
-                throw new IllegalMappingException("value can't be converted to the desired type -- "
-                    + desiredType + " -- by StringConverter", e);
+        } else if (desiredType.isAssignableFrom(Byte.class)) {
+            return Byte.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(Short.class)) {
+            return Short.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(Integer.class)) {
+            return Integer.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(Long.class)) {
+            return Long.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(Double.class)) {
+            return Double.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(Float.class)) {
+            return Float.valueOf(valueStr);
+        } else if (desiredType.isAssignableFrom(BigDecimal.class)) {
+            return new BigDecimal(valueStr);
+        } else if (desiredType.isAssignableFrom(Date.class)) {
+            if (dateFormat == null) {
+                return Date.valueOf(valueStr);
+            } else {
+                return new Date(dateFormat.parse(valueStr).getTime());
+            }
+        } else if (desiredType.isAssignableFrom(Time.class)) {
+            if (dateFormat == null) {
+                return Time.valueOf(valueStr);
+            } else {
+                return new Time(dateFormat.parse(valueStr).getTime());
+            }
+        } else if (desiredType.isAssignableFrom(Timestamp.class)) {
+            if (dateFormat == null) {
+                return Timestamp.valueOf(valueStr);
+            } else {
+                return new Timestamp(dateFormat.parse(valueStr).getTime());
             }
         }
-        throw new IllegalMappingException("value can't be converted to the desired type -- " + desiredType
-            + " -- by StringConverter");
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for ColumnHandle. The result sets are created in memory through UnitTestHelper.createResultSet, so
+ * no database is needed.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class ColumnHandleTestV12 extends TestCase {
+
+    /**
+     * Instance of CustomResultSet for unit test.
+     */
+    private CustomResultSet testCRS;
+
+    /**
+     * Initializes a CustomResultSet with an int, a long, a double and a String column.
+     *
+     * @throws Exception exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        testCRS = new CustomResultSet(CustomResultSetTestV12.createResultSet());
+    }
+
+    /**
+     * <p>
+     * Test CustomResultSet.getColumnHandle(String) with an unknown column.
+     * </p>
+     * <p>
+     * Verify: IllegalArgumentException is thrown.
+     * </p>
+     */
+    public void testGetColumnHandleUnknown() {
+        try {
+            testCRS.getColumnHandle("unknown");
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test the getters of the handle over several rows.
+     * </p>
+     * <p>
+     * Verify: the values of the current row are returned.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testGetters() throws Exception {
+        ColumnHandle id = testCRS.getColumnHandle("id");
+        ColumnHandle name = testCRS.getColumnHandle("NAME");
+        assertSame("getResultSet is wrong.", testCRS, id.getResultSet());
+        assertEquals("getColumnIndex is wrong.", 1, id.getColumnIndex());
+        int[] ids = {3, 1, 2};
+        String[] names = {"c", "a", "b"};
+        for (int i = 0; i < ids.length; ++i) {
+            assertTrue("next should succeed.", testCRS.next());
+            assertEquals("getInt is wrong.", ids[i], id.getInt());
+            assertEquals("getLong is wrong.", ids[i], id.getLong());
+            assertEquals("getString is wrong.", "" + ids[i], id.getString());
+            assertEquals("getObject is wrong.", names[i], name.getObject());
+            assertTrue("isAvailable is wrong.", id.isAvailable(String.class));
+        }
+    }
+
+    /**
+     * <p>
+     * Test the getters of the handle with an invalid cursor.
+     * </p>
+     * <p>
+     * Verify: InvalidCursorStateException is thrown.
+     * </p>
+     */
+    public void testGettersInvalidCursor() {
+        try {
+            testCRS.getColumnHandle("ID").getInt();
+            fail("InvalidCursorStateException should be thrown.");
+        } catch (InvalidCursorStateException e) {
+            // expected
+        }
+    }
+}
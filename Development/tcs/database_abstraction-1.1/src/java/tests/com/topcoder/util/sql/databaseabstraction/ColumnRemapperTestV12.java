@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the version 1.2 remapping of CustomResultSet with ColumnRemapper, on the calling thread and in
+ * parallel. The result sets are created in memory through UnitTestHelper.createResultSet, so no database is
+ * needed.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class ColumnRemapperTestV12 extends TestCase {
+
+    /**
+     * The number of rows of the large result sets, enough for four threads.
+     */
+    private static final int ROWS = ColumnRemapper.MIN_ROWS_PER_THREAD * 4 + 3;
+
+    /**
+     * Creates a result set with an int and a varchar column, and the given number of rows.
+     *
+     * @param rows the number of rows
+     * @return the result set
+     */
+    private static ResultSet createResultSet(int rows) {
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; ++i) {
+            data[i] = new Object[] {new Integer(i), "v" + i};
+        }
+        return UnitTestHelper.createResultSet(new String[] {"ID", "NAME"}, new int[] {Types.INTEGER,
+            Types.VARCHAR}, data);
+    }
+
+    /**
+     * <p>
+     * Test the constructor-time mapping in parallel.
+     * </p>
+     * <p>
+     * Verify: the values are the same as with the mapping on the calling thread.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testParallelMapping() throws Exception {
+        Map map = new HashMap();
+        map.put("integer", new PrefixConverter());
+        map.put("varchar", new PrefixConverter());
+        CustomResultSet sequential = new CustomResultSet(createResultSet(ROWS), new Mapper(map), null);
+        CustomResultSet parallel = new CustomResultSet(createResultSet(ROWS), new Mapper(map), null, 4);
+        assertEquals("getMappingParallelism is wrong.", 4, parallel.getMappingParallelism());
+        while (sequential.next()) {
+            assertTrue("next should succeed.", parallel.next());
+            assertEquals("mapped value is wrong.", sequential.getObject(1), parallel.getObject(1));
+            assertEquals("mapped value is wrong.", sequential.getObject(2), parallel.getObject(2));
+        }
+        assertFalse("next should fail.", parallel.next());
+        parallel.absolute(ROWS);
+        assertEquals("mapped value is wrong.", "#" + (ROWS - 1), parallel.getObject(1));
+        assertEquals("getInt should use the original value.", ROWS - 1, parallel.getInt(1));
+    }
+
+    /**
+     * <p>
+     * Test remap with a BulkConverter.
+     * </p>
+     * <p>
+     * Verify: the bulk operation is called once per range of rows, and converts all the values.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testRemapBulkConverter() throws Exception {
+        PrefixConverter converter = new PrefixConverter();
+        Map map = new HashMap();
+        map.put("varchar", converter);
+        CustomResultSet crs = new CustomResultSet(createResultSet(ROWS));
+        crs.remap(new Mapper(map));
+        assertEquals("convert should be called once.", 1, converter.getBulkCalls());
+        crs.setMappingParallelism(3);
+        crs.remap(new Mapper(map));
+        assertEquals("convert should be called once per range.", 4, converter.getBulkCalls());
+        crs.first();
+        assertEquals("mapped value is wrong.", "##v0", crs.getObject(2));
+        crs.last();
+        assertEquals("mapped value is wrong.", "##v" + (ROWS - 1), crs.getObject(2));
+    }
+
+    /**
+     * <p>
+     * Test the failure of a parallel mapping.
+     * </p>
+     * <p>
+     * Verify: the failure of the lowest column is reported, like with the mapping on the calling thread.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testParallelMappingFailure() throws Exception {
+        Map map = new HashMap();
+        map.put("integer", new FailingConverter("v" + (ROWS - 1)));
+        map.put("varchar", new FailingConverter("v0"));
+        for (int parallelism = 1; parallelism <= 4; ++parallelism) {
+            try {
+                new CustomResultSet(createResultSet(ROWS), new Mapper(map), null, parallelism);
+                fail("IllegalMappingException should be thrown.");
+            } catch (IllegalMappingException e) {
+                assertEquals("message is wrong.", "mapping is illegal.column 1", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Test setMappingParallelism with a value that is not positive.
+     * </p>
+     * <p>
+     * Verify: IllegalArgumentException is thrown.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testSetMappingParallelismInvalid() throws Exception {
+        try {
+            new DatabaseAbstractor().setMappingParallelism(0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new CustomResultSet(createResultSet(1), null, null, -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * A thread-safe BulkConverter prefixing the values with '#', counting the calls of the bulk operation.
+     */
+    private static class PrefixConverter implements BulkConverter {
+        /**
+         * The number of calls of the bulk operation.
+         */
+        private int bulkCalls = 0;
+
+        /**
+         * Prefixes the value by '#'.
+         *
+         * @param value the value
+         * @param column the column
+         * @param metaData the metadata
+         * @return the prefixed value
+         */
+        public Object convert(Object value, int column, CustomResultSetMetaData metaData) {
+            return "#" + value;
+        }
+
+        /**
+         * Prefixes the values of the range by '#'.
+         *
+         * @param values the values
+         * @param from the first index of the range
+         * @param to the last index of the range
+         * @param column the column
+         * @param metaData the metadata
+         */
+        public void convert(Object[] values, int from, int to, int column, CustomResultSetMetaData metaData) {
+            synchronized (this) {
+                ++bulkCalls;
+            }
+            for (int i = from; i < to; ++i) {
+                values[i] = convert(values[i], column, metaData);
+            }
+        }
+
+        /**
+         * Gets the number of calls of the bulk operation.
+         *
+         * @return the number of calls
+         */
+        synchronized int getBulkCalls() {
+            return bulkCalls;
+        }
+    }
+
+    /**
+     * A Converter failing on one row, identified by its NAME value, or by "v" followed by its ID value.
+     */
+    private static class FailingConverter implements Converter {
+        /**
+         * The NAME of the failing row.
+         */
+        private final String failingName;
+
+        /**
+         * Creates a FailingConverter.
+         *
+         * @param failingName the NAME of the failing row
+         */
+        FailingConverter(String failingName) {
+            this.failingName = failingName;
+        }
+
+        /**
+         * Returns the value, or fails on the failing row.
+         *
+         * @param value the value
+         * @param column the column
+         * @param metaData the metadata
+         * @return the value
+         * @throws IllegalMappingException on the failing row
+         */
+        public Object convert(Object value, int column, CustomResultSetMetaData metaData)
+            throws IllegalMappingException {
+            String name = value instanceof Integer ? "v" + value : (String) value;
+            if (name.equals(failingName)) {
+                throw new IllegalMappingException("column " + column);
+            }
+            return value;
+        }
+    }
+}
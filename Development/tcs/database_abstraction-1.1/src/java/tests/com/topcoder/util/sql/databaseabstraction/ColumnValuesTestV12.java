@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.Types;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for ColumnValues and its implementations.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class ColumnValuesTestV12 extends TestCase {
+
+    /**
+     * <p>
+     * Test createColumnValues(int).
+     * </p>
+     * <p>
+     * Verify: the numeric column types get a primitive backed implementation, the others an Object backed one.
+     * </p>
+     */
+    public void testCreateColumnValues() {
+        assertTrue("INTEGER should be int backed.",
+            ColumnValues.createColumnValues(Types.INTEGER) instanceof IntColumnValues);
+        assertTrue("SMALLINT should be int backed.",
+            ColumnValues.createColumnValues(Types.SMALLINT) instanceof IntColumnValues);
+        assertTrue("BIGINT should be long backed.",
+            ColumnValues.createColumnValues(Types.BIGINT) instanceof LongColumnValues);
+        assertTrue("DOUBLE should be double backed.",
+            ColumnValues.createColumnValues(Types.DOUBLE) instanceof DoubleColumnValues);
+        assertTrue("REAL should be float backed.",
+            ColumnValues.createColumnValues(Types.REAL) instanceof FloatColumnValues);
+        assertTrue("VARCHAR should be Object backed.",
+            ColumnValues.createColumnValues(Types.VARCHAR) instanceof ObjectColumnValues);
+    }
+
+    /**
+     * <p>
+     * Test addValue(Object) and the accessors.
+     * </p>
+     * <p>
+     * Verify: values and nulls are stored and retrieved correctly, beyond the initial capacity.
+     * </p>
+     */
+    public void testAddValue() {
+        IntColumnValues column = new IntColumnValues();
+        int count = ColumnValues.INITIAL_CAPACITY * 3;
+        for (int i = 0; i < count; ++i) {
+            assertTrue("Integer should be accepted.", column.addValue(i % 5 == 0 ? null : new Integer(i)));
+        }
+        column.trimToSize();
+        assertEquals("size is wrong.", count, column.size());
+        for (int i = 0; i < count; ++i) {
+            if (i % 5 == 0) {
+                assertTrue("value should be null.", column.isNull(i));
+                assertNull("value should be null.", column.getOriginalValue(i));
+            } else {
+                assertFalse("value should not be null.", column.isNull(i));
+                assertEquals("value is wrong.", i, column.getInt(i));
+                assertEquals("value is wrong.", new Integer(i), column.getMappedValue(i));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Test addValue(Object).
+     * </p>
+     * <p>
+     * Verify: a value of an unexpected class is refused, and the Object backed copy keeps every value.
+     * </p>
+     */
+    public void testAddValueFallback() {
+        ColumnValues column = new IntColumnValues();
+        assertTrue("Integer should be accepted.", column.addValue(new Integer(1)));
+        assertTrue("null should be accepted.", column.addValue(null));
+        assertFalse("Short should be refused.", column.addValue(new Short((short) 2)));
+        column = column.toObjectColumnValues();
+        assertTrue("Short should be accepted.", column.addValue(new Short((short) 2)));
+        assertEquals("size is wrong.", 3, column.size());
+        assertEquals("value is wrong.", new Integer(1), column.getOriginalValue(0));
+        assertNull("value should be null.", column.getOriginalValue(1));
+        assertEquals("value is wrong.", new Short((short) 2), column.getOriginalValue(2));
+    }
+
+    /**
+     * <p>
+     * Test setMappedValue(int, Object).
+     * </p>
+     * <p>
+     * Verify: mapping keeps the original values and marks the column as mapped.
+     * </p>
+     */
+    public void testSetMappedValue() {
+        LongColumnValues column = new LongColumnValues();
+        column.addValue(new Long(1));
+        column.addValue(new Long(2));
+        assertFalse("column should not be mapped.", column.isMapped());
+        column.setMappedValue(0, "one");
+        assertTrue("column should be mapped.", column.isMapped());
+        assertEquals("mapped value is wrong.", "one", column.getMappedValue(0));
+        assertEquals("mapped value is wrong.", new Long(2), column.getMappedValue(1));
+        assertEquals("original value is wrong.", new Long(1), column.getOriginalValue(0));
+        assertEquals("original value is wrong.", 1, column.getLong(0));
+    }
+
+    /**
+     * <p>
+     * Test reorder(int[]).
+     * </p>
+     * <p>
+     * Verify: values, nulls and mapped values are all permuted.
+     * </p>
+     */
+    public void testReorder() {
+        DoubleColumnValues column = new DoubleColumnValues();
+        column.addValue(new Double(1));
+        column.addValue(null);
+        column.addValue(new Double(3));
+        column.setMappedValue(2, "three");
+        column.reorder(new int[] {2, 0, 1});
+        assertEquals("value is wrong.", 3, column.getDouble(0), 0);
+        assertEquals("mapped value is wrong.", "three", column.getMappedValue(0));
+        assertEquals("value is wrong.", 1, column.getDouble(1), 0);
+        assertTrue("value should be null.", column.isNull(2));
+        assertFalse("value should not be null.", column.isNull(1));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the version 1.2 features of CustomResultSet. The result sets are created in memory through
+ * UnitTestHelper.createResultSet, so no database is needed.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class CustomResultSetTestV12 extends TestCase {
+
+    /**
+     * Instance of CustomResultSet for unit test.
+     */
+    private CustomResultSet testCRS;
+
+    /**
+     * Initializes a CustomResultSet with an int, a long, a double and a String column.
+     *
+     * @throws Exception exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        testCRS = new CustomResultSet(createResultSet(), null, OnDemandMapper.createDefaultOnDemandMapper());
+    }
+
+    /**
+     * Creates the in-memory result set used by the tests.
+     *
+     * @return the result set
+     */
+    static java.sql.ResultSet createResultSet() {
+        return UnitTestHelper.createResultSet(new String[] {"ID", "TOTAL", "RATE", "NAME"}, new int[] {
+            Types.INTEGER, Types.BIGINT, Types.DOUBLE, Types.VARCHAR}, new Object[][] {
+            {new Integer(3), new Long(30), new Double(0.3), "c"},
+            {new Integer(1), null, new Double(0.1), "a"},
+            {new Integer(2), new Long(20), null, "b"}});
+    }
+
+    /**
+     * <p>
+     * Test the typed getters on the columnar storage.
+     * </p>
+     * <p>
+     * Verify: the primitive values are returned, and the other types are still converted on demand.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testTypedGetters() throws Exception {
+        assertEquals("record count is wrong.", 3, testCRS.getRecordCount());
+        assertTrue("next should succeed.", testCRS.next());
+        assertEquals("getInt is wrong.", 3, testCRS.getInt(1));
+        assertEquals("getLong is wrong.", 30, testCRS.getLong(2));
+        assertEquals("getDouble is wrong.", 0.3, testCRS.getDouble(3), 0);
+        assertEquals("getString is wrong.", "c", testCRS.getString(4));
+        assertEquals("getLong on int column is wrong.", 3, testCRS.getLong(1));
+        assertEquals("getObject is wrong.", new Integer(3), testCRS.getObject(1));
+        assertTrue("next should succeed.", testCRS.next());
+        assertNull("getObject should return null.", testCRS.getObject(2));
+        try {
+            testCRS.getLong(2);
+            fail("NullPointerException should be thrown.");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test the typed getters with an invalid cursor.
+     * </p>
+     * <p>
+     * Verify: InvalidCursorStateException is thrown.
+     * </p>
+     */
+    public void testTypedGettersInvalidCursor() {
+        try {
+            testCRS.getInt(1);
+            fail("InvalidCursorStateException should be thrown.");
+        } catch (InvalidCursorStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test remap(Mapper) on the columnar storage.
+     * </p>
+     * <p>
+     * Verify: the mapped values are returned, and the original ones stay available.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testRemap() throws Exception {
+        Map map = new HashMap();
+        map.put("integer", new Converter() {
+            public Object convert(Object value, int column, CustomResultSetMetaData metaData) {
+                return "#" + value;
+            }
+        });
+        testCRS.remap(new Mapper(map));
+        testCRS.first();
+        assertEquals("mapped value is wrong.", "#3", testCRS.getObject(1));
+        assertEquals("getInt should use the original value.", 3, testCRS.getInt(1));
+        assertEquals("original value should still be available.", new Integer(3), testCRS.getObject(1,
+            Integer.class));
+    }
+
+    /**
+     * <p>
+     * Test sortAscending(int) on the columnar storage.
+     * </p>
+     * <p>
+     * Verify: all the columns are re-ordered together.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testSort() throws Exception {
+        testCRS.sortAscending(1);
+        String[] names = {"a", "b", "c"};
+        for (int i = 0; i < names.length; ++i) {
+            assertTrue("next should succeed.", testCRS.next());
+            assertEquals("getInt is wrong.", i + 1, testCRS.getInt(1));
+            assertEquals("getString is wrong.", names[i], testCRS.getString(4));
+        }
+        testCRS.first();
+        assertNull("null should follow the row.", testCRS.getObject(2));
+    }
+
+    /**
+     * <p>
+     * Test snapshot() on the columnar storage.
+     * </p>
+     * <p>
+     * Verify: the snapshot has the same rows, and its cursor, mapping and sort are independent.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testSnapshot() throws Exception {
+        testCRS.next();
+        CustomResultSet snapshot = testCRS.snapshot();
+        assertEquals("record count is wrong.", 3, snapshot.getRecordCount());
+        assertTrue("the snapshot should be before the first row.", snapshot.isBeforeFirst());
+
+        Map map = new HashMap();
+        map.put("varchar", new Converter() {
+            public Object convert(Object value, int column, CustomResultSetMetaData metaData) {
+                return "#" + value;
+            }
+        });
+        snapshot.remap(new Mapper(map));
+        snapshot.sortAscending(1);
+        snapshot.first();
+        assertEquals("getString is wrong.", "#a", snapshot.getString(4));
+
+        assertEquals("the cursor should not move.", 1, testCRS.getRow());
+        assertEquals("the source should not be remapped or sorted.", "c", testCRS.getString(4));
+    }
+
+    /**
+     * <p>
+     * Test findColumn(String) through the label index.
+     * </p>
+     * <p>
+     * Verify: exact matches win, and other matches ignore case.
+     * </p>
+     */
+    public void testFindColumn() {
+        assertEquals("findColumn is wrong.", 4, testCRS.findColumn("NAME"));
+        assertEquals("findColumn is wrong.", 4, testCRS.findColumn("name"));
+        assertEquals("findColumn is wrong.", 0, testCRS.findColumn("unknown"));
+        assertEquals("findColumn is wrong.", 0, testCRS.findColumn(null));
+    }
+
+    /**
+     * <p>
+     * Test CustomResultSetMetaData.findColumn(String) after setColumnLabel.
+     * </p>
+     * <p>
+     * Verify: the label index is rebuilt.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testFindColumnLabelChanged() throws Exception {
+        CustomResultSetMetaData metaData = new CustomResultSetMetaData(createResultSet().getMetaData());
+        assertEquals("findColumn is wrong.", 1, metaData.findColumn("ID"));
+        metaData.setColumnLabel(1, "name");
+        assertEquals("findColumn is wrong.", 1, metaData.findColumn("name"));
+        assertEquals("findColumn is wrong.", 4, metaData.findColumn("NAME"));
+        assertEquals("findColumn is wrong.", 0, metaData.findColumn("ID"));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.ResultSet;
+import java.sql.Types;
+
+import com.topcoder.util.sql.databaseabstraction.ondemandconversion.IntConverter;
+import com.topcoder.util.sql.databaseabstraction.ondemandconversion.StringConverter;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for the version 1.2 single-pass conversion of OnDemandMapper and its dispatch from
+ * CustomResultSet. The metadata comes from an in-memory result set, so no database is needed.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class OnDemandMapperTestV12 extends TestCase {
+
+    /**
+     * Instance of CustomResultSet for unit test, with an int and a String column.
+     */
+    private CustomResultSet testCRS;
+
+    /**
+     * The metadata of testCRS.
+     */
+    private CustomResultSetMetaData metaData;
+
+    /**
+     * Initializes the CustomResultSet and its metadata.
+     *
+     * @throws Exception exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        ResultSet rs = UnitTestHelper.createResultSet(new String[] {"ID", "CODE"}, new int[] {Types.INTEGER,
+            Types.VARCHAR}, new Object[][] {{new Integer(1), "10"}, {new Integer(2), "x"}});
+        metaData = new CustomResultSetMetaData(rs.getMetaData());
+        testCRS = new CustomResultSet(rs);
+    }
+
+    /**
+     * <p>
+     * Test StringConverter.tryConvert.
+     * </p>
+     * <p>
+     * Verify: the parsed value is returned, or null if the String can not be parsed.
+     * </p>
+     */
+    public void testStringConverterTryConvert() {
+        StringConverter converter = new StringConverter();
+        assertEquals("tryConvert is wrong.", new Integer(10), converter.tryConvert("10", 2, metaData,
+            Integer.class));
+        assertNull("tryConvert should return null.", converter.tryConvert("x", 2, metaData, Integer.class));
+        assertNull("tryConvert should return null.", converter.tryConvert(new Integer(1), 2, metaData,
+            Integer.class));
+        assertNull("tryConvert should return null.", converter.tryConvert("\u00e9", 2, metaData,
+            java.io.InputStream.class));
+    }
+
+    /**
+     * <p>
+     * Test IntConverter.tryConvert.
+     * </p>
+     * <p>
+     * Verify: the converted value is returned, or null if the type is not supported.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testIntConverterTryConvert() throws Exception {
+        IntConverter converter = new IntConverter();
+        assertEquals("tryConvert is wrong.", "1", converter.tryConvert(new Integer(1), 1, metaData,
+            String.class));
+        assertNull("tryConvert should return null.", converter.tryConvert(new Integer(1), 1, metaData,
+            java.sql.Date.class));
+    }
+
+    /**
+     * <p>
+     * Test convert with a converter that does not implement SinglePassOnDemandConverter.
+     * </p>
+     * <p>
+     * Verify: canConvert and convert are still used.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testConvertOldConverter() throws Exception {
+        OnDemandMapper mapper = new OnDemandMapper(new OnDemandConverter[] {new ImplOnDemandConverter()});
+        assertEquals("convert is wrong.", "#1", mapper.convert(new Integer(1), 1, metaData, String.class));
+        try {
+            mapper.convert(new Integer(1), 1, metaData, Long.class);
+            fail("IllegalMappingException should be thrown.");
+        } catch (IllegalMappingException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test the dispatch of the on-demand conversions from CustomResultSet.
+     * </p>
+     * <p>
+     * Verify: the values are converted, and a value that can not be parsed is still reported.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testCustomResultSetDispatch() throws Exception {
+        testCRS.next();
+        assertEquals("getString is wrong.", "1", testCRS.getString(1));
+        assertEquals("getInt is wrong.", 10, testCRS.getInt(2));
+        testCRS.next();
+        assertEquals("getString is wrong.", "2", testCRS.getString(1));
+        try {
+            testCRS.getInt(2);
+            fail("ClassCastException should be thrown.");
+        } catch (ClassCastException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test the dispatch of the on-demand conversions after the mapper changed.
+     * </p>
+     * <p>
+     * Verify: the removed converter is no longer used.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testDispatchMapperChanged() throws Exception {
+        OnDemandConverter converter = new ImplOnDemandConverter();
+        OnDemandMapper mapper = new OnDemandMapper(new OnDemandConverter[] {converter});
+        testCRS = new CustomResultSet(UnitTestHelper.createResultSet(new String[] {"ID"},
+            new int[] {Types.INTEGER}, new Object[][] {{new Integer(1)}}), null, mapper);
+        testCRS.next();
+        assertEquals("getString is wrong.", "#1", testCRS.getString(1));
+        mapper.removeConverter(converter);
+        try {
+            testCRS.getString(1);
+            fail("ClassCastException should be thrown.");
+        } catch (ClassCastException e) {
+            // expected
+        }
+    }
+
+    /**
+     * A version 1.1 style OnDemandConverter, converting anything to a String prefixed by '#'.
+     */
+    private static class ImplOnDemandConverter implements OnDemandConverter {
+        /**
+         * Returns whether desiredType is String.
+         *
+         * @param value the value
+         * @param column the column
+         * @param metaData the metadata
+         * @param desiredType the desired type
+         * @return whether desiredType is String
+         */
+        public boolean canConvert(Object value, int column, CustomResultSetMetaData metaData, Class desiredType) {
+            return desiredType == String.class;
+        }
+
+        /**
+         * Prefixes the value by '#'.
+         *
+         * @param value the value
+         * @param column the column
+         * @param metaData the metadata
+         * @param desiredType the desired type
+         * @return the prefixed value
+         */
+        public Object convert(Object value, int column, CustomResultSetMetaData metaData, Class desiredType) {
+            return "#" + value;
+        }
+    }
+}
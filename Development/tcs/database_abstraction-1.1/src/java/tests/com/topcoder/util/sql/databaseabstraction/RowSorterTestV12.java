@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for RowSorter.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class RowSorterTestV12 extends TestCase {
+
+    /**
+     * Creates a column of the given type holding the given values.
+     *
+     * @param type the java.sql.Types type of the column
+     * @param values the values of the rows
+     * @return the column
+     */
+    private static ColumnValues createColumn(int type, Object[] values) {
+        ColumnValues column = ColumnValues.createColumnValues(type);
+        for (int i = 0; i < values.length; ++i) {
+            assertTrue("value should be accepted.", column.addValue(values[i]));
+        }
+        return column;
+    }
+
+    /**
+     * <p>
+     * Test a multi-key sort.
+     * </p>
+     * <p>
+     * Verify: the rows are ordered on the first key, then on the second one, and ties keep their order.
+     * </p>
+     */
+    public void testSortMultiKey() {
+        ColumnValues[] columns = {
+            createColumn(java.sql.Types.INTEGER, new Object[] {new Integer(2), new Integer(1), new Integer(2),
+                new Integer(1)}),
+            createColumn(java.sql.Types.VARCHAR, new Object[] {"b", "b", "a", "b"})};
+        int[] order = new RowSorter(columns, new int[] {1, 2}, null, false).sort(4);
+        assertEquals("sort is wrong.", "[1, 3, 2, 0]", toString(order));
+        order = new RowSorter(columns, new int[] {1, 2}, null, true).sort(4);
+        assertEquals("sort is wrong.", "[0, 2, 1, 3]", toString(order));
+    }
+
+    /**
+     * <p>
+     * Test a sort with a Comparator and an invalid column index.
+     * </p>
+     * <p>
+     * Verify: the Comparator is used, and the invalid column is ignored.
+     * </p>
+     */
+    public void testSortComparator() {
+        ColumnValues[] columns = {createColumn(java.sql.Types.VARCHAR, new Object[] {"a", "B", "c"})};
+        Comparator comparator = new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return ((String) o1).compareToIgnoreCase((String) o2);
+            }
+        };
+        int[] order = new RowSorter(columns, new int[] {5, 1}, new Comparator[] {null, comparator}, true)
+            .sort(3);
+        assertEquals("sort is wrong.", "[2, 1, 0]", toString(order));
+    }
+
+    /**
+     * <p>
+     * Test a sort of a large result, done in parallel when several processors are available.
+     * </p>
+     * <p>
+     * Verify: the rows are sorted, and the sort is stable.
+     * </p>
+     */
+    public void testSortLarge() {
+        int rowCount = RowSorter.PARALLEL_THRESHOLD * 2 + 7;
+        Random random = new Random(12);
+        ColumnValues column = ColumnValues.createColumnValues(java.sql.Types.BIGINT);
+        for (int i = 0; i < rowCount; ++i) {
+            column.addValue(new Long(random.nextInt(1000)));
+        }
+        int[] order = new RowSorter(new ColumnValues[] {column}, new int[] {1}, null, false).sort(rowCount);
+        boolean[] seen = new boolean[rowCount];
+        for (int i = 0; i < rowCount; ++i) {
+            assertFalse("row should appear once.", seen[order[i]]);
+            seen[order[i]] = true;
+            if (i > 0) {
+                int result = column.compareValues(order[i - 1], order[i]);
+                assertTrue("rows should be sorted.", result < 0 || (result == 0 && order[i - 1] < order[i]));
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Test a sort of a large result whose values can not be compared.
+     * </p>
+     * <p>
+     * Verify: ClassCastException is thrown.
+     * </p>
+     */
+    public void testSortLargeNotComparable() {
+        int rowCount = RowSorter.PARALLEL_THRESHOLD;
+        ColumnValues column = ColumnValues.createColumnValues(java.sql.Types.OTHER);
+        for (int i = 0; i < rowCount; ++i) {
+            column.addValue(new Object());
+        }
+        try {
+            new RowSorter(new ColumnValues[] {column}, new int[] {1}, null, false).sort(rowCount);
+            fail("ClassCastException should be thrown.");
+        } catch (ClassCastException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Formats the given permutation.
+     *
+     * @param order the permutation
+     * @return the formatted permutation
+     */
+    private static String toString(int[] order) {
+        StringBuffer buffer = new StringBuffer("[");
+        for (int i = 0; i < order.length; ++i) {
+            buffer.append((i == 0) ? "" : ", ").append(order[i]);
+        }
+        return buffer.append("]").toString();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.sql.databaseabstraction;
+
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for StreamingCustomResultSet. The result sets are created in memory through
+ * UnitTestHelper.createResultSet, so no database is needed.
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class StreamingCustomResultSetTestV12 extends TestCase {
+
+    /**
+     * The in-memory result set the rows are streamed from.
+     */
+    private ResultSet rs;
+
+    /**
+     * Instance of StreamingCustomResultSet for unit test.
+     */
+    private StreamingCustomResultSet testCRS;
+
+    /**
+     * Initializes a StreamingCustomResultSet over the result set of CustomResultSetTestV12.
+     *
+     * @throws Exception exception to JUnit.
+     */
+    protected void setUp() throws Exception {
+        rs = CustomResultSetTestV12.createResultSet();
+        testCRS = new DatabaseAbstractor(null, OnDemandMapper.createDefaultOnDemandMapper()).streamResultSet(rs);
+    }
+
+    /**
+     * <p>
+     * Test the constructor with a null result set.
+     * </p>
+     * <p>
+     * Verify: NullPointerException is thrown.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testCtorNullResultSet() throws Exception {
+        try {
+            new StreamingCustomResultSet(null, null, null);
+            fail("NullPointerException should be thrown.");
+        } catch (NullPointerException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test the iteration over all the rows.
+     * </p>
+     * <p>
+     * Verify: the rows are read in order, and the result set is closed at the end.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testNext() throws Exception {
+        assertTrue("cursor should be before first.", testCRS.isBeforeFirst());
+        assertTrue("next should succeed.", testCRS.next());
+        assertTrue("cursor should be on first.", testCRS.isFirst());
+        assertEquals("getInt is wrong.", 3, testCRS.getInt("ID"));
+        assertEquals("getString is wrong.", "c", testCRS.getString(4));
+        assertTrue("next should succeed.", testCRS.next());
+        assertEquals("getRow is wrong.", 2, testCRS.getRow());
+        assertNull("getObject should return null.", testCRS.getObject(2));
+        assertEquals("getString should convert on demand.", "0.1", testCRS.getString(3));
+        assertTrue("next should succeed.", testCRS.next());
+        assertFalse("result set should still be open.", rs.isClosed());
+        assertFalse("next should fail.", testCRS.next());
+        assertTrue("cursor should be after last.", testCRS.isAfterLast());
+        assertTrue("result set should be closed.", rs.isClosed());
+        assertFalse("next should still fail.", testCRS.next());
+        try {
+            testCRS.getInt(1);
+            fail("InvalidCursorStateException should be thrown.");
+        } catch (InvalidCursorStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Test remap(Mapper).
+     * </p>
+     * <p>
+     * Verify: the mapper is applied to the current row and to the rows read afterwards.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testRemap() throws Exception {
+        Map map = new HashMap();
+        map.put("integer", new Converter() {
+            public Object convert(Object value, int column, CustomResultSetMetaData metaData) {
+                return "#" + value;
+            }
+        });
+        testCRS.next();
+        testCRS.remap(new Mapper(map));
+        assertEquals("mapped value is wrong.", "#3", testCRS.getObject(1));
+        testCRS.next();
+        assertEquals("mapped value is wrong.", "#1", testCRS.getObject(1));
+        assertEquals("getInt should use the original value.", 1, testCRS.getInt(1));
+    }
+
+    /**
+     * <p>
+     * Test the forward-only positioning methods.
+     * </p>
+     * <p>
+     * Verify: forward moves skip rows, backward moves are rejected.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testForwardOnly() throws Exception {
+        testCRS.beforeFirst();
+        assertTrue("first should succeed.", testCRS.first());
+        assertTrue("absolute should succeed.", testCRS.absolute(3));
+        assertEquals("getInt is wrong.", 2, testCRS.getInt(1));
+        try {
+            testCRS.previous();
+            fail("UnsupportedOperationException should be thrown.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            testCRS.first();
+            fail("UnsupportedOperationException should be thrown.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            testCRS.sortAscending(1);
+            fail("UnsupportedOperationException should be thrown.");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertFalse("relative should fail past the end.", testCRS.relative(1));
+        assertTrue("result set should be closed.", rs.isClosed());
+    }
+
+    /**
+     * <p>
+     * Test close before the end of the iteration.
+     * </p>
+     * <p>
+     * Verify: the result set is closed, and the cursor is after last.
+     * </p>
+     *
+     * @throws Exception exception to JUnit.
+     */
+    public void testClose() throws Exception {
+        testCRS.next();
+        testCRS.close();
+        assertTrue("result set should be closed.", rs.isClosed());
+        assertTrue("cursor should be after last.", testCRS.isAfterLast());
+        assertFalse("next should fail.", testCRS.next());
+        testCRS.close();
+    }
+}
@@ -6,6 +6,9 @@ package com.topcoder.util.sql.databaseabstraction;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -15,6 +18,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
+import java.sql.Types;
 import java.text.SimpleDateFormat;
 
 import com.topcoder.db.connectionfactory.DBConnectionFactory;
@@ -24,8 +28,8 @@ import com.topcoder.util.config.ConfigManager;
 /**
  * Helper class for unit test. This class preforms some common methods.
  *
- * @author justforplay
- * @version 1.1
+ * @author justforplay, TCSDEVELOPER
+ * @version 1.2
  * @since 1.1
  */
 public class UnitTestHelper {
@@ -293,4 +297,89 @@ public class UnitTestHelper {
         }
     }
 
+    /**
+     * <p>
+     * Creates an in-memory, forward-only ResultSet over the given data, so that the CustomResultSet storage can
+     * be tested without a database. Only the methods used by this component are supported: next, getObject(int),
+     * getMetaData, close and isClosed, plus the column count, label, name, type and type name of the metadata.
+     * </p>
+     *
+     * @param labels the column labels
+     * @param types the java.sql.Types of the columns
+     * @param data the rows, each holding one value per column
+     * @return the in-memory ResultSet
+     * @since 1.2
+     */
+    public static ResultSet createResultSet(final String[] labels, final int[] types, final Object[][] data) {
+        final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+            UnitTestHelper.class.getClassLoader(), new Class[] {ResultSetMetaData.class}, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    String name = method.getName();
+                    if ("getColumnCount".equals(name)) {
+                        return new Integer(labels.length);
+                    }
+                    int column = ((Integer) args[0]).intValue() - 1;
+                    if ("getColumnLabel".equals(name) || "getColumnName".equals(name)) {
+                        return labels[column];
+                    } else if ("getColumnType".equals(name)) {
+                        return new Integer(types[column]);
+                    } else if ("getColumnTypeName".equals(name)) {
+                        return getTypeName(types[column]);
+                    } else if (method.getReturnType() == Integer.TYPE) {
+                        return new Integer(0);
+                    } else if (method.getReturnType() == Boolean.TYPE) {
+                        return Boolean.FALSE;
+                    }
+                    return null;
+                }
+            });
+        return (ResultSet) Proxy.newProxyInstance(UnitTestHelper.class.getClassLoader(),
+            new Class[] {ResultSet.class}, new InvocationHandler() {
+                private int row = -1;
+
+                private boolean closed = false;
+
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    String name = method.getName();
+                    if ("next".equals(name)) {
+                        ++row;
+                        return Boolean.valueOf(row < data.length);
+                    } else if ("getObject".equals(name)) {
+                        return data[row][((Integer) args[0]).intValue() - 1];
+                    } else if ("getMetaData".equals(name)) {
+                        return metaData;
+                    } else if ("close".equals(name)) {
+                        closed = true;
+                        return null;
+                    } else if ("isClosed".equals(name)) {
+                        return Boolean.valueOf(closed);
+                    }
+                    throw new UnsupportedOperationException(name);
+                }
+            });
+    }
+
+    /**
+     * <p>
+     * Gets a database type name for the given java.sql.Types type, as used as key by the Mapper.
+     * </p>
+     *
+     * @param type the java.sql.Types type
+     * @return the type name
+     * @since 1.2
+     */
+    private static String getTypeName(int type) {
+        switch (type) {
+        case Types.INTEGER:
+            return "integer";
+        case Types.BIGINT:
+            return "bigint";
+        case Types.DOUBLE:
+            return "double";
+        case Types.REAL:
+            return "real";
+        default:
+            return "varchar";
+        }
+    }
 }
@@ -78,6 +78,15 @@ public class UnitTests extends TestCase {
         suite.addTest(new TestSuite(CustomResultSetTestV11.class));
         suite.addTest(new TestSuite(DatabaseAbstractorTestV11.class));
         suite.addTest(new TestSuite(Demo.class));
+
+        // ====================Test cases of V1.2
+        suite.addTest(new TestSuite(ColumnValuesTestV12.class));
+        suite.addTest(new TestSuite(CustomResultSetTestV12.class));
+        suite.addTest(new TestSuite(StreamingCustomResultSetTestV12.class));
+        suite.addTest(new TestSuite(OnDemandMapperTestV12.class));
+        suite.addTest(new TestSuite(ColumnHandleTestV12.class));
+        suite.addTest(new TestSuite(RowSorterTestV12.class));
+        suite.addTest(new TestSuite(ColumnRemapperTestV12.class));
         return suite;
     }
 
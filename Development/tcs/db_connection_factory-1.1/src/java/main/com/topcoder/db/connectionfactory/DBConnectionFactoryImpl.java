@@ -50,6 +50,12 @@ import java.util.Map;
  * configuration from config-manager is deprecated.
  * </p>
  * <p>
+ * <b> Main Changes in version 1.2: </b><br>
+ * The registered producers are kept in a copy-on-write map: the methods creating the connections read the
+ * current map without any lock, so a slow producer no longer blocks the threads obtaining connections from the
+ * factory, and the mutator methods publish a modified copy of the map.
+ * </p>
+ * <p>
  * <b>Sample Configuration:</b>
  * </p>
  *
@@ -84,17 +90,17 @@ import java.util.Map;
  * <strong>Thread Safety:</strong> this class is thread-safe. To maintain the thread safety the
  * methods affecting the state of the factory, like {@link #add(String,
  * com.topcoder.db.connectionfactory.producers.ConnectionProducer)}, {@link #clear()}, {@link
- * #remove(String)}, {@link #setDefault(String)} are declared with 'synchronized' access. The thread
- * safety is implemented at instance level rather than at instance field's level since, most likely,
- * the mutator methods will be called at the construction and initialization time. They are not
- * expected to be called intensively during the lifetime of a factory instance. Note that if the
- * users use the iterator returned by listConnectionProducerNames to traverse the names and they
- * still want the thread safety when traversing, they must perform synchronized(this factory) during
- * the whole traverse.
+ * #remove(String)}, {@link #setDefault(String)} are declared with 'synchronized' access, and replace the
+ * volatile map of the producers by an updated copy instead of modifying it. The other methods do not lock the
+ * factory: they read the current map, which is never modified once published, so the connections to different
+ * databases are created concurrently. The mutator methods are not expected to be called intensively during
+ * the lifetime of a factory instance, which makes copying the map on each change cheap. The iterator returned
+ * by listConnectionProducerNames traverses the names registered when it was created, and is not affected by
+ * the later changes; its remove operation removes the producer from the factory.
  * </p>
  *
- * @author isv, qiucx0161, nhzp339, magicpig
- * @version 1.1
+ * @author isv, qiucx0161, nhzp339, magicpig, TCSDEVELOPER
+ * @version 1.2
  * @since 1.0
  */
 public class DBConnectionFactoryImpl implements DBConnectionFactory {
@@ -155,8 +161,12 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * #add(String, com.topcoder.db.connectionfactory.producers.ConnectionProducer)}, {@link
      * #remove(String)}, {@link #clear()}.
      * </p>
+     * <p>
+     * As of version 1.2, the map is never modified once assigned to this field: the mutator methods, which
+     * are synchronized, assign an updated copy instead, so the other methods can read it without locking.
+     * </p>
      */
-    private final Map connectionProducers = new HashMap();
+    private volatile Map connectionProducers = new HashMap();
 
     /**
      * <p>
@@ -177,8 +187,11 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * non-null value the corresponding entry should exist within 'connectionProducers' mapping. If
      * such an entry is removed then this field should be nullified.
      * </p>
+     * <p>
+     * As of version 1.2, this field is volatile, so that it can be read without locking.
+     * </p>
      */
-    private String defaultProducerName = null;
+    private volatile String defaultProducerName = null;
 
     /**
      * <p>
@@ -466,15 +479,30 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * @throws NoDefaultConnectionException
      *             if the default connection producer is not configured within this factory.
      */
-    public synchronized Connection createConnection() throws NoDefaultConnectionException, DBConnectionException {
-        Object producer = connectionProducers.get(defaultProducerName);
+    public Connection createConnection() throws NoDefaultConnectionException, DBConnectionException {
+        return getDefaultProducer().createConnection();
+    }
+
+    /**
+     * <p>
+     * Gets the <code>ConnectionProducer</code> set as default, without locking the factory.
+     * </p>
+     *
+     * @return the default <code>ConnectionProducer</code>
+     * @throws NoDefaultConnectionException
+     *             if the default connection producer is not configured within this factory.
+     * @since 1.2
+     */
+    private ConnectionProducer getDefaultProducer() throws NoDefaultConnectionException {
+        String name = defaultProducerName;
+        Object producer = name == null ? null : connectionProducers.get(name);
 
         if (producer == null) {
             throw new NoDefaultConnectionException(
                 "The default connection producer is not configured to this factory.");
         }
 
-        return ((ConnectionProducer) producer).createConnection();
+        return (ConnectionProducer) producer;
     }
 
     /**
@@ -496,7 +524,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * @throws IllegalArgumentException
      *             if specified argument is <code>null</code> or an empty string.
      */
-    public synchronized Connection createConnection(String name) throws UnknownConnectionException,
+    public Connection createConnection(String name) throws UnknownConnectionException,
         DBConnectionException {
         DBConnectionFactoryHelper.checkNullOrEmpty("name", name);
 
@@ -529,16 +557,9 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      *             if the default connection is not configured within this factory
      * @since 1.1
      */
-    public synchronized Connection createConnection(String username, String password)
+    public Connection createConnection(String username, String password)
         throws NoDefaultConnectionException, DBConnectionException {
-        Object producer = connectionProducers.get(defaultProducerName);
-
-        if (producer == null) {
-            throw new NoDefaultConnectionException(
-                "The default connection producer is not configured within this factory.");
-        }
-
-        return ((ConnectionProducer) producer).createConnection(username, password);
+        return getDefaultProducer().createConnection(username, password);
     }
 
     /**
@@ -565,7 +586,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      *             if a connection with specified name is not configured within this factory.
      * @since 1.1
      */
-    public synchronized Connection createConnection(String name, String username, String password)
+    public Connection createConnection(String name, String username, String password)
         throws UnknownConnectionException, DBConnectionException {
         DBConnectionFactoryHelper.checkNullOrEmpty("name", name);
 
@@ -605,7 +626,9 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
             return false;
         }
 
-        connectionProducers.put(name, producer);
+        Map producers = new HashMap(connectionProducers);
+        producers.put(name, producer);
+        connectionProducers = producers;
 
         return true;
     }
@@ -632,7 +655,15 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
             defaultProducerName = null;
         }
 
-        return (ConnectionProducer) connectionProducers.remove(name);
+        if (!connectionProducers.containsKey(name)) {
+            return null;
+        }
+
+        Map producers = new HashMap(connectionProducers);
+        ConnectionProducer producer = (ConnectionProducer) producers.remove(name);
+        connectionProducers = producers;
+
+        return producer;
     }
 
     /**
@@ -649,7 +680,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * @throws IllegalArgumentException
      *             if specified argument is <code>null</code> or an empty string.
      */
-    public synchronized boolean contains(String name) {
+    public boolean contains(String name) {
         DBConnectionFactoryHelper.checkNullOrEmpty("name", name);
 
         return connectionProducers.containsKey(name);
@@ -665,7 +696,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      *         registered within this factory or <code>null</code> if such a default
      *         <code>ConnectionProducer</code> is not specified.
      */
-    public synchronized String getDefault() {
+    public String getDefault() {
         return defaultProducerName;
     }
 
@@ -708,19 +739,45 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
     /**
      * <p>
      * Gets the iterator over the names of <code>ConnectionProducers</code> registered within this
-     * factory. The returned iterator is a fail-fast iterator.
+     * factory.
      * </p>
      * <p>
-     * Note that if the users use the iterator returned by this method to traverse the names and
-     * they still want the thread safety when traversing, they must perform synchronized(this
-     * factory) during the whole traverse.
+     * As of version 1.2, the iterator traverses the names registered when this method is called, so
+     * it can be used while the factory is modified, without locking the factory. Its <code>remove</code>
+     * operation removes the last returned producer with {@link #remove(String)}, so it also resets the
+     * default producer if it was the removed one.
      * </p>
      *
      * @return an <code>Iterator</code> over the names of <code>ConnectionProducer</code>s
      *         registered within this factory. Will never be <code>null</code>.
      */
-    public synchronized Iterator listConnectionProducerNames() {
-        return connectionProducers.keySet().iterator();
+    public Iterator listConnectionProducerNames() {
+        final Iterator names = connectionProducers.keySet().iterator();
+
+        return new Iterator() {
+            /**
+             * The last returned name, or null if it was removed or no name was returned yet.
+             */
+            private String last = null;
+
+            public boolean hasNext() {
+                return names.hasNext();
+            }
+
+            public Object next() {
+                last = (String) names.next();
+                return last;
+            }
+
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException("The next method has not been called.");
+                }
+
+                DBConnectionFactoryImpl.this.remove(last);
+                last = null;
+            }
+        };
     }
 
     /**
@@ -737,7 +794,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * @throws IllegalArgumentException
      *             if specified argument is <code>null</code> or an empty string.
      */
-    public synchronized ConnectionProducer get(String name) {
+    public ConnectionProducer get(String name) {
         DBConnectionFactoryHelper.checkNullOrEmpty("name", name);
 
         return (ConnectionProducer) connectionProducers.get(name);
@@ -750,7 +807,7 @@ public class DBConnectionFactoryImpl implements DBConnectionFactory {
      * </p>
      */
     public synchronized void clear() {
-        this.connectionProducers.clear();
         this.defaultProducerName = null;
+        this.connectionProducers = new HashMap();
     }
 }
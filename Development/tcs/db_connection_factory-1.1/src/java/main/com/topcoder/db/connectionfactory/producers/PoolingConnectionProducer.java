@@ -0,0 +1,1664 @@
+/*
+ * Copyright (C) 2007 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.db.connectionfactory.producers;
+
+import com.topcoder.configuration.ConfigurationAccessException;
+import com.topcoder.configuration.ConfigurationObject;
+
+import com.topcoder.db.connectionfactory.ConnectionProducer;
+import com.topcoder.db.connectionfactory.DBConnectionException;
+import com.topcoder.db.connectionfactory.DBConnectionFactoryHelper;
+
+import com.topcoder.util.config.Property;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A <code>ConnectionProducer</code> keeping a pool of the connections obtained from another
+ * <code>ConnectionProducer</code>, so that the connections closed by the clients are reused instead of
+ * being opened again for each request.
+ * </p>
+ * <p>
+ * The connections returned by {@link #createConnection()} are proxies of the pooled connections: closing
+ * such a proxy returns the underlying connection to the pool, after rolling back its pending transaction and
+ * restoring its auto-commit mode, and the proxy can no longer be used. So the clients of a
+ * <code>DBConnectionFactoryImpl</code> configured with this producer do not need any change: they keep closing
+ * the connections after each use.
+ * </p>
+ * <p>
+ * The pool holds at most {@link #MAX_SIZE_PROPERTY} connections, idle or borrowed. When all of them are
+ * borrowed, {@link #createConnection()} waits for one to be returned, at most {@link #BORROW_TIMEOUT_PROPERTY}
+ * milliseconds. The connections idle for more than {@link #MAX_IDLE_TIME_PROPERTY} milliseconds are closed,
+ * except the {@link #MIN_SIZE_PROPERTY} most recently used ones. When {@link #VALIDATE_ON_BORROW_PROPERTY} is
+ * enabled, an idle connection is validated before being borrowed, by executing the
+ * {@link #VALIDATION_QUERY_PROPERTY} query if one is configured, or else by checking that it is not closed; the
+ * connections failing the validation are discarded. When {@link #LEAK_TIMEOUT_PROPERTY} is positive, the
+ * connections borrowed for longer than that are considered leaked: they are closed and their slots are given
+ * back to the pool, and the leaked proxies then fail with a <code>SQLException</code> whose stack trace also
+ * records where they were borrowed. The eviction and the leak detection are done when the connections are borrowed and
+ * returned, so the pool does not need a thread of its own.
+ * </p>
+ * <p>
+ * When {@link #STATEMENT_CACHE_SIZE_PROPERTY} is positive, each pooled connection also keeps the prepared
+ * statements closed by the clients, at most that many, so that preparing the same SQL string again on the
+ * connection reuses the statement instead of having the database parse it again: closing a statement returned
+ * by <code>prepareStatement(String)</code> then clears its parameters and keeps it for the next client. The
+ * cached statements are closed with their connection.
+ * </p>
+ * <p>
+ * All the statements created from a proxy are proxies too, whose <code>getConnection()</code> returns the
+ * connection proxy. The statements left open by a client are closed, or given back to the statement cache,
+ * when its connection proxy is closed, so that their cursors do not outlive the borrow.
+ * </p>
+ * <p>
+ * The connections created by {@link #createConnection(String, String)} are authenticated with other
+ * credentials than the pooled ones, so they are obtained from the underlying producer directly and are not
+ * pooled.
+ * </p>
+ * <p>
+ * <b>Sample Configuration:</b>
+ * </p>
+ *
+ * <pre>
+ *   &lt;Property name=&quot;parameters&quot;&gt;
+ *       &lt;!--Optional, JDBCConnectionProducer by default--&gt;
+ *       &lt;Property name=&quot;producer&quot;&gt;
+ *           &lt;Value&gt;com.topcoder.db.connectionfactory.producers.JDBCConnectionProducer&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--required, the parameters of the pooled producer--&gt;
+ *       &lt;Property name=&quot;parameters&quot;&gt;
+ *           &lt;Property name=&quot;jdbc_url&quot;&gt;
+ *               &lt;Value&gt;jdbc:mysql://localhost:3306/tcs&lt;/Value&gt;
+ *           &lt;/Property&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, 0 by default--&gt;
+ *       &lt;Property name=&quot;min_size&quot;&gt;
+ *           &lt;Value&gt;2&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, 10 by default--&gt;
+ *       &lt;Property name=&quot;max_size&quot;&gt;
+ *           &lt;Value&gt;20&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, in milliseconds, 600000 by default, 0 to never evict--&gt;
+ *       &lt;Property name=&quot;max_idle_time&quot;&gt;
+ *           &lt;Value&gt;300000&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, in milliseconds, 30000 by default, 0 to wait forever--&gt;
+ *       &lt;Property name=&quot;borrow_timeout&quot;&gt;
+ *           &lt;Value&gt;5000&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, true by default--&gt;
+ *       &lt;Property name=&quot;validate_on_borrow&quot;&gt;
+ *           &lt;Value&gt;true&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional--&gt;
+ *       &lt;Property name=&quot;validation_query&quot;&gt;
+ *           &lt;Value&gt;SELECT 1&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, in milliseconds, 0 by default to disable the leak detection--&gt;
+ *       &lt;Property name=&quot;leak_timeout&quot;&gt;
+ *           &lt;Value&gt;600000&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *       &lt;!--Optional, 0 by default to disable the statement cache--&gt;
+ *       &lt;Property name=&quot;statement_cache_size&quot;&gt;
+ *           &lt;Value&gt;50&lt;/Value&gt;
+ *       &lt;/Property&gt;
+ *   &lt;/Property&gt;
+ * </pre>
+ *
+ * <p>
+ * Note: The Property and the ConfigurationObject used to initialize this class have the similar formats (see
+ * sample above). But the configuration from ConfigurationObject exists in the "parameters" child of the root
+ * configuration object. The nested "parameters" configure the pooled producer: with a Property, they are given
+ * to its Property constructor; with a ConfigurationObject, the "parameters" child of the root is given to its
+ * ConfigurationObject constructor, so that the nested "parameters" are found where the pooled producer expects
+ * them.
+ * </p>
+ * <p>
+ * <strong>Thread Safety:</strong> This class is thread safe. The configuration is never changed after the
+ * instantiation, and the state of the pool is only accessed while holding its lock. A proxy returned by
+ * {@link #createConnection()} is as thread safe as the underlying connection.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class PoolingConnectionProducer implements ConnectionProducer {
+    /**
+     * <p>
+     * The name of the configuration property providing the fully-qualified name of the pooled
+     * <code>ConnectionProducer</code> class. It is optional, {@link JDBCConnectionProducer} by default.
+     * </p>
+     */
+    public static final String PRODUCER_PROPERTY = "producer";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the parameters of the pooled
+     * <code>ConnectionProducer</code>. It is required.
+     * </p>
+     */
+    public static final String PARAMETERS_PROPERTY = "parameters";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the number of idle connections that are never evicted.
+     * It is optional, 0 by default.
+     * </p>
+     */
+    public static final String MIN_SIZE_PROPERTY = "min_size";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the maximum number of connections of the pool, idle or
+     * borrowed. It is optional, {@link #DEFAULT_MAX_SIZE} by default.
+     * </p>
+     */
+    public static final String MAX_SIZE_PROPERTY = "max_size";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the time in milliseconds after which an idle connection
+     * is evicted, 0 to never evict. It is optional, {@link #DEFAULT_MAX_IDLE_TIME} by default.
+     * </p>
+     */
+    public static final String MAX_IDLE_TIME_PROPERTY = "max_idle_time";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the maximum time in milliseconds to wait for a
+     * connection when all of them are borrowed, 0 to wait forever. It is optional,
+     * {@link #DEFAULT_BORROW_TIMEOUT} by default.
+     * </p>
+     */
+    public static final String BORROW_TIMEOUT_PROPERTY = "borrow_timeout";
+
+    /**
+     * <p>
+     * The name of the configuration property telling whether the idle connections are validated before being
+     * borrowed, "true" or "false". It is optional, true by default.
+     * </p>
+     */
+    public static final String VALIDATE_ON_BORROW_PROPERTY = "validate_on_borrow";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the SQL query executed to validate a connection. It is
+     * optional; without it, a connection is valid if it is not closed.
+     * </p>
+     */
+    public static final String VALIDATION_QUERY_PROPERTY = "validation_query";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the time in milliseconds after which a borrowed
+     * connection is considered leaked, 0 to disable the leak detection. It is optional, 0 by default.
+     * </p>
+     */
+    public static final String LEAK_TIMEOUT_PROPERTY = "leak_timeout";
+
+    /**
+     * <p>
+     * The name of the configuration property providing the maximum number of prepared statements cached by
+     * each pooled connection, 0 to disable the statement cache. It is optional, 0 by default.
+     * </p>
+     */
+    public static final String STATEMENT_CACHE_SIZE_PROPERTY = "statement_cache_size";
+
+    /**
+     * <p>
+     * The default maximum number of connections of the pool.
+     * </p>
+     */
+    public static final int DEFAULT_MAX_SIZE = 10;
+
+    /**
+     * <p>
+     * The default time in milliseconds after which an idle connection is evicted.
+     * </p>
+     */
+    public static final long DEFAULT_MAX_IDLE_TIME = 600000;
+
+    /**
+     * <p>
+     * The default maximum time in milliseconds to wait for a connection.
+     * </p>
+     */
+    public static final long DEFAULT_BORROW_TIMEOUT = 30000;
+
+    /**
+     * <p>
+     * The <code>ConnectionProducer</code> the pooled connections are obtained from. It is initialized within
+     * the constructors, never changed afterwards, and never <code>null</code>.
+     * </p>
+     */
+    private ConnectionProducer producer;
+
+    /**
+     * <p>
+     * The number of idle connections that are never evicted. It is initialized within the constructors, never
+     * changed afterwards, and not negative.
+     * </p>
+     */
+    private int minSize;
+
+    /**
+     * <p>
+     * The maximum number of connections of the pool. It is initialized within the constructors, never changed
+     * afterwards, and not less than minSize and 1.
+     * </p>
+     */
+    private int maxSize;
+
+    /**
+     * <p>
+     * The time in milliseconds after which an idle connection is evicted, 0 to never evict. It is initialized
+     * within the constructors, never changed afterwards, and not negative.
+     * </p>
+     */
+    private long maxIdleTime;
+
+    /**
+     * <p>
+     * The maximum time in milliseconds to wait for a connection, 0 to wait forever. It is initialized within
+     * the constructors, never changed afterwards, and not negative.
+     * </p>
+     */
+    private long borrowTimeout;
+
+    /**
+     * <p>
+     * Whether the idle connections are validated before being borrowed. It is initialized within the
+     * constructors and never changed afterwards.
+     * </p>
+     */
+    private boolean validateOnBorrow;
+
+    /**
+     * <p>
+     * The SQL query executed to validate a connection, <code>null</code> to only check that it is not closed.
+     * It is initialized within the constructors and never changed afterwards.
+     * </p>
+     */
+    private String validationQuery;
+
+    /**
+     * <p>
+     * The time in milliseconds after which a borrowed connection is considered leaked, 0 to disable the leak
+     * detection. It is initialized within the constructors, never changed afterwards, and not negative.
+     * </p>
+     */
+    private long leakTimeout;
+
+    /**
+     * <p>
+     * The maximum number of prepared statements cached by each pooled connection, 0 to disable the statement
+     * cache. It is initialized within the constructors, never changed afterwards, and not negative.
+     * </p>
+     */
+    private int statementCacheSize;
+
+    /**
+     * <p>
+     * The lock guarding the state of the pool, and notified when a slot of the pool becomes available.
+     * </p>
+     */
+    private final Object lock = new Object();
+
+    /**
+     * <p>
+     * The idle connections, the most recently returned first. Items are non-null
+     * <code>PooledConnection</code> instances.
+     * </p>
+     */
+    private final LinkedList idle = new LinkedList();
+
+    /**
+     * <p>
+     * The borrowed connections. Items are non-null <code>PooledConnection</code> instances.
+     * </p>
+     */
+    private final List borrowed = new ArrayList();
+
+    /**
+     * <p>
+     * The number of connections being created or validated, which are neither idle nor borrowed yet but hold
+     * a slot of the pool.
+     * </p>
+     */
+    private int pending = 0;
+
+    /**
+     * <p>
+     * The number of connections reclaimed as leaked since the creation of the pool.
+     * </p>
+     */
+    private int leakCount = 0;
+
+    /**
+     * <p>
+     * Whether the pool has been closed by {@link #close()}.
+     * </p>
+     */
+    private boolean closed = false;
+
+    /**
+     * <p>
+     * Constructs new <code>PoolingConnectionProducer</code> pooling the connections of the given producer, with
+     * the default settings.
+     * </p>
+     *
+     * @param producer
+     *            the producer of the pooled connections. It can't be <code>null</code>.
+     * @throws IllegalArgumentException
+     *             if producer is <code>null</code>
+     */
+    public PoolingConnectionProducer(ConnectionProducer producer) {
+        this(producer, 0, DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_TIME, DEFAULT_BORROW_TIMEOUT, true, null, 0);
+    }
+
+    /**
+     * <p>
+     * Constructs new <code>PoolingConnectionProducer</code> pooling the connections of the given producer, with
+     * the given settings.
+     * </p>
+     *
+     * @param producer
+     *            the producer of the pooled connections. It can't be <code>null</code>.
+     * @param minSize
+     *            the number of idle connections that are never evicted. It can't be negative.
+     * @param maxSize
+     *            the maximum number of connections of the pool. It must be positive and not less than
+     *            minSize.
+     * @param maxIdleTime
+     *            the time in milliseconds after which an idle connection is evicted, 0 to never evict. It can't
+     *            be negative.
+     * @param borrowTimeout
+     *            the maximum time in milliseconds to wait for a connection, 0 to wait forever. It can't be
+     *            negative.
+     * @param validateOnBorrow
+     *            whether the idle connections are validated before being borrowed
+     * @param validationQuery
+     *            the SQL query executed to validate a connection, <code>null</code> to only check that it is
+     *            not closed. It can't be an empty string.
+     * @param leakTimeout
+     *            the time in milliseconds after which a borrowed connection is considered leaked, 0 to disable
+     *            the leak detection. It can't be negative.
+     * @throws IllegalArgumentException
+     *             if any argument is invalid
+     */
+    public PoolingConnectionProducer(ConnectionProducer producer, int minSize, int maxSize, long maxIdleTime,
+        long borrowTimeout, boolean validateOnBorrow, String validationQuery, long leakTimeout) {
+        this(producer, minSize, maxSize, maxIdleTime, borrowTimeout, validateOnBorrow, validationQuery, leakTimeout,
+            0);
+    }
+
+    /**
+     * <p>
+     * Constructs new <code>PoolingConnectionProducer</code> pooling the connections of the given producer, with
+     * the given settings, including the size of the statement cache of each connection.
+     * </p>
+     *
+     * @param producer
+     *            the producer of the pooled connections. It can't be <code>null</code>.
+     * @param minSize
+     *            the number of idle connections that are never evicted. It can't be negative.
+     * @param maxSize
+     *            the maximum number of connections of the pool. It must be positive and not less than
+     *            minSize.
+     * @param maxIdleTime
+     *            the time in milliseconds after which an idle connection is evicted, 0 to never evict. It can't
+     *            be negative.
+     * @param borrowTimeout
+     *            the maximum time in milliseconds to wait for a connection, 0 to wait forever. It can't be
+     *            negative.
+     * @param validateOnBorrow
+     *            whether the idle connections are validated before being borrowed
+     * @param validationQuery
+     *            the SQL query executed to validate a connection, <code>null</code> to only check that it is
+     *            not closed. It can't be an empty string.
+     * @param leakTimeout
+     *            the time in milliseconds after which a borrowed connection is considered leaked, 0 to disable
+     *            the leak detection. It can't be negative.
+     * @param statementCacheSize
+     *            the maximum number of prepared statements cached by each connection, 0 to disable the
+     *            statement cache. It can't be negative.
+     * @throws IllegalArgumentException
+     *             if any argument is invalid
+     */
+    public PoolingConnectionProducer(ConnectionProducer producer, int minSize, int maxSize, long maxIdleTime,
+        long borrowTimeout, boolean validateOnBorrow, String validationQuery, long leakTimeout,
+        int statementCacheSize) {
+        DBConnectionFactoryHelper.checkNull("producer", producer);
+        if (validationQuery != null) {
+            DBConnectionFactoryHelper.checkNullOrEmpty("validationQuery", validationQuery);
+        }
+        initialize(producer, minSize, maxSize, maxIdleTime, borrowTimeout, validateOnBorrow, validationQuery,
+            leakTimeout, statementCacheSize);
+    }
+
+    /**
+     * <p>
+     * Constructs new <code>PoolingConnectionProducer</code> which is initialized using the specified
+     * configuration properties. The pooled producer is created with its Property constructor, being given the
+     * nested {@link #PARAMETERS_PROPERTY} property.
+     * </p>
+     *
+     * @param properties
+     *            a <code>Property</code> providing the configuration properties to be used to initialize the
+     *            <code>PoolingConnectionProducer</code>. It can't be <code>null</code>.
+     * @throws IllegalArgumentException
+     *             if specified argument is <code>null</code>, if it does not contain the nested
+     *             {@link #PARAMETERS_PROPERTY} property, if a setting is invalid, or if the pooled producer can
+     *             not be created
+     * @throws ClassNotFoundException
+     *             if the class of the pooled producer, or its driver class, can not be found
+     * @deprecated This constructor is only used by the deprecated DBConnectionFactoryImpl constructor reading
+     *             the configuration from the Configuration Manager.
+     */
+    public PoolingConnectionProducer(Property properties) throws ClassNotFoundException {
+        DBConnectionFactoryHelper.checkNull("properties", properties);
+
+        Property parameters = properties.getProperty(PARAMETERS_PROPERTY);
+        if (parameters == null) {
+            throw new IllegalArgumentException("The parameters of the pooled producer are absent.");
+        }
+
+        String validation = properties.getValue(VALIDATION_QUERY_PROPERTY);
+        if (validation != null) {
+            DBConnectionFactoryHelper.checkNullOrEmpty(VALIDATION_QUERY_PROPERTY, validation);
+        }
+
+        try {
+            initialize(createProducer(properties.getValue(PRODUCER_PROPERTY), Property.class, parameters),
+                (int) parseLong(MIN_SIZE_PROPERTY, properties.getValue(MIN_SIZE_PROPERTY), 0),
+                (int) parseLong(MAX_SIZE_PROPERTY, properties.getValue(MAX_SIZE_PROPERTY), DEFAULT_MAX_SIZE),
+                parseLong(MAX_IDLE_TIME_PROPERTY, properties.getValue(MAX_IDLE_TIME_PROPERTY),
+                    DEFAULT_MAX_IDLE_TIME),
+                parseLong(BORROW_TIMEOUT_PROPERTY, properties.getValue(BORROW_TIMEOUT_PROPERTY),
+                    DEFAULT_BORROW_TIMEOUT),
+                parseBoolean(VALIDATE_ON_BORROW_PROPERTY, properties.getValue(VALIDATE_ON_BORROW_PROPERTY)),
+                validation,
+                parseLong(LEAK_TIMEOUT_PROPERTY, properties.getValue(LEAK_TIMEOUT_PROPERTY), 0),
+                (int) parseLong(STATEMENT_CACHE_SIZE_PROPERTY, properties.getValue(STATEMENT_CACHE_SIZE_PROPERTY),
+                    0));
+        } catch (ConfigurationAccessException e) {
+            // the Property constructors do not read any ConfigurationObject
+            throw new IllegalArgumentException("Fails to create the pooled producer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * <p>
+     * Constructs a new PoolingConnectionProducer instance based on the configuration specified in a
+     * ConfigurationObject instance. The pooled producer is created with its ConfigurationObject constructor,
+     * being given the "parameters" child of configurationObject, whose own "parameters" child configures it.
+     * </p>
+     *
+     * @param configurationObject
+     *            The object recording the configuration for this producer. It can't be <code>null</code>.
+     * @throws ClassNotFoundException
+     *             if the class of the pooled producer, or its driver class, can not be found
+     * @throws IllegalArgumentException
+     *             If the configurationObject parameter is <code>null</code>, if the provided configuration is
+     *             malformed, or if the pooled producer can not be created
+     * @throws ConfigurationAccessException
+     *             if any error occurs while reading the configuration.
+     */
+    public PoolingConnectionProducer(ConfigurationObject configurationObject) throws ConfigurationAccessException,
+        ClassNotFoundException {
+        ConfigurationObject parameters = DBConnectionFactoryHelper.getChildFromConfigurationObject(
+            "configurationObject", configurationObject, PARAMETERS_PROPERTY);
+
+        // the parameters of the pooled producer must exist
+        DBConnectionFactoryHelper.getChildFromConfigurationObject("parameters", parameters, PARAMETERS_PROPERTY);
+
+        String validation = DBConnectionFactoryHelper.getNullOrStringValueFromConfigurationObject(parameters,
+            VALIDATION_QUERY_PROPERTY);
+        if (validation != null) {
+            DBConnectionFactoryHelper.checkNullOrEmpty(VALIDATION_QUERY_PROPERTY, validation);
+        }
+
+        initialize(createProducer(DBConnectionFactoryHelper.getNullOrStringValueFromConfigurationObject(
+            parameters, PRODUCER_PROPERTY), ConfigurationObject.class, parameters),
+            (int) parseLong(MIN_SIZE_PROPERTY, getValue(parameters, MIN_SIZE_PROPERTY), 0),
+            (int) parseLong(MAX_SIZE_PROPERTY, getValue(parameters, MAX_SIZE_PROPERTY), DEFAULT_MAX_SIZE),
+            parseLong(MAX_IDLE_TIME_PROPERTY, getValue(parameters, MAX_IDLE_TIME_PROPERTY), DEFAULT_MAX_IDLE_TIME),
+            parseLong(BORROW_TIMEOUT_PROPERTY, getValue(parameters, BORROW_TIMEOUT_PROPERTY),
+                DEFAULT_BORROW_TIMEOUT),
+            parseBoolean(VALIDATE_ON_BORROW_PROPERTY, getValue(parameters, VALIDATE_ON_BORROW_PROPERTY)),
+            validation,
+            parseLong(LEAK_TIMEOUT_PROPERTY, getValue(parameters, LEAK_TIMEOUT_PROPERTY), 0),
+            (int) parseLong(STATEMENT_CACHE_SIZE_PROPERTY, getValue(parameters, STATEMENT_CACHE_SIZE_PROPERTY), 0));
+    }
+
+    /**
+     * <p>
+     * Checks and sets the settings of the pool. This is a private method only invoked by the constructors.
+     * </p>
+     *
+     * @param pooledProducer
+     *            the producer of the pooled connections
+     * @param min
+     *            the number of idle connections that are never evicted
+     * @param max
+     *            the maximum number of connections of the pool
+     * @param idleTime
+     *            the time in milliseconds after which an idle connection is evicted
+     * @param timeout
+     *            the maximum time in milliseconds to wait for a connection
+     * @param validate
+     *            whether the idle connections are validated before being borrowed
+     * @param query
+     *            the SQL query executed to validate a connection, may be <code>null</code>
+     * @param leak
+     *            the time in milliseconds after which a borrowed connection is considered leaked
+     * @param statements
+     *            the maximum number of prepared statements cached by each connection
+     * @throws IllegalArgumentException
+     *             if any setting is invalid
+     */
+    private void initialize(ConnectionProducer pooledProducer, int min, int max, long idleTime, long timeout,
+        boolean validate, String query, long leak, int statements) {
+        if (min < 0) {
+            throw new IllegalArgumentException("The minimum size should not be negative.");
+        }
+        if (max < 1 || max < min) {
+            throw new IllegalArgumentException("The maximum size should be positive and not less than the minimum"
+                + " size.");
+        }
+        if (idleTime < 0 || timeout < 0 || leak < 0) {
+            throw new IllegalArgumentException("The timeouts should not be negative.");
+        }
+        if (statements < 0) {
+            throw new IllegalArgumentException("The statement cache size should not be negative.");
+        }
+        this.producer = pooledProducer;
+        this.minSize = min;
+        this.maxSize = max;
+        this.maxIdleTime = idleTime;
+        this.borrowTimeout = timeout;
+        this.validateOnBorrow = validate;
+        this.validationQuery = query;
+        this.leakTimeout = leak;
+        this.statementCacheSize = statements;
+    }
+
+    /**
+     * <p>
+     * Gets a connection from the pool. An idle connection is reused if there is one (after being validated if
+     * {@link #VALIDATE_ON_BORROW_PROPERTY} is enabled), a new connection is created if the pool is not full,
+     * and otherwise this method waits for a connection to be returned. The returned connection is a proxy,
+     * whose <code>close()</code> method returns the connection to the pool.
+     * </p>
+     *
+     * @return a <code>Connection</code> providing the connection to a database; Will not be
+     *         <code>null</code>.
+     * @throws DBConnectionException
+     *             if the pool is closed, if no connection is returned to the pool before the borrow timeout,
+     *             if the waiting thread is interrupted, or if any error occurs while creating a connection.
+     */
+    public Connection createConnection() throws DBConnectionException {
+        long deadline = borrowTimeout == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + borrowTimeout;
+        while (true) {
+            PooledConnection candidate;
+            List discarded = new ArrayList();
+            try {
+                candidate = reserve(deadline, discarded);
+            } finally {
+                closeAll(discarded);
+            }
+
+            if (candidate == null) {
+                try {
+                    candidate = new PooledConnection(producer.createConnection());
+                } catch (DBConnectionException e) {
+                    release(null);
+                    throw e;
+                } catch (RuntimeException e) {
+                    release(null);
+                    throw e;
+                }
+            } else if (validateOnBorrow && !candidate.isValid()) {
+                candidate.closePhysical();
+                release(null);
+                continue;
+            }
+
+            synchronized (lock) {
+                --pending;
+                if (closed) {
+                    lock.notifyAll();
+                } else {
+                    borrowed.add(candidate);
+                    return candidate.borrow(System.currentTimeMillis());
+                }
+            }
+            candidate.closePhysical();
+            throw new DBConnectionException("The connection pool is closed.");
+        }
+    }
+
+    /**
+     * <p>
+     * Reserves a slot of the pool, waiting for one to be available if the pool is full, and takes an idle
+     * connection if there is one. The connections reclaimed as leaked or evicted meanwhile are added to
+     * discarded, to be closed once the lock is released.
+     * </p>
+     *
+     * @param deadline
+     *            the time after which to stop waiting
+     * @param discarded
+     *            the list to add the connections to close to
+     * @return the idle connection taken from the pool, <code>null</code> if a new connection is to be created
+     * @throws DBConnectionException
+     *             if the pool is closed, if no slot is available before the deadline, or if the waiting thread is
+     *             interrupted
+     */
+    private PooledConnection reserve(long deadline, List discarded) throws DBConnectionException {
+        synchronized (lock) {
+            while (true) {
+                if (closed) {
+                    throw new DBConnectionException("The connection pool is closed.");
+                }
+                long now = System.currentTimeMillis();
+                reclaimLeaked(now, discarded);
+                evictIdle(now, discarded);
+                if (!idle.isEmpty()) {
+                    ++pending;
+                    return (PooledConnection) idle.removeFirst();
+                }
+                if (borrowed.size() + pending < maxSize) {
+                    ++pending;
+                    return null;
+                }
+                if (now >= deadline) {
+                    throw new DBConnectionException("No connection was returned to the pool within "
+                        + borrowTimeout + " ms.");
+                }
+                try {
+                    // wake up in time to reclaim the connections which may be leaked meanwhile
+                    lock.wait(Math.min(deadline - now, leakTimeout == 0 ? Long.MAX_VALUE : leakTimeout));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DBConnectionException("Interrupted while waiting for a connection.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Creates a connection authenticated with the specified username and password, from the pooled producer
+     * directly. Such a connection is not pooled, as it is not authenticated like the pooled connections.
+     * </p>
+     *
+     * @param username
+     *            The username with which to connect to the database. Can be any String instance including
+     *            <code>null</code> and empty string.
+     * @param password
+     *            The user's password. Can be any String instance including <code>null</code> and empty string.
+     * @return a Connection providing the connection to a database. Will not be <code>null</code>.
+     * @throws DBConnectionException
+     *             if any error occurs while creating the connection.
+     */
+    public Connection createConnection(String username, String password) throws DBConnectionException {
+        return producer.createConnection(username, password);
+    }
+
+    /**
+     * <p>
+     * Closes the pool: the idle connections are closed, the borrowed ones are closed when they are returned,
+     * and the subsequent calls to {@link #createConnection()} fail.
+     * </p>
+     */
+    public void close() {
+        List discarded;
+        synchronized (lock) {
+            closed = true;
+            discarded = new ArrayList(idle);
+            idle.clear();
+            lock.notifyAll();
+        }
+        closeAll(discarded);
+    }
+
+    /**
+     * <p>
+     * Gets the number of idle connections in the pool.
+     * </p>
+     *
+     * @return the number of idle connections
+     */
+    public int getIdleCount() {
+        synchronized (lock) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of connections borrowed from the pool and not returned yet.
+     * </p>
+     *
+     * @return the number of borrowed connections
+     */
+    public int getBorrowedCount() {
+        synchronized (lock) {
+            return borrowed.size();
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of connections reclaimed as leaked since the creation of the pool.
+     * </p>
+     *
+     * @return the number of leaked connections
+     */
+    public int getLeakCount() {
+        synchronized (lock) {
+            return leakCount;
+        }
+    }
+
+    /**
+     * <p>
+     * Gives back the slot of a connection being created or validated, or returns a borrowed connection to the
+     * pool, and wakes up a waiting thread.
+     * </p>
+     *
+     * @param connection
+     *            the returned connection, <code>null</code> to only give back a pending slot
+     */
+    private void release(PooledConnection connection) {
+        boolean discard = connection != null && !connection.reset();
+        synchronized (lock) {
+            if (connection == null) {
+                --pending;
+            } else if (!borrowed.remove(connection)) {
+                // reclaimed as leaked meanwhile, the connection is already closed
+                return;
+            } else if (!discard && !closed) {
+                connection.markIdle(System.currentTimeMillis());
+                idle.addFirst(connection);
+                connection = null;
+            }
+            lock.notifyAll();
+        }
+        if (connection != null) {
+            connection.closePhysical();
+        }
+    }
+
+    /**
+     * <p>
+     * Removes the connections borrowed for longer than the leak timeout from the pool. The caller must hold
+     * the lock.
+     * </p>
+     *
+     * @param now
+     *            the current time
+     * @param discarded
+     *            the list to add the connections to close to
+     */
+    private void reclaimLeaked(long now, List discarded) {
+        if (leakTimeout == 0) {
+            return;
+        }
+        for (Iterator it = borrowed.iterator(); it.hasNext();) {
+            PooledConnection connection = (PooledConnection) it.next();
+            if (now - connection.getBorrowTime() >= leakTimeout) {
+                it.remove();
+                connection.reclaim(leakTimeout);
+                discarded.add(connection);
+                ++leakCount;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Removes the connections idle for longer than the maximum idle time from the pool, keeping the minSize
+     * most recently used ones. The caller must hold the lock.
+     * </p>
+     *
+     * @param now
+     *            the current time
+     * @param discarded
+     *            the list to add the connections to close to
+     */
+    private void evictIdle(long now, List discarded) {
+        if (maxIdleTime == 0) {
+            return;
+        }
+        while (idle.size() > minSize && now - ((PooledConnection) idle.getLast()).getLastUsed() >= maxIdleTime) {
+            discarded.add(idle.removeLast());
+        }
+    }
+
+    /**
+     * <p>
+     * Closes the given connections, ignoring the errors.
+     * </p>
+     *
+     * @param connections
+     *            the <code>PooledConnection</code> instances to close
+     */
+    private static void closeAll(List connections) {
+        for (Iterator it = connections.iterator(); it.hasNext();) {
+            ((PooledConnection) it.next()).closePhysical();
+        }
+    }
+
+    /**
+     * <p>
+     * Creates the pooled producer through its constructor accepting the given configuration.
+     * </p>
+     *
+     * @param className
+     *            the name of the producer class, <code>null</code> for {@link JDBCConnectionProducer}
+     * @param configurationType
+     *            the type of the configuration, Property or ConfigurationObject
+     * @param configuration
+     *            the configuration of the producer
+     * @return the created producer
+     * @throws ClassNotFoundException
+     *             if the class of the producer, or its driver class, can not be found
+     * @throws ConfigurationAccessException
+     *             if any error occurs while reading the configuration
+     * @throws IllegalArgumentException
+     *             if the producer can not be created
+     */
+    private static ConnectionProducer createProducer(String className, Class configurationType,
+        Object configuration) throws ClassNotFoundException, ConfigurationAccessException {
+        Class producerClass = className == null ? JDBCConnectionProducer.class : Class.forName(className);
+        if (!ConnectionProducer.class.isAssignableFrom(producerClass)
+            || PoolingConnectionProducer.class.isAssignableFrom(producerClass)) {
+            throw new IllegalArgumentException("The class " + producerClass.getName()
+                + " is not a ConnectionProducer which can be pooled.");
+        }
+        try {
+            Constructor constructor = producerClass.getConstructor(new Class[] {configurationType});
+            return (ConnectionProducer) constructor.newInstance(new Object[] {configuration});
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof ClassNotFoundException) {
+                throw (ClassNotFoundException) cause;
+            } else if (cause instanceof ConfigurationAccessException) {
+                throw (ConfigurationAccessException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalArgumentException("Fails to create the pooled producer: " + cause);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("The class " + producerClass.getName()
+                + " has no constructor accepting a " + configurationType.getName() + ".");
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException("Fails to create the pooled producer: " + e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Fails to create the pooled producer: " + e);
+        }
+    }
+
+    /**
+     * <p>
+     * Gets a String setting from the given ConfigurationObject.
+     * </p>
+     *
+     * @param parameters
+     *            the ConfigurationObject to get the setting from
+     * @param key
+     *            the name of the setting
+     * @return the setting, <code>null</code> if absent
+     * @throws ConfigurationAccessException
+     *             if any error occurs while reading the configuration
+     * @throws IllegalArgumentException
+     *             if the value is not a String
+     */
+    private static String getValue(ConfigurationObject parameters, String key) throws ConfigurationAccessException {
+        return DBConnectionFactoryHelper.getNullOrStringValueFromConfigurationObject(parameters, key);
+    }
+
+    /**
+     * <p>
+     * Parses a numeric setting.
+     * </p>
+     *
+     * @param key
+     *            the name of the setting
+     * @param value
+     *            the value of the setting, <code>null</code> if absent
+     * @param defaultValue
+     *            the value to use if the setting is absent
+     * @return the parsed value
+     * @throws IllegalArgumentException
+     *             if the value is not a valid number
+     */
+    private static long parseLong(String key, String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long result = Long.parseLong(value.trim());
+            if (result > Integer.MAX_VALUE && (MIN_SIZE_PROPERTY.equals(key) || MAX_SIZE_PROPERTY.equals(key)
+                || STATEMENT_CACHE_SIZE_PROPERTY.equals(key))) {
+                throw new IllegalArgumentException("The value of property [" + key + "] is too large.");
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The value of property [" + key + "] should be a number.");
+        }
+    }
+
+    /**
+     * <p>
+     * Parses a boolean setting, true if absent.
+     * </p>
+     *
+     * @param key
+     *            the name of the setting
+     * @param value
+     *            the value of the setting, <code>null</code> if absent
+     * @return the parsed value
+     * @throws IllegalArgumentException
+     *             if the value is neither "true" nor "false"
+     */
+    private static boolean parseBoolean(String key, String value) {
+        if (value == null || "true".equalsIgnoreCase(value.trim())) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        throw new IllegalArgumentException("The value of property [" + key + "] should be true or false.");
+    }
+
+    /**
+     * <p>
+     * A connection of the pool. It holds the physical connection obtained from the pooled producer, and creates
+     * a new proxy each time it is borrowed, so that a proxy closed by a client can not be used to reach the
+     * connection once it has been borrowed again.
+     * </p>
+     * <p>
+     * <strong>Thread Safety:</strong> The state of this class is only accessed while holding the lock of the
+     * pool, except the physical connection, which is only used by the thread owning the connection, and the
+     * cached statements, which are accessed while holding the lock of their map.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private class PooledConnection {
+        /**
+         * The physical connection.
+         */
+        private final Connection physical;
+
+        /**
+         * The auto-commit mode of the physical connection when it was created, restored when it is returned.
+         */
+        private final boolean autoCommit;
+
+        /**
+         * The handler of the current proxy, <code>null</code> if the connection is not borrowed.
+         */
+        private ConnectionHandler handler = null;
+
+        /**
+         * The time the connection was last borrowed.
+         */
+        private long borrowTime;
+
+        /**
+         * The time the connection was last returned.
+         */
+        private long lastUsed;
+
+        /**
+         * The cached prepared statements which are not in use. The keys are the SQL strings, and the values are
+         * the physical <code>PreparedStatement</code> instances. It is also the lock of <code>statementOrder</code>.
+         */
+        private final Map statements = new HashMap();
+
+        /**
+         * The SQL strings of the cached statements, the least recently used first.
+         */
+        private final LinkedList statementOrder = new LinkedList();
+
+        /**
+         * Creates a PooledConnection.
+         *
+         * @param physical
+         *            the physical connection
+         * @throws DBConnectionException
+         *             if the auto-commit mode of the connection can not be read
+         */
+        PooledConnection(Connection physical) throws DBConnectionException {
+            this.physical = physical;
+            try {
+                this.autoCommit = physical.getAutoCommit();
+            } catch (SQLException e) {
+                closePhysical();
+                throw new DBConnectionException("error occurs while creating the connection.", e);
+            }
+        }
+
+        /**
+         * Borrows the connection, creating a new proxy for it. The caller must hold the lock.
+         *
+         * @param now
+         *            the current time
+         * @return the new proxy
+         */
+        Connection borrow(long now) {
+            borrowTime = now;
+            handler = new ConnectionHandler(this, leakTimeout == 0 ? null : new Throwable(
+                "The leaked connection was borrowed here."));
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class[] {Connection.class}, handler);
+        }
+
+        /**
+         * Makes the current proxy unusable after the connection has been reclaimed as leaked. The caller must
+         * hold the lock.
+         *
+         * @param timeout
+         *            the leak timeout
+         */
+        void reclaim(long timeout) {
+            handler.reclaim(timeout);
+            handler = null;
+        }
+
+        /**
+         * Gets the time the connection was last borrowed.
+         *
+         * @return the time the connection was last borrowed
+         */
+        long getBorrowTime() {
+            return borrowTime;
+        }
+
+        /**
+         * Gets the time the connection was last returned.
+         *
+         * @return the time the connection was last returned
+         */
+        long getLastUsed() {
+            return lastUsed;
+        }
+
+        /**
+         * Marks the connection as returned to the pool. The caller must hold the lock.
+         *
+         * @param now
+         *            the current time
+         */
+        void markIdle(long now) {
+            lastUsed = now;
+            handler = null;
+        }
+
+        /**
+         * Gets the physical connection.
+         *
+         * @return the physical connection
+         */
+        Connection getPhysical() {
+            return physical;
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        void giveBack() {
+            release(this);
+        }
+
+        /**
+         * Validates the connection.
+         *
+         * @return whether the connection is valid
+         */
+        boolean isValid() {
+            try {
+                if (validationQuery == null) {
+                    return !physical.isClosed();
+                }
+                Statement statement = physical.createStatement();
+                try {
+                    statement.execute(validationQuery);
+                } finally {
+                    statement.close();
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Rolls back the pending transaction of the connection and restores its auto-commit mode, before it is
+         * returned to the pool.
+         *
+         * @return whether the connection can be reused
+         */
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                }
+                if (physical.getAutoCommit() != autoCommit) {
+                    physical.setAutoCommit(autoCommit);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Tells whether the prepared statements of the connection are cached.
+         *
+         * @return whether the statements are cached
+         */
+        boolean cachesStatements() {
+            return statementCacheSize > 0;
+        }
+
+        /**
+         * Takes the cached statement prepared for the given SQL string, or prepares a new one if none is
+         * cached.
+         *
+         * @param sql
+         *            the SQL string
+         * @return the physical statement
+         * @throws SQLException
+         *             if the statement can not be prepared
+         */
+        PreparedStatement takeStatement(String sql) throws SQLException {
+            PreparedStatement statement;
+            synchronized (statements) {
+                statement = (PreparedStatement) statements.remove(sql);
+                if (statement != null) {
+                    statementOrder.remove(sql);
+                }
+            }
+            return statement == null ? physical.prepareStatement(sql) : statement;
+        }
+
+        /**
+         * Caches a statement which is no longer in use, after closing its current result set and clearing its
+         * parameters, so that the result set of the previous user is not silently reused. The least recently
+         * used statement is closed if the cache is full, and the statement itself is closed if another one is
+         * already cached for the same SQL string.
+         *
+         * @param sql
+         *            the SQL string of the statement
+         * @param statement
+         *            the physical statement
+         */
+        void cacheStatement(String sql, PreparedStatement statement) {
+            PreparedStatement discarded = statement;
+            try {
+                ResultSet resultSet = statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                statement.clearWarnings();
+                synchronized (statements) {
+                    if (!statements.containsKey(sql)) {
+                        statements.put(sql, statement);
+                        statementOrder.addLast(sql);
+                        discarded = null;
+                        if (statements.size() > statementCacheSize) {
+                            discarded = (PreparedStatement) statements.remove(statementOrder.removeFirst());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                // the statement can not be reused
+            } catch (RuntimeException e) {
+                // the statement can not be reused
+            }
+            if (discarded != null) {
+                closeStatement(discarded);
+            }
+        }
+
+        /**
+         * Closes the physical connection and its cached statements, ignoring the errors.
+         */
+        void closePhysical() {
+            List cached;
+            synchronized (statements) {
+                cached = new ArrayList(statements.values());
+                statements.clear();
+                statementOrder.clear();
+            }
+            for (Iterator it = cached.iterator(); it.hasNext();) {
+                closeStatement((PreparedStatement) it.next());
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // ignore
+            } catch (RuntimeException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Closes a statement, ignoring the errors.
+     * </p>
+     *
+     * @param statement
+     *            the statement to close
+     */
+    private static void closeStatement(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // ignore
+        } catch (RuntimeException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * <p>
+     * The handler of a proxy returned by {@link PoolingConnectionProducer#createConnection()}. It forwards the
+     * calls to the physical connection until the proxy is closed, and then rejects them; closing the proxy
+     * returns the connection to the pool. The statements are created as proxies, and the ones left open are
+     * closed with the proxy. When the statements are cached, <code>prepareStatement(String)</code> returns a proxy
+     * of a cached statement.
+     * </p>
+     * <p>
+     * <strong>Thread Safety:</strong> This class is thread safe.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+        /**
+         * The pooled connection of the proxy.
+         */
+        private final PooledConnection connection;
+
+        /**
+         * Where the connection was borrowed, <code>null</code> if the leak detection is disabled.
+         */
+        private final Throwable borrowTrace;
+
+        /**
+         * Whether the proxy is closed.
+         */
+        private boolean closed = false;
+
+        /**
+         * The leak timeout if the connection has been reclaimed as leaked, 0 otherwise.
+         */
+        private long reclaimedAfter = 0;
+
+        /**
+         * The handlers of the statement proxies which are not closed yet.
+         */
+        private final List openStatements = new ArrayList();
+
+        /**
+         * Creates a ConnectionHandler.
+         *
+         * @param connection
+         *            the pooled connection of the proxy
+         * @param borrowTrace
+         *            where the connection was borrowed, may be <code>null</code>
+         */
+        ConnectionHandler(PooledConnection connection, Throwable borrowTrace) {
+            this.connection = connection;
+            this.borrowTrace = borrowTrace;
+        }
+
+        /**
+         * Closes the proxy after its connection has been reclaimed as leaked.
+         *
+         * @param timeout
+         *            the leak timeout
+         */
+        synchronized void reclaim(long timeout) {
+            closed = true;
+            reclaimedAfter = timeout;
+        }
+
+        /**
+         * Handles a call to the proxy.
+         *
+         * @param proxy
+         *            the proxy
+         * @param method
+         *            the called method
+         * @param args
+         *            the arguments of the call
+         * @return the result of the call
+         * @throws Throwable
+         *             the exception thrown by the call
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) && method.getParameterTypes().length == 1) {
+                return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+            } else if ("hashCode".equals(name) && method.getParameterTypes().length == 0) {
+                return new Integer(System.identityHashCode(proxy));
+            } else if ("toString".equals(name) && method.getParameterTypes().length == 0) {
+                return "Pooled " + connection.getPhysical();
+            }
+            synchronized (this) {
+                if ("isClosed".equals(name) && method.getParameterTypes().length == 0) {
+                    return closed ? Boolean.TRUE : Boolean.FALSE;
+                } else if ("close".equals(name) && method.getParameterTypes().length == 0) {
+                    if (closed) {
+                        return null;
+                    }
+                    closed = true;
+                } else if (closed) {
+                    if (reclaimedAfter == 0) {
+                        throw new SQLException("The connection is closed.");
+                    }
+                    throw new ReclaimedConnectionException("The connection was reclaimed by the pool after being "
+                        + "borrowed for " + reclaimedAfter + " ms.", borrowTrace);
+                }
+            }
+            if ("close".equals(name)) {
+                List statements;
+                synchronized (this) {
+                    statements = new ArrayList(openStatements);
+                    openStatements.clear();
+                }
+                for (Iterator it = statements.iterator(); it.hasNext();) {
+                    ((StatementHandler) it.next()).close();
+                }
+                connection.giveBack();
+                return null;
+            }
+            try {
+                if ("prepareStatement".equals(name) && method.getParameterTypes().length == 1
+                    && connection.cachesStatements()) {
+                    String sql = (String) args[0];
+                    return openStatement(proxy, method, connection.takeStatement(sql), sql);
+                } else if ("createStatement".equals(name) || "prepareStatement".equals(name)
+                    || "prepareCall".equals(name)) {
+                    return openStatement(proxy, method, (Statement) method.invoke(connection.getPhysical(), args),
+                        null);
+                }
+                return method.invoke(connection.getPhysical(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        /**
+         * Creates a proxy of a physical statement, tracked until it is closed.
+         *
+         * @param proxy
+         *            the connection proxy
+         * @param method
+         *            the method which created the statement, whose return type is the interface of the proxy
+         * @param statement
+         *            the physical statement
+         * @param sql
+         *            the SQL string the statement is cached for, <code>null</code> if it is not cached
+         * @return the statement proxy
+         */
+        private Object openStatement(Object proxy, Method method, Statement statement, String sql) {
+            StatementHandler handler = new StatementHandler(this, proxy, statement, sql);
+            synchronized (this) {
+                openStatements.add(handler);
+            }
+            return Proxy.newProxyInstance(method.getReturnType().getClassLoader(),
+                new Class[] {method.getReturnType()}, handler);
+        }
+
+        /**
+         * Gets the pooled connection of the proxy.
+         *
+         * @return the pooled connection
+         */
+        PooledConnection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Forgets a statement proxy which has been closed.
+         *
+         * @param handler
+         *            the handler of the closed proxy
+         */
+        synchronized void statementClosed(StatementHandler handler) {
+            openStatements.remove(handler);
+        }
+    }
+
+    /**
+     * <p>
+     * The handler of a statement proxy created from a connection proxy. It forwards the calls to the physical
+     * statement until the proxy is closed, and then rejects them; closing the proxy gives the statement back to
+     * the cache of its connection if it was prepared for the cache, and closes it otherwise.
+     * </p>
+     * <p>
+     * <strong>Thread Safety:</strong> This class is thread safe.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    private static class StatementHandler implements InvocationHandler {
+        /**
+         * The handler of the connection proxy the statement was prepared from.
+         */
+        private final ConnectionHandler connectionHandler;
+
+        /**
+         * The connection proxy the statement was prepared from, returned by <code>getConnection()</code>.
+         */
+        private final Object connectionProxy;
+
+        /**
+         * The SQL string the statement is cached for, <code>null</code> if it is not cached.
+         */
+        private final String sql;
+
+        /**
+         * The physical statement, <code>null</code> once the proxy is closed.
+         */
+        private Statement statement;
+
+        /**
+         * Creates a StatementHandler.
+         *
+         * @param connectionHandler
+         *            the handler of the connection proxy
+         * @param connectionProxy
+         *            the connection proxy
+         * @param statement
+         *            the physical statement
+         * @param sql
+         *            the SQL string the statement is cached for, <code>null</code> if it is not cached
+         */
+        StatementHandler(ConnectionHandler connectionHandler, Object connectionProxy, Statement statement,
+            String sql) {
+            this.connectionHandler = connectionHandler;
+            this.connectionProxy = connectionProxy;
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        /**
+         * Closes the proxy, giving the statement back to the cache of its connection, or closing it if it is
+         * not cached.
+         */
+        void close() {
+            Statement physical;
+            synchronized (this) {
+                physical = statement;
+                statement = null;
+            }
+            if (physical == null) {
+                return;
+            }
+            if (sql != null) {
+                connectionHandler.getConnection().cacheStatement(sql, (PreparedStatement) physical);
+            } else {
+                closeStatement(physical);
+            }
+        }
+
+        /**
+         * Handles a call to the proxy.
+         *
+         * @param proxy
+         *            the proxy
+         * @param method
+         *            the called method
+         * @param args
+         *            the arguments of the call
+         * @return the result of the call
+         * @throws Throwable
+         *             the exception thrown by the call
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            int arity = method.getParameterTypes().length;
+            if ("equals".equals(name) && arity == 1) {
+                return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+            } else if ("hashCode".equals(name) && arity == 0) {
+                return new Integer(System.identityHashCode(proxy));
+            } else if ("toString".equals(name) && arity == 0) {
+                return sql == null ? "Pooled statement" : "Cached statement " + sql;
+            } else if ("close".equals(name) && arity == 0) {
+                connectionHandler.statementClosed(this);
+                close();
+                return null;
+            }
+            Statement physical;
+            synchronized (this) {
+                physical = statement;
+            }
+            if ("isClosed".equals(name) && arity == 0) {
+                return physical == null ? Boolean.TRUE : Boolean.FALSE;
+            } else if (physical == null) {
+                throw new SQLException("The statement is closed.");
+            } else if ("getConnection".equals(name) && arity == 0) {
+                return connectionProxy;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * The exception thrown by the proxy of a connection reclaimed as leaked. It keeps where the connection was
+     * borrowed, and prints it with its own stack trace, since the exception causes are not available on JDK 1.3.
+     * </p>
+     *
+     * @author TCSDEVELOPER
+     * @version 1.2
+     * @since 1.2
+     */
+    static class ReclaimedConnectionException extends SQLException {
+        /**
+         * Where the connection was borrowed, may be <code>null</code>.
+         */
+        private final Throwable borrowTrace;
+
+        /**
+         * Creates a ReclaimedConnectionException.
+         *
+         * @param message
+         *            the message
+         * @param borrowTrace
+         *            where the connection was borrowed, may be <code>null</code>
+         */
+        ReclaimedConnectionException(String message, Throwable borrowTrace) {
+            super(message);
+            this.borrowTrace = borrowTrace;
+        }
+
+        /**
+         * Gets where the connection was borrowed.
+         *
+         * @return where the connection was borrowed, may be <code>null</code>
+         */
+        Throwable getBorrowTrace() {
+            return borrowTrace;
+        }
+
+        /**
+         * Prints the stack trace, followed by where the connection was borrowed.
+         *
+         * @param stream
+         *            the stream to print to
+         */
+        public void printStackTrace(PrintStream stream) {
+            super.printStackTrace(stream);
+            if (borrowTrace != null) {
+                borrowTrace.printStackTrace(stream);
+            }
+        }
+
+        /**
+         * Prints the stack trace, followed by where the connection was borrowed.
+         *
+         * @param writer
+         *            the writer to print to
+         */
+        public void printStackTrace(PrintWriter writer) {
+            super.printStackTrace(writer);
+            if (borrowTrace != null) {
+                borrowTrace.printStackTrace(writer);
+            }
+        }
+    }
+}
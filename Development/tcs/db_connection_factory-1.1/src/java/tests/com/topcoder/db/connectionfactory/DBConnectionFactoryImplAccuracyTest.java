@@ -259,6 +259,35 @@ public class DBConnectionFactoryImplAccuracyTest extends TestCase {
         assertEquals("The count of names should match.", size + 1, list.size());
     }
 
+    /**
+     * Test the remove operation of the iterator returned by listConnectionProducerNames method. It
+     * should remove the producer from the factory, and not affect the traversal.
+     */
+    public void testListConnectionProducerNamesRemove() {
+        impl.add("newName", producer);
+
+        int count = 0;
+
+        for (Iterator it = impl.listConnectionProducerNames(); it.hasNext();) {
+            ++count;
+
+            if ("newName".equals(it.next())) {
+                it.remove();
+            }
+        }
+
+        assertFalse("The producer should be removed.", impl.contains("newName"));
+        assertTrue("The other producers should be kept.", impl.contains("MySqlJDBCConnection"));
+        assertTrue("All the names should be traversed.", count >= 2);
+
+        try {
+            impl.listConnectionProducerNames().remove();
+            fail("IllegalStateException should be thrown.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
     /**
      * Test get method. First, it should return null for none producer match with the given name.
      * Second, it should return ConnectionProducer instance matching with the default name. Next,
@@ -9,6 +9,8 @@ import com.topcoder.db.connectionfactory.producers.JDBCConnectionProducerAccurac
 import com.topcoder.db.connectionfactory.producers.JDBCConnectionProducerFailureTest;
 import com.topcoder.db.connectionfactory.producers.JNDIConnectionProducerAccuracyTest;
 import com.topcoder.db.connectionfactory.producers.JNDIConnectionProducerFailureTest;
+import com.topcoder.db.connectionfactory.producers.PoolingConnectionProducerAccuracyTest;
+import com.topcoder.db.connectionfactory.producers.PoolingConnectionProducerFailureTest;
 import com.topcoder.db.connectionfactory.producers.ReflectingConnectionProducerAccuracyTest;
 import com.topcoder.db.connectionfactory.producers.ReflectingConnectionProducerFailureTest;
 
@@ -53,6 +55,9 @@ public class UnitTests extends TestCase {
         suite.addTestSuite(DataSourceConnectionProducerFailureTest.class);
         suite.addTestSuite(DataSourceConnectionProducerAccuracyTest.class);
 
+        suite.addTestSuite(PoolingConnectionProducerAccuracyTest.class);
+        suite.addTestSuite(PoolingConnectionProducerFailureTest.class);
+
         // adds tests for DBConnectionFactoryImpl
         suite.addTestSuite(DBConnectionFactoryImplFailureTest.class);
         suite.addTestSuite(DBConnectionFactoryImplAccuracyTest.class);
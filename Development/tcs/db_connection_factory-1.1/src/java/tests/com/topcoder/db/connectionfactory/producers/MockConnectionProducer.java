@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2007 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.db.connectionfactory.producers;
+
+import com.topcoder.configuration.ConfigurationObject;
+
+import com.topcoder.db.connectionfactory.ConnectionProducer;
+import com.topcoder.db.connectionfactory.DBConnectionException;
+
+import com.topcoder.util.config.Property;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A ConnectionProducer creating in-memory connections, used to test PoolingConnectionProducer without a
+ * database. The created connections record whether they are closed, their auto-commit mode, the number of
+ * rollbacks and the numbers of prepared and closed statements and result sets, and their statements fail once the
+ * connection is marked as broken.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class MockConnectionProducer implements ConnectionProducer {
+    /**
+     * The states of the created connections, in creation order.
+     */
+    private final List states = new ArrayList();
+
+    /**
+     * Creates a MockConnectionProducer.
+     */
+    public MockConnectionProducer() {
+        // do nothing
+    }
+
+    /**
+     * Creates a MockConnectionProducer from a configuration, which is ignored.
+     *
+     * @param configurationObject the configuration
+     */
+    public MockConnectionProducer(ConfigurationObject configurationObject) {
+        // do nothing
+    }
+
+    /**
+     * Creates a MockConnectionProducer from a configuration, which is ignored.
+     *
+     * @param properties the configuration
+     */
+    public MockConnectionProducer(Property properties) {
+        // do nothing
+    }
+
+    /**
+     * Creates a new in-memory connection.
+     *
+     * @return the connection
+     */
+    public Connection createConnection() {
+        ConnectionState state = new ConnectionState();
+        synchronized (states) {
+            states.add(state);
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Connection.class},
+            state);
+    }
+
+    /**
+     * Creates a new in-memory connection, ignoring the credentials.
+     *
+     * @param username the username
+     * @param password the password
+     * @return the connection
+     * @throws DBConnectionException never
+     */
+    public Connection createConnection(String username, String password) throws DBConnectionException {
+        return createConnection();
+    }
+
+    /**
+     * Gets the number of created connections.
+     *
+     * @return the number of created connections
+     */
+    public int getCreatedCount() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    /**
+     * Gets the state of a created connection.
+     *
+     * @param index the index of the connection, in creation order
+     * @return the state of the connection
+     */
+    public ConnectionState getState(int index) {
+        synchronized (states) {
+            return (ConnectionState) states.get(index);
+        }
+    }
+
+    /**
+     * The state of an in-memory connection, and the handler of its proxy.
+     */
+    public static class ConnectionState implements InvocationHandler {
+        /**
+         * Whether the connection is closed.
+         */
+        private boolean closed = false;
+
+        /**
+         * Whether the connection is broken, its statements failing.
+         */
+        private boolean broken = false;
+
+        /**
+         * The auto-commit mode.
+         */
+        private boolean autoCommit = true;
+
+        /**
+         * The number of rollbacks.
+         */
+        private int rollbackCount = 0;
+
+        /**
+         * The number of prepared statements.
+         */
+        private int prepareCount = 0;
+
+        /**
+         * The number of closed statements.
+         */
+        private int statementCloseCount = 0;
+
+        /**
+         * The number of closed result sets.
+         */
+        private int resultSetCloseCount = 0;
+
+        /**
+         * Gets whether the connection is closed.
+         *
+         * @return whether the connection is closed
+         */
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Closes the connection.
+         */
+        public synchronized void close() {
+            closed = true;
+        }
+
+        /**
+         * Marks the connection as broken.
+         */
+        public synchronized void breakConnection() {
+            broken = true;
+        }
+
+        /**
+         * Gets the auto-commit mode.
+         *
+         * @return the auto-commit mode
+         */
+        public synchronized boolean getAutoCommit() {
+            return autoCommit;
+        }
+
+        /**
+         * Gets the number of rollbacks.
+         *
+         * @return the number of rollbacks
+         */
+        public synchronized int getRollbackCount() {
+            return rollbackCount;
+        }
+
+        /**
+         * Gets the number of prepared statements.
+         *
+         * @return the number of prepared statements
+         */
+        public synchronized int getPrepareCount() {
+            return prepareCount;
+        }
+
+        /**
+         * Gets the number of closed statements.
+         *
+         * @return the number of closed statements
+         */
+        public synchronized int getStatementCloseCount() {
+            return statementCloseCount;
+        }
+
+        /**
+         * Gets the number of closed result sets.
+         *
+         * @return the number of closed result sets
+         */
+        public synchronized int getResultSetCloseCount() {
+            return resultSetCloseCount;
+        }
+
+        /**
+         * Handles a call to the connection or to one of its statements.
+         *
+         * @param proxy the proxy
+         * @param method the called method
+         * @param args the arguments
+         * @return the result
+         * @throws SQLException if the connection is closed or broken
+         */
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return proxy == args[0] ? Boolean.TRUE : Boolean.FALSE;
+                }
+                return "hashCode".equals(name) ? (Object) new Integer(System.identityHashCode(proxy)) : "mock";
+            }
+            if ("isClosed".equals(name)) {
+                return closed ? Boolean.TRUE : Boolean.FALSE;
+            } else if ("close".equals(name)) {
+                if (method.getDeclaringClass() == Connection.class) {
+                    closed = true;
+                } else if (method.getDeclaringClass() == ResultSet.class) {
+                    ++resultSetCloseCount;
+                } else {
+                    ++statementCloseCount;
+                }
+                return null;
+            } else if (closed) {
+                throw new SQLException("closed");
+            } else if ("getAutoCommit".equals(name)) {
+                return autoCommit ? Boolean.TRUE : Boolean.FALSE;
+            } else if ("setAutoCommit".equals(name)) {
+                autoCommit = ((Boolean) args[0]).booleanValue();
+            } else if ("rollback".equals(name)) {
+                ++rollbackCount;
+            } else if ("prepareStatement".equals(name)) {
+                ++prepareCount;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {PreparedStatement.class},
+                    this);
+            } else if ("createStatement".equals(name)) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Statement.class}, this);
+            } else if ("executeQuery".equals(name) || "getResultSet".equals(name)) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {ResultSet.class}, this);
+            } else if ("execute".equals(name)) {
+                if (broken) {
+                    throw new SQLException("broken");
+                }
+                return Boolean.TRUE;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2007 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.db.connectionfactory.producers;
+
+import com.topcoder.configuration.ConfigurationObject;
+import com.topcoder.configuration.defaults.DefaultConfigurationObject;
+
+import com.topcoder.db.connectionfactory.DBConnectionFactoryImpl;
+
+import junit.framework.TestCase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * <p>
+ * Accuracy test of PoolingConnectionProducer class. The pooled connections are created by a
+ * MockConnectionProducer, so no database is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class PoolingConnectionProducerAccuracyTest extends TestCase {
+    /**
+     * The producer of the pooled connections.
+     */
+    private MockConnectionProducer mock;
+
+    /**
+     * SetUp the test environment.
+     */
+    protected void setUp() {
+        mock = new MockConnectionProducer();
+    }
+
+    /**
+     * <p>
+     * Tests that a closed connection is reused.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testReuse() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock);
+        Connection connection = producer.createConnection();
+        assertEquals("the connection should be borrowed.", 1, producer.getBorrowedCount());
+        connection.close();
+        assertTrue("the proxy should be closed.", connection.isClosed());
+        assertFalse("the connection should stay open.", mock.getState(0).isClosed());
+        assertEquals("the connection should be idle.", 1, producer.getIdleCount());
+
+        Connection other = producer.createConnection();
+        assertEquals("the connection should be reused.", 1, mock.getCreatedCount());
+        assertNotSame("a new proxy should be returned.", connection, other);
+        try {
+            connection.createStatement();
+            fail("SQLException should be thrown.");
+        } catch (SQLException e) {
+            // expected
+        }
+        other.close();
+        other.close();
+        assertEquals("the connection should be idle once.", 1, producer.getIdleCount());
+    }
+
+    /**
+     * <p>
+     * Tests that the pending transaction is rolled back and the auto-commit mode restored when a connection is
+     * returned.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testReset() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock);
+        Connection connection = producer.createConnection();
+        connection.setAutoCommit(false);
+        connection.close();
+        assertEquals("the transaction should be rolled back.", 1, mock.getState(0).getRollbackCount());
+        assertTrue("the auto-commit mode should be restored.", mock.getState(0).getAutoCommit());
+    }
+
+    /**
+     * <p>
+     * Tests that a borrow waits for a connection to be returned when the pool is full.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testWaitForReturn() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 5000, true, null, 0);
+        final Connection connection = producer.createConnection();
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    connection.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        };
+        thread.start();
+        producer.createConnection().close();
+        thread.join();
+        assertEquals("the connection should be reused.", 1, mock.getCreatedCount());
+    }
+
+    /**
+     * <p>
+     * Tests that the idle connections failing the validation are discarded.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testValidation() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 2, 0, 0, true, "SELECT 1",
+            0);
+        producer.createConnection().close();
+        mock.getState(0).breakConnection();
+        producer.createConnection();
+        assertEquals("a new connection should be created.", 2, mock.getCreatedCount());
+        assertTrue("the broken connection should be closed.", mock.getState(0).isClosed());
+    }
+
+    /**
+     * <p>
+     * Tests that the connections idle for too long are evicted, except the minimum number of connections.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testIdleEviction() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 1, 3, 10, 0, false, null, 0);
+        Connection first = producer.createConnection();
+        Connection second = producer.createConnection();
+        second.close();
+        first.close();
+        Thread.sleep(30);
+        producer.createConnection();
+        assertEquals("no connection should be created.", 2, mock.getCreatedCount());
+        assertFalse("the most recently used connection should be kept.", mock.getState(0).isClosed());
+        assertTrue("the oldest connection should be evicted.", mock.getState(1).isClosed());
+        assertEquals("no connection should be idle.", 0, producer.getIdleCount());
+    }
+
+    /**
+     * <p>
+     * Tests that the connections borrowed for too long are reclaimed.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testLeakDetection() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 5000, true, null, 20);
+        Connection leaked = producer.createConnection();
+        Connection connection = producer.createConnection();
+        assertEquals("the leaked connection should be reclaimed.", 1, producer.getLeakCount());
+        assertTrue("the leaked connection should be closed.", mock.getState(0).isClosed());
+        assertTrue("the leaked proxy should be closed.", leaked.isClosed());
+        try {
+            leaked.createStatement();
+            fail("SQLException should be thrown.");
+        } catch (PoolingConnectionProducer.ReclaimedConnectionException e) {
+            assertNotNull("the exception should record where the connection was borrowed.", e.getBorrowTrace());
+        }
+        leaked.close();
+        connection.close();
+        assertEquals("the connection should be idle.", 1, producer.getIdleCount());
+    }
+
+    /**
+     * <p>
+     * Tests that the connections with explicit credentials are not pooled.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCreateConnectionWithCredentials() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock);
+        producer.createConnection("user", "password").close();
+        assertTrue("the connection should be closed.", mock.getState(0).isClosed());
+        assertEquals("the connection should not be pooled.", 0, producer.getIdleCount());
+    }
+
+    /**
+     * <p>
+     * Tests close.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testClose() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock);
+        Connection connection = producer.createConnection();
+        producer.createConnection().close();
+        producer.close();
+        assertTrue("the idle connection should be closed.", mock.getState(1).isClosed());
+        connection.close();
+        assertTrue("the returned connection should be closed.", mock.getState(0).isClosed());
+    }
+
+    /**
+     * <p>
+     * Tests that the prepared statements closed by the clients are reused, and that the least recently used one
+     * is closed when the cache is full.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testStatementCache() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 0, false, null, 0, 2);
+        Connection connection = producer.createConnection();
+        PreparedStatement statement = connection.prepareStatement("A");
+        assertSame("the connection proxy should be returned.", connection, statement.getConnection());
+        statement.close();
+        assertTrue("the proxy should be closed.", statement.isClosed());
+        try {
+            statement.execute();
+            fail("SQLException should be thrown.");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        connection.prepareStatement("A").close();
+        assertEquals("the statement should be reused.", 1, mock.getState(0).getPrepareCount());
+        connection.prepareStatement("B").close();
+        connection.prepareStatement("C").close();
+        assertEquals("the statements should be prepared.", 3, mock.getState(0).getPrepareCount());
+        assertEquals("the least recently used statement should be closed.", 1,
+            mock.getState(0).getStatementCloseCount());
+
+        producer.close();
+        connection.close();
+        assertEquals("the cached statements should be closed.", 3, mock.getState(0).getStatementCloseCount());
+    }
+
+    /**
+     * <p>
+     * Tests that all the statements are proxies returning the connection proxy, and that the statements left
+     * open are closed with the connection when the statements are not cached.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testStatementsClosedWithConnection() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 0, false, null, 0);
+        Connection connection = producer.createConnection();
+        Statement[] statements = new Statement[] {connection.createStatement(), connection.prepareStatement("A"),
+            connection.prepareStatement("A", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)};
+        for (int i = 0; i < statements.length; ++i) {
+            assertSame("the connection proxy should be returned.", connection, statements[i].getConnection());
+        }
+        statements[0].close();
+        assertEquals("the statement should be closed.", 1, mock.getState(0).getStatementCloseCount());
+
+        connection.close();
+        assertEquals("the open statements should be closed.", 3, mock.getState(0).getStatementCloseCount());
+        for (int i = 0; i < statements.length; ++i) {
+            try {
+                statements[i].execute("A");
+                fail("SQLException should be thrown.");
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Tests that the result set of a statement is closed when the statement is given back to the cache, so that
+     * the next borrower of the statement does not invalidate it silently.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testStatementCacheClosesResultSet() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 0, false, null, 0, 2);
+        Connection connection = producer.createConnection();
+        PreparedStatement statement = connection.prepareStatement("A");
+        statement.executeQuery();
+        statement.close();
+        assertEquals("the result set should be closed.", 1, mock.getState(0).getResultSetCloseCount());
+        assertEquals("the statement should be cached.", 0, mock.getState(0).getStatementCloseCount());
+        connection.close();
+    }
+
+    /**
+     * <p>
+     * Tests that the prepared statements left open are cached when their connection is returned, and reused by
+     * the next borrower of the connection.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testStatementCacheAcrossBorrows() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(mock, 0, 1, 0, 0, false, null, 0, 5);
+        Connection connection = producer.createConnection();
+        PreparedStatement statement = connection.prepareStatement("A");
+        connection.close();
+        assertTrue("the statement should be closed with the connection.", statement.isClosed());
+        assertEquals("the statement should be cached.", 0, mock.getState(0).getStatementCloseCount());
+
+        connection = producer.createConnection();
+        connection.prepareStatement("A");
+        assertEquals("the cached statement should be reused.", 1, mock.getState(0).getPrepareCount());
+        connection.prepareStatement("A");
+        assertEquals("a statement should be prepared.", 2, mock.getState(0).getPrepareCount());
+        connection.close();
+        assertEquals("the duplicate statement should be closed.", 1, mock.getState(0).getStatementCloseCount());
+    }
+
+    /**
+     * <p>
+     * Tests the creation of a DBConnectionFactoryImpl using the producer, from a ConfigurationObject.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testConfigurationObject() throws Exception {
+        ConfigurationObject parameters = new DefaultConfigurationObject("parameters");
+        parameters.setPropertyValue(PoolingConnectionProducer.PRODUCER_PROPERTY,
+            MockConnectionProducer.class.getName());
+        parameters.setPropertyValue(PoolingConnectionProducer.MAX_SIZE_PROPERTY, "3");
+        parameters.setPropertyValue(PoolingConnectionProducer.VALIDATE_ON_BORROW_PROPERTY, "false");
+        parameters.addChild(new DefaultConfigurationObject("parameters"));
+        ConfigurationObject pool = new DefaultConfigurationObject("pool");
+        pool.setPropertyValue("producer", PoolingConnectionProducer.class.getName());
+        pool.addChild(parameters);
+        ConfigurationObject connections = new DefaultConfigurationObject("connections");
+        connections.setPropertyValue("default", "pool");
+        connections.addChild(pool);
+        ConfigurationObject namespace = new DefaultConfigurationObject(DBConnectionFactoryImpl.DEFAULT_NAMESPACE);
+        namespace.addChild(connections);
+        ConfigurationObject root = new DefaultConfigurationObject("root");
+        root.addChild(namespace);
+
+        DBConnectionFactoryImpl factory = new DBConnectionFactoryImpl(root);
+        assertTrue("the producer should be a PoolingConnectionProducer.",
+            factory.get("pool") instanceof PoolingConnectionProducer);
+        PoolingConnectionProducer producer = (PoolingConnectionProducer) factory.get("pool");
+        factory.createConnection().close();
+        assertEquals("the connection should be idle.", 1, producer.getIdleCount());
+        factory.createConnection();
+        assertEquals("the connection should be reused.", 0, producer.getIdleCount());
+        assertEquals("the connection should be borrowed.", 1, producer.getBorrowedCount());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2007 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.db.connectionfactory.producers;
+
+import com.topcoder.configuration.ConfigurationObject;
+import com.topcoder.configuration.defaults.DefaultConfigurationObject;
+
+import com.topcoder.db.connectionfactory.DBConnectionException;
+
+import junit.framework.TestCase;
+
+/**
+ * <p>
+ * Failure test of PoolingConnectionProducer class. The pooled connections are created by a
+ * MockConnectionProducer, so no database is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class PoolingConnectionProducerFailureTest extends TestCase {
+    /**
+     * The root ConfigurationObject for testing, with valid parameters.
+     */
+    private ConfigurationObject root;
+
+    /**
+     * The "parameters" child of root.
+     */
+    private ConfigurationObject parameters;
+
+    /**
+     * SetUp the test environment.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    protected void setUp() throws Exception {
+        parameters = new DefaultConfigurationObject("parameters");
+        parameters.setPropertyValue(PoolingConnectionProducer.PRODUCER_PROPERTY,
+            MockConnectionProducer.class.getName());
+        parameters.addChild(new DefaultConfigurationObject("parameters"));
+        root = new DefaultConfigurationObject("root");
+        root.addChild(parameters);
+    }
+
+    /**
+     * <p>
+     * Tests the constructor with a null producer.
+     * </p>
+     */
+    public void testCtorNullProducer() {
+        try {
+            new PoolingConnectionProducer((com.topcoder.db.connectionfactory.ConnectionProducer) null);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests the constructor with invalid sizes and timeouts.
+     * </p>
+     */
+    public void testCtorInvalidSettings() {
+        MockConnectionProducer mock = new MockConnectionProducer();
+        try {
+            new PoolingConnectionProducer(mock, -1, 1, 0, 0, true, null, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new PoolingConnectionProducer(mock, 2, 1, 0, 0, true, null, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new PoolingConnectionProducer(mock, 0, 1, 0, -1, true, null, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new PoolingConnectionProducer(mock, 0, 1, 0, 0, true, " ", 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new PoolingConnectionProducer(mock, 0, 1, 0, 0, true, null, 0, -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests the ConfigurationObject constructor without the parameters of the pooled producer.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCtorMissingParameters() throws Exception {
+        parameters.removeChild("parameters");
+        try {
+            new PoolingConnectionProducer(root);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests the ConfigurationObject constructor with a malformed setting.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCtorMalformedSetting() throws Exception {
+        parameters.setPropertyValue(PoolingConnectionProducer.MAX_SIZE_PROPERTY, "ten");
+        try {
+            new PoolingConnectionProducer(root);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        parameters.setPropertyValue(PoolingConnectionProducer.MAX_SIZE_PROPERTY, "1");
+        parameters.setPropertyValue(PoolingConnectionProducer.VALIDATE_ON_BORROW_PROPERTY, "yes");
+        try {
+            new PoolingConnectionProducer(root);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests the ConfigurationObject constructor with a class which is not a ConnectionProducer.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCtorNotProducer() throws Exception {
+        parameters.setPropertyValue(PoolingConnectionProducer.PRODUCER_PROPERTY, String.class.getName());
+        try {
+            new PoolingConnectionProducer(root);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        parameters.setPropertyValue(PoolingConnectionProducer.PRODUCER_PROPERTY, "no.such.Producer");
+        try {
+            new PoolingConnectionProducer(root);
+            fail("ClassNotFoundException should be thrown.");
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests createConnection when no connection is returned before the borrow timeout.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCreateConnectionTimeout() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(new MockConnectionProducer(), 0, 1, 0,
+            20, true, null, 0);
+        producer.createConnection();
+        try {
+            producer.createConnection();
+            fail("DBConnectionException should be thrown.");
+        } catch (DBConnectionException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * Tests createConnection after the pool is closed.
+     * </p>
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testCreateConnectionClosed() throws Exception {
+        PoolingConnectionProducer producer = new PoolingConnectionProducer(new MockConnectionProducer());
+        producer.close();
+        try {
+            producer.createConnection();
+            fail("DBConnectionException should be thrown.");
+        } catch (DBConnectionException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2007 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.db.connectionfactory.stresstests;
+
+import com.topcoder.db.connectionfactory.ConnectionProducer;
+import com.topcoder.db.connectionfactory.DBConnectionException;
+import com.topcoder.db.connectionfactory.DBConnectionFactoryImpl;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.sql.Connection;
+
+/**
+ * <p>
+ * This class measures the throughput of <code>DBConnectionFactoryImpl.createConnection</code> when called by an
+ * increasing number of threads, while other threads modify the registered producers. The producers simulate the
+ * latency of a database login by sleeping, so the throughput scales with the number of threads only if the
+ * connections are created outside of any factory-wide lock.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.2
+ * @since 1.2
+ */
+public class DBConnectionFactoryContentionStressTest extends TestCase {
+    /**
+     * The simulated latency of a database login, in milliseconds.
+     */
+    private static final long LATENCY = 5;
+
+    /**
+     * The number of connections created by each thread.
+     */
+    private static final int CONNECTIONS_PER_THREAD = 40;
+
+    /**
+     * The tested thread counts.
+     */
+    private static final int[] THREAD_COUNTS = new int[] {1, 2, 4, 8};
+
+    /**
+     * <p>
+     * <code>DBConnectionFactoryImpl</code> instance used in this test.
+     * </p>
+     */
+    private DBConnectionFactoryImpl connFactory = null;
+
+    /**
+     * <p>
+     * This method aggregates all tests in this class.
+     * </p>
+     *
+     * @return test suite aggregating all tests
+     */
+    public static Test suite() {
+        return new TestSuite(DBConnectionFactoryContentionStressTest.class);
+    }
+
+    /**
+     * <p>
+     * Set up the test environment.
+     * </p>
+     *
+     * @throws Exception pass any unexpected exception to JUnit
+     */
+    protected void setUp() throws Exception {
+        connFactory = new DBConnectionFactoryImpl();
+        connFactory.add("slow", new SlowConnectionProducer());
+        connFactory.setDefault("slow");
+    }
+
+    /**
+     * <p>
+     * Clean up the test environment.
+     * </p>
+     */
+    protected void tearDown() {
+        connFactory = null;
+    }
+
+    /**
+     * <p>
+     * Measures the number of connections created per second with 1, 2, 4 and 8 threads, while another thread
+     * adds and removes producers.
+     * </p>
+     * <p>
+     * The throughput with 8 threads should be at least twice the throughput with a single thread.
+     * </p>
+     *
+     * @throws Exception pass any unexpected exception to JUnit
+     */
+    public void testCreateConnectionScaling() throws Exception {
+        System.out.println("[DBConnectionFactory contention stress test]");
+
+        Mutator mutator = new Mutator();
+        mutator.start();
+        double[] throughputs = new double[THREAD_COUNTS.length];
+        try {
+            for (int i = 0; i < THREAD_COUNTS.length; ++i) {
+                throughputs[i] = measure(THREAD_COUNTS[i]);
+                System.out.println("\t " + THREAD_COUNTS[i] + " thread(s): " + (long) throughputs[i]
+                    + " connections/s");
+            }
+        } finally {
+            mutator.finish();
+        }
+        System.out.println();
+
+        assertNull("the mutator should not fail.", mutator.getFailure());
+        assertTrue("the throughput should scale with the number of threads.",
+            throughputs[throughputs.length - 1] >= 2 * throughputs[0]);
+    }
+
+    /**
+     * <p>
+     * Creates the connections from the given number of threads, and returns the number of connections created
+     * per second.
+     * </p>
+     *
+     * @param threadCount the number of threads
+     * @return the number of connections created per second
+     * @throws Exception pass any unexpected exception to JUnit
+     */
+    private double measure(int threadCount) throws Exception {
+        Worker[] workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i] = new Worker();
+        }
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i].start();
+        }
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i].join();
+        }
+        long endTime = System.currentTimeMillis();
+
+        for (int i = 0; i < threadCount; ++i) {
+            if (workers[i].getFailure() != null) {
+                throw workers[i].getFailure();
+            }
+        }
+
+        return threadCount * CONNECTIONS_PER_THREAD * 1000.0 / Math.max(1, endTime - startTime);
+    }
+
+    /**
+     * A thread creating connections from the factory, alternately from the default and the named producer.
+     */
+    private class Worker extends Thread {
+        /**
+         * The failure of this thread, if any.
+         */
+        private Exception failure = null;
+
+        /**
+         * Creates the connections.
+         */
+        public void run() {
+            try {
+                for (int i = 0; i < CONNECTIONS_PER_THREAD; ++i) {
+                    if (i % 2 == 0) {
+                        connFactory.createConnection();
+                    } else {
+                        connFactory.createConnection("slow");
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Gets the failure of this thread.
+         *
+         * @return the failure, or null
+         */
+        Exception getFailure() {
+            return failure;
+        }
+    }
+
+    /**
+     * A thread adding and removing producers until it is finished, to check that the registry can be modified
+     * while the connections are created.
+     */
+    private class Mutator extends Thread {
+        /**
+         * Whether this thread should stop.
+         */
+        private volatile boolean finished = false;
+
+        /**
+         * The failure of this thread, if any.
+         */
+        private RuntimeException failure = null;
+
+        /**
+         * Adds and removes the producers.
+         */
+        public void run() {
+            try {
+                ConnectionProducer producer = new SlowConnectionProducer();
+                for (int i = 0; !finished; ++i) {
+                    String name = "temporary" + (i % 4);
+                    if (!connFactory.add(name, producer)) {
+                        connFactory.remove(name);
+                    }
+                    Thread.sleep(1);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                // stop
+            }
+        }
+
+        /**
+         * Stops this thread and waits for it to end.
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        void finish() throws InterruptedException {
+            finished = true;
+            join();
+        }
+
+        /**
+         * Gets the failure of this thread.
+         *
+         * @return the failure, or null
+         */
+        RuntimeException getFailure() {
+            return failure;
+        }
+    }
+
+    /**
+     * A ConnectionProducer sleeping to simulate the latency of a database login, and returning connections
+     * doing nothing.
+     */
+    private static class SlowConnectionProducer implements ConnectionProducer, InvocationHandler {
+        /**
+         * Sleeps, then creates a connection.
+         *
+         * @return the connection
+         * @throws DBConnectionException if interrupted
+         */
+        public Connection createConnection() throws DBConnectionException {
+            try {
+                Thread.sleep(LATENCY);
+            } catch (InterruptedException e) {
+                throw new DBConnectionException("interrupted", e);
+            }
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {Connection.class},
+                this);
+        }
+
+        /**
+         * Sleeps, then creates a connection, ignoring the credentials.
+         *
+         * @param username the username
+         * @param password the password
+         * @return the connection
+         * @throws DBConnectionException if interrupted
+         */
+        public Connection createConnection(String username, String password) throws DBConnectionException {
+            return createConnection();
+        }
+
+        /**
+         * Handles a call to a created connection, doing nothing.
+         *
+         * @param proxy the connection
+         * @param method the called method
+         * @param args the arguments
+         * @return null
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return null;
+        }
+    }
+}
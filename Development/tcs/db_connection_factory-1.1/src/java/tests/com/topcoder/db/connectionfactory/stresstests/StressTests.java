@@ -33,6 +33,7 @@ public class StressTests extends TestCase {
          * 10 entries
          */
         suite.addTestSuite(DBConnectionFactoryStressTest.class);
+        suite.addTestSuite(DBConnectionFactoryContentionStressTest.class);
         return suite;
     }
 }
@@ -0,0 +1,452 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.math.BigInteger;
+
+
+/**
+ * <p>
+ * This implementation of the IDGenerator interface is backed by a local file instead of the id_sequences table, so
+ * that it needs no database. It is meant for the unit tests and for the processes which cannot depend on a central
+ * database. It can be selected with IDGeneratorFactory.getIDGenerator(idName,
+ * &quot;com.topcoder.util.idgenerator.FileIDGenerator&quot;).
+ * </p>
+ *
+ * <p>
+ * The file of a sequence is named after its ID name with the &quot;.ids&quot; extension, in the directory given by the
+ * &quot;com.topcoder.util.idgenerator.FileIDGenerator.directory&quot; system property (the current directory by
+ * default). It holds the same state as a row of id_sequences: the start of the next block, the block size and the
+ * exhausted flag. It is created when the sequence is first used, starting from 1, with the block size given by the
+ * &quot;com.topcoder.util.idgenerator.FileIDGenerator.blockSize&quot; system property (1000 by default).
+ * </p>
+ *
+ * <p>
+ * Like IDGeneratorImpl, instances of this class claim a block of IDs by writing the start of the following block,
+ * and then generate the IDs of the block from memory. The file is only written, and synchronized to the disk, when a
+ * block is claimed, and no ID of the block is returned before that; the IDs left in the block are lost when the
+ * process stops, so a crash never causes an ID to be returned twice. The state is written alternately to two
+ * checksummed slots of the file, so that a partial write leaves the previous state readable. A file whose first write
+ * did not complete holds no claimed block, and is created again. The sequence is exhausted in the same way as with
+ * id_sequences.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe. A file must not be used by several instances at the same time, which
+ * IDGeneratorFactory ensures in a single process.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class FileIDGenerator implements IDGenerator {
+    /** The system property giving the directory of the sequence files. */
+    public static final String DIRECTORY_PROPERTY = "com.topcoder.util.idgenerator.FileIDGenerator.directory";
+
+    /** The system property giving the block size of the created sequence files. */
+    public static final String BLOCK_SIZE_PROPERTY = "com.topcoder.util.idgenerator.FileIDGenerator.blockSize";
+
+    /** The extension of the sequence files. */
+    private static final String EXTENSION = ".ids";
+
+    /** The default block size of the created sequence files. */
+    private static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    /** The size of a slot of the file, in bytes. */
+    private static final int SLOT_SIZE = 32;
+
+    /** The value mixed into the checksum of a slot, so that a slot of zeros is not valid. */
+    private static final long CHECKSUM_SEED = 0x494447454e455241L;
+
+    /** The name of the ID sequence which this instance encapsulates. */
+    private final String idName;
+
+    /** The file of the sequence, opened for the lifetime of this instance. */
+    private final RandomAccessFile file;
+
+    /** The number of times the state was written, used to choose the slot read back. */
+    private long generation;
+
+    /** The start of the next block, as written in the file. */
+    private long nextBlockStart;
+
+    /** The block size of the sequence. */
+    private int blockSize;
+
+    /** Whether the sequence is exhausted, as written in the file. */
+    private boolean exhausted;
+
+    /** This is the next value that will be generated for this sequence. It is returned and updated by getNextID(). */
+    private long nextID = 0;
+
+    /** Indicate the ids left in the current block for the getNextID method. */
+    private int idsLeft = 0;
+
+    /**
+     * <p>
+     * Creates a new FileIDGenerator for the named ID sequence, with its file in the directory given by the system
+     * property.
+     * </p>
+     *
+     * @param idName name of the ID sequence encapsulated by this instance
+     *
+     * @throws NoSuchIDSequenceException if idName is null
+     * @throws IDGenerationException if the file of the sequence cannot be read or created
+     */
+    public FileIDGenerator(String idName) throws IDGenerationException {
+        this(idName, new File(System.getProperty(DIRECTORY_PROPERTY, ".")));
+    }
+
+    /**
+     * <p>
+     * Creates a new FileIDGenerator for the named ID sequence, with its file in the given directory.
+     * </p>
+     *
+     * @param idName name of the ID sequence encapsulated by this instance
+     * @param directory the directory of the sequence file
+     *
+     * @throws NoSuchIDSequenceException if idName is null
+     * @throws IllegalArgumentException if directory is null
+     * @throws IDGenerationException if the file of the sequence cannot be read or created
+     */
+    public FileIDGenerator(String idName, File directory) throws IDGenerationException {
+        this(idName, directory, 1, getDefaultBlockSize());
+    }
+
+    /**
+     * <p>
+     * Creates a new FileIDGenerator for the named ID sequence, with its file in the given directory. If the file does
+     * not exist, it is created with the given start of the next block and block size; otherwise, they are ignored.
+     * This can be used to give disjoint ranges of IDs to the processes using the same sequence.
+     * </p>
+     *
+     * @param idName name of the ID sequence encapsulated by this instance
+     * @param directory the directory of the sequence file
+     * @param firstID the start of the first block of a new sequence
+     * @param blockSize the block size of a new sequence
+     *
+     * @throws NoSuchIDSequenceException if idName is null
+     * @throws IllegalArgumentException if directory is null, or blockSize is not positive
+     * @throws IDGenerationException if the file of the sequence cannot be read or created
+     */
+    public FileIDGenerator(String idName, File directory, long firstID, int blockSize) throws IDGenerationException {
+        if (idName == null) {
+            throw new NoSuchIDSequenceException("The specified IDName is null");
+        }
+
+        if (directory == null) {
+            throw new IllegalArgumentException("The directory is null.");
+        }
+
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size should be positive.");
+        }
+
+        this.idName = idName;
+
+        try {
+            file = new RandomAccessFile(new File(directory, idName + EXTENSION), "rw");
+        } catch (IOException e) {
+            throw new IDGenerationException("Failed to open the file of the sequence.", e);
+        }
+
+        try {
+            if ((file.length() == 0) || !readState()) {
+                // a new sequence, like a new row of id_sequences
+                this.nextBlockStart = firstID;
+                this.blockSize = blockSize;
+                this.exhausted = false;
+                writeState(firstID, false);
+            }
+        } catch (IOException e) {
+            close();
+            throw new IDGenerationException("Failed to access the file of the sequence.", e);
+        } catch (IDGenerationException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the block size of the created sequence files from the system property.
+     *
+     * @return the block size
+     *
+     * @throws IDGenerationException if the system property is not a positive integer
+     */
+    private static int getDefaultBlockSize() throws IDGenerationException {
+        String value = System.getProperty(BLOCK_SIZE_PROPERTY);
+
+        if (value == null) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+
+        try {
+            int size = Integer.parseInt(value.trim());
+
+            if (size > 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+
+        throw new IDGenerationException("The block size '" + value + "' is not a positive integer.");
+    }
+
+    /**
+     * Return the name of the ID sequence which this instance encapsulates.
+     *
+     * @return the name of the ID sequence which this instance encapsulates
+     */
+    public String getIDName() {
+        return idName;
+    }
+
+    /**
+     * Returns the next ID in the ID sequence encapsulated by this instance. Internal state is updated so that this ID
+     * is not returned again from this method.
+     *
+     * @return the next ID in the ID sequence
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while writing the
+     *         file)
+     */
+    public synchronized long getNextID() throws IDGenerationException {
+        if (idsLeft <= 0) {
+            LongRange block = claimBlock(blockSize);
+            nextID = block.getStart();
+            idsLeft = block.getCount();
+        }
+
+        --idsLeft;
+
+        return nextID++;
+    }
+
+    /**
+     * <p>
+     * Wraps the value that would be returned by getNextID() in a BigInteger instance and returns it.
+     * </p>
+     *
+     * @return next value that would be returned by getNextID() as a BigInteger
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while writing the
+     *         file)
+     */
+    public BigInteger getNextBigID() throws IDGenerationException {
+        return BigInteger.valueOf(getNextID());
+    }
+
+    /**
+     * <p>
+     * Reserves the given number of IDs at once. The IDs left in the current block are returned first, and the
+     * remaining ones are claimed with a single write of the file.
+     * </p>
+     *
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID() would have returned them
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDsExhaustedException if the IDs left in the ID sequence are not sufficient
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while writing the
+     *         file)
+     */
+    public synchronized long[] reserveIDs(int count) throws IDGenerationException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The count should be positive.");
+        }
+
+        long[] ids = new long[count];
+        int taken = Math.min(count, idsLeft);
+
+        if (taken < count) {
+            long start = claimBlock(count - taken).getStart();
+
+            for (int i = taken; i < count; ++i) {
+                ids[i] = start++;
+            }
+        }
+
+        for (int i = 0; i < taken; ++i) {
+            ids[i] = nextID++;
+        }
+
+        idsLeft -= taken;
+
+        return ids;
+    }
+
+    /**
+     * <p>
+     * Closes the file of the sequence. The IDs left in the current block are lost, and the instance cannot claim
+     * any other block.
+     * </p>
+     */
+    public synchronized void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // Just ignore
+        }
+    }
+
+    /**
+     * Claims the given number of IDs from the file, as IDGeneratorImpl claims them from id_sequences. The file is
+     * synchronized to the disk before the IDs are returned. The instance lock must be held.
+     *
+     * @param count the number of IDs to claim
+     *
+     * @return the claimed block
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while writing the file
+     */
+    private LongRange claimBlock(int count) throws IDGenerationException {
+        // if the ids are exausted yet, simply throw exception
+        if (exhausted) {
+            throw new IDsExhaustedException("The ids of specified IDName are exausted yet.");
+        }
+
+        // if the ids left are not sufficient to make a full block,
+        // throw exception
+        if ((nextBlockStart - 1) > (Long.MAX_VALUE - count)) {
+            throw new IDsExhaustedException("The ids left are not sufficient to make a block.");
+        }
+
+        long myMaxBlockID = (nextBlockStart + count) - 1;
+        boolean myExhausted = (nextBlockStart - 1) >= (Long.MAX_VALUE - count);
+
+        try {
+            writeState(myMaxBlockID + 1, myExhausted);
+        } catch (IOException e) {
+            throw new IDGenerationException("Failed to write the file of the sequence.", e);
+        }
+
+        LongRange block = new LongRange(nextBlockStart, myMaxBlockID);
+        nextBlockStart = myMaxBlockID + 1;
+        exhausted = myExhausted;
+
+        return block;
+    }
+
+    /**
+     * Reads the state of the sequence from the most recently written valid slot of the file.
+     *
+     * @return false if the first write of the file did not complete, so that the sequence has no state
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IDGenerationException if no slot of the file is valid, and the file was written more than once
+     */
+    private boolean readState() throws IOException, IDGenerationException {
+        boolean found = false;
+
+        for (int slot = 0; slot < 2; ++slot) {
+            if (file.length() < ((slot + 1) * SLOT_SIZE)) {
+                break;
+            }
+
+            file.seek(slot * SLOT_SIZE);
+
+            long slotGeneration = file.readLong();
+            long slotNextBlockStart = file.readLong();
+            int slotBlockSize = file.readInt();
+            int slotExhausted = file.readInt();
+            long checksum = file.readLong();
+
+            if ((checksum != checksum(slotGeneration, slotNextBlockStart, slotBlockSize, slotExhausted))
+                || (slotBlockSize <= 0)) {
+                continue;
+            }
+
+            if (!found || (slotGeneration > generation)) {
+                found = true;
+                generation = slotGeneration;
+                nextBlockStart = slotNextBlockStart;
+                blockSize = slotBlockSize;
+                exhausted = slotExhausted != 0;
+            }
+        }
+
+        if (found) {
+            return true;
+        }
+
+        // the first state is written to the second slot, the first slot is only written once a block was claimed
+        if (file.length() >= SLOT_SIZE) {
+            byte[] slot = new byte[SLOT_SIZE];
+            file.seek(0);
+            file.readFully(slot);
+
+            for (int i = 0; i < SLOT_SIZE; ++i) {
+                if (slot[i] != 0) {
+                    throw new IDGenerationException("The file of the sequence '" + idName + "' is corrupted.");
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the given state to the slot not holding the current state, and synchronizes the file to the disk.
+     *
+     * @param newNextBlockStart the start of the next block
+     * @param newExhausted whether the sequence is exhausted
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void writeState(long newNextBlockStart, boolean newExhausted) throws IOException {
+        long newGeneration = generation + 1;
+        int exhaustedFlag = newExhausted ? 1 : 0;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(SLOT_SIZE);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(newGeneration);
+        out.writeLong(newNextBlockStart);
+        out.writeInt(blockSize);
+        out.writeInt(exhaustedFlag);
+        out.writeLong(checksum(newGeneration, newNextBlockStart, blockSize, exhaustedFlag));
+        out.flush();
+
+        file.seek((newGeneration % 2) * SLOT_SIZE);
+        file.write(bytes.toByteArray());
+        file.getFD().sync();
+
+        generation = newGeneration;
+    }
+
+    /**
+     * Computes the checksum of a slot.
+     *
+     * @param slotGeneration the generation of the slot
+     * @param slotNextBlockStart the start of the next block
+     * @param slotBlockSize the block size
+     * @param slotExhausted the exhausted flag
+     *
+     * @return the checksum
+     */
+    private static long checksum(long slotGeneration, long slotNextBlockStart, int slotBlockSize, int slotExhausted) {
+        long sum = CHECKSUM_SEED;
+        sum = (sum * 31) + slotGeneration;
+        sum = (sum * 31) + slotNextBlockStart;
+        sum = (sum * 31) + slotBlockSize;
+        sum = (sum * 31) + slotExhausted;
+
+        return sum;
+    }
+}
@@ -11,8 +11,12 @@ import java.math.BigInteger;
  * IDGeneratorImpl -- but only this public interface is exposed to callers to allow for the possibility of different
  * implementations later. IDGeneratorFactory returns implementations of this interface.
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: the reserveIDs method is added, so that the callers needing many IDs get them in one call.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public interface IDGenerator {
     /**
@@ -51,4 +55,24 @@ public interface IDGenerator {
      * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
      */
     public BigInteger getNextBigID() throws IDGenerationException;
+
+    /**
+     * <p>
+     * Reserves the given number of IDs at once, as if getNextID() was called as many times. The IDs are reserved
+     * with at most one access to the backing DB, and are not returned again by this instance.
+     * </p>
+     *
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID() would have returned them
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDsExhaustedException if the IDs left in the ID sequence are not sufficient; the IDs reserved before
+     *         the sequence ran out, if any, are given by its getReservedIDs method
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     * @since 3.1
+     */
+    public long[] reserveIDs(int count) throws IDGenerationException;
 }
@@ -21,15 +21,32 @@ import java.util.Map;
  * returned for the same sequence name.
  * </p>
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: the instances are looked up without any lock. The map of the instances is replaced by a
+ * modified copy when an instance is added, and the instances are created under a lock specific to their sequence
+ * name, so creating an instance, which accesses the database, does not delay the requests for the other sequences.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe. At most one instance is created for a sequence name.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public class IDGeneratorFactory {
     /**
      * The HashMap used to store all the IDGenerator instance generated, the key is its IDName, so when requesting the
-     * IDGenerator that  has been requested before, the stored one is returned.
+     * IDGenerator that  has been requested before, the stored one is returned. This map is never modified once
+     * assigned; it is replaced by a modified copy under the class lock, so that it can be read without lock.
      */
-    private static Map generators = null;
+    private static volatile Map generators = new HashMap();
+
+    /**
+     * The locks under which the IDGenerator instances are created, the key is the IDName. It is accessed under its
+     * own lock.
+     */
+    private static final Map creationLocks = new HashMap();
 
     /** The class type array used for create IDGenerator instance by reflecting. */
     private static final Class[] CLASS_TYPE = new Class[] {String.class};
@@ -58,20 +75,20 @@ public class IDGeneratorFactory {
             throw new NoSuchIDSequenceException("The IDName is null.");
         }
 
-        IDGenerator generator;
+        // query the HashMap first to see if it is cached
+        IDGenerator generator = (IDGenerator) generators.get(idName);
 
-        synchronized (IDGeneratorFactory.class) {
-            // query the HashMap first to see if it is cached
-            if (generators == null) {
-                generators = new HashMap();
-            }
+        if (generator != null) {
+            return generator;
+        }
 
+        synchronized (getCreationLock(idName)) {
             generator = (IDGenerator) generators.get(idName);
 
             // create new instance if not exist
             if (generator == null) {
                 generator = new IDGeneratorImpl(idName);
-                generators.put(idName, generator);
+                putGenerator(idName, generator);
             }
         }
 
@@ -116,33 +133,74 @@ public class IDGeneratorFactory {
             throw new NoSuchIDSequenceException("The idName is null.");
         }
 
-        IDGenerator generator;
+        // query the HashMap first to see if it is cached
+        IDGenerator generator = (IDGenerator) generators.get(idName);
 
-        synchronized (IDGeneratorFactory.class) {
-            // query the HashMap first to see if it is cached
-            if (generators == null) {
-                generators = new HashMap();
-            }
+        // the class is not loaded when the existing generator uses exactly the requested implementation
+        if ((generator != null) && generator.getClass().getName().equals(implClass)) {
+            return generator;
+        }
 
-            generator = (IDGenerator) generators.get(idName);
+        Class classType = Class.forName(implClass);
 
-            Class classType = Class.forName(implClass);
+        if (generator == null) {
+            synchronized (getCreationLock(idName)) {
+                generator = (IDGenerator) generators.get(idName);
 
-            // create new instance if not exist and save it.
-            if (generator == null) {
-                generator = createIDGenerator(idName, classType);
-                generators.put(idName, generator);
-            } else {
-                // the existing generator uses different implementation
-                if (!classType.isInstance(generator)) {
-                    throw new IllegalStateException("The existing generator uses a different implementation");
+                // create new instance if not exist and save it.
+                if (generator == null) {
+                    generator = createIDGenerator(idName, classType);
+                    putGenerator(idName, generator);
+
+                    return generator;
                 }
             }
         }
 
+        // the existing generator uses different implementation
+        if (!classType.isInstance(generator)) {
+            throw new IllegalStateException("The existing generator uses a different implementation");
+        }
+
         return generator;
     }
 
+    /**
+     * <p>
+     * Gets the lock under which the IDGenerator instance of the given sequence is created.
+     * </p>
+     *
+     * @param idName the id generator name
+     *
+     * @return the lock of the sequence
+     */
+    private static Object getCreationLock(String idName) {
+        synchronized (creationLocks) {
+            Object lock = creationLocks.get(idName);
+
+            if (lock == null) {
+                lock = new Object();
+                creationLocks.put(idName, lock);
+            }
+
+            return lock;
+        }
+    }
+
+    /**
+     * <p>
+     * Stores a created IDGenerator instance, replacing the map of the instances by a modified copy.
+     * </p>
+     *
+     * @param idName the id generator name
+     * @param generator the created instance
+     */
+    private static synchronized void putGenerator(String idName, IDGenerator generator) {
+        Map copy = new HashMap(generators);
+        copy.put(idName, generator);
+        generators = copy;
+    }
+
     /**
      * <p>
      * Uses the constructor specified by the parameters argument to create a new instance of IDGenerator
@@ -25,15 +25,36 @@ import java.sql.SQLException;
  * when this instance is destroyed are simply lost, so large block sizes may also result in larger &quot;gaps&quot; in
  * the ID sequence. This class requires a javax.sql.DataSource instance to be made available under the JNDI name
  * &quot;java:comp/env/jdbc/com/topcoder/util/idgenerator/IDGeneratorDataSource&quot;; this DataSource is used to
- * access the ID table. This class is synchronized for thread-safety.
+ * access the ID table.
  * </p>
  *
  * <p>
  * Notes: the default connection name is 'DefaultSequence' for DBConnectionFactory component.
  * </p>
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: the blocks are no longer allocated under a lock shared by all the instances, so refilling
+ * one sequence does not delay the generation of the others. The instance lock is only held to claim an ID from the
+ * current block, and the next block is fetched by a background thread as soon as the current one falls to a quarter
+ * of its size, so that the callers do not wait for the database while the IDs are consumed steadily. The callers
+ * needing many IDs can reserve them at once with reserveIDs(int) or reserveIDRange(int).
+ * </p>
+ *
+ * <p>
+ * The size of the blocks also adapts to the consumption rate of the sequence: it starts from the block_size column,
+ * is doubled (up to 1024 times the column) while the blocks last less than a second, and is halved (down to 1) when
+ * they last more than ten seconds. The hot sequences thus access the database about once per second, and the cold
+ * ones lose few IDs when the instance is destroyed. The refills and the time spent waiting for them are exposed by
+ * getRefillCount(), getRefillRate(), getTotalWaitTime() and getCurrentBlockSize().
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe. An ID is claimed while holding the instance lock; the blocks are fetched
+ * one at a time per instance, outside of this lock.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public class IDGeneratorImpl implements IDGenerator {
     /**
@@ -65,6 +86,35 @@ public class IDGeneratorImpl implements IDGenerator {
     /** The sql sentence to set the exausted to 1. */
     private static final String UPDATE_EXHAUSTED = "UPDATE id_sequences SET exhausted = 1 WHERE name = ?";
 
+    /**
+     * <p>
+     * The next block is prefetched when the IDs left in the current block fall to its size divided by this ratio.
+     * </p>
+     */
+    private static final int PREFETCH_RATIO = 4;
+
+    /**
+     * <p>
+     * The default target lifetime of a block, in milliseconds. The block size is doubled while the blocks are consumed
+     * faster than that.
+     * </p>
+     */
+    private static final long TARGET_BLOCK_LIFETIME = 1000;
+
+    /**
+     * <p>
+     * The block size is halved when a block lasts more than the target lifetime multiplied by this ratio.
+     * </p>
+     */
+    private static final int SHRINK_RATIO = 10;
+
+    /**
+     * <p>
+     * The block size is never more than the block_size column multiplied by this factor.
+     * </p>
+     */
+    private static final int MAX_GROWTH = 1024;
+
     /**
      * The name of the ID sequence which this instance encapsulates. This is set by the constructor and so is not given
      * an initial value in the model.
@@ -77,6 +127,47 @@ public class IDGeneratorImpl implements IDGenerator {
     /** Indicate the ids left in the current block for the getNextID method. */
     private int idsLeft = 0;
 
+    /** The size of the current block, used to compute the prefetch threshold. */
+    private int blockSize = 0;
+
+    /** Whether the prefetch of the block following the current one has been started. */
+    private boolean prefetchStarted = false;
+
+    /** Whether a block is being prefetched. */
+    private boolean prefetching = false;
+
+    /** The prefetched block, or null if none is available. */
+    private LongRange prefetchedBlock = null;
+
+    /**
+     * <p>
+     * The lock held while the current block is replaced, so that the blocks are fetched one at a time. The instance
+     * lock is not held meanwhile, so the other methods do not wait for the database.
+     * </p>
+     */
+    private final Object refillLock = new Object();
+
+    /** The target lifetime of a block, in milliseconds. */
+    private long targetBlockLifetime = TARGET_BLOCK_LIFETIME;
+
+    /** The size of the next block fetched for getNextID(), or 0 to use the block_size column. */
+    private int adaptiveBlockSize = 0;
+
+    /** The last read value of the block_size column. */
+    private int tableBlockSize = 0;
+
+    /** The time of the last fetch of a block for getNextID(), or 0 if none was fetched. */
+    private long lastFetchTime = 0;
+
+    /** The creation time of this instance. */
+    private final long creationTime = System.currentTimeMillis();
+
+    /** The number of blocks fetched for getNextID(). */
+    private int refillCount = 0;
+
+    /** The total time spent by the callers waiting for a block, in milliseconds. */
+    private long totalWaitTime = 0;
+
     /**
      * <p>
      * Represents DBConnectionFactory instance. this variable will be instantiate lazily in the first invoking
@@ -95,11 +186,26 @@ public class IDGeneratorImpl implements IDGenerator {
      *         database errors)
      */
     public IDGeneratorImpl(String idName) throws IDGenerationException {
+        this(idName, null);
+    }
+
+    /**
+     * Creates a new IDGeneratorImpl for the named ID sequence, getting the connections from the given factory.
+     *
+     * @param idName name of the ID sequence encapsulated by this instance.
+     * @param factory the factory of the connections, or null to create it from the default namespace
+     *
+     * @throws NoSuchIDSequenceException if name is null, or no such ID  sequence is configured in the database
+     * @throws IDGenerationException if an error occurs while retrieving ID  sequence configuration (for example,
+     *         database errors)
+     */
+    IDGeneratorImpl(String idName, DBConnectionFactory factory) throws IDGenerationException {
         if (idName == null) {
             throw new NoSuchIDSequenceException("The specified IDName is null");
         }
 
         this.idName = idName;
+        this.factory = factory;
 
         ResultSet rs = null;
         Connection connection = null;
@@ -181,18 +287,27 @@ public class IDGeneratorImpl implements IDGenerator {
      *         the database)
      * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
      */
-    public synchronized long getNextID() throws IDGenerationException {
-        if (idsLeft <= 0) {
+    public long getNextID() throws IDGenerationException {
+        while (true) {
+            synchronized (this) {
+                if (idsLeft > 0) {
+                    --idsLeft;
+
+                    // start fetching the next block before this one is exhausted
+                    if (!prefetchStarted && (idsLeft <= (blockSize / PREFETCH_RATIO))) {
+                        prefetchStarted = true;
+                        prefetching = true;
+                        new BlockPrefetcher().start();
+                    }
+
+                    return nextID++;
+                }
+            }
+
             // if no ids left,
             // acquire a new block
-            synchronized (IDGeneratorImpl.class) {
-                getNextBlock();
-            }
+            refill();
         }
-
-        --idsLeft;
-
-        return nextID++;
     }
 
     /**
@@ -208,20 +323,229 @@ public class IDGeneratorImpl implements IDGenerator {
      *         the database)
      * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
      */
-    public synchronized BigInteger getNextBigID() throws IDGenerationException {
+    public BigInteger getNextBigID() throws IDGenerationException {
         return BigInteger.valueOf(getNextID());
     }
 
+    /**
+     * <p>
+     * Reserves the given number of IDs at once. The IDs left in the current block and in the prefetched one are
+     * returned first, and the remaining ones are claimed from the database by reserveIDRange(int).
+     * </p>
+     *
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID() would have returned them
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDsExhaustedException if the IDs left in the ID sequence are not sufficient
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     * @since 3.1
+     */
+    public long[] reserveIDs(int count) throws IDGenerationException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The count should be positive.");
+        }
+
+        long[] ids = new long[count];
+        int taken;
+
+        synchronized (this) {
+            taken = 0;
+
+            while (true) {
+                int used = Math.min(count - taken, idsLeft);
+
+                for (int i = 0; i < used; ++i) {
+                    ids[taken++] = nextID++;
+                }
+
+                idsLeft -= used;
+
+                if ((taken == count) || (prefetchedBlock == null)) {
+                    break;
+                }
+
+                setBlock(prefetchedBlock);
+                prefetchedBlock = null;
+            }
+        }
+
+        if (taken < count) {
+            long start = reserveIDRange(count - taken).getStart();
+
+            for (int i = taken; i < count; ++i) {
+                ids[i] = start++;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * <p>
+     * Reserves a contiguous range of IDs, claimed from the database in a single transaction, whatever the block
+     * size of the sequence. The current block is not used, so its IDs are still returned by getNextID().
+     * </p>
+     *
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved range of IDs
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDsExhaustedException if the IDs left in the ID sequence are not sufficient
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     * @since 3.1
+     */
+    public LongRange reserveIDRange(int count) throws IDGenerationException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The count should be positive.");
+        }
+
+        return getNextBlock(count);
+    }
+
+    /**
+     * Replaces the exhausted block by the prefetched one, waiting for the prefetch to complete if needed, or by a
+     * block read from the database if none was prefetched.
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while connecting to
+     *         the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     */
+    private void refill() throws IDGenerationException {
+        long start = currentTimeMillis();
+
+        try {
+            doRefill();
+        } finally {
+            synchronized (this) {
+                totalWaitTime += currentTimeMillis() - start;
+            }
+        }
+    }
+
+    /**
+     * Replaces the exhausted block, as described by refill().
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while connecting to
+     *         the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     */
+    private void doRefill() throws IDGenerationException {
+        synchronized (refillLock) {
+            LongRange block;
+
+            synchronized (this) {
+                // another thread may have refilled the block meanwhile
+                if (idsLeft > 0) {
+                    return;
+                }
+
+                try {
+                    while (prefetching) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    // keep the interrupt status for the caller
+                    Thread.currentThread().interrupt();
+                    throw new IDGenerationException("Interrupted while waiting for the next block.", e);
+                }
+
+                block = prefetchedBlock;
+                prefetchedBlock = null;
+            }
+
+            // the block is read again if the prefetch failed, reporting the failure to the caller
+            if (block == null) {
+                block = fetchBlock();
+            }
+
+            synchronized (this) {
+                setBlock(block);
+            }
+        }
+    }
+
+    /**
+     * Makes the given block the current one. The instance lock must be held.
+     *
+     * @param block the new current block
+     */
+    private void setBlock(LongRange block) {
+        nextID = block.getStart();
+        idsLeft = block.getCount();
+        blockSize = block.getCount();
+        prefetchStarted = false;
+    }
+
+    /**
+     * Fetches a block for getNextID(), adapting its size to the lifetime of the previous one.
+     *
+     * @return the block
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while connecting to
+     *         the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     */
+    private LongRange fetchBlock() throws IDGenerationException {
+        int size;
+
+        synchronized (this) {
+            long now = currentTimeMillis();
+
+            if ((lastFetchTime != 0) && (adaptiveBlockSize > 0)) {
+                long lifetime = now - lastFetchTime;
+
+                if (lifetime < targetBlockLifetime) {
+                    long maxSize = Math.min((long) tableBlockSize * MAX_GROWTH, Integer.MAX_VALUE);
+                    adaptiveBlockSize = (int) Math.min(adaptiveBlockSize * 2L, Math.max(maxSize, 1));
+                } else if (lifetime > (targetBlockLifetime * SHRINK_RATIO)) {
+                    adaptiveBlockSize = Math.max(adaptiveBlockSize / 2, 1);
+                }
+            }
+
+            lastFetchTime = now;
+            size = adaptiveBlockSize;
+        }
+
+        LongRange block = getNextBlock(size);
+
+        synchronized (this) {
+            ++refillCount;
+
+            if (adaptiveBlockSize == 0) {
+                adaptiveBlockSize = block.getCount();
+            }
+        }
+
+        return block;
+    }
+
     /**
      * Reading the database for the next new start id.
      *
+     * @param count the number of IDs to claim, or 0 to claim the block size of the sequence
+     *
+     * @return the next block
+     *
      * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
      *         assigned
      * @throws IDGenerationException if an error occurs while generating the ID (for example, error while connecting to
      *         the database)
      * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
      */
-    private synchronized void getNextBlock() throws IDGenerationException {
+    private LongRange getNextBlock(int count) throws IDGenerationException {
         // access the database
         ResultSet rs = null;
         Connection connection = getConnection();
@@ -247,6 +571,14 @@ public class IDGeneratorImpl implements IDGenerator {
             long myNextID = rs.getLong(NEXT_BLOCK_START);
             int blockSize = rs.getInt(BLOCK_SIZE);
 
+            synchronized (this) {
+                tableBlockSize = blockSize;
+            }
+
+            if (count > 0) {
+                blockSize = count;
+            }
+
             // if the ids left are not sufficient to make a full block,
             // throw exception
             if ((myNextID - 1) > (Long.MAX_VALUE - blockSize)) {
@@ -273,8 +605,7 @@ public class IDGeneratorImpl implements IDGenerator {
             commit(connection);
 
             // it is safe to assign all the value now
-            idsLeft = blockSize;
-            nextID = myNextID;
+            return new LongRange(myNextID, myMaxBlockID);
         } catch (SQLException e) {
             // rollback for SQL error
             // IDGenerationException will be thrown only while try to get connection. in this case we needn't rollback
@@ -291,6 +622,127 @@ public class IDGeneratorImpl implements IDGenerator {
         }
     }
 
+    /**
+     * <p>
+     * The daemon thread fetching the block following the current one. The block is kept until the current one is
+     * exhausted; if the fetch fails, the block is read again by the caller needing it, which gets the failure.
+     * </p>
+     */
+    private class BlockPrefetcher extends Thread {
+        /**
+         * Creates the thread.
+         */
+        BlockPrefetcher() {
+            super("IDGenerator prefetch: " + idName);
+            setDaemon(true);
+        }
+
+        /**
+         * Fetches the block, and wakes up the callers waiting for it.
+         */
+        public void run() {
+            LongRange block = null;
+
+            try {
+                block = fetchBlock();
+            } catch (IDGenerationException e) {
+                // the block will be read again by the caller needing it
+            } finally {
+                synchronized (IDGeneratorImpl.this) {
+                    prefetchedBlock = block;
+                    prefetching = false;
+                    IDGeneratorImpl.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the size of the next block fetched for getNextID(), as adapted to the consumption rate of the
+     * sequence.
+     * </p>
+     *
+     * @return the current block size, or 0 if no block was fetched yet
+     * @since 3.1
+     */
+    public synchronized int getCurrentBlockSize() {
+        return adaptiveBlockSize;
+    }
+
+    /**
+     * <p>
+     * Returns the number of blocks fetched for getNextID() since the creation of this instance.
+     * </p>
+     *
+     * @return the number of refills
+     * @since 3.1
+     */
+    public synchronized int getRefillCount() {
+        return refillCount;
+    }
+
+    /**
+     * <p>
+     * Returns the average number of blocks fetched for getNextID() per second, since the creation of this instance.
+     * </p>
+     *
+     * @return the number of refills per second
+     * @since 3.1
+     */
+    public synchronized double getRefillRate() {
+        return (refillCount * 1000.0) / Math.max(1, System.currentTimeMillis() - creationTime);
+    }
+
+    /**
+     * <p>
+     * Returns the total time spent by the callers of getNextID() waiting for a block, since the creation of this
+     * instance.
+     * </p>
+     *
+     * @return the total wait time, in milliseconds
+     * @since 3.1
+     */
+    public synchronized long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    /**
+     * <p>
+     * Sets the target lifetime of a block, used to adapt the block size.
+     * </p>
+     *
+     * @param targetBlockLifetime the target lifetime, in milliseconds
+     */
+    synchronized void setTargetBlockLifetime(long targetBlockLifetime) {
+        this.targetBlockLifetime = targetBlockLifetime;
+    }
+
+    /**
+     * <p>
+     * Waits until the prefetch of the next block, if any, is complete.
+     * </p>
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void waitForPrefetch() throws InterruptedException {
+        while (prefetching) {
+            wait();
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the current time, used to measure the lifetime of the blocks and the wait for them. The tests override
+     * it to control the time, so it is never called by the constructor.
+     * </p>
+     *
+     * @return the current time, in milliseconds
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
     /**
      * <p>
      * Rollbacks the current connection.
@@ -8,15 +8,28 @@ package com.topcoder.util.idgenerator;
  * of IDs is needed, but there are not enough IDs left in the sequence to
  * allocate another block.
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: when a reservation of several IDs runs out partway, the IDs already taken from the sequence
+ * are carried by the exception, so that they are not lost.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public class IDsExhaustedException extends IDGenerationException {
 
+    /**
+     * The IDs reserved before the sequence was exhausted, or null.
+     *
+     * @since 3.1
+     */
+    private final long[] reservedIDs;
+
     /**
      * Creates a new IDsExhaustedException.
      */
     public IDsExhaustedException() {
+        reservedIDs = null;
     }
 
     /**
@@ -26,6 +39,35 @@ public class IDsExhaustedException extends IDGenerationException {
      */
     public IDsExhaustedException(String message) {
         super(message);
+        reservedIDs = null;
+    }
+
+    /**
+     * <p>
+     * Creates a new IDsExhaustedException with the given message, and the IDs reserved before the sequence was
+     * exhausted.
+     * </p>
+     *
+     * @param message exception message
+     * @param reservedIDs the IDs reserved before the sequence was exhausted, or null
+     * @since 3.1
+     */
+    public IDsExhaustedException(String message, long[] reservedIDs) {
+        super(message);
+        this.reservedIDs = reservedIDs;
+    }
+
+    /**
+     * <p>
+     * Gets the IDs reserved by reserveIDs before the sequence was exhausted. They were taken from the sequence, and
+     * are not returned by the generator again.
+     * </p>
+     *
+     * @return the reserved IDs, in the order they would have been returned, or null if none was reserved
+     * @since 3.1
+     */
+    public long[] getReservedIDs() {
+        return reservedIDs;
     }
 
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+/**
+ * <p>
+ * A contiguous range of IDs, reserved at once by IDGeneratorImpl.reserveIDRange(int). The range contains the IDs from
+ * its start to its end, both inclusive.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is immutable and thread safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public final class LongRange {
+    /** The first ID of the range. */
+    private final long start;
+
+    /** The last ID of the range. */
+    private final long end;
+
+    /**
+     * <p>
+     * Creates a range.
+     * </p>
+     *
+     * @param start the first ID of the range
+     * @param end the last ID of the range
+     *
+     * @throws IllegalArgumentException if end is less than start, or the range has more than Integer.MAX_VALUE IDs
+     */
+    public LongRange(long start, long end) {
+        if ((end < start) || ((end - start) >= Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("The range [" + start + ", " + end + "] is not valid.");
+        }
+
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * <p>
+     * Returns the first ID of the range.
+     * </p>
+     *
+     * @return the first ID of the range
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * <p>
+     * Returns the last ID of the range.
+     * </p>
+     *
+     * @return the last ID of the range
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * <p>
+     * Returns the number of IDs of the range.
+     * </p>
+     *
+     * @return the number of IDs of the range
+     */
+    public int getCount() {
+        return (int) (end - start + 1);
+    }
+
+    /**
+     * <p>
+     * Checks whether an ID is in the range.
+     * </p>
+     *
+     * @param id the ID
+     *
+     * @return true if the ID is in the range, false otherwise
+     */
+    public boolean contains(long id) {
+        return (id >= start) && (id <= end);
+    }
+
+    /**
+     * <p>
+     * Returns the IDs of the range.
+     * </p>
+     *
+     * @return the IDs of the range, in increasing order
+     */
+    public long[] toArray() {
+        long[] ids = new long[getCount()];
+
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = start + i;
+        }
+
+        return ids;
+    }
+
+    /**
+     * <p>
+     * Checks whether an object is a range with the same IDs.
+     * </p>
+     *
+     * @param obj the object
+     *
+     * @return true if the object is a range with the same IDs, false otherwise
+     */
+    public boolean equals(Object obj) {
+        if (!(obj instanceof LongRange)) {
+            return false;
+        }
+
+        LongRange range = (LongRange) obj;
+
+        return (range.start == start) && (range.end == end);
+    }
+
+    /**
+     * <p>
+     * Returns the hash code of the range.
+     * </p>
+     *
+     * @return the hash code of the range
+     */
+    public int hashCode() {
+        return (int) (start ^ (start >>> 32)) * 31 + (int) (end ^ (end >>> 32));
+    }
+
+    /**
+     * <p>
+     * Returns the string representation of the range.
+     * </p>
+     *
+     * @return the string representation of the range
+     */
+    public String toString() {
+        return "[" + start + ", " + end + "]";
+    }
+}
@@ -34,8 +34,14 @@ import java.sql.Statement;
  * Notes: the default connection name is 'OracleSequence' for DBConnectionFactory component.
  * </p>
  *
- * @author iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: the reserveIDs method gets all the blocks needed for the requested IDs with a single query.
+ * The query of the next value is held by each instance, instead of being shared by all the sequences, and the blocks
+ * are got under the instance lock only, so the sequences are refilled independently.
+ * </p>
+ *
+ * @author iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public class OracleSequenceGenerator implements IDGenerator {
     /**
@@ -51,8 +57,11 @@ public class OracleSequenceGenerator implements IDGenerator {
     /** The select sql sentence used for retrieving data from table. */
     private static final String SELECT_BLOCK_SIZE = "SELECT INCREMENT_BY, MAX_VALUE FROM seq WHERE SEQUENCE_NAME = ?";
 
-    /** The select next id sql string. */
-    private static String selectNextIdSql = null;
+    /** The suffix of the sql string selecting several next ids, the number of ids is the parameter. */
+    private static final String SELECT_NEXT_IDS_SUFFIX = ".nextval FROM DUAL CONNECT BY LEVEL <= ?";
+
+    /** The select next id sql string of the sequence of this instance. */
+    private String selectNextIdSql = null;
 
     /**
      * <p>
@@ -154,9 +163,7 @@ public class OracleSequenceGenerator implements IDGenerator {
         if (idsLeft <= 0) {
             // if no ids left,
             // acquire a new block
-            synchronized (OracleSequenceGenerator.class) {
-                getNextBlock();
-            }
+            getNextBlock();
         }
 
         --idsLeft;
@@ -173,7 +180,7 @@ public class OracleSequenceGenerator implements IDGenerator {
      *         the database)
      * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
      */
-    private synchronized void getNextBlock() throws IDGenerationException {
+    private void getNextBlock() throws IDGenerationException {
         // check sequence exist or not lazily
         if (!sequenceExist) {
             if (!setupSequence()) {
@@ -213,6 +220,154 @@ public class OracleSequenceGenerator implements IDGenerator {
         }
     }
 
+    /**
+     * <p>
+     * Reserves the given number of IDs at once. The IDs left in the current block are returned first, then the
+     * blocks needed for the remaining ones are got from the backing sequence with a single query. The IDs left in
+     * the last block become the current block. If the query fails for another reason than the exhaustion of the
+     * sequence, the current block is kept, so that its IDs are returned by the next calls; only the values the failed
+     * query drew from the sequence are skipped, as when getNextID() fails.
+     * </p>
+     *
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID() would have returned them
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDGenerationException if there is a problem with the backing DB
+     * @throws IDsExhaustedException if the IDs have been exhausted, with the IDs reserved before
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the Oracle DB
+     * @since 3.1
+     */
+    public synchronized long[] reserveIDs(int count) throws IDGenerationException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("The count should be positive.");
+        }
+
+        long[] ids = new long[count];
+        int taken = Math.min(count, idsLeft);
+
+        for (int i = 0; i < taken; ++i) {
+            ids[i] = nextID + i;
+        }
+
+        if (taken < count) {
+            // the current block is used up once the next blocks are got
+            getNextBlocks(ids, taken);
+        } else {
+            nextID += taken;
+            idsLeft -= taken;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Gets the blocks needed to fill the given IDs from the backing sequence, with a single query, and makes the
+     * last one the current block. The blocks are all read before any ID is filled, so that a failed query leaves the
+     * current block unchanged. If the sequence runs out partway, the IDs filled so far are given to the exception,
+     * since they were taken from the sequence.
+     *
+     * @param ids the IDs to fill
+     * @param taken the number of IDs already filled
+     *
+     * @throws IDsExhaustedException if all possible values in the ID sequence have been assigned and no more can be
+     *         assigned, with the IDs filled so far
+     * @throws IDGenerationException if an error occurs while generating the ID (for example, error while connecting to
+     *         the database)
+     * @throws NoSuchIDSequenceException if there is no appropriate sequence defined in the backing DB
+     */
+    private void getNextBlocks(long[] ids, int taken) throws IDGenerationException {
+        // check sequence exist or not lazily
+        if (!sequenceExist) {
+            if (!setupSequence()) {
+                throw new NoSuchIDSequenceException("sequence: " + seqName + " does not exist.");
+            }
+        }
+
+        PreparedStatement selectStmt = null;
+        ResultSet rs = null;
+        Connection connection = null;
+        long[] blockStarts = new long[((ids.length - taken - 1) / blockSize) + 1];
+        int read = 0;
+        boolean exhausted = false;
+
+        try {
+            connection = getConnection();
+
+            // query as many next values as blocks needed
+            selectStmt = connection.prepareStatement("SELECT " + seqName + SELECT_NEXT_IDS_SUFFIX);
+            selectStmt.setInt(1, blockStarts.length);
+            rs = selectStmt.executeQuery();
+
+            while ((read < blockStarts.length) && rs.next()) {
+                long blockStart = rs.getLong(1);
+
+                // maxID - blockStart is less than blockSize
+                if (((blockStart + blockSize) - 1) > this.maxID) {
+                    exhausted = true;
+
+                    break;
+                }
+
+                blockStarts[read++] = blockStart;
+            }
+        } catch (SQLException e) {
+            if (e.getMessage().indexOf("exceeds MAXVALUE") <= 0) {
+                throw new IDGenerationException("Failed to get next sequence ids.", e);
+            }
+
+            exhausted = true;
+        } finally {
+            IDGeneratorHelper.closeResultSet(rs);
+            IDGeneratorHelper.closeStatement(selectStmt);
+            IDGeneratorHelper.close(connection);
+        }
+
+        if (!exhausted && (read < blockStarts.length)) {
+            throw new IDGenerationException("The sequence returned less values than requested.");
+        }
+
+        // the current block is used up
+        idsLeft = 0;
+
+        for (int block = 0; block < read; ++block) {
+            int used = Math.min(blockSize, ids.length - taken);
+
+            for (int i = 0; i < used; ++i) {
+                ids[taken++] = blockStarts[block] + i;
+            }
+
+            // keep the ids left in the last block
+            nextID = blockStarts[block] + used;
+            idsLeft = blockSize - used;
+        }
+
+        if (exhausted) {
+            throw exhausted(ids, taken);
+        }
+    }
+
+    /**
+     * Creates the exception reporting the exhaustion of the sequence during a reservation, with the IDs reserved
+     * before.
+     *
+     * @param ids the IDs being filled
+     * @param taken the number of IDs filled
+     *
+     * @return the exception
+     */
+    private static IDsExhaustedException exhausted(long[] ids, int taken) {
+        long[] reserved = null;
+
+        if (taken > 0) {
+            reserved = new long[taken];
+            System.arraycopy(ids, 0, reserved, 0, taken);
+        }
+
+        return new IDsExhaustedException("The ids left are not sufficient to make a block.", reserved);
+    }
+
     /**
      * <p>
      * Wraps the value that would be returned by getNextID() in a BigInteger instance and returns it.
@@ -15,8 +15,13 @@ import javax.ejb.EJBObject;
 /**
  * Remote component interface to the IDGeneratorBean stateless session bean.
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: reserveIDs(String, int) is added, so that a client needing many IDs makes one remote call
+ * instead of one per ID.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public interface IDGenerator extends EJBObject {
     /**
@@ -45,4 +50,21 @@ public interface IDGenerator extends EJBObject {
      *         the database)
      */
     public BigInteger getNextBigID(String idName) throws RemoteException, IDGenerationException;
+
+    /**
+     * <p>
+     * Reserves the given number of IDs at once in the named ID sequence, so that a single remote call is made.
+     * </p>
+     *
+     * @param idName the name of the ID sequence
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID(String) would have returned them
+     *
+     * @throws RemoteException if an RMI error occurs between client and EJB container
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @since 3.1
+     */
+    public long[] reserveIDs(String idName, int count) throws RemoteException, IDGenerationException;
 }
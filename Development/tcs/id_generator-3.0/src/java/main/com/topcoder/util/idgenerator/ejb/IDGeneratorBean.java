@@ -15,8 +15,12 @@ import javax.ejb.SessionContext;
 /**
  * This stateless session bean is simply an EJB interface to the IDGenerator class.
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: reserveIDs(String, int) is added, delegating to the IDGenerator instance of the sequence.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public class IDGeneratorBean implements SessionBean {
     /** SessionContext for this session bean, set by the container when the bean is created. */
@@ -51,6 +55,25 @@ public class IDGeneratorBean implements SessionBean {
         return IDGeneratorFactory.getIDGenerator(idName).getNextBigID();
     }
 
+    /**
+     * <p>
+     * Reserves the given number of IDs at once in the named ID sequence.
+     * </p>
+     *
+     * @param idName ID sequence name
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID(String) would have returned them
+     *
+     * @throws IllegalArgumentException if count is not positive
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @since 3.1
+     */
+    public long[] reserveIDs(String idName, int count) throws IDGenerationException {
+        return IDGeneratorFactory.getIDGenerator(idName).reserveIDs(count);
+    }
+
     /**
      * This implementation does nothing.
      */
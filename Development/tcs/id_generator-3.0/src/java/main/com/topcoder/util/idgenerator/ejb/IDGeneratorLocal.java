@@ -13,8 +13,12 @@ import javax.ejb.EJBLocalObject;
 /**
  * Local component interface to the IDGeneratorBean stateless session bean.
  *
- * @author srowen, iggy36, gua
- * @version 3.0
+ * <p>
+ * Version 3.1 changes: reserveIDs(String, int) is added, matching the remote interface.
+ * </p>
+ *
+ * @author srowen, iggy36, gua, TCSDEVELOPER
+ * @version 3.1
  */
 public interface IDGeneratorLocal extends EJBLocalObject {
     /**
@@ -43,4 +47,20 @@ public interface IDGeneratorLocal extends EJBLocalObject {
      *         the database)
      */
     public BigInteger getNextBigID(String idName) throws IDGenerationException;
+
+    /**
+     * <p>
+     * Reserves the given number of IDs at once in the named ID sequence.
+     * </p>
+     *
+     * @param idName the name of the ID sequence
+     * @param count the number of IDs to reserve
+     *
+     * @return the reserved IDs, in the order getNextID(String) would have returned them
+     *
+     * @throws IDGenerationException if an error occurs while generating the IDs (for example, error while connecting
+     *         to the database)
+     * @since 3.1
+     */
+    public long[] reserveIDs(String idName, int count) throws IDGenerationException;
 }
@@ -0,0 +1,354 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+import com.topcoder.db.connectionfactory.DBConnectionFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * A DBConnectionFactory simulating the id_sequences table in memory, so that IDGeneratorImpl can be tested without
+ * a database. The connections only support the statements used by IDGeneratorImpl; the updates are applied
+ * immediately, and the selects can be delayed to simulate the latency of the database, or held until released.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class MockIDSequenceFactory implements DBConnectionFactory {
+    /** The rows of the table, the key is the sequence name and the value is a long[] {next_block_start, block_size,
+     * exhausted}. */
+    private final Map sequences = new HashMap();
+
+    /** The latency of the selects of each sequence, in milliseconds. */
+    private final Map latencies = new HashMap();
+
+    /** The number of selects of each sequence. */
+    private final Map selectCounts = new HashMap();
+
+    /** The names of the sequences whose selects are held until released. */
+    private final Set held = new HashSet();
+
+    /** The number of selects being held. */
+    private int heldSelects = 0;
+
+    /**
+     * Adds a sequence to the table.
+     *
+     * @param name the sequence name
+     * @param nextBlockStart the start of the next block
+     * @param blockSize the block size
+     * @param exhausted whether the sequence is exhausted
+     */
+    public synchronized void addSequence(String name, long nextBlockStart, int blockSize, boolean exhausted) {
+        sequences.put(name, new long[] {nextBlockStart, blockSize, exhausted ? 1 : 0});
+        selectCounts.put(name, new Integer(0));
+    }
+
+    /**
+     * Sets the latency of the selects of a sequence.
+     *
+     * @param name the sequence name
+     * @param latency the latency, in milliseconds
+     */
+    public synchronized void setLatency(String name, long latency) {
+        latencies.put(name, new Long(latency));
+    }
+
+    /**
+     * Holds the selects of a sequence until it is released.
+     *
+     * @param name the sequence name
+     */
+    public synchronized void hold(String name) {
+        held.add(name);
+    }
+
+    /**
+     * Releases the selects of a sequence.
+     *
+     * @param name the sequence name
+     */
+    public synchronized void release(String name) {
+        held.remove(name);
+        notifyAll();
+    }
+
+    /**
+     * Waits until a select is being held.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void waitForHeldSelect() throws InterruptedException {
+        while (heldSelects == 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Gets the number of selects of a sequence.
+     *
+     * @param name the sequence name
+     * @return the number of selects
+     */
+    public synchronized int getSelectCount(String name) {
+        return ((Integer) selectCounts.get(name)).intValue();
+    }
+
+    /**
+     * Gets the start of the next block of a sequence.
+     *
+     * @param name the sequence name
+     * @return the start of the next block
+     */
+    public synchronized long getNextBlockStart(String name) {
+        return ((long[]) sequences.get(name))[0];
+    }
+
+    /**
+     * Creates a connection to the table.
+     *
+     * @return the connection
+     */
+    public Connection createConnection() {
+        return (Connection) proxy(Connection.class, new ConnectionHandler());
+    }
+
+    /**
+     * Creates a connection to the table.
+     *
+     * @param name ignored
+     * @return the connection
+     */
+    public Connection createConnection(String name) {
+        return createConnection();
+    }
+
+    /**
+     * Creates a connection to the table.
+     *
+     * @param username ignored
+     * @param password ignored
+     * @return the connection
+     */
+    public Connection createConnection(String username, String password) {
+        return createConnection();
+    }
+
+    /**
+     * Creates a connection to the table.
+     *
+     * @param name ignored
+     * @param username ignored
+     * @param password ignored
+     * @return the connection
+     */
+    public Connection createConnection(String name, String username, String password) {
+        return createConnection();
+    }
+
+    /**
+     * Creates a proxy.
+     *
+     * @param type the proxied interface
+     * @param handler the handler of the calls
+     * @return the proxy
+     */
+    private static Object proxy(Class type, InvocationHandler handler) {
+        return Proxy.newProxyInstance(MockIDSequenceFactory.class.getClassLoader(), new Class[] {type}, handler);
+    }
+
+    /**
+     * Returns the default value of a method, for the methods doing nothing.
+     *
+     * @param method the method
+     * @return the default value
+     */
+    private static Object defaultValue(Method method) {
+        Class type = method.getReturnType();
+        if (type == Boolean.TYPE) {
+            return Boolean.FALSE;
+        } else if (type == Integer.TYPE) {
+            return new Integer(0);
+        } else if (type == Long.TYPE) {
+            return new Long(0);
+        }
+        return null;
+    }
+
+    /**
+     * Executes a statement on the table.
+     *
+     * @param sql the SQL string
+     * @param parameters the parameters of the statement
+     * @return the selected row for a select, or null for an update
+     * @throws InterruptedException if interrupted while simulating the latency or holding the select
+     */
+    private Object[] execute(String sql, List parameters) throws InterruptedException {
+        String name = (String) parameters.get(parameters.size() - 1);
+        if (sql.startsWith("SELECT")) {
+            Long latency;
+            synchronized (this) {
+                if (held.contains(name)) {
+                    ++heldSelects;
+                    notifyAll();
+                    try {
+                        while (held.contains(name)) {
+                            wait();
+                        }
+                    } finally {
+                        --heldSelects;
+                    }
+                }
+                latency = (Long) latencies.get(name);
+            }
+            if (latency != null) {
+                Thread.sleep(latency.longValue());
+            }
+        }
+
+        synchronized (this) {
+            long[] row = (long[]) sequences.get(name);
+            if (sql.startsWith("SELECT")) {
+                if (row == null) {
+                    return new Object[0];
+                }
+                selectCounts.put(name, new Integer(getSelectCount(name) + 1));
+                return new Object[] {new Long(row[0]), new Integer((int) row[1]), Boolean.valueOf(row[2] != 0)};
+            }
+            if (sql.indexOf("exhausted = 1") >= 0) {
+                row[2] = 1;
+            } else {
+                row[0] = ((Long) parameters.get(0)).longValue();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The handler of the connections.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        /**
+         * Handles a call to the connection.
+         *
+         * @param proxy the connection
+         * @param method the called method
+         * @param args the arguments
+         * @return the result
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, new StatementHandler((String) args[0]));
+            }
+            return defaultValue(method);
+        }
+    }
+
+    /**
+     * The handler of the prepared statements.
+     */
+    private class StatementHandler implements InvocationHandler {
+        /** The SQL string. */
+        private final String sql;
+
+        /** The parameters. */
+        private final List parameters = new ArrayList();
+
+        /**
+         * Creates the handler.
+         *
+         * @param sql the SQL string
+         */
+        StatementHandler(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Handles a call to the statement.
+         *
+         * @param proxy the statement
+         * @param method the called method
+         * @param args the arguments
+         * @return the result
+         * @throws InterruptedException if interrupted while simulating the latency
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws InterruptedException {
+            String name = method.getName();
+            if (name.startsWith("set") && (args.length == 2)) {
+                int index = ((Integer) args[0]).intValue();
+                while (parameters.size() < index) {
+                    parameters.add(null);
+                }
+                parameters.set(index - 1, args[1]);
+            } else if (name.equals("executeQuery")) {
+                return proxy(ResultSet.class, new ResultSetHandler(execute(sql, parameters)));
+            } else if (name.equals("executeUpdate")) {
+                execute(sql, parameters);
+                return new Integer(1);
+            }
+            return defaultValue(method);
+        }
+    }
+
+    /**
+     * The handler of the result sets, with at most one row.
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+        /** The columns of the row, empty if there is no row. */
+        private final Object[] row;
+
+        /** Whether the row has been read. */
+        private boolean read = false;
+
+        /**
+         * Creates the handler.
+         *
+         * @param row the columns of the row, empty if there is no row
+         */
+        ResultSetHandler(Object[] row) {
+            this.row = row;
+        }
+
+        /**
+         * Handles a call to the result set.
+         *
+         * @param proxy the result set
+         * @param method the called method
+         * @param args the arguments
+         * @return the result
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("next")) {
+                boolean next = !read && (row.length > 0);
+                read = true;
+                return Boolean.valueOf(next);
+            } else if (name.equals("getLong")) {
+                return row[0];
+            } else if (name.equals("getInt")) {
+                return row[1];
+            } else if (name.equals("getBoolean")) {
+                return row[2];
+            }
+            return defaultValue(method);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * Test the FileIDGenerator class: the generation of the IDs, their persistence across the instances, the recovery
+ * from a partially written file and the exhaustion of the sequence.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class TestFileIDGenerator extends TestCase {
+    /** The directory of the sequence files. */
+    private File directory;
+
+    /**
+     * Set up the test environment.
+     *
+     * @throws Exception to JUnit
+     */
+    protected void setUp() throws Exception {
+        directory = new File(System.getProperty("java.io.tmpdir"), "FileIDGeneratorTest" + System.currentTimeMillis());
+        directory.mkdirs();
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    protected void tearDown() {
+        File[] files = directory.listFiles();
+
+        for (int i = 0; i < files.length; ++i) {
+            files[i].delete();
+        }
+
+        directory.delete();
+    }
+
+    /**
+     * Test that a new sequence starts from 1, and that the IDs are continuous across the blocks.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testGetNextIDContinuous() throws Exception {
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, 1, 10);
+
+        for (int i = 1; i < 96; ++i) {
+            assertEquals("the ids should be continuous.", i, generator.getNextID());
+        }
+
+        assertEquals("the id name should be kept.", "seq", generator.getIDName());
+        generator.close();
+    }
+
+    /**
+     * Test that a new instance continues after the last block claimed by the previous one, so that no ID is
+     * returned twice.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testPersistence() throws Exception {
+        Set ids = new HashSet();
+
+        for (int run = 0; run < 5; ++run) {
+            FileIDGenerator generator = new FileIDGenerator("seq", directory, 1, 10);
+
+            for (int i = 0; i < 15; ++i) {
+                assertTrue("the ids should be unique.", ids.add(new Long(generator.getNextID())));
+            }
+
+            generator.close();
+        }
+
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, 500, 100);
+        assertEquals("the remaining ids of the block should be skipped.", 101, generator.getNextID());
+        generator.close();
+    }
+
+    /**
+     * Test that the previous state is read when the last written slot is corrupted.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testPartialWrite() throws Exception {
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, 1, 10);
+        generator.getNextID();
+        generator.close();
+
+        // the second state was written to the first slot
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "seq.ids"), "rw");
+        file.seek(12);
+        file.writeInt(-1);
+        file.close();
+
+        generator = new FileIDGenerator("seq", directory, 1, 10);
+        assertEquals("the first block should be claimed again.", 1, generator.getNextID());
+        generator.close();
+    }
+
+    /**
+     * Test that a file whose first write did not complete is created again.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testPartialFirstWrite() throws Exception {
+        // the first state is written to the second slot
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "seq.ids"), "rw");
+        file.write(new byte[40]);
+        file.close();
+
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, 5, 10);
+        assertEquals("the sequence should start from the first id.", 5, generator.getNextID());
+        generator.close();
+
+        generator = new FileIDGenerator("seq", directory, 5, 10);
+        assertEquals("the claimed block should be skipped.", 15, generator.getNextID());
+        generator.close();
+    }
+
+    /**
+     * Test that a file without any valid slot, written more than once, is reported.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testCorruptedFile() throws Exception {
+        byte[] bytes = new byte[64];
+        Arrays.fill(bytes, (byte) 0x55);
+
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "seq.ids"), "rw");
+        file.write(bytes);
+        file.close();
+
+        try {
+            new FileIDGenerator("seq", directory, 1, 10);
+            fail("IDGenerationException should be thrown.");
+        } catch (IDGenerationException e) {
+            // success
+        }
+    }
+
+    /**
+     * Test that the reserved IDs continue the current block, then a new range claimed at once.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testReserveIDs() throws Exception {
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, 1, 10);
+        generator.getNextID();
+
+        long[] ids = generator.reserveIDs(25);
+
+        for (int i = 0; i < ids.length; ++i) {
+            assertEquals("the ids should be continuous.", i + 2, ids[i]);
+        }
+
+        assertEquals("the next block should follow the reserved range.", 27, generator.getNextID());
+        generator.close();
+    }
+
+    /**
+     * Test that the sequence is exhausted like id_sequences.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testExhausted() throws Exception {
+        FileIDGenerator generator = new FileIDGenerator("seq", directory, Long.MAX_VALUE - 9, 10);
+
+        for (int i = 9; i >= 0; --i) {
+            assertEquals("the last block should be generated.", Long.MAX_VALUE - i, generator.getNextID());
+        }
+
+        try {
+            generator.getNextID();
+            fail("IDsExhaustedException should be thrown.");
+        } catch (IDsExhaustedException e) {
+            // success
+        }
+
+        generator.close();
+
+        generator = new FileIDGenerator("seq", directory, 1, 10);
+
+        try {
+            generator.getNextID();
+            fail("the exhaustion should be persisted.");
+        } catch (IDsExhaustedException e) {
+            // success
+        }
+
+        generator.close();
+    }
+
+    /**
+     * Test that the generator is created by IDGeneratorFactory, with its file in the configured directory.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testFactory() throws Exception {
+        System.setProperty(FileIDGenerator.DIRECTORY_PROPERTY, directory.getPath());
+
+        try {
+            IDGenerator generator = IDGeneratorFactory.getIDGenerator("fileSeq",
+                "com.topcoder.util.idgenerator.FileIDGenerator");
+            assertTrue("FileIDGenerator should be created.", generator instanceof FileIDGenerator);
+            assertEquals("the ids should start from 1.", 1, generator.getNextID());
+            assertTrue("the file should be created.", new File(directory, "fileSeq.ids").exists());
+            ((FileIDGenerator) generator).close();
+        } finally {
+            System.getProperties().remove(FileIDGenerator.DIRECTORY_PROPERTY);
+        }
+    }
+
+    /**
+     * Test the constructor with invalid arguments.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testConstructorInvalid() throws Exception {
+        try {
+            new FileIDGenerator(null, directory);
+            fail("NoSuchIDSequenceException should be thrown.");
+        } catch (NoSuchIDSequenceException e) {
+            // success
+        }
+
+        try {
+            new FileIDGenerator("seq", directory, 1, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // success
+        }
+    }
+}
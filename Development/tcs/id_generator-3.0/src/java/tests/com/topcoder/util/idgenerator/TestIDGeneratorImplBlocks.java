@@ -0,0 +1,438 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+import com.topcoder.db.connectionfactory.DBConnectionFactory;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * Test the block allocation of IDGeneratorImpl: the prefetch of the next block, the independence of the sequences,
+ * and the reservation of many IDs at once. The id_sequences table is simulated by MockIDSequenceFactory, so no database is needed,
+ * and the time is read from a field of the test, so the block lifetimes do not depend on the speed of the machine.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class TestIDGeneratorImplBlocks extends TestCase {
+    /** The simulated latency of the database, in milliseconds. */
+    private static final long LATENCY = 200;
+
+    /** The factory simulating the id_sequences table. */
+    private MockIDSequenceFactory factory;
+
+    /** The clock of the generators. */
+    private TestClock clock;
+
+    /**
+     * Set up the test environment.
+     */
+    protected void setUp() {
+        clock = new TestClock();
+        factory = new MockIDSequenceFactory();
+        factory.addSequence("seq", 0, 10, false);
+        factory.addSequence("other", 100, 10, false);
+        factory.addSequence("exhausted", Long.MAX_VALUE, 1, true);
+    }
+
+    /**
+     * Creates a generator reading the time from the clock of the test.
+     *
+     * @param name the sequence name
+     * @return the generator
+     * @throws IDGenerationException to JUnit
+     */
+    private IDGeneratorImpl createGenerator(String name) throws IDGenerationException {
+        return new ClockedGenerator(name, factory, clock);
+    }
+
+    /**
+     * Test that the IDs are continuous across the blocks.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testGetNextIDContinuous() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+
+        for (int i = 0; i < 95; ++i) {
+            assertEquals("the ids should be continuous.", i, generator.getNextID());
+        }
+    }
+
+    /**
+     * Test that the next block is fetched in the background when the current block falls to the low-water mark,
+     * so that the caller exhausting the block does not wait for the database.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testPrefetch() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+
+        // take the block down to the low-water mark, then let the prefetch complete
+        for (int i = 0; i < 8; ++i) {
+            generator.getNextID();
+        }
+        generator.waitForPrefetch();
+        assertEquals("the next block should be prefetched.", 3, factory.getSelectCount("seq"));
+
+        for (int i = 8; i < 12; ++i) {
+            assertEquals("the ids should be continuous.", i, generator.getNextID());
+        }
+        assertEquals("the prefetched block should be used.", 3, factory.getSelectCount("seq"));
+    }
+
+    /**
+     * Test that the caller exhausting the block waits for the prefetch in progress, instead of fetching another
+     * block.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testWaitForPrefetch() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+        factory.setLatency("seq", LATENCY);
+
+        for (int i = 0; i < 11; ++i) {
+            assertEquals("the ids should be continuous.", i, generator.getNextID());
+        }
+        assertEquals("a single block should be prefetched.", 3, factory.getSelectCount("seq"));
+        assertEquals("no block should be wasted.", 30, factory.getNextBlockStart("seq"));
+    }
+
+    /**
+     * Test that the caller waiting for the prefetch keeps its interrupt status when interrupted.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testInterruptedWhileWaiting() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+        generator.getNextID();
+        factory.hold("seq");
+
+        // the prefetch is held until released
+        for (int i = 1; i < 10; ++i) {
+            generator.getNextID();
+        }
+        factory.waitForHeldSelect();
+
+        Thread.currentThread().interrupt();
+        try {
+            generator.getNextID();
+            fail("IDGenerationException should be thrown.");
+        } catch (IDGenerationException e) {
+            assertTrue("the interrupt status should be kept.", Thread.interrupted());
+        } finally {
+            factory.release("seq");
+        }
+
+        generator.waitForPrefetch();
+        assertEquals("the prefetched block should be used.", 10, generator.getNextID());
+    }
+
+    /**
+     * Test that a sequence can generate IDs while another sequence is fetching a block.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testIndependentSequences() throws Exception {
+        final IDGeneratorImpl slow = createGenerator("seq");
+        IDGeneratorImpl fast = createGenerator("other");
+        fast.getNextID();
+        factory.hold("seq");
+
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    slow.getNextID();
+                } catch (IDGenerationException e) {
+                    // ignore
+                }
+            }
+        };
+        thread.start();
+        factory.waitForHeldSelect();
+
+        // the other sequence refills its blocks while the first one is held
+        for (int i = 1; i < 35; ++i) {
+            assertEquals("the ids should be continuous.", 100 + i, fast.getNextID());
+        }
+        assertTrue("the first sequence should still be held.", thread.isAlive());
+        factory.release("seq");
+        thread.join();
+    }
+
+    /**
+     * Test that the IDs generated by concurrent threads are unique.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testConcurrentGetNextID() throws Exception {
+        final IDGeneratorImpl generator = createGenerator("seq");
+        factory.setLatency("seq", 5);
+        final Set ids = new HashSet();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; ++j) {
+                            Long id = new Long(generator.getNextID());
+                            synchronized (ids) {
+                                ids.add(id);
+                            }
+                        }
+                    } catch (IDGenerationException e) {
+                        // detected by the size of the set
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i].join();
+        }
+
+        assertEquals("the ids should be unique.", 800, ids.size());
+    }
+
+    /**
+     * Test that the block size grows when the blocks are consumed quickly, so that the refills are an order of
+     * magnitude less frequent than with the block_size column.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testBlockSizeGrowth() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+
+        for (int i = 0; i < 20000; ++i) {
+            assertEquals("the ids should be continuous.", i, generator.getNextID());
+        }
+        assertTrue("the refills should be less frequent.", generator.getRefillCount() < 200);
+        assertTrue("the block size should grow.", generator.getCurrentBlockSize() > 10);
+        assertTrue("the block size should be capped.", generator.getCurrentBlockSize() <= 10240);
+    }
+
+    /**
+     * Test that the block size shrinks when the blocks last longer than the target lifetime.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testBlockSizeShrink() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+        generator.setTargetBlockLifetime(5);
+
+        for (int i = 0; i < 7; ++i) {
+            generator.getNextID();
+        }
+        assertEquals("the block size should be the column.", 10, generator.getCurrentBlockSize());
+
+        // the prefetch starts with the next id, long after the previous fetch
+        clock.advance(100);
+        generator.getNextID();
+        generator.waitForPrefetch();
+        assertEquals("the block size should be halved.", 5, generator.getCurrentBlockSize());
+        assertEquals("the prefetched block is wrong.", 15, factory.getNextBlockStart("seq"));
+    }
+
+    /**
+     * Test the metrics of the refills.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testRefillMetrics() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+        clock.setTick(10);
+
+        assertEquals("no block should be fetched.", 0, generator.getCurrentBlockSize());
+        generator.getNextID();
+        assertEquals("a block should be fetched.", 1, generator.getRefillCount());
+        assertTrue("the refill rate should be positive.", generator.getRefillRate() > 0);
+        assertTrue("the caller should wait for the block.", generator.getTotalWaitTime() > 0);
+    }
+
+    /**
+     * Test that reserveIDs returns the IDs left in the current and prefetched blocks, then claims exactly the
+     * remaining ones.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testReserveIDs() throws Exception {
+        IDGeneratorImpl generator = createGenerator("seq");
+        for (int i = 0; i < 8; ++i) {
+            generator.getNextID();
+        }
+        generator.waitForPrefetch();
+
+        // the prefetched block holds the ids 10 to 29
+        long[] ids = generator.reserveIDs(25);
+        long[] expected = new long[25];
+        for (int i = 0; i < expected.length; ++i) {
+            expected[i] = 8 + i;
+        }
+        assertTrue("the ids should be continuous.", Arrays.equals(expected, ids));
+        assertEquals("the remaining ids should be claimed at once.", 4, factory.getSelectCount("seq"));
+        assertEquals("exactly the remaining ids should be claimed.", 33, factory.getNextBlockStart("seq"));
+
+        ids = generator.reserveIDs(2);
+        assertEquals("the first id is wrong.", 33, ids[0]);
+        assertEquals("the second id is wrong.", 34, ids[1]);
+        assertEquals("the ids should be claimed.", 35, factory.getNextBlockStart("seq"));
+    }
+
+    /**
+     * Test that reserveIDRange claims a contiguous range in a single transaction, whatever the block size.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testReserveIDRange() throws Exception {
+        IDGeneratorImpl generator = new IDGeneratorImpl("seq", factory);
+
+        LongRange range = generator.reserveIDRange(1000);
+        assertEquals("the range is wrong.", new LongRange(0, 999), range);
+        assertEquals("the range should be claimed at once.", 2, factory.getSelectCount("seq"));
+        assertEquals("the next id is wrong.", 1000, generator.getNextID());
+    }
+
+    /**
+     * Test reserveIDs and reserveIDRange with a count which is not positive.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testReserveIDsInvalidCount() throws Exception {
+        IDGeneratorImpl generator = new IDGeneratorImpl("seq", factory);
+
+        try {
+            generator.reserveIDs(0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+
+        try {
+            generator.reserveIDRange(-1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+    }
+
+    /**
+     * Test that reserveIDRange fails when the IDs left in the sequence are not sufficient.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testReserveIDRangeExhausted() throws Exception {
+        factory.addSequence("almost", Long.MAX_VALUE - 9, 1, false);
+        IDGeneratorImpl generator = new IDGeneratorImpl("almost", factory);
+
+        try {
+            generator.reserveIDRange(20);
+            fail("IDsExhaustedException should be thrown.");
+        } catch (IDsExhaustedException e) {
+            // good
+        }
+
+        assertEquals("the last ids should be reserved.", new LongRange(Long.MAX_VALUE - 9, Long.MAX_VALUE),
+            generator.reserveIDRange(10));
+        try {
+            generator.getNextID();
+            fail("IDsExhaustedException should be thrown.");
+        } catch (IDsExhaustedException e) {
+            // good
+        }
+    }
+
+    /**
+     * Test that the exhaustion of the sequence is still reported when the prefetch fails.
+     *
+     * @throws Exception to JUnit
+     */
+    public void testGetNextIDExhausted() throws Exception {
+        IDGeneratorImpl generator = new IDGeneratorImpl("exhausted", factory);
+
+        try {
+            generator.getNextID();
+            fail("IDsExhaustedException should be thrown.");
+        } catch (IDsExhaustedException e) {
+            // good
+        }
+    }
+
+    /**
+     * The clock of the generators, advanced by the tests.
+     */
+    private static class TestClock {
+        /** The current time, in milliseconds. */
+        private long now = 1000;
+
+        /** The time added to the current time each time it is read, in milliseconds. */
+        private long tick = 0;
+
+        /**
+         * Reads the current time, advancing it by the tick first.
+         *
+         * @return the current time, in milliseconds
+         */
+        synchronized long read() {
+            now += tick;
+            return now;
+        }
+
+        /**
+         * Advances the current time.
+         *
+         * @param time the time to add, in milliseconds
+         */
+        synchronized void advance(long time) {
+            now += time;
+        }
+
+        /**
+         * Sets the time added to the current time each time it is read.
+         *
+         * @param tick the tick, in milliseconds
+         */
+        synchronized void setTick(long tick) {
+            this.tick = tick;
+        }
+    }
+
+    /**
+     * A generator reading the time from a TestClock.
+     */
+    private static class ClockedGenerator extends IDGeneratorImpl {
+        /** The clock. */
+        private final TestClock clock;
+
+        /**
+         * Creates the generator.
+         *
+         * @param name the sequence name
+         * @param factory the factory of the connections
+         * @param clock the clock
+         * @throws IDGenerationException to JUnit
+         */
+        ClockedGenerator(String name, DBConnectionFactory factory, TestClock clock) throws IDGenerationException {
+            super(name, factory);
+            this.clock = clock;
+        }
+
+        /**
+         * Reads the time from the clock.
+         *
+         * @return the current time, in milliseconds
+         */
+        long currentTimeMillis() {
+            return clock.read();
+        }
+    }
+}
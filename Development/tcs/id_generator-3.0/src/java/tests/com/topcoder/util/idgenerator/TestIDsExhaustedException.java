@@ -43,6 +43,18 @@ public class TestIDsExhaustedException extends TestCase {
             excp.getMessage().indexOf("Fail") >= 0);
     }
 
+    /**
+     * Test the behaviour of constructor with the reserved IDs.
+     */
+    public void testConstructor3() {
+        long[] ids = new long[] {1, 2};
+        IDsExhaustedException excp = new IDsExhaustedException("Fail", ids);
+        assertTrue("Fail message",
+            excp.getMessage().indexOf("Fail") >= 0);
+        assertSame("Reserved IDs", ids, excp.getReservedIDs());
+        assertNull("No reserved IDs", new IDsExhaustedException("Fail").getReservedIDs());
+    }
+
     /**
      * <p>Inheritance test.</p>
      *
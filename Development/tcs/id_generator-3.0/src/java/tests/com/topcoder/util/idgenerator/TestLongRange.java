@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Test the behaviour of LongRange.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class TestLongRange extends TestCase {
+    /**
+     * Test the accessors of a range.
+     */
+    public void testAccessors() {
+        LongRange range = new LongRange(10, 14);
+
+        assertEquals("the start is wrong.", 10, range.getStart());
+        assertEquals("the end is wrong.", 14, range.getEnd());
+        assertEquals("the count is wrong.", 5, range.getCount());
+        assertTrue("the ids should be equal.", Arrays.equals(new long[] {10, 11, 12, 13, 14}, range.toArray()));
+        assertTrue("the range should contain its end.", range.contains(14));
+        assertFalse("the range should not contain the next id.", range.contains(15));
+        assertEquals("the string is wrong.", "[10, 14]", range.toString());
+    }
+
+    /**
+     * Test equals and hashCode.
+     */
+    public void testEquals() {
+        LongRange range = new LongRange(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+
+        assertEquals("the ranges should be equal.", new LongRange(Long.MAX_VALUE - 1, Long.MAX_VALUE), range);
+        assertEquals("the hash codes should be equal.",
+            new LongRange(Long.MAX_VALUE - 1, Long.MAX_VALUE).hashCode(), range.hashCode());
+        assertFalse("the ranges should not be equal.", range.equals(new LongRange(Long.MAX_VALUE, Long.MAX_VALUE)));
+        assertFalse("the range should not be equal to null.", range.equals(null));
+    }
+
+    /**
+     * Test the constructor with invalid bounds.
+     */
+    public void testConstructorInvalid() {
+        try {
+            new LongRange(1, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+
+        try {
+            new LongRange(0, Integer.MAX_VALUE);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // good
+        }
+    }
+}
@@ -24,6 +24,9 @@ public class UnitTests extends TestCase {
         suite.addTestSuite(TestIDGenerationException.class);
         suite.addTestSuite(TestIDGeneratorFactory.class);
         suite.addTestSuite(TestIDGeneratorImpl.class);
+        suite.addTestSuite(TestIDGeneratorImplBlocks.class);
+        suite.addTestSuite(TestLongRange.class);
+        suite.addTestSuite(TestFileIDGenerator.class);
         suite.addTestSuite(OracleSequenceGeneratorUnitTests.class);
         suite.addTestSuite(TestIDGeneratorBean.class);
         suite.addTestSuite(DemoTest.class);
@@ -50,4 +50,11 @@ public class MyIDGeneratorImpl implements IDGenerator {
         return null;
     }
 
+    /**
+     * Dummy operation which does nothing.
+     */
+    public long[] reserveIDs(int count) throws IDGenerationException {
+        return new long[count];
+    }
+
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2005 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.util.idgenerator.stresstests;
+
+import com.topcoder.util.config.ConfigManager;
+import com.topcoder.util.idgenerator.IDGenerator;
+import com.topcoder.util.idgenerator.IDGeneratorFactory;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * This class measures the throughput of the ID generation when several threads generate IDs from several sequences
+ * at the same time, looking up the generators through IDGeneratorFactory for each ID. The sequences are refilled
+ * independently, and the lookups take no lock, so the throughput should grow with the number of threads.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 3.1
+ * @since 3.1
+ */
+public class IDGeneratorMultiSequenceStressTests extends TestCase {
+    /** The namespace of the DBConnectionFactoryImpl configuration. */
+    private static final String DB_FACTORY_NAMESPACE = "com.topcoder.db.connectionfactory.DBConnectionFactoryImpl";
+
+    /** The sequences used by the test, with different block sizes. */
+    private static final String[] SEQUENCES = new String[] {"test", "test100", "test250", "test500"};
+
+    /** The tested thread counts. */
+    private static final int[] THREAD_COUNTS = new int[] {1, 4, 16};
+
+    /** The number of IDs generated by each thread. */
+    private static final int IDS_PER_THREAD = 4000;
+
+    /** ConfigManager instance used for stress test. */
+    private ConfigManager configManager = null;
+
+    /** The IDs generated for each sequence, accessed under their own lock. */
+    private Set[] generated;
+
+    /**
+     * Setup the environment.
+     *
+     * @throws Exception if any unexpected exception occurs
+     */
+    protected void setUp() throws Exception {
+        configManager = ConfigManager.getInstance();
+        if (configManager.existsNamespace(DB_FACTORY_NAMESPACE)) {
+            configManager.removeNamespace(DB_FACTORY_NAMESPACE);
+        }
+        configManager.add(new File("test_files/stresstest/DBConnectionFactoryImpl.xml").getAbsolutePath());
+
+        generated = new Set[SEQUENCES.length];
+        for (int i = 0; i < SEQUENCES.length; ++i) {
+            generated[i] = new HashSet();
+        }
+    }
+
+    /**
+     * Restore the environment.
+     *
+     * @throws Exception if any unexpected exception occurs
+     */
+    protected void tearDown() throws Exception {
+        if (configManager.existsNamespace(DB_FACTORY_NAMESPACE)) {
+            configManager.removeNamespace(DB_FACTORY_NAMESPACE);
+        }
+    }
+
+    /**
+     * Measures the number of IDs generated per second with 1, 4 and 16 threads, each thread generating IDs from all
+     * the sequences in turn. The IDs of each sequence should be unique.
+     *
+     * @throws Exception if any unexpected exception occurs
+     */
+    public void testGetNextIDMultiSequence() throws Exception {
+        System.out.println("[IDGenerator multi-sequence stress test]");
+
+        for (int i = 0; i < THREAD_COUNTS.length; ++i) {
+            long ids = THREAD_COUNTS[i] * (long) IDS_PER_THREAD;
+            long time = measure(THREAD_COUNTS[i]);
+            System.out.println("\t " + THREAD_COUNTS[i] + " thread(s), " + SEQUENCES.length + " sequences: "
+                + ((ids * 1000) / Math.max(1, time)) + " IDs/s");
+        }
+        System.out.println();
+
+        long total = 0;
+        for (int i = 0; i < THREAD_COUNTS.length; ++i) {
+            total += THREAD_COUNTS[i] * (long) IDS_PER_THREAD;
+        }
+        long unique = 0;
+        for (int i = 0; i < SEQUENCES.length; ++i) {
+            unique += generated[i].size();
+        }
+        assertEquals("the ids of each sequence should be unique.", total, unique);
+    }
+
+    /**
+     * Generates the IDs from the given number of threads, and returns the elapsed time.
+     *
+     * @param threadCount the number of threads
+     * @return the elapsed time, in milliseconds
+     * @throws Exception if a thread failed
+     */
+    private long measure(int threadCount) throws Exception {
+        Worker[] workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i] = new Worker(i);
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i].start();
+        }
+        for (int i = 0; i < threadCount; ++i) {
+            workers[i].join();
+        }
+        long time = System.currentTimeMillis() - start;
+
+        for (int i = 0; i < threadCount; ++i) {
+            if (workers[i].getFailure() != null) {
+                throw workers[i].getFailure();
+            }
+        }
+
+        return time;
+    }
+
+    /**
+     * A thread generating IDs from all the sequences in turn.
+     */
+    private class Worker extends Thread {
+        /** The index of the first sequence used by this thread. */
+        private final int first;
+
+        /** The failure of this thread, if any. */
+        private Exception failure = null;
+
+        /**
+         * Creates the thread.
+         *
+         * @param first the index of the first sequence used by this thread
+         */
+        Worker(int first) {
+            this.first = first;
+        }
+
+        /**
+         * Generates the IDs.
+         */
+        public void run() {
+            try {
+                long[] ids = new long[IDS_PER_THREAD];
+                for (int i = 0; i < IDS_PER_THREAD; ++i) {
+                    IDGenerator generator = IDGeneratorFactory.getIDGenerator(
+                        SEQUENCES[(first + i) % SEQUENCES.length]);
+                    ids[i] = generator.getNextID();
+                }
+
+                for (int i = 0; i < IDS_PER_THREAD; ++i) {
+                    Set set = generated[(first + i) % SEQUENCES.length];
+                    synchronized (set) {
+                        set.add(new Long(ids[i]));
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Gets the failure of this thread.
+         *
+         * @return the failure, or null
+         */
+        Exception getFailure() {
+            return failure;
+        }
+    }
+}
@@ -21,6 +21,7 @@ public class StressTests extends TestCase {
         final TestSuite suite = new TestSuite();
         suite.addTest(new TestSuite(IDGeneratorFactoryStressTests.class));
         suite.addTest(new TestSuite(IDGeneratorImplStressTests.class));
+        suite.addTest(new TestSuite(IDGeneratorMultiSequenceStressTests.class));
         return suite;
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.LinkedList;
+
+/**
+ * <p>
+ * A SearchExecutor running at most a given number of searches at once, the
+ * others waiting in a queue in the order they were started. It is the default
+ * executor of SearchBundleManager.searchAll, so that a search of many bundles
+ * does not open as many datastore connections.
+ * </p>
+ *
+ * <p>
+ * The searches are run by workers, started on the given executor while fewer
+ * than the maximum are running. A worker runs the queued searches until the
+ * queue is empty, so no thread is kept when there is no search.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe, its state is accessed while
+ * holding its lock.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class BoundedSearchExecutor implements SearchExecutor {
+    /**
+     * <p>
+     * The maximum number of searches run at once.
+     * </p>
+     */
+    private final int maxConcurrentSearches;
+
+    /**
+     * <p>
+     * The executor starting the workers.
+     * </p>
+     */
+    private final SearchExecutor workerExecutor;
+
+    /**
+     * <p>
+     * The searches waiting for a worker, as Runnable instances.
+     * </p>
+     */
+    private final LinkedList queue = new LinkedList();
+
+    /**
+     * <p>
+     * The number of running workers.
+     * </p>
+     */
+    private int workers = 0;
+
+    /**
+     * <p>
+     * Creates an executor starting its workers on new threads, as
+     * ThreadSearchExecutor does.
+     * </p>
+     *
+     * @param maxConcurrentSearches
+     *            the maximum number of searches run at once.
+     * @throws IllegalArgumentException
+     *             if maxConcurrentSearches is not positive.
+     */
+    public BoundedSearchExecutor(int maxConcurrentSearches) {
+        this(maxConcurrentSearches, new ThreadSearchExecutor());
+    }
+
+    /**
+     * <p>
+     * Creates an executor starting its workers on the given executor.
+     * </p>
+     *
+     * @param maxConcurrentSearches
+     *            the maximum number of searches run at once.
+     * @param workerExecutor
+     *            the executor starting the workers.
+     * @throws IllegalArgumentException
+     *             if maxConcurrentSearches is not positive, or workerExecutor
+     *             is null.
+     */
+    public BoundedSearchExecutor(int maxConcurrentSearches, SearchExecutor workerExecutor) {
+        if (maxConcurrentSearches <= 0) {
+            throw new IllegalArgumentException("The maxConcurrentSearches should be positive.");
+        }
+
+        if (workerExecutor == null) {
+            throw new IllegalArgumentException("The workerExecutor should not be null.");
+        }
+
+        this.maxConcurrentSearches = maxConcurrentSearches;
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * <p>
+     * Gets the maximum number of searches run at once.
+     * </p>
+     *
+     * @return the maximum number of searches run at once.
+     */
+    public int getMaxConcurrentSearches() {
+        return maxConcurrentSearches;
+    }
+
+    /**
+     * <p>
+     * Queues the given search, starting a worker if fewer than the maximum are
+     * running.
+     * </p>
+     *
+     * @param search
+     *            the search to run.
+     * @throws IllegalArgumentException
+     *             if search is null.
+     */
+    public void execute(Runnable search) {
+        if (search == null) {
+            throw new IllegalArgumentException("The search should not be null.");
+        }
+
+        synchronized (this) {
+            queue.addLast(search);
+            if (workers >= maxConcurrentSearches) {
+                return;
+            }
+            ++workers;
+        }
+
+        try {
+            workerExecutor.execute(new Worker());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                --workers;
+                queue.remove(search);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * <p>
+     * Takes the next queued search, or stops the calling worker if there is
+     * none.
+     * </p>
+     *
+     * @return the next search, or null if the worker should stop
+     */
+    private synchronized Runnable next() {
+        if (queue.isEmpty()) {
+            --workers;
+            return null;
+        }
+
+        return (Runnable) queue.removeFirst();
+    }
+
+    /**
+     * <p>
+     * A worker running the queued searches until the queue is empty.
+     * </p>
+     */
+    private class Worker implements Runnable {
+        /**
+         * Runs the queued searches.
+         */
+        public void run() {
+            for (Runnable search = next(); search != null; search = next()) {
+                try {
+                    search.run();
+                } catch (RuntimeException e) {
+                    // a failing search must not stop the others
+                }
+            }
+        }
+    }
+}
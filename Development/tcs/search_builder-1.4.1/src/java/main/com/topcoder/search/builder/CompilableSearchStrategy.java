@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.filter.Filter;
+
+/**
+ * <p>
+ * A search strategy which can build the query of a filter once, and then run
+ * it with other values of the filter, only binding them. It is used by
+ * SearchBundle.compile. The values of a filter are its compared values, the
+ * lower then upper thresholds of its BETWEEN filters and the elements of its
+ * IN filters, in the order of the filter tree, as listed by CompiledSearch.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: The implementations should be able to handle concurrent calls
+ * to both methods, and to run a compiled search concurrently.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public interface CompilableSearchStrategy extends SearchStrategy {
+    /**
+     * <p>
+     * Builds the query of a search, leaving a placeholder for each value of
+     * the filter.
+     * </p>
+     *
+     * @return the compiled search, to give to search(Object, List), or null if
+     *         the query of this filter cannot be reused with other values, in
+     *         which case the search should be done by search(String, Filter,
+     *         List, Map).
+     * @param context
+     *            This is the context under which the search is performed.
+     * @param filter
+     *            The search filter which will constrain the search results.
+     * @param returnFields
+     *            A list of return fields to further constrain the search an
+     *            empty List means that all fields in the context should be
+     *            returned by the search.
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of fields as
+     *            keys and their actual values in the datastore as the
+     *            respective values.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while building the query
+     *             (except UnrecognizedFilterException and IAE).
+     * @throws UnrecognizedFilterException if the filter can not be recognized
+     * @throws IllegalArgumentException
+     *             if any parameter is null, or if context is an empty trimmed
+     *             String or if returnFields or aliasMap contains null or empty
+     *             String parameters.
+     */
+    public Object compile(String context, Filter filter, List returnFields, Map aliasMap)
+        throws PersistenceOperationException, UnrecognizedFilterException;
+
+    /**
+     * <p>
+     * Runs a compiled search with the given values.
+     * </p>
+     *
+     * @return An object that contains the results of the search. The actual
+     *         object returned is implementation dependent.
+     * @param compiledSearch
+     *            the search returned by compile.
+     * @param values
+     *            the values of the filter, in the order of the filter tree.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while searching (except
+     *             IAE).
+     * @throws IllegalArgumentException
+     *             if compiledSearch was not returned by compile of this
+     *             strategy, or if values is null.
+     */
+    public Object search(Object compiledSearch, List values) throws PersistenceOperationException;
+}
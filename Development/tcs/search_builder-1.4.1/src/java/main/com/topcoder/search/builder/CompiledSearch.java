@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.filter.AbstractSimpleFilter;
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.BetweenFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.GreaterThanFilter;
+import com.topcoder.search.builder.filter.GreaterThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.InFilter;
+import com.topcoder.search.builder.filter.LessThanFilter;
+import com.topcoder.search.builder.filter.LessThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.NotFilter;
+import com.topcoder.search.builder.filter.OrFilter;
+import com.topcoder.util.datavalidator.ObjectValidator;
+
+/**
+ * <p>
+ * A search of a SearchBundle compiled for a given filter, created by
+ * SearchBundle.compile. The filter is validated, and its query is built by
+ * the search strategy, once; the search can then be run again with other
+ * values of the filter, which are only checked against the validator of their
+ * field and bound to the query.
+ * </p>
+ *
+ * <p>
+ * The values of the filter are its parameters: the compared values of its
+ * EqualTo, GreaterThan, GreaterThanOrEqualTo, LessThan and LessThanOrEqualTo
+ * filters, the lower then upper thresholds of its BETWEEN filters and the
+ * elements of its IN filters, in the order of the filter tree. Each parameter
+ * is typed by the class of the value given at compilation. The LIKE and NULL
+ * filters, and the filters of other classes, are kept as they are.
+ * </p>
+ *
+ * <p>
+ * If the search strategy is a CompilableSearchStrategy able to compile the
+ * filter, the compiled query is run with the new values; otherwise the filter
+ * is rebuilt with the new values, and searched without being validated again.
+ * The search strategy and the validators of the fields are those of the bundle
+ * at compilation.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is immutable and thread safe, as long as the
+ * search strategy supports concurrent searches.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public final class CompiledSearch {
+    /**
+     * <p>
+     * The search strategy used to compile and run the search.
+     * </p>
+     */
+    private final SearchStrategy searchStrategy;
+
+    /**
+     * <p>
+     * The search compiled by the strategy, or null if the filter is rebuilt
+     * and searched for each run.
+     * </p>
+     */
+    private final Object compiledSearch;
+
+    /**
+     * <p>
+     * The context of the search.
+     * </p>
+     */
+    private final String context;
+
+    /**
+     * <p>
+     * A copy of the compiled filter.
+     * </p>
+     */
+    private final Filter filter;
+
+    /**
+     * <p>
+     * The return fields of the search.
+     * </p>
+     */
+    private final List returnFields;
+
+    /**
+     * <p>
+     * The alias map of the search.
+     * </p>
+     */
+    private final Map aliasMap;
+
+    /**
+     * <p>
+     * The names of the fields of the parameters, as given in the filter.
+     * </p>
+     */
+    private final String[] names;
+
+    /**
+     * <p>
+     * The types of the parameters.
+     * </p>
+     */
+    private final Class[] types;
+
+    /**
+     * <p>
+     * The validators of the parameters, null for the fields which are not
+     * constrained.
+     * </p>
+     */
+    private final ObjectValidator[] validators;
+
+    /**
+     * <p>
+     * The values of the parameters given at compilation.
+     * </p>
+     */
+    private final List values;
+
+    /**
+     * <p>
+     * Compiles the search of the given filter, which must be valid.
+     * </p>
+     *
+     * @param searchStrategy
+     *            the search strategy of the bundle
+     * @param context
+     *            the context of the bundle
+     * @param filter
+     *            the validated filter
+     * @param returnFields
+     *            the return fields
+     * @param aliasMap
+     *            the alias map of the bundle
+     * @param searchableFields
+     *            the searchable fields of the bundle, may be null
+     * @throws PersistenceOperationException
+     *             if the search strategy fails to compile the search
+     */
+    CompiledSearch(SearchStrategy searchStrategy, String context, Filter filter, List returnFields,
+        Map aliasMap, Map searchableFields) throws PersistenceOperationException {
+        this.searchStrategy = searchStrategy;
+        this.context = context;
+        this.filter = (Filter) filter.clone();
+        this.returnFields = new ArrayList(returnFields);
+        this.aliasMap = new HashMap(aliasMap);
+
+        List fieldNames = new ArrayList();
+        values = new ArrayList();
+        collectParameters(this.filter, fieldNames, values);
+
+        names = (String[]) fieldNames.toArray(new String[fieldNames.size()]);
+        types = new Class[names.length];
+        validators = new ObjectValidator[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            types[i] = values.get(i).getClass();
+            validators[i] = getValidator(searchableFields, names[i]);
+        }
+
+        if (searchStrategy instanceof CompilableSearchStrategy) {
+            try {
+                compiledSearch = ((CompilableSearchStrategy) searchStrategy).compile(context, this.filter,
+                    this.returnFields, this.aliasMap);
+            } catch (Exception e) {
+                throw new PersistenceOperationException("Exception occurs while compiling the search.", e);
+            }
+        } else {
+            compiledSearch = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the validator of a field, by its name or else by its alias, as the
+     * filters do.
+     * </p>
+     *
+     * @param searchableFields
+     *            the searchable fields, may be null
+     * @param name
+     *            the name of the field
+     * @return the validator, or null if the field is not constrained
+     */
+    private ObjectValidator getValidator(Map searchableFields, String name) {
+        if (searchableFields == null) {
+            return null;
+        }
+        Object rule = searchableFields.get(name);
+        if (!(rule instanceof ObjectValidator) && aliasMap.get(name) != null) {
+            rule = searchableFields.get(aliasMap.get(name));
+        }
+        return rule instanceof ObjectValidator ? (ObjectValidator) rule : null;
+    }
+
+    /**
+     * <p>
+     * Runs the search with the values given at compilation.
+     * </p>
+     *
+     * @return an Object holding the search result
+     * @throws PersistenceOperationException
+     *             if any error occurs when operating over the data store
+     * @throws SearchBuilderException
+     *             never, as these values are valid
+     */
+    public Object search() throws SearchBuilderException {
+        return search(values);
+    }
+
+    /**
+     * <p>
+     * Runs the search with the given values of the parameters.
+     * </p>
+     *
+     * @param parameters
+     *            the values of the parameters, in their order
+     * @return an Object holding the search result
+     * @throws IllegalArgumentException
+     *             if parameters is null, does not hold as many values as
+     *             parameters, or holds a value not of the type of its
+     *             parameter
+     * @throws SearchBuilderException
+     *             if a value is rejected by the validator of its field
+     * @throws PersistenceOperationException
+     *             if any error occurs when operating over the data store
+     */
+    public Object search(List parameters) throws SearchBuilderException {
+        if (parameters == null) {
+            throw new IllegalArgumentException("The parameters should not be null.");
+        }
+        if (parameters.size() != names.length) {
+            throw new IllegalArgumentException("The search has " + names.length + " parameters, but "
+                + parameters.size() + " are given.");
+        }
+        for (int i = 0; i < names.length; ++i) {
+            Object value = parameters.get(i);
+            if (!types[i].isInstance(value)) {
+                throw new IllegalArgumentException("The parameter " + i + " should be a " + types[i].getName()
+                    + ".");
+            }
+            String message = validators[i] == null ? null : validators[i].getMessage(value);
+            if (message != null) {
+                throw new SearchBuilderException("The value of the field '" + names[i] + "' is invalid for "
+                    + message + ".");
+            }
+        }
+
+        try {
+            if (compiledSearch != null) {
+                return ((CompilableSearchStrategy) searchStrategy).search(compiledSearch,
+                    new ArrayList(parameters));
+            }
+            return searchStrategy.search(context, substitute(filter, parameters.iterator()), returnFields,
+                aliasMap);
+        } catch (Exception e) {
+            throw new PersistenceOperationException("Exception occurs while running the compiled search.", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of parameters of the search.
+     * </p>
+     *
+     * @return the number of parameters
+     */
+    public int getParameterCount() {
+        return names.length;
+    }
+
+    /**
+     * <p>
+     * Gets the name of the field of a parameter, as given in the filter.
+     * </p>
+     *
+     * @param index
+     *            the index of the parameter
+     * @return the name of the field
+     * @throws IndexOutOfBoundsException
+     *             if index is not the index of a parameter
+     */
+    public String getParameterName(int index) {
+        return names[index];
+    }
+
+    /**
+     * <p>
+     * Gets the type of a parameter, the class of its value at compilation.
+     * </p>
+     *
+     * @param index
+     *            the index of the parameter
+     * @return the type of the parameter
+     * @throws IndexOutOfBoundsException
+     *             if index is not the index of a parameter
+     */
+    public Class getParameterType(int index) {
+        return types[index];
+    }
+
+    /**
+     * <p>
+     * Gets the values of the parameters given at compilation.
+     * </p>
+     *
+     * @return a copy of the values
+     */
+    public List getParameterValues() {
+        return new ArrayList(values);
+    }
+
+    /**
+     * <p>
+     * Checks whether a filter is one of the simple filters comparing their
+     * field with a single value.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @return whether the filter compares its field with a single value
+     */
+    private static boolean isComparison(Filter filter) {
+        Class type = filter.getClass();
+        return type == EqualToFilter.class || type == GreaterThanFilter.class
+            || type == GreaterThanOrEqualToFilter.class || type == LessThanFilter.class
+            || type == LessThanOrEqualToFilter.class;
+    }
+
+    /**
+     * <p>
+     * Collects the parameters of a filter, in the order of the filter tree.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @param fieldNames
+     *            the list to append the names of the fields of the parameters
+     *            to
+     * @param parameters
+     *            the list to append the values of the parameters to
+     */
+    private static void collectParameters(Filter filter, List fieldNames, List parameters) {
+        Class type = filter.getClass();
+        if (type == AndFilter.class || type == OrFilter.class) {
+            List filters = type == AndFilter.class ? ((AndFilter) filter).getFilters()
+                : ((OrFilter) filter).getFilters();
+            for (Iterator it = filters.iterator(); it.hasNext();) {
+                collectParameters((Filter) it.next(), fieldNames, parameters);
+            }
+        } else if (type == NotFilter.class) {
+            collectParameters(((NotFilter) filter).getFilter(), fieldNames, parameters);
+        } else if (type == BetweenFilter.class) {
+            BetweenFilter between = (BetweenFilter) filter;
+            fieldNames.add(between.getName());
+            parameters.add(between.getLowerThreshold());
+            fieldNames.add(between.getName());
+            parameters.add(between.getUpperThreshold());
+        } else if (type == InFilter.class) {
+            InFilter in = (InFilter) filter;
+            List list = in.getList();
+            for (int i = 0; i < list.size(); ++i) {
+                fieldNames.add(in.getName());
+            }
+            parameters.addAll(list);
+        } else if (isComparison(filter)) {
+            AbstractSimpleFilter simple = (AbstractSimpleFilter) filter;
+            fieldNames.add(simple.getName());
+            parameters.add(simple.getValue());
+        }
+    }
+
+    /**
+     * <p>
+     * Rebuilds a filter with the given values of its parameters.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @param parameters
+     *            the iterator over the values of the parameters, in the order
+     *            of the filter tree
+     * @return the filter with the given values
+     */
+    private static Filter substitute(Filter filter, Iterator parameters) {
+        Class type = filter.getClass();
+        if (type == AndFilter.class || type == OrFilter.class) {
+            List filters = type == AndFilter.class ? ((AndFilter) filter).getFilters()
+                : ((OrFilter) filter).getFilters();
+            List substituted = new ArrayList();
+            for (Iterator it = filters.iterator(); it.hasNext();) {
+                substituted.add(substitute((Filter) it.next(), parameters));
+            }
+            return type == AndFilter.class ? (Filter) new AndFilter(substituted) : new OrFilter(substituted);
+        } else if (type == NotFilter.class) {
+            return new NotFilter(substitute(((NotFilter) filter).getFilter(), parameters));
+        } else if (type == BetweenFilter.class) {
+            Comparable lower = (Comparable) parameters.next();
+            Comparable upper = (Comparable) parameters.next();
+            return new BetweenFilter(((BetweenFilter) filter).getName(), upper, lower);
+        } else if (type == InFilter.class) {
+            InFilter in = (InFilter) filter;
+            List list = new ArrayList();
+            for (int i = in.getList().size(); i > 0; --i) {
+                list.add(parameters.next());
+            }
+            return new InFilter(in.getName(), list);
+        } else if (type == EqualToFilter.class) {
+            return new EqualToFilter(((EqualToFilter) filter).getName(), (Comparable) parameters.next());
+        } else if (type == GreaterThanFilter.class) {
+            return new GreaterThanFilter(((GreaterThanFilter) filter).getName(), (Comparable) parameters.next());
+        } else if (type == GreaterThanOrEqualToFilter.class) {
+            return new GreaterThanOrEqualToFilter(((GreaterThanOrEqualToFilter) filter).getName(),
+                (Comparable) parameters.next());
+        } else if (type == LessThanFilter.class) {
+            return new LessThanFilter(((LessThanFilter) filter).getName(), (Comparable) parameters.next());
+        } else if (type == LessThanOrEqualToFilter.class) {
+            return new LessThanOrEqualToFilter(((LessThanOrEqualToFilter) filter).getName(),
+                (Comparable) parameters.next());
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A SearchResultCombiner concatenating the results of the bundles into a
+ * single List, in the order of the searched bundles. It accepts the results
+ * which are a Collection, as returned by HibernateSearchStrategy, or an
+ * Iterator, as returned by LDAPSearchStrategy.
+ * </p>
+ *
+ * <p>
+ * By default, if any bundle failed, its exception is thrown. If the combiner
+ * is created to ignore the failures, the results of the other bundles are
+ * returned.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe since it is immutable.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class ListSearchResultCombiner implements SearchResultCombiner {
+    /**
+     * <p>
+     * Whether the failed bundles are ignored.
+     * </p>
+     */
+    private final boolean ignoreFailures;
+
+    /**
+     * <p>
+     * Creates a combiner failing if any bundle failed.
+     * </p>
+     */
+    public ListSearchResultCombiner() {
+        this(false);
+    }
+
+    /**
+     * <p>
+     * Creates a combiner.
+     * </p>
+     *
+     * @param ignoreFailures
+     *            whether the failed bundles are ignored, returning the results
+     *            of the other bundles.
+     */
+    public ListSearchResultCombiner(boolean ignoreFailures) {
+        this.ignoreFailures = ignoreFailures;
+    }
+
+    /**
+     * <p>
+     * Concatenates the results of the bundles.
+     * </p>
+     *
+     * @param results
+     *            the results of the bundles whose search succeeded.
+     * @param failures
+     *            the exceptions of the bundles whose search failed.
+     * @return a List of the elements of the results.
+     * @throws IllegalArgumentException
+     *             if any parameter is null.
+     * @throws SearchBuilderException
+     *             the exception of the first failed bundle, if any and the
+     *             failures are not ignored, or if a result is neither a
+     *             Collection nor an Iterator.
+     */
+    public Object combine(Map results, Map failures) throws SearchBuilderException {
+        if (!ignoreFailures) {
+            MapSearchResultCombiner.checkFailures(results, failures);
+        } else if (results == null) {
+            throw new IllegalArgumentException("The results should not be null.");
+        } else if (failures == null) {
+            throw new IllegalArgumentException("The failures should not be null.");
+        }
+
+        List list = new ArrayList();
+
+        for (Iterator it = results.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            Object result = entry.getValue();
+
+            if (result instanceof Collection) {
+                list.addAll((Collection) result);
+            } else if (result instanceof Iterator) {
+                for (Iterator elements = (Iterator) result; elements.hasNext();) {
+                    list.add(elements.next());
+                }
+            } else if (result != null) {
+                throw new SearchBuilderException("The result of the bundle " + entry.getKey()
+                    + " is neither a Collection nor an Iterator.");
+            }
+        }
+
+        return list;
+    }
+}
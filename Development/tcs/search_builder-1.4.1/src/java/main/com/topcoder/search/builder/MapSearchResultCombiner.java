@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * The default SearchResultCombiner of SearchBundleManager.searchAll. It returns
+ * a Map of the result of each bundle by its name, in the order of the searched
+ * bundles, as the results of different datastores usually have different types.
+ * If any bundle failed, its exception is thrown.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe since it has no state.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class MapSearchResultCombiner implements SearchResultCombiner {
+    /**
+     * <p>
+     * Creates a new instance.
+     * </p>
+     */
+    public MapSearchResultCombiner() {
+        // empty
+    }
+
+    /**
+     * <p>
+     * Returns the results by the names of the bundles.
+     * </p>
+     *
+     * @param results
+     *            the results of the bundles whose search succeeded.
+     * @param failures
+     *            the exceptions of the bundles whose search failed.
+     * @return a Map of the results by the names of the bundles.
+     * @throws IllegalArgumentException
+     *             if any parameter is null.
+     * @throws SearchBuilderException
+     *             the exception of the first failed bundle, if any.
+     */
+    public Object combine(Map results, Map failures) throws SearchBuilderException {
+        checkFailures(results, failures);
+
+        return new LinkedHashMap(results);
+    }
+
+    /**
+     * <p>
+     * Checks the parameters of combine, and throws the exception of the first
+     * failed bundle, if any.
+     * </p>
+     *
+     * @param results
+     *            the results of the bundles whose search succeeded.
+     * @param failures
+     *            the exceptions of the bundles whose search failed.
+     * @throws IllegalArgumentException
+     *             if any parameter is null.
+     * @throws SearchBuilderException
+     *             the exception of the first failed bundle, if any.
+     */
+    static void checkFailures(Map results, Map failures) throws SearchBuilderException {
+        if (results == null) {
+            throw new IllegalArgumentException("The results should not be null.");
+        }
+
+        if (failures == null) {
+            throw new IllegalArgumentException("The failures should not be null.");
+        }
+
+        Iterator it = failures.values().iterator();
+
+        if (it.hasNext()) {
+            throw (SearchBuilderException) it.next();
+        }
+    }
+}
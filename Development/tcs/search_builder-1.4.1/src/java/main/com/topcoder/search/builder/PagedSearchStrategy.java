@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.filter.Filter;
+
+/**
+ * <p>
+ * A search strategy which can return a single page of the results, as given by
+ * a SearchRequest, letting the datastore skip and limit the results instead of
+ * returning all of them. It is used by SearchBundle.search(Filter, List,
+ * SearchRequest).
+ * </p>
+ *
+ * <p>
+ * Thread Safety: The implementations should be able to handle concurrent calls,
+ * as for SearchStrategy.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public interface PagedSearchStrategy extends SearchStrategy {
+    /**
+     * <p>
+     * Searches the datastore as SearchStrategy.search does, returning only the
+     * requested page of the results.
+     * </p>
+     *
+     * @return An object that contains the page of results. The actual object
+     *         returned is implementation dependent, and is of the same type as
+     *         for search(String, Filter, List, Map).
+     * @param context
+     *            This is the context under which the search is performed.
+     * @param filter
+     *            The search filter which will constrain the search results.
+     * @param returnFields
+     *            A list of return fields to further constrain the search an
+     *            empty List means that all fields in the context should be
+     *            returned by the search.
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of fields as
+     *            keys and their actual values in the datastore as the
+     *            respective values.
+     * @param request
+     *            the page of results to return.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while searching (except
+     *             UnrecognizedFilterException, OperationNotSupportedException
+     *             and IAE).
+     * @throws UnrecognizedFilterException if the filter can not be recognized
+     * @throws OperationNotSupportedException
+     *             if the datastore cannot sort or seek as requested.
+     * @throws IllegalArgumentException
+     *             if any parameter is null, or if context is an empty trimmed
+     *             String or if returnFields or aliasMap contains null or empty
+     *             String parameters.
+     */
+    public Object search(String context, Filter filter, List returnFields, Map aliasMap, SearchRequest request)
+        throws PersistenceOperationException, UnrecognizedFilterException, OperationNotSupportedException;
+}
@@ -610,4 +610,117 @@ public final class SearchBuilderHelper {
             }
         }
     }
+    /**
+     * <p>
+     * Build the query of a page of results following a seek key, by adding the
+     * condition on the sort fields to the query built for the filter. The
+     * values of the seek key are appended to the parameters, in the order of
+     * the placeholders of the condition. If the request has no seek key, the
+     * query is returned unchanged. This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param query
+     *            the query built for the filter
+     * @param prefix
+     *            the part of the query before the filter, built from the
+     *            context and return fields
+     * @param request
+     *            the page of results to return
+     * @param aliasMap
+     *            the map of alias names and real names of the fields
+     * @param parameters
+     *            the bound parameters of the query, to append the values of
+     *            the seek key to
+     * @return the query of the results following the seek key
+     * @throws IllegalArgumentException
+     *             if the request has a seek key and the query does not start
+     *             with the prefix
+     */
+    public static String buildSeekQuery(String query, String prefix,
+        SearchRequest request, Map aliasMap, List parameters) {
+        List seekKey = request.getSeekKey();
+
+        if (seekKey == null) {
+            return query;
+        }
+
+        if (!query.startsWith(prefix)) {
+            throw new IllegalArgumentException(
+                "The seek key needs the filter to follow the context in the query.");
+        }
+
+        String operator = request.isDescending() ? " < ?" : " > ?";
+        List sortFields = request.getSortFields();
+        StringBuffer buffer = new StringBuffer(query.length() + 64);
+        buffer.append(prefix).append("(")
+              .append(query.substring(prefix.length()).trim())
+              .append(") AND (");
+
+        // (f1 > ?) OR (f1 = ? AND f2 > ?) OR ...
+        for (int i = 0; i < sortFields.size(); ++i) {
+            if (i > 0) {
+                buffer.append(" OR ");
+            }
+
+            buffer.append("(");
+
+            for (int j = 0; j < i; ++j) {
+                buffer.append(getRealName((String) sortFields.get(j), aliasMap))
+                      .append(" = ? AND ");
+                parameters.add(seekKey.get(j));
+            }
+
+            buffer.append(getRealName((String) sortFields.get(i), aliasMap))
+                  .append(operator).append(")");
+            parameters.add(seekKey.get(i));
+        }
+
+        return buffer.append(")").toString();
+    }
+
+    /**
+     * <p>
+     * Build the list of the sort fields of a page of results, as used by an
+     * ORDER BY clause. This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param request
+     *            the page of results to return
+     * @param aliasMap
+     *            the map of alias names and real names of the fields
+     * @return the real names of the sort fields, each followed by ASC or DESC
+     *         and separated by commas, or an empty String if the request has
+     *         no sort fields
+     */
+    public static String buildOrderBy(SearchRequest request, Map aliasMap) {
+        String order = request.isDescending() ? " DESC" : " ASC";
+        StringBuffer buffer = new StringBuffer();
+
+        for (Iterator it = request.getSortFields().iterator(); it.hasNext();) {
+            if (buffer.length() > 0) {
+                buffer.append(", ");
+            }
+
+            buffer.append(getRealName((String) it.next(), aliasMap)).append(order);
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * <p>
+     * Get the real name of a field from the alias map.
+     * </p>
+     *
+     * @param name
+     *            the name of the field, maybe already the real name
+     * @param aliasMap
+     *            the map of alias names and real names of the fields
+     * @return the real name
+     */
+    private static String getRealName(String name, Map aliasMap) {
+        String realName = (String) aliasMap.get(name);
+
+        return (realName == null) ? name : realName;
+    }
 }
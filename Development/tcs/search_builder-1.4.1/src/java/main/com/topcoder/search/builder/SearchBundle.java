@@ -7,6 +7,7 @@ import com.topcoder.search.builder.filter.AndFilter;
 import com.topcoder.search.builder.filter.BetweenFilter;
 import com.topcoder.search.builder.filter.EqualToFilter;
 import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.FilterTreeValidator;
 import com.topcoder.search.builder.filter.GreaterThanFilter;
 import com.topcoder.search.builder.filter.GreaterThanOrEqualToFilter;
 import com.topcoder.search.builder.filter.InFilter;
@@ -43,8 +44,20 @@ import java.util.Map;
  * component. Both include the Database and LADP.
  * </p>
  *
+ * <p>
+ * Version 1.4.2 adds the compiled searches: compile validates a filter and builds
+ * its query once, and the returned CompiledSearch runs it again with other values.
+ * </p>
+ *
+ * <p>
+ * Version 1.4.2 also adds the paged searches, returning only the page of results
+ * given by a SearchRequest when the search strategy is a PagedSearchStrategy, and
+ * the asynchronous searches, returning a SearchFuture at once while the search is
+ * run by the SearchExecutor of the bundle.
+ * </p>
+ *
  * @author ShindouHikaru, TCSDEVELOPER
- * @version 1.3
+ * @version 1.4.2
  */
 public class SearchBundle {
     /**
@@ -60,8 +73,10 @@ public class SearchBundle {
     /**
      * It will hold a Map of ObjectValidator objects. keys are the real name (or alias
      * name) of searchable fileds. ObjectValidator are as the stored object.
+     * It is checked and filled before being set, so that the filters can be
+     * validated against it without lock.
      */
-    private Map searchableFields;
+    private volatile Map searchableFields;
 
     /**
      * It will hold a Map containing keys as the alias names of the fields and the names
@@ -83,6 +98,24 @@ public class SearchBundle {
      */
     private SearchStrategy searchStrategy;
 
+    /**
+     * <p>
+     * This is the executor running the asynchronous searches. It is a
+     * ThreadSearchExecutor unless set, and never null.
+     * </p>
+     * It is added in version 1.4.2.
+     */
+    private SearchExecutor searchExecutor = new ThreadSearchExecutor();
+
+    /**
+     * <p>
+     * This is the cache of the results of search(Filter, List), or null if the
+     * results are not cached. It is read without lock.
+     * </p>
+     * It is added in version 1.4.2.
+     */
+    private volatile SearchResultCache resultCache = null;
+
     /**
      * <p>
      * Create a new instance,providing the name ,searchable fields,map of alias. All the
@@ -281,6 +314,11 @@ public class SearchBundle {
      * the DataBase search. The result will be returned as an abject instanceof Iterator
      * of the Entry for the LDAP.
      * </p>
+     * <p>
+     * Since version 1.4.2, if a result cache is set, the result is looked up in it, and
+     * kept in it if it was not there. The returned result is then a copy of the cached
+     * one, see SearchResultCache.
+     * </p>
      *
      * @param filter
      *            The Filter object used to conduct the search
@@ -305,6 +343,366 @@ public class SearchBundle {
                 "The returnFields should not be null.");
         }
 
+        checkFilter(filter);
+
+        SearchResultCache cache = resultCache;
+        SearchResultCache.Key key = (cache == null) ? null
+            : SearchResultCache.createKey(filter, returnFields, aliasMap);
+        long generation = 0;
+
+        if (key != null) {
+            Object result = cache.get(key);
+
+            if (result != null) {
+                return result;
+            }
+
+            // an invalidation during the search makes its result stale
+            generation = cache.getGeneration();
+        }
+
+        Object result;
+
+        try {
+            synchronized (this) {
+                result = searchStrategy.search(context, filter, returnFields,
+                    aliasMap);
+            }
+        } catch (Exception e) {
+            // wrap the PersistenceOperationException if error occurs during the
+            // validateFilter
+            throw new PersistenceOperationException("Exception occurs while get"
+                + " the searchString and do search with returnfields in SearchBundle.", e);
+        }
+
+        return (key == null) ? result : cache.put(key, result, generation);
+    }
+
+    /**
+     * <p>
+     * Execute the search with given constructed Filter and return fields, returning
+     * only the page of results given by the request. The result is of the same type
+     * as for search(Filter, List), holding only the page.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @param request
+     *            the page of results to return
+     * @return an Object holding the page of results
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws OperationNotSupportedException
+     *             if the search strategy is not a PagedSearchStrategy, or cannot sort
+     *             or seek as requested
+     * @throws PersistenceOperationException
+     *             if any error when operating over data store or the filter is invalid.
+     */
+    public Object search(Filter filter, List returnFields, SearchRequest request)
+        throws SearchBuilderException {
+        PagedSearchStrategy strategy = getPagedSearchStrategy(filter, returnFields, request);
+
+        try {
+            return strategy.search(context, filter, returnFields, aliasMap, request);
+        } catch (OperationNotSupportedException e) {
+            throw e;
+        } catch (Exception e) {
+            // wrap the PersistenceOperationException if error occurs during the
+            // search
+            throw new PersistenceOperationException("Exception occurs while get"
+                + " the searchString and do paged search in SearchBundle.", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Start the search with given constructed Filter and return fields, on the search
+     * executor of the bundle. The filter is validated at once, and the returned
+     * SearchFuture gets the result of the search when it is done.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @return the search, getting the result of search(Filter, List)
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter or starting the search
+     */
+    public SearchFuture searchAsync(Filter filter, List returnFields)
+        throws SearchBuilderException {
+        SearchExecutor executor;
+
+        synchronized (this) {
+            executor = searchExecutor;
+        }
+
+        return searchAsync(filter, returnFields, executor);
+    }
+
+    /**
+     * <p>
+     * Start the search with given constructed Filter and return fields on the given
+     * executor. It is used by SearchBundleManager.searchAll, running the searches of
+     * its bundles on its own executor.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @param executor
+     *            the executor running the search
+     * @return the search, getting the result of search(Filter, List)
+     * @throws IllegalArgumentException
+     *             if filter or returnFields is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter or starting the search
+     */
+    SearchFuture searchAsync(Filter filter, List returnFields, SearchExecutor executor)
+        throws SearchBuilderException {
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+
+        if (returnFields == null) {
+            throw new IllegalArgumentException(
+                "The returnFields should not be null.");
+        }
+
+        checkFilter(filter);
+
+        SearchStrategy strategy;
+
+        synchronized (this) {
+            strategy = searchStrategy;
+        }
+
+        return start(executor, new SearchFuture(strategy, context, filter, returnFields,
+            aliasMap, null));
+    }
+
+    /**
+     * <p>
+     * Start the search with given constructed Filter and return fields, returning only
+     * the page of results given by the request, on the search executor of the bundle.
+     * The filter is validated at once, and the returned SearchFuture gets the result
+     * of the search when it is done.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @param request
+     *            the page of results to return
+     * @return the search, getting the result of search(Filter, List, SearchRequest)
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws OperationNotSupportedException
+     *             if the search strategy is not a PagedSearchStrategy
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter or starting the search
+     */
+    public SearchFuture searchAsync(Filter filter, List returnFields, SearchRequest request)
+        throws SearchBuilderException {
+        PagedSearchStrategy strategy = getPagedSearchStrategy(filter, returnFields, request);
+        SearchExecutor executor;
+
+        synchronized (this) {
+            executor = searchExecutor;
+        }
+
+        return start(executor, new SearchFuture(strategy, context, filter, returnFields,
+            aliasMap, request));
+    }
+
+    /**
+     * <p>
+     * Check the parameters of a paged search and get the search strategy doing it.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @param request
+     *            the page of results to return
+     * @return the search strategy
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws OperationNotSupportedException
+     *             if the search strategy is not a PagedSearchStrategy
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter
+     */
+    private PagedSearchStrategy getPagedSearchStrategy(Filter filter, List returnFields,
+        SearchRequest request) throws SearchBuilderException {
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+
+        if (returnFields == null) {
+            throw new IllegalArgumentException(
+                "The returnFields should not be null.");
+        }
+
+        if (request == null) {
+            throw new IllegalArgumentException("The request should not be null.");
+        }
+
+        checkFilter(filter);
+
+        SearchStrategy strategy;
+
+        synchronized (this) {
+            strategy = searchStrategy;
+        }
+
+        if (!(strategy instanceof PagedSearchStrategy)) {
+            throw new OperationNotSupportedException(
+                "The search strategy of the bundle does not support paged searches.");
+        }
+
+        return (PagedSearchStrategy) strategy;
+    }
+
+    /**
+     * <p>
+     * Start an asynchronous search on the given executor.
+     * </p>
+     *
+     * @param executor
+     *            the executor of the bundle
+     * @param search
+     *            the search to start
+     * @return the started search
+     * @throws PersistenceOperationException
+     *             if the executor fails to start the search
+     */
+    private static SearchFuture start(SearchExecutor executor, SearchFuture search)
+        throws PersistenceOperationException {
+        try {
+            executor.execute(search);
+        } catch (RuntimeException e) {
+            throw new PersistenceOperationException("The search executor fails to start"
+                + " the search in SearchBundle.", e);
+        }
+
+        return search;
+    }
+
+    /**
+     * <p>
+     * Compile the search of the given Filter, so that it can be run many times with
+     * other values of the filter. The filter is validated, and the query is built by
+     * the search strategy, once.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @return the compiled search
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter or compiling the search
+     */
+    public CompiledSearch compile(Filter filter) throws SearchBuilderException {
+        return compile(filter, new ArrayList());
+    }
+
+    /**
+     * <p>
+     * Compile the search of the given Filter and return fields, so that it can be run
+     * many times with other values of the filter. The filter is validated, and the
+     * query is built by the search strategy, once. The compiled search keeps using
+     * the search strategy and searchable fields set when it was compiled.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @param returnFields
+     *            a list of names of return fields
+     * @return the compiled search
+     * @throws IllegalArgumentException
+     *             if any parameter is null
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter or compiling the search
+     */
+    public CompiledSearch compile(Filter filter, List returnFields)
+        throws SearchBuilderException {
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+
+        if (returnFields == null) {
+            throw new IllegalArgumentException(
+                "The returnFields should not be null.");
+        }
+
+        checkFilter(filter);
+
+        SearchStrategy strategy;
+        Map fields;
+
+        synchronized (this) {
+            strategy = searchStrategy;
+            fields = searchableFields;
+        }
+
+        return new CompiledSearch(strategy, context, filter, returnFields, aliasMap,
+            fields);
+    }
+
+    /**
+     * <p>
+     * Check that the filter to search is valid.
+     * </p>
+     *
+     * @param filter
+     *            The Filter object used to conduct the search
+     * @throws SearchBuilderException
+     *             if the filter is invalid
+     * @throws PersistenceOperationException
+     *             if any error when validating the filter
+     */
+    private void checkFilter(Filter filter) throws SearchBuilderException {
         ValidationResult result = null;
 
         try {
@@ -321,18 +719,6 @@ public class SearchBundle {
             throw new SearchBuilderException(
                 "The filter to search is invalid in SearchBundle.");
         }
-
-        try {
-            synchronized (this) {
-                return searchStrategy.search(context, filter, returnFields,
-                    aliasMap);
-            }
-        } catch (Exception e) {
-            // wrap the PersistenceOperationException if error occurs during the
-            // validateFilter
-            throw new PersistenceOperationException("Exception occurs while get"
-                + " the searchString and do search with returnfields in SearchBundle.", e);
-        }
     }
 
     /**
@@ -605,10 +991,10 @@ public class SearchBundle {
     public synchronized void setSearchableFields(Map fields) {
         SearchBuilderHelper.checkfieldsMap(fields, "fields");
 
-        searchableFields = new HashMap(fields);
+        Map checkedFields = new HashMap(fields);
 
         // using always true validator if any is missing
-        for (Iterator it = searchableFields.entrySet().iterator();
+        for (Iterator it = checkedFields.entrySet().iterator();
                 it.hasNext();) {
             Map.Entry entry = (Map.Entry) it.next();
 
@@ -616,6 +1002,8 @@ public class SearchBundle {
                 entry.setValue(new AlwaysTrueValidator());
             }
         }
+
+        searchableFields = checkedFields;
     }
 
     /**
@@ -636,8 +1024,8 @@ public class SearchBundle {
             throw new IllegalArgumentException("The filter should not be null.");
         }
 
-        // Exception will throw in Filter construct if param invalid
-        return filter.isValid(searchableFields, aliasMap);
+        // the maps have been checked when set, only the filter tree is walked
+        return FilterTreeValidator.validate(filter, searchableFields, aliasMap);
     }
 
     /**
@@ -721,6 +1109,67 @@ public class SearchBundle {
         }
 
         this.searchStrategy = searchStrategy;
+
+        // the cached results come from the previous strategy
+        SearchResultCache cache = resultCache;
+
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * <p>
+     * Sets the executor running the asynchronous searches of the bundle. The searches
+     * already started are not affected.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param searchExecutor
+     *            the executor running the asynchronous searches.
+     * @throws IllegalArgumentException
+     *             if searchExecutor is null.
+     */
+    public synchronized void setSearchExecutor(SearchExecutor searchExecutor) {
+        if (searchExecutor == null) {
+            throw new IllegalArgumentException(
+                "The searchExecutor should not be null.");
+        }
+
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * <p>
+     * Sets the cache of the results of search(Filter, List). The cache should not be
+     * shared with other bundles. The other searches are not cached.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param resultCache
+     *            the cache of the results, or null not to cache them.
+     */
+    public void setResultCache(SearchResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * <p>
+     * Gets the cache of the results of search(Filter, List), to invalidate it or get
+     * its metrics.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @return the cache of the results, or null if they are not cached.
+     */
+    public SearchResultCache getResultCache() {
+        return resultCache;
     }
 
     /**
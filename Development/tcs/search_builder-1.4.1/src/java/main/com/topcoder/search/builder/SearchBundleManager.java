@@ -3,6 +3,7 @@
  */
 package com.topcoder.search.builder;
 
+import com.topcoder.search.builder.filter.Filter;
 import com.topcoder.util.config.Property;
 import com.topcoder.util.objectfactory.InvalidClassSpecificationException;
 import com.topcoder.util.objectfactory.ObjectFactory;
@@ -10,6 +11,7 @@ import com.topcoder.util.objectfactory.ObjectFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,10 +25,26 @@ import java.util.Map;
  * in which all the SearchBundles are loaded from the configuration.
  * </p>
  *
+ * <p>
+ * Since 1.4.2, searchAll searches several bundles in parallel, on a bounded executor of
+ * the manager, and combines their results through a SearchResultCombiner. It takes as
+ * long as the slowest bundle instead of the sum of all of them.
+ * </p>
+ *
  * @author ShindouHikaru, TCSDEVELOPER
- * @version 1.3
+ * @version 1.4.2
  */
 public class SearchBundleManager {
+    /**
+     * <p>
+     * The default maximum number of bundle searches run at once by searchAll.
+     * </p>
+     * <p>
+     * This field is added in version 1.4.2.
+     * </p>
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_SEARCHES = 8;
+
     /**
      * It holds a map of SearchBundle objects. the key of the map is the name of the SearchBundle.
      * while the value is the searchBundle instance.
@@ -34,6 +52,16 @@ public class SearchBundleManager {
      */
     private Map searchBundleMap;
 
+    /**
+     * <p>
+     * The executor running the bundle searches of searchAll.
+     * </p>
+     * <p>
+     * This field is added in version 1.4.2.
+     * </p>
+     */
+    private SearchExecutor searchExecutor = new BoundedSearchExecutor(DEFAULT_MAX_CONCURRENT_SEARCHES);
+
     /**
      * Create a new instance,with the SearchBundle store in the manager is empty.
      *
@@ -115,6 +143,9 @@ public class SearchBundleManager {
                     e);
             }
 
+            //the result cache is optional
+            bundle.setResultCache(getResultCache(searchBundle));
+
             //put the search bundle into the manager
             searchBundleMap.put(name, bundle);
         }
@@ -154,6 +185,37 @@ public class SearchBundleManager {
         }
     }
 
+    /**
+     * Get the result cache of the search bundle, configured by the optional
+     * 'resultCache.size' and 'resultCache.timeToLive' (in milliseconds, 0 by default
+     * for no expiration) properties.
+     *
+     * @param property the property of configuration
+     * @return the result cache, or null if 'resultCache.size' is missing
+     * @throws SearchBuilderConfigurationException if the properties are not valid
+     */
+    private static SearchResultCache getResultCache(Property property)
+        throws SearchBuilderConfigurationException {
+        String size = property.getValue("resultCache.size");
+
+        if (size == null) {
+            return null;
+        }
+
+        String timeToLive = property.getValue("resultCache.timeToLive");
+
+        try {
+            return new SearchResultCache(Integer.parseInt(size.trim()),
+                (timeToLive == null) ? 0 : Long.parseLong(timeToLive.trim()));
+        } catch (NumberFormatException e) {
+            throw new SearchBuilderConfigurationException(
+                "The properties 'resultCache.size' and 'resultCache.timeToLive' should be numbers.", e);
+        } catch (IllegalArgumentException e) {
+            throw new SearchBuilderConfigurationException(
+                "The properties 'resultCache.size' and 'resultCache.timeToLive' are not valid.", e);
+        }
+    }
+
     /**
      * Get the searchable fields of the search bundle.
      *
@@ -342,6 +404,218 @@ public class SearchBundleManager {
         this.searchBundleMap = new HashMap(searchBundleMap);
     }
 
+    /**
+     * <p>
+     * Sets the executor running the bundle searches of searchAll. The searches
+     * already started are not affected.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param searchExecutor the executor running the bundle searches
+     * @throws IllegalArgumentException if searchExecutor is null
+     */
+    public synchronized void setSearchExecutor(SearchExecutor searchExecutor) {
+        if (searchExecutor == null) {
+            throw new IllegalArgumentException(
+                "The searchExecutor should not be null.");
+        }
+
+        this.searchExecutor = searchExecutor;
+    }
+
+    /**
+     * <p>
+     * Search several bundles in parallel, each with its own filter, returning all the
+     * fields, and wait for all of them. The results are returned by the name of the
+     * bundles, as done by MapSearchResultCombiner.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filters a Map of the Filter of each searched bundle, by its name
+     * @return a Map of the result of each bundle, by its name
+     * @throws IllegalArgumentException if filters is null or empty, or contains a name
+     * which is not a non empty String or a filter which is not a Filter, or if a bundle
+     * is not in the manager
+     * @throws InterruptedException if the current thread is interrupted while waiting,
+     * in which case the searches are cancelled
+     * @throws SearchBuilderException if a filter is invalid, or a search fails
+     */
+    public Object searchAll(Map filters)
+        throws SearchBuilderException, InterruptedException {
+        return searchAll(filters, new ArrayList(), new MapSearchResultCombiner(), 0);
+    }
+
+    /**
+     * <p>
+     * Search several bundles in parallel, each with its own filter, and combine their
+     * results. The searches are started together on the executor of the manager, and
+     * each bundle is given at most timeout milliseconds from the start: a bundle not
+     * done in time is cancelled, and a SearchBuilderException is given for it to the
+     * combiner, as for a failed bundle.
+     * </p>
+     * <p>
+     * If a filter is invalid, or if the current thread is interrupted, the started
+     * searches are cancelled.
+     * </p>
+     * <p>
+     * This method is added in version 1.4.2.
+     * </p>
+     *
+     * @param filters a Map of the Filter of each searched bundle, by its name
+     * @param returnFields a list of names of return fields, for all the bundles
+     * @param combiner the combiner of the results
+     * @param timeout the maximum time given to each bundle, in milliseconds, or 0 to
+     * wait without limit
+     * @return the result of the combiner
+     * @throws IllegalArgumentException if any parameter is null, if filters is empty,
+     * or contains a name which is not a non empty String or a filter which is not a
+     * Filter, if a bundle is not in the manager, or if timeout is negative
+     * @throws InterruptedException if the current thread is interrupted while waiting,
+     * in which case the searches are cancelled
+     * @throws SearchBuilderException if a filter is invalid, or if thrown by the combiner
+     */
+    public Object searchAll(Map filters, List returnFields, SearchResultCombiner combiner,
+        long timeout) throws SearchBuilderException, InterruptedException {
+        if (returnFields == null) {
+            throw new IllegalArgumentException(
+                "The returnFields should not be null to searchAll.");
+        }
+
+        if (combiner == null) {
+            throw new IllegalArgumentException(
+                "The combiner should not be null to searchAll.");
+        }
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException(
+                "The timeout should not be negative to searchAll.");
+        }
+
+        Map bundles = getSearchBundles(filters);
+        SearchExecutor executor;
+
+        synchronized (this) {
+            executor = searchExecutor;
+        }
+
+        // start all the searches, before waiting for any of them
+        Map searches = new LinkedHashMap();
+
+        try {
+            for (Iterator it = bundles.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                String name = (String) entry.getKey();
+                SearchBundle bundle = (SearchBundle) entry.getValue();
+
+                searches.put(name, bundle.searchAsync((Filter) filters.get(name), returnFields,
+                        executor));
+            }
+        } catch (SearchBuilderException e) {
+            cancelAll(searches);
+            throw e;
+        } catch (RuntimeException e) {
+            cancelAll(searches);
+            throw e;
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+        Map results = new LinkedHashMap();
+        Map failures = new LinkedHashMap();
+
+        try {
+            for (Iterator it = searches.entrySet().iterator(); it.hasNext();) {
+                Map.Entry entry = (Map.Entry) it.next();
+                SearchFuture search = (SearchFuture) entry.getValue();
+
+                try {
+                    if (timeout == 0) {
+                        results.put(entry.getKey(), search.get());
+                    } else {
+                        results.put(entry.getKey(),
+                            search.get(Math.max(0, deadline - System.currentTimeMillis())));
+                    }
+                } catch (SearchBuilderException e) {
+                    // not done in time, cancel it; otherwise it already failed
+                    search.cancel();
+                    failures.put(entry.getKey(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll(searches);
+            throw e;
+        }
+
+        return combiner.combine(results, failures);
+    }
+
+    /**
+     * <p>
+     * Check the filters of searchAll, and get the searched bundles.
+     * </p>
+     *
+     * @param filters a Map of the Filter of each searched bundle, by its name
+     * @return the searched bundles, by their names, in the order of filters
+     * @throws IllegalArgumentException if filters is null or empty, or contains a name
+     * which is not a non empty String or a filter which is not a Filter, or if a bundle
+     * is not in the manager
+     */
+    private synchronized Map getSearchBundles(Map filters) {
+        if (filters == null) {
+            throw new IllegalArgumentException(
+                "The filters should not be null to searchAll.");
+        }
+
+        if (filters.isEmpty()) {
+            throw new IllegalArgumentException(
+                "The filters should not be empty to searchAll.");
+        }
+
+        Map bundles = new LinkedHashMap();
+
+        for (Iterator it = filters.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+
+            if (!(entry.getKey() instanceof String)
+                    || (((String) entry.getKey()).trim().length() == 0)) {
+                throw new IllegalArgumentException(
+                    "The filters should contain non empty String names to searchAll.");
+            }
+
+            if (!(entry.getValue() instanceof Filter)) {
+                throw new IllegalArgumentException(
+                    "The filters should contain Filter values to searchAll.");
+            }
+
+            Object bundle = searchBundleMap.get(entry.getKey());
+
+            if (bundle == null) {
+                throw new IllegalArgumentException("The SearchBundle with name:" +
+                    entry.getKey() + " does not exist while do searchAll.");
+            }
+
+            bundles.put(entry.getKey(), bundle);
+        }
+
+        return bundles;
+    }
+
+    /**
+     * <p>
+     * Cancel the given searches.
+     * </p>
+     *
+     * @param searches the SearchFuture of each bundle, by its name
+     */
+    private static void cancelAll(Map searches) {
+        for (Iterator it = searches.values().iterator(); it.hasNext();) {
+            ((SearchFuture) it.next()).cancel();
+        }
+    }
+
     /**
      * <p>
      * Empty all records managed by the class,clear all.
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+/**
+ * <p>
+ * Runs the asynchronous searches of SearchBundle.searchAsync. An
+ * implementation may run them on new threads, as ThreadSearchExecutor does, or
+ * on a pool of threads.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: The implementations should be thread safe, as the searches
+ * may be started concurrently.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public interface SearchExecutor {
+    /**
+     * <p>
+     * Runs the given search, later and on another thread.
+     * </p>
+     *
+     * @param search
+     *            the search to run.
+     * @throws IllegalArgumentException
+     *             if search is null.
+     */
+    public void execute(Runnable search);
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.filter.Filter;
+
+/**
+ * <p>
+ * An asynchronous search, returned by SearchBundle.searchAsync. It is run by
+ * the SearchExecutor of the bundle, and its result is got by the get methods,
+ * waiting for the search to be done. A search can be cancelled, in which case
+ * the thread running it is interrupted and its result is discarded.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe, its state is accessed while
+ * holding its lock.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public final class SearchFuture implements Runnable {
+    /**
+     * <p>
+     * The search strategy, a PagedSearchStrategy if request is not null.
+     * </p>
+     */
+    private final SearchStrategy strategy;
+
+    /**
+     * <p>
+     * The context of the search.
+     * </p>
+     */
+    private final String context;
+
+    /**
+     * <p>
+     * The validated filter.
+     * </p>
+     */
+    private final Filter filter;
+
+    /**
+     * <p>
+     * The copy of the return fields.
+     * </p>
+     */
+    private final List returnFields;
+
+    /**
+     * <p>
+     * The alias map of the bundle.
+     * </p>
+     */
+    private final Map aliasMap;
+
+    /**
+     * <p>
+     * The page of results to return, or null to return all of them.
+     * </p>
+     */
+    private final SearchRequest request;
+
+    /**
+     * <p>
+     * The thread running the search, or null if it is not running.
+     * </p>
+     */
+    private Thread runner = null;
+
+    /**
+     * <p>
+     * Whether the search was started, or cancelled before being started.
+     * </p>
+     */
+    private boolean started = false;
+
+    /**
+     * <p>
+     * Whether the search is done or cancelled.
+     * </p>
+     */
+    private boolean done = false;
+
+    /**
+     * <p>
+     * Whether the search was cancelled.
+     * </p>
+     */
+    private boolean cancelled = false;
+
+    /**
+     * <p>
+     * Whether cancel interrupted the thread running the search.
+     * </p>
+     */
+    private boolean interrupted = false;
+
+    /**
+     * <p>
+     * The result of the search.
+     * </p>
+     */
+    private Object result = null;
+
+    /**
+     * <p>
+     * The exception of the search, or null if it succeeded.
+     * </p>
+     */
+    private SearchBuilderException error = null;
+
+    /**
+     * <p>
+     * Creates the search of a validated filter.
+     * </p>
+     *
+     * @param strategy
+     *            the search strategy, a PagedSearchStrategy if request is not
+     *            null
+     * @param context
+     *            the context of the search
+     * @param filter
+     *            the validated filter
+     * @param returnFields
+     *            the return fields
+     * @param aliasMap
+     *            the alias map of the bundle
+     * @param request
+     *            the page of results to return, or null to return all of them
+     */
+    SearchFuture(SearchStrategy strategy, String context, Filter filter, List returnFields, Map aliasMap,
+        SearchRequest request) {
+        this.strategy = strategy;
+        this.context = context;
+        this.filter = filter;
+        this.returnFields = new ArrayList(returnFields);
+        this.aliasMap = aliasMap;
+        this.request = request;
+    }
+
+    /**
+     * <p>
+     * Runs the search, unless it was already started or cancelled. It is
+     * called by the SearchExecutor. The interrupted status of the calling
+     * thread is kept, only the interruption of a cancel is cleared.
+     * </p>
+     */
+    public void run() {
+        boolean wasInterrupted;
+        synchronized (this) {
+            if (started) {
+                return;
+            }
+            started = true;
+            runner = Thread.currentThread();
+            wasInterrupted = runner.isInterrupted();
+        }
+
+        Object searchResult = null;
+        SearchBuilderException searchError = null;
+        try {
+            if (request == null) {
+                searchResult = strategy.search(context, filter, returnFields, aliasMap);
+            } else {
+                searchResult = ((PagedSearchStrategy) strategy).search(context, filter, returnFields, aliasMap,
+                    request);
+            }
+        } catch (OperationNotSupportedException e) {
+            searchError = e;
+        } catch (Exception e) {
+            // wrap as SearchBundle.search does
+            searchError = new PersistenceOperationException("Exception occurs while do the asynchronous"
+                + " search in SearchBundle.", e);
+        }
+
+        synchronized (this) {
+            runner = null;
+            // clear the interruption of a cancel, which is only done while running
+            if (interrupted) {
+                Thread.interrupted();
+            }
+            if (wasInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (!cancelled) {
+                result = searchResult;
+                error = searchError;
+                done = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Cancels the search. If it is running, the thread running it is
+     * interrupted; if it is not started, it will not be run.
+     * </p>
+     *
+     * @return true if the search is cancelled, false if it was already done or
+     *         cancelled
+     */
+    public synchronized boolean cancel() {
+        if (done) {
+            return false;
+        }
+        cancelled = true;
+        started = true;
+        done = true;
+        if (runner != null) {
+            runner.interrupt();
+            interrupted = true;
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * <p>
+     * Tells whether the search is done, or cancelled.
+     * </p>
+     *
+     * @return whether the search is done
+     */
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * <p>
+     * Tells whether the search was cancelled.
+     * </p>
+     *
+     * @return whether the search was cancelled
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * <p>
+     * Waits for the search to be done, and gets its result.
+     * </p>
+     *
+     * @return the result of the search, as returned by SearchBundle.search
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     * @throws SearchBuilderException
+     *             if the search was cancelled
+     * @throws OperationNotSupportedException
+     *             if the strategy cannot sort or seek as requested
+     * @throws PersistenceOperationException
+     *             if any error when operating over data store
+     */
+    public synchronized Object get() throws InterruptedException, SearchBuilderException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    /**
+     * <p>
+     * Waits at most the given time for the search to be done, and gets its
+     * result.
+     * </p>
+     *
+     * @param timeout
+     *            the maximum time to wait, in milliseconds
+     * @return the result of the search, as returned by SearchBundle.search
+     * @throws IllegalArgumentException
+     *             if timeout is negative
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     * @throws SearchBuilderException
+     *             if the search was cancelled or is not done in time, in which
+     *             case isDone returns false
+     * @throws OperationNotSupportedException
+     *             if the strategy cannot sort or seek as requested
+     * @throws PersistenceOperationException
+     *             if any error when operating over data store
+     */
+    public synchronized Object get(long timeout) throws InterruptedException, SearchBuilderException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("The timeout should not be negative.");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!done) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SearchBuilderException("The search is not done in " + timeout + " ms.");
+            }
+            wait(remaining);
+        }
+        return getResult();
+    }
+
+    /**
+     * <p>
+     * Gets the result of the done search.
+     * </p>
+     *
+     * @return the result of the search
+     * @throws SearchBuilderException
+     *             if the search was cancelled or failed
+     */
+    private Object getResult() throws SearchBuilderException {
+        if (cancelled) {
+            throw new SearchBuilderException("The search was cancelled.");
+        }
+        if (error != null) {
+            throw error;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * The page of the results to return, for SearchBundle.search and
+ * PagedSearchStrategy. A page is given either by an offset, the number of
+ * results to skip, or by a seek key, the values of the sort fields of the last
+ * result of the previous page (keyset pagination). In both cases, at most limit
+ * results are returned, sorted by the sort fields.
+ * </p>
+ *
+ * <p>
+ * The sort fields are the names or alias names of fields, and they are all
+ * sorted ascending or all descending. With a seek key, they should identify
+ * the results, so that no result is skipped or repeated between the pages.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe since it is immutable.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public final class SearchRequest {
+    /**
+     * <p>
+     * The number of results to skip, 0 with a seek key.
+     * </p>
+     */
+    private final int offset;
+
+    /**
+     * <p>
+     * The maximum number of results to return, positive.
+     * </p>
+     */
+    private final int limit;
+
+    /**
+     * <p>
+     * The unmodifiable list of the names of the sort fields, non-empty Strings.
+     * </p>
+     */
+    private final List sortFields;
+
+    /**
+     * <p>
+     * Whether the results are sorted descending.
+     * </p>
+     */
+    private final boolean descending;
+
+    /**
+     * <p>
+     * The unmodifiable list of the values of the sort fields of the last result
+     * of the previous page, or null if the page is given by an offset.
+     * </p>
+     */
+    private final List seekKey;
+
+    /**
+     * <p>
+     * Creates a request for unsorted results, given by an offset.
+     * </p>
+     *
+     * @param offset
+     *            the number of results to skip
+     * @param limit
+     *            the maximum number of results to return
+     * @throws IllegalArgumentException
+     *             if offset is negative or limit is not positive
+     */
+    public SearchRequest(int offset, int limit) {
+        this(offset, limit, new ArrayList(), false);
+    }
+
+    /**
+     * <p>
+     * Creates a request for sorted results, given by an offset.
+     * </p>
+     *
+     * @param offset
+     *            the number of results to skip
+     * @param limit
+     *            the maximum number of results to return
+     * @param sortFields
+     *            the names of the fields to sort the results by, can be empty
+     * @param descending
+     *            whether the results are sorted descending
+     * @throws IllegalArgumentException
+     *             if offset is negative, if limit is not positive, or if
+     *             sortFields is null or contains null, non-String or empty
+     *             elements
+     */
+    public SearchRequest(int offset, int limit, List sortFields, boolean descending) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("The offset should not be negative.");
+        }
+        checkLimit(limit);
+        SearchBuilderHelper.checkList(sortFields, "sortFields", String.class);
+
+        this.offset = offset;
+        this.limit = limit;
+        this.sortFields = Collections.unmodifiableList(new ArrayList(sortFields));
+        this.descending = descending;
+        this.seekKey = null;
+    }
+
+    /**
+     * <p>
+     * Creates a request for the results following a seek key.
+     * </p>
+     *
+     * @param sortFields
+     *            the names of the fields to sort the results by
+     * @param descending
+     *            whether the results are sorted descending
+     * @param seekKey
+     *            the values of the sort fields of the last result of the
+     *            previous page
+     * @param limit
+     *            the maximum number of results to return
+     * @throws IllegalArgumentException
+     *             if limit is not positive, if sortFields is null, empty or
+     *             contains null, non-String or empty elements, or if seekKey is
+     *             null, contains null or has not one value per sort field
+     */
+    public SearchRequest(List sortFields, boolean descending, List seekKey, int limit) {
+        checkLimit(limit);
+        SearchBuilderHelper.checkList(sortFields, "sortFields", String.class);
+        if (sortFields.size() == 0) {
+            throw new IllegalArgumentException("The sortFields should not be empty.");
+        }
+        SearchBuilderHelper.checkList(seekKey, "seekKey", Object.class);
+        if (seekKey.size() != sortFields.size()) {
+            throw new IllegalArgumentException("The seekKey should hold one value per sort field.");
+        }
+
+        this.offset = 0;
+        this.limit = limit;
+        this.sortFields = Collections.unmodifiableList(new ArrayList(sortFields));
+        this.descending = descending;
+        this.seekKey = Collections.unmodifiableList(new ArrayList(seekKey));
+    }
+
+    /**
+     * <p>
+     * Checks that the limit is positive.
+     * </p>
+     *
+     * @param limit
+     *            the limit to check
+     * @throws IllegalArgumentException
+     *             if limit is not positive
+     */
+    private static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit should be positive.");
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of results to skip.
+     * </p>
+     *
+     * @return the number of results to skip, 0 with a seek key
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * <p>
+     * Gets the maximum number of results to return.
+     * </p>
+     *
+     * @return the maximum number of results to return
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * <p>
+     * Gets the names of the fields to sort the results by.
+     * </p>
+     *
+     * @return the unmodifiable list of the names of the sort fields
+     */
+    public List getSortFields() {
+        return sortFields;
+    }
+
+    /**
+     * <p>
+     * Tells whether the results are sorted descending.
+     * </p>
+     *
+     * @return whether the results are sorted descending
+     */
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * <p>
+     * Gets the values of the sort fields of the last result of the previous
+     * page.
+     * </p>
+     *
+     * @return the unmodifiable list of the values of the seek key, or null if
+     *         the page is given by an offset
+     */
+    public List getSeekKey() {
+        return seekKey;
+    }
+}
@@ -0,0 +1,686 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.topcoder.search.builder.filter.AbstractAssociativeFilter;
+import com.topcoder.search.builder.filter.AbstractSimpleFilter;
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.BetweenFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.GreaterThanFilter;
+import com.topcoder.search.builder.filter.GreaterThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.InFilter;
+import com.topcoder.search.builder.filter.LessThanFilter;
+import com.topcoder.search.builder.filter.LessThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.LikeFilter;
+import com.topcoder.search.builder.filter.NotFilter;
+import com.topcoder.search.builder.filter.NullFilter;
+import com.topcoder.search.builder.filter.OrFilter;
+import com.topcoder.util.sql.databaseabstraction.CustomResultSet;
+import com.topcoder.util.sql.databaseabstraction.StreamingCustomResultSet;
+
+/**
+ * <p>
+ * The cache of the results of a SearchBundle, set by SearchBundle.setResultCache.
+ * It holds at most a given number of results, the least recently used being
+ * evicted first, each for at most a given time. The results are keyed by the
+ * signature of the filter and the return fields of the search.
+ * </p>
+ *
+ * <p>
+ * The signature of a filter is the shape of its tree with the names of its
+ * fields, and the list of its values. The children of the AND and OR filters
+ * are ordered by their shape, so that the same conditions given in another
+ * order share a result. Only the trees made of the filters of the filter
+ * package are cached, as the other filters may have state the signature does
+ * not know.
+ * </p>
+ *
+ * <p>
+ * The cached results are copies which are never given out: a CustomResultSet
+ * is kept as a snapshot and each search gets its own snapshot, with its own
+ * cursor; a List gets a copy of the list, and an Iterator, as returned by the
+ * LDAP searches, gets a read-only iterator over the cached entries. The results
+ * of other types, and the forward-only StreamingCustomResultSets, are not
+ * cached. The elements of the lists are shared, and should not be changed.
+ * </p>
+ *
+ * <p>
+ * The results depending on changed data are removed by invalidate, or by
+ * invalidateField for the searches whose filter or return fields name the
+ * field, or which return all the fields. The hits, misses and evictions, by
+ * size or age, are counted.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe, its state is accessed while
+ * holding its lock. Concurrent misses of the same search are all done by the
+ * search strategy. The result of a search is not cached if the cache was
+ * invalidated while it was done.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class SearchResultCache {
+    /**
+     * <p>
+     * The filter classes which have a signature, by their short names.
+     * </p>
+     */
+    private static final Map NAMES = new LinkedHashMap();
+
+    static {
+        Class[] types = {AndFilter.class, OrFilter.class, NotFilter.class, EqualToFilter.class,
+            GreaterThanFilter.class, GreaterThanOrEqualToFilter.class, LessThanFilter.class,
+            LessThanOrEqualToFilter.class, BetweenFilter.class, InFilter.class, LikeFilter.class,
+            NullFilter.class};
+        for (int i = 0; i < types.length; ++i) {
+            String name = types[i].getName();
+            NAMES.put(types[i], name.substring(name.lastIndexOf('.') + 1));
+        }
+    }
+
+    /**
+     * <p>
+     * Orders the signatures of the children of an AND or OR filter by shape.
+     * </p>
+     */
+    private static final Comparator BY_SHAPE = new Comparator() {
+        public int compare(Object first, Object second) {
+            return ((Signature) first).shape.compareTo(((Signature) second).shape);
+        }
+    };
+
+    /**
+     * <p>
+     * The maximum number of cached results.
+     * </p>
+     */
+    private final int maxSize;
+
+    /**
+     * <p>
+     * The maximum age of the cached results, in milliseconds, or 0 if they do
+     * not expire.
+     * </p>
+     */
+    private final long timeToLive;
+
+    /**
+     * <p>
+     * The cached results, the least recently used first. The keys are Key
+     * instances and the values Entry instances.
+     * </p>
+     */
+    private final Map entries;
+
+    /**
+     * <p>
+     * The number of searches whose result was cached.
+     * </p>
+     */
+    private long hitCount = 0;
+
+    /**
+     * <p>
+     * The number of cacheable searches whose result was not cached.
+     * </p>
+     */
+    private long missCount = 0;
+
+    /**
+     * <p>
+     * The number of results removed because the cache was full or they
+     * expired.
+     * </p>
+     */
+    private long evictionCount = 0;
+
+    /**
+     * <p>
+     * The number of invalidations, so that the result of a search during which
+     * the cache was invalidated is not cached.
+     * </p>
+     */
+    private long generation = 0;
+
+    /**
+     * <p>
+     * Creates a cache.
+     * </p>
+     *
+     * @param maxSize
+     *            the maximum number of cached results.
+     * @param timeToLive
+     *            the maximum age of the cached results, in milliseconds, or 0
+     *            if they do not expire.
+     * @throws IllegalArgumentException
+     *             if maxSize is not positive, or timeToLive is negative.
+     */
+    public SearchResultCache(final int maxSize, long timeToLive) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maxSize should be positive.");
+        }
+
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("The timeToLive should not be negative.");
+        }
+
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        entries = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                if (size() > maxSize) {
+                    ++evictionCount;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Gets the maximum number of cached results.
+     * </p>
+     *
+     * @return the maximum number of cached results.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * <p>
+     * Gets the maximum age of the cached results.
+     * </p>
+     *
+     * @return the maximum age of the cached results, in milliseconds, or 0 if
+     *         they do not expire.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * <p>
+     * Creates the key of a search.
+     * </p>
+     *
+     * @param filter
+     *            the filter of the search
+     * @param returnFields
+     *            the return fields of the search
+     * @param aliasMap
+     *            the alias map of the bundle, giving the real names of the
+     *            fields
+     * @return the key, or null if the search is not cacheable
+     */
+    static Key createKey(Filter filter, List returnFields, Map aliasMap) {
+        Set fields = new HashSet();
+        Signature signature = sign(filter, fields, aliasMap);
+
+        if (signature == null) {
+            return null;
+        }
+
+        for (Iterator it = returnFields.iterator(); it.hasNext();) {
+            addField(fields, it.next(), aliasMap);
+        }
+
+        return new Key(Arrays.asList(new Object[] {signature.shape, signature.values,
+            new ArrayList(returnFields)}), returnFields.isEmpty() ? null : fields);
+    }
+
+    /**
+     * <p>
+     * Computes the signature of a filter, adding the names of its fields to
+     * the given set.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @param fields
+     *            the set to add the names of the fields to
+     * @param aliasMap
+     *            the alias map of the bundle
+     * @return the signature, or null if a filter of the tree has no signature
+     */
+    private static Signature sign(Filter filter, Set fields, Map aliasMap) {
+        String name = (String) NAMES.get(filter.getClass());
+
+        if (name == null) {
+            return null;
+        }
+
+        StringBuffer shape = new StringBuffer(name);
+        List values = new ArrayList();
+
+        if (filter instanceof AbstractAssociativeFilter) {
+            List children = new ArrayList();
+            for (Iterator it = ((AbstractAssociativeFilter) filter).getFilters().iterator(); it.hasNext();) {
+                Signature child = sign((Filter) it.next(), fields, aliasMap);
+                if (child == null) {
+                    return null;
+                }
+                children.add(child);
+            }
+            // AND and OR are commutative, the stable sort keeps the order of the equal shapes
+            Collections.sort(children, BY_SHAPE);
+            shape.append('(');
+            for (Iterator it = children.iterator(); it.hasNext();) {
+                Signature child = (Signature) it.next();
+                shape.append(child.shape);
+                values.addAll(child.values);
+            }
+            shape.append(')');
+        } else if (filter instanceof NotFilter) {
+            Signature child = sign(((NotFilter) filter).getFilter(), fields, aliasMap);
+            if (child == null) {
+                return null;
+            }
+            shape.append('(').append(child.shape).append(')');
+            values.addAll(child.values);
+        } else if (filter instanceof InFilter) {
+            InFilter in = (InFilter) filter;
+            appendName(shape, in.getName(), fields, aliasMap);
+            shape.append(in.getList().size()).append(';');
+            values.addAll(in.getList());
+        } else if (filter instanceof LikeFilter) {
+            LikeFilter like = (LikeFilter) filter;
+            appendName(shape, like.getName(), fields, aliasMap);
+            shape.append(like.getEscapeCharacter());
+            values.add(like.getValue());
+        } else {
+            AbstractSimpleFilter simple = (AbstractSimpleFilter) filter;
+            appendName(shape, simple.getName(), fields, aliasMap);
+            if (filter instanceof BetweenFilter) {
+                values.add(simple.getLowerThreshold());
+                values.add(simple.getUpperThreshold());
+            } else if (!(filter instanceof NullFilter)) {
+                values.add(simple.getValue());
+            }
+        }
+
+        return new Signature(shape.toString(), values);
+    }
+
+    /**
+     * <p>
+     * Appends a name to a shape, prefixed by its length so that any name can
+     * be used, and adds it to the names of the fields.
+     * </p>
+     *
+     * @param shape
+     *            the shape to append the name to
+     * @param name
+     *            the name of the field
+     * @param fields
+     *            the set to add the name of the field to
+     * @param aliasMap
+     *            the alias map of the bundle
+     */
+    private static void appendName(StringBuffer shape, String name, Set fields, Map aliasMap) {
+        shape.append(name.length()).append(':').append(name).append(';');
+        addField(fields, name, aliasMap);
+    }
+
+    /**
+     * <p>
+     * Adds the name of a field, and its real name if it is an alias, to the
+     * names of the fields.
+     * </p>
+     *
+     * @param fields
+     *            the set to add the name of the field to
+     * @param name
+     *            the name of the field
+     * @param aliasMap
+     *            the alias map of the bundle
+     */
+    private static void addField(Set fields, Object name, Map aliasMap) {
+        fields.add(name);
+        Object realName = aliasMap.get(name);
+        if (realName != null) {
+            fields.add(realName);
+        }
+    }
+
+    /**
+     * <p>
+     * Gets a copy of the cached result of a search.
+     * </p>
+     *
+     * @param key
+     *            the key of the search
+     * @return the copy of the result, or null if it is not cached
+     */
+    synchronized Object get(Key key) {
+        Entry entry = (Entry) entries.get(key);
+
+        if (entry != null && timeToLive > 0 && System.currentTimeMillis() - entry.since >= timeToLive) {
+            entries.remove(key);
+            ++evictionCount;
+            entry = null;
+        }
+
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+
+        ++hitCount;
+        return copy(entry.result);
+    }
+
+    /**
+     * <p>
+     * Gets the number of invalidations, to be given to put with the result of
+     * a search started after it was read.
+     * </p>
+     *
+     * @return the number of invalidations
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * <p>
+     * Caches the result of a search, if it is cacheable and the cache was not
+     * invalidated since the search started, as the result may then be stale.
+     * </p>
+     *
+     * @param key
+     *            the key of the search
+     * @param result
+     *            the result returned by the search strategy
+     * @param generation
+     *            the number of invalidations read by getGeneration before
+     *            the search
+     * @return the result to return for the search, which is a copy of the
+     *         cached result if the given one could not be kept as is
+     */
+    Object put(Key key, Object result, long generation) {
+        Object cached;
+
+        if (result instanceof CustomResultSet && !(result instanceof StreamingCustomResultSet)) {
+            cached = ((CustomResultSet) result).snapshot();
+        } else if (result instanceof List) {
+            cached = new ArrayList((List) result);
+        } else if (result instanceof Iterator) {
+            // the iterator is consumed, the search gets one over the cached entries
+            List list = new ArrayList();
+            for (Iterator it = (Iterator) result; it.hasNext();) {
+                list.add(it.next());
+            }
+            cached = new IteratorResult(list);
+            result = copy(cached);
+        } else {
+            return result;
+        }
+
+        synchronized (this) {
+            if (generation == this.generation) {
+                entries.put(key, new Entry(cached, System.currentTimeMillis()));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * <p>
+     * Copies a cached result for a search.
+     * </p>
+     *
+     * @param cached
+     *            the cached result
+     * @return the copy
+     */
+    private static Object copy(Object cached) {
+        if (cached instanceof CustomResultSet) {
+            return ((CustomResultSet) cached).snapshot();
+        }
+
+        if (cached instanceof IteratorResult) {
+            return Collections.unmodifiableList(((IteratorResult) cached).entries).iterator();
+        }
+
+        return new ArrayList((List) cached);
+    }
+
+    /**
+     * <p>
+     * Removes all the cached results.
+     * </p>
+     */
+    public synchronized void invalidate() {
+        ++generation;
+        entries.clear();
+    }
+
+    /**
+     * <p>
+     * Removes the cached results which may depend on the given field: those
+     * whose filter or return fields name it, by its name or its alias, and
+     * those returning all the fields.
+     * </p>
+     *
+     * @param field
+     *            the name or alias of the field.
+     * @throws IllegalArgumentException
+     *             if field is null or empty.
+     */
+    public synchronized void invalidateField(String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("The field should not be null.");
+        }
+
+        if (field.trim().length() == 0) {
+            throw new IllegalArgumentException("The field should not be empty.");
+        }
+
+        ++generation;
+        for (Iterator it = entries.keySet().iterator(); it.hasNext();) {
+            Key key = (Key) it.next();
+            if (key.fields == null || key.fields.contains(field)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the number of cached results, including the expired ones which were
+     * not looked up since they expired.
+     * </p>
+     *
+     * @return the number of cached results.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * <p>
+     * Gets the number of searches whose result was cached.
+     * </p>
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * <p>
+     * Gets the number of cacheable searches whose result was not cached.
+     * </p>
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * <p>
+     * Gets the number of results removed because the cache was full or they
+     * expired. The invalidated results are not counted.
+     * </p>
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * <p>
+     * The key of a search, with the names of the fields it depends on.
+     * </p>
+     */
+    static final class Key {
+        /**
+         * The list of the shape, values and return fields of the search.
+         */
+        private final List key;
+
+        /**
+         * The names of the fields of the search, or null if it returns all
+         * the fields.
+         */
+        private final Set fields;
+
+        /**
+         * Creates a key.
+         *
+         * @param key
+         *            the list of the shape, values and return fields
+         * @param fields
+         *            the names of the fields, or null for all the fields
+         */
+        Key(List key, Set fields) {
+            this.key = key;
+            this.fields = fields;
+        }
+
+        /**
+         * Compares the searches of the keys.
+         *
+         * @param other
+         *            the other key
+         * @return whether the searches are the same
+         */
+        public boolean equals(Object other) {
+            return other instanceof Key && key.equals(((Key) other).key);
+        }
+
+        /**
+         * Gets the hash code of the search.
+         *
+         * @return the hash code
+         */
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+
+    /**
+     * <p>
+     * The signature of a filter.
+     * </p>
+     */
+    private static final class Signature {
+        /**
+         * The shape of the filter.
+         */
+        private final String shape;
+
+        /**
+         * The values of the filter.
+         */
+        private final List values;
+
+        /**
+         * Creates a signature.
+         *
+         * @param shape
+         *            the shape of the filter
+         * @param values
+         *            the values of the filter
+         */
+        Signature(String shape, List values) {
+            this.shape = shape;
+            this.values = values;
+        }
+    }
+
+    /**
+     * <p>
+     * A cached result.
+     * </p>
+     */
+    private static final class Entry {
+        /**
+         * The cached copy of the result.
+         */
+        private final Object result;
+
+        /**
+         * The time the result was cached.
+         */
+        private final long since;
+
+        /**
+         * Creates an entry.
+         *
+         * @param result
+         *            the cached copy of the result
+         * @param since
+         *            the time the result was cached
+         */
+        Entry(Object result, long since) {
+            this.result = result;
+            this.since = since;
+        }
+    }
+
+    /**
+     * <p>
+     * The entries of a result returned as an Iterator.
+     * </p>
+     */
+    private static final class IteratorResult {
+        /**
+         * The entries.
+         */
+        private final List entries;
+
+        /**
+         * Creates the result.
+         *
+         * @param entries
+         *            the entries
+         */
+        IteratorResult(List entries) {
+            this.entries = entries;
+        }
+    }
+}
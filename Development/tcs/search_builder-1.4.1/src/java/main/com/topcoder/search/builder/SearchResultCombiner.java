@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * Combines the results of the searches of several bundles, done in parallel by
+ * SearchBundleManager.searchAll, into its single result. MapSearchResultCombiner
+ * returns the result of each bundle by its name, and ListSearchResultCombiner
+ * concatenates them.
+ * </p>
+ *
+ * <p>
+ * The failures of the bundles are given to the combiner, which decides whether
+ * the whole search fails or returns the results of the other bundles.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: The implementations should be thread safe, as searchAll may be
+ * called concurrently.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public interface SearchResultCombiner {
+    /**
+     * <p>
+     * Combines the results of the searches of the bundles.
+     * </p>
+     *
+     * @param results
+     *            the results of the bundles whose search succeeded, by the
+     *            names of the bundles, in the order of the searched bundles.
+     * @param failures
+     *            the SearchBuilderExceptions of the bundles whose search failed,
+     *            was not done in time or was cancelled, by the names of the
+     *            bundles, in the order of the searched bundles.
+     * @return the result of searchAll.
+     * @throws SearchBuilderException
+     *             if the results cannot be combined, or to fail the search
+     *             because of the failures.
+     */
+    public Object combine(Map results, Map failures) throws SearchBuilderException;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import java.lang.reflect.Method;
+
+/**
+ * <p>
+ * The default SearchExecutor, running each search on a new thread. Where the
+ * Java runtime provides virtual threads, they are used, since the searches
+ * mostly wait for the datastore; otherwise daemon threads are started.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is thread safe since it has no state.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class ThreadSearchExecutor implements SearchExecutor {
+    /**
+     * <p>
+     * The Thread.startVirtualThread method, or null if the Java runtime has no
+     * virtual threads.
+     * </p>
+     */
+    private static final Method START_VIRTUAL_THREAD = getStartVirtualThread();
+
+    /**
+     * <p>
+     * Creates a new instance.
+     * </p>
+     */
+    public ThreadSearchExecutor() {
+        // empty
+    }
+
+    /**
+     * <p>
+     * Gets the Thread.startVirtualThread method.
+     * </p>
+     *
+     * @return the method, or null if the Java runtime has no virtual threads
+     */
+    private static Method getStartVirtualThread() {
+        try {
+            return Thread.class.getMethod("startVirtualThread", new Class[] {Runnable.class});
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Runs the given search on a new virtual thread if possible, or else on a
+     * new daemon thread.
+     * </p>
+     *
+     * @param search
+     *            the search to run.
+     * @throws IllegalArgumentException
+     *             if search is null.
+     */
+    public void execute(Runnable search) {
+        if (search == null) {
+            throw new IllegalArgumentException("The search should not be null.");
+        }
+
+        if (START_VIRTUAL_THREAD != null) {
+            try {
+                START_VIRTUAL_THREAD.invoke(null, new Object[] {search});
+                return;
+            } catch (Exception e) {
+                // the virtual threads are not usable, use a platform thread
+            }
+        }
+
+        Thread thread = new Thread(search, "SearchBundle search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -14,6 +14,10 @@ import com.topcoder.search.builder.filter.Filter;
  * a message and a Filter object if validation fails.
  * <p>
  *
+ * <p>
+ * The class is thread-safe since it is immutable, so it takes no lock.
+ * </p>
+ *
  * @author ShindouHikaru, TCSDEVELOPER
  * @version 1.3
  */
@@ -65,7 +69,7 @@ public class ValidationResult {
      *
      * @return a new ValidtionRresult object representing the result is valid
      */
-    public static synchronized ValidationResult createValidResult() {
+    public static ValidationResult createValidResult() {
         return new ValidationResult(true, null, null);
     }
 
@@ -76,7 +80,7 @@ public class ValidationResult {
      * @param filter the Filter that fails the validation
      * @return a new ValidtionRresult object representing the result is invalid
      */
-    public static synchronized ValidationResult createInvalidResult(
+    public static ValidationResult createInvalidResult(
         String message, Filter filter) {
         if (message == null) {
             throw new IllegalArgumentException(
@@ -101,7 +105,7 @@ public class ValidationResult {
      *
      * @return message, a descriptive string
      */
-    public synchronized String getMessage() {
+    public String getMessage() {
         return this.message;
     }
 
@@ -111,7 +115,7 @@ public class ValidationResult {
      *
      * @return a Filter object
      */
-    public synchronized Filter getFailedFilter() {
+    public Filter getFailedFilter() {
         return (Filter) failedFilter.clone();
     }
 
@@ -121,7 +125,7 @@ public class ValidationResult {
      *
      * @return a boolean indicating if the result is valid. true if valid, false otherwise
      */
-    public synchronized boolean isValid() {
+    public boolean isValid() {
         return this.isResultValid;
     }
 }
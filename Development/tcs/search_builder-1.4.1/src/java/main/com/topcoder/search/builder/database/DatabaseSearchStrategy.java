@@ -7,24 +7,34 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.topcoder.db.connectionfactory.DBConnectionException;
 import com.topcoder.db.connectionfactory.DBConnectionFactory;
 import com.topcoder.db.connectionfactory.DBConnectionFactoryImpl;
+import com.topcoder.search.builder.CompilableSearchStrategy;
+import com.topcoder.search.builder.OperationNotSupportedException;
+import com.topcoder.search.builder.PagedSearchStrategy;
 import com.topcoder.search.builder.PersistenceOperationException;
 import com.topcoder.search.builder.SearchBuilderConfigurationException;
 import com.topcoder.search.builder.SearchBuilderHelper;
 import com.topcoder.search.builder.SearchContext;
 import com.topcoder.search.builder.SearchFragmentBuilder;
+import com.topcoder.search.builder.SearchRequest;
 import com.topcoder.search.builder.SearchStrategy;
 import com.topcoder.search.builder.UnrecognizedFilterException;
 import com.topcoder.search.builder.filter.Filter;
 import com.topcoder.util.classassociations.ClassAssociator;
 import com.topcoder.util.classassociations.IllegalHandlerException;
 import com.topcoder.util.sql.databaseabstraction.CustomResultSet;
+import com.topcoder.util.sql.databaseabstraction.OnDemandMapper;
+import com.topcoder.util.sql.databaseabstraction.StreamingCustomResultSet;
 
 /**
  * <p>
@@ -48,15 +58,87 @@ import com.topcoder.util.sql.databaseabstraction.CustomResultSet;
  * SearchContext class, allowing concurrent calls to be supported.
  * </p>
  *
+ * <p>
+ * Version 1.4.2 adds the streaming mode. When it is enabled, the search returns
+ * a forward-only StreamingCustomResultSet that reads the rows from the open
+ * JDBC result set as the caller iterates, instead of loading the whole result
+ * before returning. The returned result set then owns the connection,
+ * statement and result set, and closes them once it has been read to the end;
+ * callers that stop early must close it.
+ * </p>
+ *
+ * <p>
+ * Version 1.4.2 also caches the search plans: the SQL string and the order in
+ * which the filter values are bound to it are kept for each shape of filter
+ * (see SearchPlan), so the searches repeating a shape with other values skip
+ * the building of the SQL fragments. The plans are cached only for the
+ * filters handled by the fragment builders of this package, and only if
+ * buildSearchContext is not overridden. As the same SQL string is prepared for
+ * the same shape, a connection producer caching the prepared statements, like
+ * PoolingConnectionProducer with a statement cache, also spares the parsing
+ * of the statement by the database.
+ * </p>
+ *
+ * <p>
+ * Version 1.4.2 also compiles the searches for SearchBundle.compile: the plan
+ * of a filter is built once, and run with the new values of the filter.
+ * </p>
+ *
+ * <p>
+ * Version 1.4.2 also returns pages of results for SearchRequests. The seek key
+ * condition and the ORDER BY clause are added to the SQL of the filter, and
+ * the page is selected by the database, either with LIMIT and OFFSET or, for
+ * the databases without them, with ROW_NUMBER over the sorted query, as chosen
+ * by the paging syntax.
+ * </p>
+ *
  * @author ShindouHikaru, TCSDEVELOPER
- * @version 1.3
+ * @version 1.4.2
  */
-public class DatabaseSearchStrategy implements SearchStrategy {
+public class DatabaseSearchStrategy implements CompilableSearchStrategy, PagedSearchStrategy {
 
     /**
      * The class array used to get the Constructor.
      */
     private static final Class [] CLASSES = new Class [] {String.class};
+
+    /**
+     * <p>
+     * The default maximum number of cached search plans.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public static final int DEFAULT_PLAN_CACHE_SIZE = 100;
+
+    /**
+     * <p>
+     * The paging syntax selecting the pages with LIMIT and OFFSET, as supported
+     * by MySQL, PostgreSQL, H2 and HSQLDB. This is the default one.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public static final String PAGING_LIMIT_OFFSET = "limitOffset";
+
+    /**
+     * <p>
+     * The paging syntax selecting the pages with ROW_NUMBER, as supported by
+     * Oracle, SQL Server, DB2 and Informix. The sort fields must then be
+     * columns of the result of the context, and the page is requested with
+     * sort fields.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public static final String PAGING_ROW_NUMBER = "rowNumber";
+
+    /**
+     * The parameter types of buildSearchContext, used to check whether it is
+     * overridden.
+     */
+    private static final Class [] BUILD_SEARCH_CONTEXT_TYPES = new Class [] {String.class, Filter.class,
+        List.class, Map.class};
     /**
      * <p>
      * This is the connection factory that is used when connecting to the
@@ -89,6 +171,40 @@ public class DatabaseSearchStrategy implements SearchStrategy {
      */
     private final String connectionName;
 
+    /**
+     * <p>
+     * Whether the search returns a StreamingCustomResultSet reading the rows
+     * on demand, instead of a CustomResultSet holding all of them. It is
+     * initialized during construction, and never changed.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final boolean streaming;
+
+    /**
+     * <p>
+     * The cached search plans, the least recently used first, or null if the
+     * plans are not cached. The keys are lists of the context, return fields,
+     * alias map and filter signature of the searches, and the values are
+     * non-null SearchPlan instances. It is initialized during construction,
+     * and accessed while holding its lock.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final Map plans;
+
+    /**
+     * <p>
+     * The paging syntax, PAGING_LIMIT_OFFSET or PAGING_ROW_NUMBER. It is
+     * initialized during construction, and never changed.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final String pagingSyntax;
+
     /**
      * <p>
      * Constructor that allows for the programmatic definition of a
@@ -118,6 +234,107 @@ public class DatabaseSearchStrategy implements SearchStrategy {
      *             contains invalid type (wrong class or null) keys or values.
      */
     public DatabaseSearchStrategy(DBConnectionFactory connFactory, String connName, Map associations) {
+        this(connFactory, connName, associations, false);
+    }
+
+    /**
+     * <p>
+     * Constructor that allows for the programmatic definition of a
+     * DatabaseSearchStrategy, choosing whether the search results are streamed.
+     * </p>
+     *
+     * @param connFactory
+     *            The connectionFactory to use when connecting to the datastore.
+     * @param connName
+     *            The connectionName to use when connecting to the datastore (if
+     *            null or an empty String, it means the default connection is
+     *            used).
+     * @param associations
+     *            A map of filter to SearchFragmentBuilder mappings. The
+     *            SearchFragmentBuilders should be SQL-database oriented to be
+     *            useful in this component.
+     * @param streaming
+     *            whether the search returns a forward-only
+     *            StreamingCustomResultSet reading the rows on demand.
+     * @throws IllegalArgumentException
+     *             if connFactory or associations is null, or if associations
+     *             contains invalid type (wrong class or null) keys or values.
+     * @since 1.4.2
+     */
+    public DatabaseSearchStrategy(DBConnectionFactory connFactory, String connName, Map associations,
+        boolean streaming) {
+        this(connFactory, connName, associations, streaming, DEFAULT_PLAN_CACHE_SIZE);
+    }
+
+    /**
+     * <p>
+     * Constructor that allows for the programmatic definition of a
+     * DatabaseSearchStrategy, choosing whether the search results are streamed
+     * and how many search plans are cached.
+     * </p>
+     *
+     * @param connFactory
+     *            The connectionFactory to use when connecting to the datastore.
+     * @param connName
+     *            The connectionName to use when connecting to the datastore (if
+     *            null or an empty String, it means the default connection is
+     *            used).
+     * @param associations
+     *            A map of filter to SearchFragmentBuilder mappings. The
+     *            SearchFragmentBuilders should be SQL-database oriented to be
+     *            useful in this component.
+     * @param streaming
+     *            whether the search returns a forward-only
+     *            StreamingCustomResultSet reading the rows on demand.
+     * @param planCacheSize
+     *            the maximum number of cached search plans, 0 to disable the
+     *            cache.
+     * @throws IllegalArgumentException
+     *             if connFactory or associations is null, if associations
+     *             contains invalid type (wrong class or null) keys or values,
+     *             or if planCacheSize is negative.
+     * @since 1.4.2
+     */
+    public DatabaseSearchStrategy(DBConnectionFactory connFactory, String connName, Map associations,
+        boolean streaming, int planCacheSize) {
+        this(connFactory, connName, associations, streaming, planCacheSize, PAGING_LIMIT_OFFSET);
+    }
+
+    /**
+     * <p>
+     * Constructor that allows for the programmatic definition of a
+     * DatabaseSearchStrategy, choosing whether the search results are
+     * streamed, how many search plans are cached and how the pages of results
+     * are selected.
+     * </p>
+     *
+     * @param connFactory
+     *            The connectionFactory to use when connecting to the datastore.
+     * @param connName
+     *            The connectionName to use when connecting to the datastore (if
+     *            null or an empty String, it means the default connection is
+     *            used).
+     * @param associations
+     *            A map of filter to SearchFragmentBuilder mappings. The
+     *            SearchFragmentBuilders should be SQL-database oriented to be
+     *            useful in this component.
+     * @param streaming
+     *            whether the search returns a forward-only
+     *            StreamingCustomResultSet reading the rows on demand.
+     * @param planCacheSize
+     *            the maximum number of cached search plans, 0 to disable the
+     *            cache.
+     * @param pagingSyntax
+     *            the paging syntax, PAGING_LIMIT_OFFSET or PAGING_ROW_NUMBER.
+     * @throws IllegalArgumentException
+     *             if connFactory or associations is null, if associations
+     *             contains invalid type (wrong class or null) keys or values,
+     *             if planCacheSize is negative, or if pagingSyntax is not a
+     *             paging syntax.
+     * @since 1.4.2
+     */
+    public DatabaseSearchStrategy(DBConnectionFactory connFactory, String connName, Map associations,
+        boolean streaming, int planCacheSize, String pagingSyntax) {
         if (connFactory == null) {
             throw new IllegalArgumentException("The connFactory should not be null.");
         }
@@ -126,6 +343,9 @@ public class DatabaseSearchStrategy implements SearchStrategy {
         }
         this.connectionFactory = connFactory;
         this.connectionName = connName;
+        this.streaming = streaming;
+        this.plans = createPlanCache(planCacheSize);
+        this.pagingSyntax = checkPagingSyntax(pagingSyntax);
         this.fragmentBuilders = new ClassAssociator();
 
         // add all the filter class to SearchFragmentBuilder entry to the
@@ -192,10 +412,153 @@ public class DatabaseSearchStrategy implements SearchStrategy {
         }
         // get the connection name, which can be null and empty
         connectionName = SearchBuilderHelper.getConfigProperty(namespace, "connectionName", false);
+        // the streaming mode is optional, and disabled by default
+        streaming = "true".equalsIgnoreCase(SearchBuilderHelper.getConfigProperty(namespace, "streaming", false));
+        // the plan cache size is optional
+        String planCacheSize = SearchBuilderHelper.getConfigProperty(namespace, "planCacheSize", false);
+        try {
+            plans = createPlanCache(planCacheSize == null || planCacheSize.trim().length() == 0
+                ? DEFAULT_PLAN_CACHE_SIZE : Integer.parseInt(planCacheSize.trim()));
+        } catch (NumberFormatException e) {
+            throw new SearchBuilderConfigurationException("The planCacheSize should be an integer.", e);
+        } catch (IllegalArgumentException e) {
+            throw new SearchBuilderConfigurationException("The planCacheSize should not be negative.", e);
+        }
+        // the paging syntax is optional
+        String syntax = SearchBuilderHelper.getConfigProperty(namespace, "pagingSyntax", false);
+        try {
+            pagingSyntax = checkPagingSyntax(syntax == null || syntax.trim().length() == 0
+                ? PAGING_LIMIT_OFFSET : syntax.trim());
+        } catch (IllegalArgumentException e) {
+            throw new SearchBuilderConfigurationException("The pagingSyntax should be " + PAGING_LIMIT_OFFSET
+                + " or " + PAGING_ROW_NUMBER + ".", e);
+        }
 
         this.fragmentBuilders = SearchBuilderHelper.loadClassAssociator(namespace);
     }
 
+    /**
+     * <p>
+     * Creates the cache of the search plans, keeping the most recently used
+     * ones.
+     * </p>
+     *
+     * @param maxSize
+     *            the maximum number of cached plans
+     * @return the cache, or null if the plans are not cached because maxSize
+     *         is 0 or buildSearchContext is overridden
+     * @throws IllegalArgumentException
+     *             if maxSize is negative
+     * @since 1.4.2
+     */
+    private Map createPlanCache(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The planCacheSize should not be negative.");
+        }
+        if (maxSize == 0 || isBuildSearchContextOverridden()) {
+            return null;
+        }
+        return new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Checks the paging syntax.
+     * </p>
+     *
+     * @param pagingSyntax
+     *            the paging syntax to check
+     * @return the paging syntax
+     * @throws IllegalArgumentException
+     *             if pagingSyntax is not PAGING_LIMIT_OFFSET or
+     *             PAGING_ROW_NUMBER
+     * @since 1.4.2
+     */
+    private static String checkPagingSyntax(String pagingSyntax) {
+        if (!PAGING_LIMIT_OFFSET.equals(pagingSyntax) && !PAGING_ROW_NUMBER.equals(pagingSyntax)) {
+            throw new IllegalArgumentException("The pagingSyntax should be " + PAGING_LIMIT_OFFSET + " or "
+                + PAGING_ROW_NUMBER + ".");
+        }
+        return pagingSyntax;
+    }
+
+    /**
+     * <p>
+     * Checks whether buildSearchContext is overridden, in which case the plans
+     * are neither cached nor compiled, since an overriding buildSearchContext
+     * may build the SQL from more than the shape of the filter.
+     * </p>
+     *
+     * @return whether buildSearchContext is overridden
+     * @since 1.4.2
+     */
+    private boolean isBuildSearchContextOverridden() {
+        for (Class type = getClass(); type != DatabaseSearchStrategy.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("buildSearchContext", BUILD_SEARCH_CONTEXT_TYPES);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not overridden by this class
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>
+     * Gets the plan of a search, from the cache if a search with the same
+     * context, return fields, alias map and shape of filter was done, or else
+     * by building the search context.
+     * </p>
+     *
+     * @param context
+     *            the search context
+     * @param filter
+     *            the search filter
+     * @param returnFields
+     *            the return fields
+     * @param aliasMap
+     *            the alias map
+     * @param values
+     *            the list to append the values of the filter to, which are
+     *            given to SearchPlan.bind
+     * @return the plan of the search
+     * @throws UnrecognizedFilterException
+     *             propagated from buildSearchContext
+     * @since 1.4.2
+     */
+    SearchPlan getSearchPlan(String context, Filter filter, List returnFields, Map aliasMap, List values)
+        throws UnrecognizedFilterException {
+        String signature = plans == null ? null : SearchPlan.signature(filter, fragmentBuilders, values);
+        if (signature == null) {
+            // every parameter is bound as a constant
+            values.clear();
+            SearchContext searchContext = buildSearchContext(context, filter, returnFields, aliasMap);
+            return new SearchPlan(searchContext.getSearchString().toString(),
+                searchContext.getBindableParameters(), values);
+        }
+
+        List key = Arrays.asList(new Object[] {context, new ArrayList(returnFields), new HashMap(aliasMap),
+            signature});
+        SearchPlan plan;
+        synchronized (plans) {
+            plan = (SearchPlan) plans.get(key);
+        }
+        if (plan == null) {
+            SearchContext searchContext = buildSearchContext(context, filter, returnFields, aliasMap);
+            plan = new SearchPlan(searchContext.getSearchString().toString(),
+                searchContext.getBindableParameters(), values);
+            synchronized (plans) {
+                plans.put(key, plan);
+            }
+        }
+        return plan;
+    }
+
     /**
      * <p>
      * This is a protected method that can be used to build the SearchContext
@@ -264,6 +627,11 @@ public class DatabaseSearchStrategy implements SearchStrategy {
      * the returnFields.
      * </p>
      *
+     * <p>
+     * In streaming mode, the returned StreamingCustomResultSet owns the
+     * database resources, which are closed once it has been read to the end.
+     * </p>
+     *
      * @return A CustomResultSet object containing the results of the search.
      * @param context
      *            The search context. This would be an SQL statement.
@@ -300,10 +668,238 @@ public class DatabaseSearchStrategy implements SearchStrategy {
         SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
         SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
 
+        List values = new ArrayList();
+        SearchPlan plan = getSearchPlan(context, filter, returnFields, aliasMap, values);
+        return execute(plan.getSql(), plan.bind(values));
+    }
+
+    /**
+     * <p>
+     * Searches the database using the provided context, filter and constraints
+     * the returnFields, returning only the requested page of the results.
+     * </p>
+     *
+     * <p>
+     * The seek key condition is added to the SQL of the filter, which must then
+     * follow the context, as built by buildSearchContext of this class.
+     * </p>
+     *
+     * @return A CustomResultSet object containing the page of results.
+     * @param context
+     *            The search context. This would be an SQL statement.
+     * @param filter
+     *            The filter to use.
+     * @param returnFields
+     *            The set of fields to return.
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of fields as
+     *            keys and their actual values in the datastore as the
+     *            respective values.
+     * @param request
+     *            the page of results to return.
+     * @throws UnrecognizedFilterException
+     *             propagated from SearchFragmentBuilder
+     * @throws OperationNotSupportedException
+     *             if the request has no sort fields with the ROW_NUMBER paging
+     *             syntax.
+     * @throws IllegalArgumentException
+     *             if context, filter or request is null or if context is an
+     *             empty String or if returnFields contains null/non-String
+     *             contents or aliasMap contains null/empty String arguments.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while searching (except
+     *             UnrecognizedFilterException, OperationNotSupportedException
+     *             and IAE).
+     * @since 1.4.2
+     */
+    public Object search(String context, Filter filter, List returnFields, Map aliasMap, SearchRequest request)
+        throws PersistenceOperationException, UnrecognizedFilterException, OperationNotSupportedException {
+        if (context == null) {
+            throw new IllegalArgumentException("The context should not be null.");
+        }
+        if (context.trim().length() == 0) {
+            throw new IllegalArgumentException("The context should not be empty.");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("The request should not be null.");
+        }
+
+        SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
+        SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
+
+        List values = new ArrayList();
+        SearchPlan plan = getSearchPlan(context, filter, returnFields, aliasMap, values);
+        List parameters = new ArrayList(Arrays.asList(plan.bind(values)));
+        String sql = buildPagedSql(plan.getSql(), includeReturnFieldsInSearchString(context, returnFields),
+            request, aliasMap, parameters);
+        return execute(sql, parameters.toArray());
+    }
+
+    /**
+     * <p>
+     * Builds the SQL of a page of results from the SQL of the filter, adding
+     * the seek key condition, the ORDER BY clause and the selection of the page
+     * in the paging syntax.
+     * </p>
+     *
+     * @param sql
+     *            the SQL built for the filter
+     * @param prefix
+     *            the part of the SQL before the filter
+     * @param request
+     *            the page of results to return
+     * @param aliasMap
+     *            the alias map
+     * @param parameters
+     *            the bound parameters of the SQL, to append the ones of the
+     *            page to
+     * @return the SQL of the page of results
+     * @throws OperationNotSupportedException
+     *             if the request has no sort fields with the ROW_NUMBER paging
+     *             syntax.
+     * @since 1.4.2
+     */
+    String buildPagedSql(String sql, String prefix, SearchRequest request, Map aliasMap, List parameters)
+        throws OperationNotSupportedException {
+        String seekSql = SearchBuilderHelper.buildSeekQuery(sql, prefix, request, aliasMap, parameters);
+        String orderBy = SearchBuilderHelper.buildOrderBy(request, aliasMap);
+
+        if (PAGING_LIMIT_OFFSET.equals(pagingSyntax)) {
+            parameters.add(new Integer(request.getLimit()));
+            parameters.add(new Integer(request.getOffset()));
+            return seekSql + (orderBy.length() == 0 ? "" : " ORDER BY " + orderBy) + " LIMIT ? OFFSET ?";
+        }
+
+        if (orderBy.length() == 0) {
+            throw new OperationNotSupportedException("The ROW_NUMBER paging needs sort fields.");
+        }
+        // the sort fields are columns of the query, without their table
+        Map columns = new HashMap();
+        for (Iterator it = request.getSortFields().iterator(); it.hasNext();) {
+            String field = (String) it.next();
+            String realName = aliasMap.containsKey(field) ? (String) aliasMap.get(field) : field;
+            columns.put(field, realName.substring(realName.lastIndexOf('.') + 1));
+        }
+        parameters.add(new Integer(request.getOffset()));
+        // a limit reaching past Integer.MAX_VALUE rows stands for no limit, and would overflow the bound
+        long end = (long) request.getOffset() + request.getLimit();
+        String upperBound = "";
+        if (end <= Integer.MAX_VALUE) {
+            parameters.add(new Integer((int) end));
+            upperBound = " AND paged_row <= ?";
+        }
+        return "SELECT * FROM (SELECT paged_query.*, ROW_NUMBER() OVER (ORDER BY "
+            + SearchBuilderHelper.buildOrderBy(request, columns) + ") paged_row FROM (" + seekSql
+            + ") paged_query) paged_rows WHERE paged_row > ?" + upperBound + " ORDER BY paged_row";
+    }
+
+    /**
+     * <p>
+     * Builds the plan of a search once, for SearchBundle.compile. The plan is
+     * only built for the filters handled by the fragment builders of this
+     * package, and only if buildSearchContext is not overridden, since the SQL
+     * of the other filters may depend on their values.
+     * </p>
+     *
+     * @return the SearchPlan of the search, or null if it cannot be reused
+     *         with other values.
+     * @param context
+     *            The search context. This would be an SQL statement.
+     * @param filter
+     *            The filter to use.
+     * @param returnFields
+     *            The set of fields to return.
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of fields as
+     *            keys and their actual values in the datastore as the
+     *            respective values.
+     * @throws UnrecognizedFilterException
+     *             propagated from SearchFragmentBuilder
+     * @throws IllegalArgumentException
+     *             if context or filter is null or if context is an empty String
+     *             or if returnFields contains null/non-String contents or
+     *             aliasMap contains null/empty String arguments.
+     * @since 1.4.2
+     */
+    public Object compile(String context, Filter filter, List returnFields, Map aliasMap)
+        throws UnrecognizedFilterException {
+        if (context == null) {
+            throw new IllegalArgumentException("The context should not be null.");
+        }
+        if (context.trim().length() == 0) {
+            throw new IllegalArgumentException("The context should not be empty.");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+
+        SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
+        SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
+
+        List values = new ArrayList();
+        if (isBuildSearchContextOverridden() || SearchPlan.signature(filter, fragmentBuilders, values) == null) {
+            return null;
+        }
         SearchContext searchContext = buildSearchContext(context, filter, returnFields, aliasMap);
+        return new SearchPlan(searchContext.getSearchString().toString(), searchContext.getBindableParameters(),
+            values);
+    }
+
+    /**
+     * <p>
+     * Runs a search compiled by compile, binding the given values of the
+     * filter.
+     * </p>
+     *
+     * @return A CustomResultSet object containing the results of the search.
+     * @param compiledSearch
+     *            the SearchPlan returned by compile.
+     * @param values
+     *            the values of the filter, in the order of the filter tree.
+     * @throws IllegalArgumentException
+     *             if compiledSearch is not a SearchPlan, or if values is null
+     *             or does not hold as many values as the compiled filter.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while searching (except
+     *             IAE).
+     * @since 1.4.2
+     */
+    public Object search(Object compiledSearch, List values) throws PersistenceOperationException {
+        if (!(compiledSearch instanceof SearchPlan)) {
+            throw new IllegalArgumentException("The compiledSearch should be returned by compile.");
+        }
+        if (values == null) {
+            throw new IllegalArgumentException("The values should not be null.");
+        }
+        SearchPlan plan = (SearchPlan) compiledSearch;
+        if (values.size() != plan.getValueCount()) {
+            throw new IllegalArgumentException("The values should hold " + plan.getValueCount() + " values.");
+        }
+        return execute(plan.getSql(), plan.bind(values));
+    }
+
+    /**
+     * <p>
+     * Runs the SQL of a search, binding the given parameters.
+     * </p>
+     *
+     * @param sql
+     *            the SQL of the search
+     * @param parameters
+     *            the parameters to bind
+     * @return A CustomResultSet object containing the results of the search.
+     * @throws PersistenceOperationException
+     *             to wrap any exception that occurs while searching.
+     * @since 1.4.2
+     */
+    private Object execute(String sql, Object[] parameters) throws PersistenceOperationException {
         Connection connection = null;
         PreparedStatement ps = null;
         ResultSet resultSet = null;
+        CustomResultSet result = null;
         try {
             if (connectionName != null && connectionName.trim().length() > 0) {
                 connection = connectionFactory.createConnection(connectionName);
@@ -311,27 +907,32 @@ public class DatabaseSearchStrategy implements SearchStrategy {
                 // if the connection name is missing, using default one
                 connection = connectionFactory.createConnection();
             }
-            ps = connection.prepareStatement(searchContext.getSearchString().toString());
-            List list = searchContext.getBindableParameters();
+            ps = connection.prepareStatement(sql);
 
-            int index = 1;
             // set all the parameter
-            for (Iterator it = list.iterator(); it.hasNext();) {
-                Object obj = it.next();
-                ps.setObject(index++, obj);
-
+            for (int i = 0; i < parameters.length; ++i) {
+                ps.setObject(i + 1, parameters[i]);
             }
 
             resultSet = ps.executeQuery();
 
-            return new CustomResultSet(resultSet);
+            if (streaming) {
+                result = new StreamingCustomResultSet(connection, ps, resultSet, null,
+                        OnDemandMapper.createDefaultOnDemandMapper());
+            } else {
+                result = new CustomResultSet(resultSet);
+            }
+            return result;
         } catch (SQLException e) {
             e.printStackTrace();
             throw new PersistenceOperationException("SQLException occurs.", e);
         } catch (DBConnectionException e) {
             throw new PersistenceOperationException("Can not get the connection.", e);
         } finally {
-            doClose(connection, ps, resultSet);
+            // the streaming result set closes the resources itself
+            if (!(result instanceof StreamingCustomResultSet)) {
+                doClose(connection, ps, resultSet);
+            }
         }
     }
 
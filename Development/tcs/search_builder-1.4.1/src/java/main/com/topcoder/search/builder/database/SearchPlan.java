@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.database;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.filter.AbstractAssociativeFilter;
+import com.topcoder.search.builder.filter.AbstractSimpleFilter;
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.BetweenFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.GreaterThanFilter;
+import com.topcoder.search.builder.filter.GreaterThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.InFilter;
+import com.topcoder.search.builder.filter.LessThanFilter;
+import com.topcoder.search.builder.filter.LessThanOrEqualToFilter;
+import com.topcoder.search.builder.filter.LikeFilter;
+import com.topcoder.search.builder.filter.NotFilter;
+import com.topcoder.search.builder.filter.NullFilter;
+import com.topcoder.search.builder.filter.OrFilter;
+import com.topcoder.util.classassociations.ClassAssociator;
+
+/**
+ * <p>
+ * The search plan of DatabaseSearchStrategy for filters of a given shape: the
+ * generated SQL string, and the order in which the values of such a filter are
+ * bound to its parameters. The filters with the same shape (same filter tree,
+ * same field names, same IN-list sizes, same LIKE patterns) produce the same
+ * SQL, so the plan built for one of them is reused for the others, binding
+ * their own values, without building the SQL fragments again.
+ * </p>
+ *
+ * <p>
+ * The shape of a filter is given by its signature, which also collects its
+ * values (the compared values, the BETWEEN thresholds and the IN-list
+ * elements) in the order the fragment builders of this package bind them. A
+ * filter has a signature only if all the filters of its tree are handled by
+ * these fragment builders, since other builders may generate SQL depending on
+ * the values.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is immutable and thread safe.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+final class SearchPlan {
+
+    /**
+     * <p>
+     * The filter classes whose signature is known, mapped to the class of the
+     * fragment builder of this package handling them.
+     * </p>
+     */
+    private static final Map BUILDERS = new HashMap();
+
+    static {
+        BUILDERS.put(AndFilter.class, AndFragmentBuilder.class);
+        BUILDERS.put(OrFilter.class, OrFragmentBuilder.class);
+        BUILDERS.put(NotFilter.class, NotFragmentBuilder.class);
+        BUILDERS.put(EqualToFilter.class, EqualsFragmentBuilder.class);
+        BUILDERS.put(GreaterThanFilter.class, RangeFragmentBuilder.class);
+        BUILDERS.put(GreaterThanOrEqualToFilter.class, RangeFragmentBuilder.class);
+        BUILDERS.put(LessThanFilter.class, RangeFragmentBuilder.class);
+        BUILDERS.put(LessThanOrEqualToFilter.class, RangeFragmentBuilder.class);
+        BUILDERS.put(BetweenFilter.class, RangeFragmentBuilder.class);
+        BUILDERS.put(InFilter.class, InFragmentBuilder.class);
+        BUILDERS.put(LikeFilter.class, LikeFragmentBuilder.class);
+        BUILDERS.put(NullFilter.class, NullFragmentBuilder.class);
+    }
+
+    /**
+     * <p>
+     * The SQL string of the search.
+     * </p>
+     */
+    private final String sql;
+
+    /**
+     * <p>
+     * For each parameter of the SQL string, the index of the filter value bound
+     * to it, or -1 if a constant is bound.
+     * </p>
+     */
+    private final int[] bindings;
+
+    /**
+     * <p>
+     * For each parameter of the SQL string, the constant bound to it, if any.
+     * The constants only depend on the signature, like the LIKE patterns and
+     * escape characters.
+     * </p>
+     */
+    private final Object[] constants;
+
+    /**
+     * <p>
+     * The number of values of the filters with the signature of this plan.
+     * </p>
+     */
+    private final int valueCount;
+
+    /**
+     * <p>
+     * Creates the plan of a search, from the parameters bound by the fragment
+     * builders and the values collected by {@link #signature}. Each parameter
+     * which is one of the values, following the previous one, is bound from the
+     * values of the later filters; the other parameters are constants.
+     * </p>
+     *
+     * @param sql
+     *            the SQL string of the search
+     * @param parameters
+     *            the parameters bound by the fragment builders
+     * @param values
+     *            the values of the filter, collected by {@link #signature}
+     */
+    SearchPlan(String sql, List parameters, List values) {
+        this.sql = sql;
+        this.bindings = new int[parameters.size()];
+        this.constants = new Object[parameters.size()];
+        this.valueCount = values.size();
+
+        int next = 0;
+        for (int i = 0; i < bindings.length; ++i) {
+            Object parameter = parameters.get(i);
+            bindings[i] = -1;
+            for (int j = next; j < values.size(); ++j) {
+                if (values.get(j) == parameter) {
+                    bindings[i] = j;
+                    next = j + 1;
+                    break;
+                }
+            }
+            if (bindings[i] == -1) {
+                constants[i] = parameter;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Gets the SQL string of the search.
+     * </p>
+     *
+     * @return the SQL string
+     */
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * <p>
+     * Gets the number of values of the filters with the signature of this
+     * plan, collected by {@link #signature}.
+     * </p>
+     *
+     * @return the number of values
+     */
+    int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * <p>
+     * Gets the parameters to bind for a filter with the signature of this
+     * plan.
+     * </p>
+     *
+     * @param values
+     *            the values of the filter, collected by {@link #signature}
+     * @return the parameters, in the order of the SQL string
+     */
+    Object[] bind(List values) {
+        Object[] parameters = new Object[bindings.length];
+        for (int i = 0; i < bindings.length; ++i) {
+            parameters[i] = bindings[i] == -1 ? constants[i] : values.get(bindings[i]);
+        }
+        return parameters;
+    }
+
+    /**
+     * <p>
+     * Computes the signature of a filter, appending its values to the given
+     * list.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @param fragmentBuilders
+     *            the fragment builders of the strategy
+     * @param values
+     *            the list to append the values of the filter to
+     * @return the signature, or null if a filter of the tree is not handled by
+     *         the fragment builders of this package
+     */
+    static String signature(Filter filter, ClassAssociator fragmentBuilders, List values) {
+        StringBuffer buffer = new StringBuffer();
+        return appendSignature(filter, fragmentBuilders, values, buffer) ? buffer.toString() : null;
+    }
+
+    /**
+     * <p>
+     * Appends the signature of a filter to the buffer, and its values to the
+     * list.
+     * </p>
+     *
+     * @param filter
+     *            the filter
+     * @param fragmentBuilders
+     *            the fragment builders of the strategy
+     * @param values
+     *            the list to append the values of the filter to
+     * @param buffer
+     *            the buffer to append the signature to
+     * @return whether the filter has a signature
+     */
+    private static boolean appendSignature(Filter filter, ClassAssociator fragmentBuilders, List values,
+        StringBuffer buffer) {
+        Class type = filter.getClass();
+        Object builder = fragmentBuilders.getAssociations().get(type);
+        if (builder == null || builder.getClass() != BUILDERS.get(type)) {
+            return false;
+        }
+
+        String typeName = type.getName();
+        buffer.append(typeName.substring(typeName.lastIndexOf('.') + 1));
+        if (filter instanceof AbstractAssociativeFilter) {
+            buffer.append('(');
+            for (Iterator it = ((AbstractAssociativeFilter) filter).getFilters().iterator(); it.hasNext();) {
+                if (!appendSignature((Filter) it.next(), fragmentBuilders, values, buffer)) {
+                    return false;
+                }
+            }
+            buffer.append(')');
+        } else if (filter instanceof NotFilter) {
+            buffer.append('(');
+            if (!appendSignature(((NotFilter) filter).getFilter(), fragmentBuilders, values, buffer)) {
+                return false;
+            }
+            buffer.append(')');
+        } else if (filter instanceof InFilter) {
+            InFilter in = (InFilter) filter;
+            appendName(buffer, in.getName());
+            buffer.append(in.getList().size()).append(';');
+            values.addAll(in.getList());
+        } else if (filter instanceof LikeFilter) {
+            // the bound pattern is derived from the value, which is part of the shape
+            LikeFilter like = (LikeFilter) filter;
+            appendName(buffer, like.getName());
+            appendName(buffer.append(like.getEscapeCharacter()), like.getValue());
+        } else {
+            AbstractSimpleFilter simple = (AbstractSimpleFilter) filter;
+            appendName(buffer, simple.getName());
+            if (filter instanceof BetweenFilter) {
+                values.add(simple.getLowerThreshold());
+                values.add(simple.getUpperThreshold());
+            } else if (!(filter instanceof NullFilter)) {
+                values.add(simple.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>
+     * Appends a name to a signature, prefixed by its length so that any name
+     * can be used.
+     * </p>
+     *
+     * @param buffer
+     *            the buffer to append the name to
+     * @param name
+     *            the name
+     */
+    private static void appendName(StringBuffer buffer, String name) {
+        buffer.append(name.length()).append(':').append(name).append(';');
+    }
+}
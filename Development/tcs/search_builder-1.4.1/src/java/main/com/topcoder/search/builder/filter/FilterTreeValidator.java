@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.filter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.topcoder.search.builder.ValidationResult;
+import com.topcoder.util.datavalidator.ObjectValidator;
+
+/**
+ * <p>
+ * Validates a whole filter tree against maps of validators and aliases which
+ * have already been checked, as SearchBundle checks them when it is configured:
+ * the validators map is not empty, its keys are Strings and its values are
+ * ObjectValidators, and the keys and values of the alias map are Strings.
+ * </p>
+ *
+ * <p>
+ * The result is the one Filter.isValid would return, but the maps are not
+ * checked again for each filter of the tree, the rule of each field is looked
+ * up once, and the message of a validator for a given value is computed once.
+ * The filters of other classes than those of this package, including their
+ * subclasses, are validated by their own isValid method.
+ * </p>
+ *
+ * <p>
+ * Thread Safety: This class is not thread safe, but each validation uses its
+ * own instance, so the static validate method is thread safe and takes no lock.
+ * As for Filter.isValid, the filters should not be changed while validated.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public final class FilterTreeValidator {
+    /**
+     * <p>
+     * The marker of the fields without rule, and of the values without
+     * message, in the caches.
+     * </p>
+     */
+    private static final Object NONE = new Object();
+
+    /**
+     * <p>
+     * The checked map of validators.
+     * </p>
+     */
+    private final Map validators;
+
+    /**
+     * <p>
+     * The checked alias map.
+     * </p>
+     */
+    private final Map alias;
+
+    /**
+     * <p>
+     * The rules of the fields looked up by this validation, or NONE.
+     * </p>
+     */
+    private final Map rules = new HashMap();
+
+    /**
+     * <p>
+     * For each validator used by this validation, the messages it returned,
+     * or NONE, keyed by value.
+     * </p>
+     */
+    private final Map messages = new IdentityHashMap();
+
+    /**
+     * <p>
+     * Creates the state of a validation.
+     * </p>
+     *
+     * @param validators
+     *            the checked map of validators
+     * @param alias
+     *            the checked alias map
+     */
+    private FilterTreeValidator(Map validators, Map alias) {
+        this.validators = validators;
+        this.alias = alias;
+    }
+
+    /**
+     * <p>
+     * Validates a filter tree against checked maps of validators and aliases.
+     * </p>
+     *
+     * @param filter
+     *            the filter to validate
+     * @param validators
+     *            a map containing <code>ObjectValidator</code> Objects, checked
+     *            as described by the class documentation
+     * @param alias
+     *            a Map containing mapping between real names and alias names,
+     *            checked as described by the class documentation
+     * @return the <code>ValidationResult</code> object
+     * @throws IllegalArgumentException
+     *             if filter is null, or as Filter.isValid
+     */
+    public static ValidationResult validate(Filter filter, Map validators, Map alias) {
+        if (filter == null) {
+            throw new IllegalArgumentException("The filter should not be null.");
+        }
+
+        // the maps which cannot have been checked are reported by the filter
+        if (validators == null || alias == null || validators.size() == 0) {
+            return filter.isValid(validators, alias);
+        }
+
+        ValidationResult result = new FilterTreeValidator(validators, alias).check(filter);
+        return result == null ? ValidationResult.createValidResult() : result;
+    }
+
+    /**
+     * <p>
+     * Validates a filter of the tree.
+     * </p>
+     *
+     * @param filter
+     *            the filter to validate
+     * @return the invalid result, or null if the filter is valid
+     */
+    private ValidationResult check(Filter filter) {
+        Class type = filter.getClass();
+
+        if (type == AndFilter.class || type == OrFilter.class) {
+            List filters = ((AbstractAssociativeFilter) filter).filters;
+            FilterHelper.checkList(filters, "filters");
+            for (Iterator it = filters.iterator(); it.hasNext();) {
+                ValidationResult result = check((Filter) it.next());
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        if (type == NotFilter.class) {
+            return check(((NotFilter) filter).getFilterToNegate());
+        }
+
+        if (type == EqualToFilter.class || type == GreaterThanFilter.class
+            || type == GreaterThanOrEqualToFilter.class || type == LessThanFilter.class
+            || type == LessThanOrEqualToFilter.class || type == NullFilter.class) {
+            // the value field, as NullFilter.getValue returns null
+            AbstractSimpleFilter simple = (AbstractSimpleFilter) filter;
+            String message = getMessage(getRequiredRule(simple.fieldName), simple.value);
+            return message == null ? null
+                : ValidationResult.createInvalidResult("Filter check valid fails for " + message + ".", filter);
+        }
+
+        if (type == BetweenFilter.class) {
+            BetweenFilter between = (BetweenFilter) filter;
+            ObjectValidator rule = getRequiredRule(between.fieldName);
+            String message = getMessage(rule, between.upperThreshold);
+            if (message != null || getMessage(rule, between.lowerThreshold) != null) {
+                // the message of the upper threshold is reported, as by BetweenFilter
+                return ValidationResult.createInvalidResult("Between filter fails for " + message + " .", filter);
+            }
+            return null;
+        }
+
+        if (type == InFilter.class) {
+            return checkIn((InFilter) filter);
+        }
+
+        if (type == LikeFilter.class) {
+            LikeFilter like = (LikeFilter) filter;
+            ObjectValidator rule = getRule(like.getName());
+            if (rule == null) {
+                throw new IllegalArgumentException("No ObjectValidator can be retrieved via the fieldName '"
+                    + like.getName() + "'.");
+            }
+            String message = getMessage(rule, like.getValue());
+            return message == null ? null
+                : ValidationResult.createInvalidResult("Validate failed for " + message + ".", filter);
+        }
+
+        ValidationResult result = filter.isValid(validators, alias);
+        return result.isValid() ? null : result;
+    }
+
+    /**
+     * <p>
+     * Validates an IN filter, as InFilter.isValid does.
+     * </p>
+     *
+     * @param in
+     *            the filter to validate
+     * @return the invalid result, or null if the filter is valid
+     * @throws IllegalArgumentException
+     *             if the alias map is empty
+     */
+    private ValidationResult checkIn(InFilter in) {
+        if (alias.size() == 0) {
+            throw new IllegalArgumentException("The map should not be empty.");
+        }
+        ObjectValidator rule = getRule(in.getName());
+        if (rule == null) {
+            return ValidationResult.createInvalidResult("InFilter filter fails for there is no rule.", in);
+        }
+        for (Iterator it = in.getList().iterator(); it.hasNext();) {
+            if (getMessage(rule, it.next()) != null) {
+                return ValidationResult.createInvalidResult("InFilter validation fails.", in);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * Gets the rule of a field, which must exist.
+     * </p>
+     *
+     * @param name
+     *            the name of the field
+     * @return the rule of the field
+     * @throws IllegalArgumentException
+     *             if the field has no rule
+     */
+    private ObjectValidator getRequiredRule(String name) {
+        ObjectValidator rule = getRule(name);
+        if (rule == null) {
+            throw new IllegalArgumentException("The map validators is invalid to get the check rule.");
+        }
+        return rule;
+    }
+
+    /**
+     * <p>
+     * Gets the rule of a field, by its name or else by its alias.
+     * </p>
+     *
+     * @param name
+     *            the name of the field
+     * @return the rule of the field, or null if it has none
+     */
+    private ObjectValidator getRule(String name) {
+        Object rule = rules.get(name);
+        if (rule == null) {
+            rule = validators.get(name);
+            if (rule == null && alias.get(name) != null) {
+                rule = validators.get(alias.get(name));
+            }
+            rules.put(name, rule == null ? NONE : rule);
+        }
+        return rule == NONE ? null : (ObjectValidator) rule;
+    }
+
+    /**
+     * <p>
+     * Gets the message of a validator for a value, computing it only once in
+     * this validation.
+     * </p>
+     *
+     * @param rule
+     *            the validator
+     * @param value
+     *            the value
+     * @return the message, or null if the value is valid
+     */
+    private String getMessage(ObjectValidator rule, Object value) {
+        Map ruleMessages = (Map) messages.get(rule);
+        if (ruleMessages == null) {
+            ruleMessages = new HashMap();
+            messages.put(rule, ruleMessages);
+        }
+        Object message = ruleMessages.get(value);
+        if (message == null) {
+            message = rule.getMessage(value);
+            if (message == null) {
+                message = NONE;
+            }
+            ruleMessages.put(value, message);
+        }
+        return message == NONE ? null : (String) message;
+    }
+}
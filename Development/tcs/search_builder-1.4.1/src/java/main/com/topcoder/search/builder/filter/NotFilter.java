@@ -90,6 +90,16 @@ public class NotFilter implements Filter {
         return (Filter) filterToNegate.clone();
     }
 
+    /**
+     * <p>return the component filter, without cloning it, for the validation of the tree.</p>
+     *
+     * @return the filter to be negated
+     * @since 1.4.2
+     */
+    Filter getFilterToNegate() {
+        return filterToNegate;
+    }
+
     /**
      * <p>return a clone of the object.</p>
      *
@@ -3,6 +3,7 @@
  */
 package com.topcoder.search.builder.hibernate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -16,12 +17,13 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
+import com.topcoder.search.builder.PagedSearchStrategy;
 import com.topcoder.search.builder.PersistenceOperationException;
 import com.topcoder.search.builder.SearchBuilderConfigurationException;
 import com.topcoder.search.builder.SearchBuilderHelper;
 import com.topcoder.search.builder.SearchContext;
 import com.topcoder.search.builder.SearchFragmentBuilder;
-import com.topcoder.search.builder.SearchStrategy;
+import com.topcoder.search.builder.SearchRequest;
 import com.topcoder.search.builder.UnrecognizedFilterException;
 import com.topcoder.search.builder.filter.Filter;
 import com.topcoder.util.classassociations.ClassAssociator;
@@ -147,11 +149,17 @@ import com.topcoder.util.classassociations.ClassAssociator;
  * safety.
  * </p>
  *
+ * <p>
+ * Version 1.4.2 also returns pages of results for SearchRequests. The seek key
+ * condition and the ORDER BY clause are added to the HQL of the filter, and the
+ * page is selected with the first and maximum results of the Query.
+ * </p>
+ *
  * @author kurtrips, myxgyy
- * @version 1.4
+ * @version 1.4.2
  * @since 1.4
  */
-public class HibernateSearchStrategy implements SearchStrategy {
+public class HibernateSearchStrategy implements PagedSearchStrategy {
     /**
      * A String represent the 'hibenateConfigFilePath' property in the configuration.
      */
@@ -404,9 +412,111 @@ public class HibernateSearchStrategy implements SearchStrategy {
         SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
         SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
 
+        return doSearch(context, filter, returnFields, aliasMap, null);
+    }
+
+    /**
+     * Searches the underlying persistence using Hibernate with the provided context,
+     * filter and constraints the returnFields, returning only the requested page of
+     * the results.
+     *
+     * @return the page of results, as a List of the same type as for
+     *         search(String, Filter, List, Map).
+     * @param context
+     *            The search context. This would be an HQL statement for ex. "from Cat" or
+     *            "select name, age from Cat".
+     * @param filter
+     *            The filter to use, which must follow the context in the HQL for the
+     *            requests with a seek key.
+     * @param returnFields
+     *            The set of properties to return. This will be used only if it is a
+     *            SELECT query. In case of a FROM query, this list is ignored.
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of properties as keys and
+     *            their actual property names as the respective values.
+     * @param request
+     *            the page of results to return.
+     * @throws UnrecognizedFilterException
+     *             propagated from SearchFragmentBuilder.
+     * @throws IllegalArgumentException
+     *             if context, filter or request is null or if context is an empty
+     *             String or if returnFields contains null/non-String contents or
+     *             aliasMap contains null/empty String arguments.
+     * @throws PersistenceOperationException
+     *             to wrap any exception thrown by Hibernate.
+     * @since 1.4.2
+     */
+    public Object search(String context, Filter filter, List returnFields,
+        Map aliasMap, SearchRequest request)
+        throws UnrecognizedFilterException, PersistenceOperationException {
+        if (context == null) {
+            throw new IllegalArgumentException(
+                "The context should not be null.");
+        }
+
+        if (context.trim().length() == 0) {
+            throw new IllegalArgumentException(
+                "The context should not be empty.");
+        }
+
+        if (filter == null) {
+            throw new IllegalArgumentException(
+                "The filter should not be null.");
+        }
+
+        if (request == null) {
+            throw new IllegalArgumentException(
+                "The request should not be null.");
+        }
+
+        SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
+        SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
+
+        return doSearch(context, filter, returnFields, aliasMap, request);
+    }
+
+    /**
+     * Searches the underlying persistence using Hibernate, returning all the results
+     * or only a page of them.
+     *
+     * @return the results
+     * @param context
+     *            The search context.
+     * @param filter
+     *            The filter to use.
+     * @param returnFields
+     *            The set of properties to return.
+     * @param aliasMap
+     *            the map of aliases.
+     * @param request
+     *            the page of results to return, or null to return all of them.
+     * @throws UnrecognizedFilterException
+     *             propagated from SearchFragmentBuilder.
+     * @throws PersistenceOperationException
+     *             to wrap any exception thrown by Hibernate.
+     * @since 1.4.2
+     */
+    private Object doSearch(String context, Filter filter, List returnFields,
+        Map aliasMap, SearchRequest request)
+        throws UnrecognizedFilterException, PersistenceOperationException {
         SearchContext searchContext = buildSearchContext(context, filter,
                 returnFields, aliasMap);
 
+        String hql = searchContext.getSearchString().toString();
+        List parameters = new ArrayList(searchContext.getBindableParameters());
+
+        if (request != null) {
+            hql = SearchBuilderHelper.buildSeekQuery(hql,
+                    includeReturnFieldsInSearchString(context, returnFields, aliasMap),
+                    request, aliasMap, parameters);
+
+            String orderBy = SearchBuilderHelper.buildOrderBy(request, aliasMap);
+
+            if (orderBy.length() > 0) {
+                hql = hql + " ORDER BY " + orderBy;
+            }
+        }
+
         Session session;
 
         try {
@@ -421,14 +531,15 @@ public class HibernateSearchStrategy implements SearchStrategy {
                 // since the query need transaction support
                 session.beginTransaction();
 
-                Query query = session.createQuery(searchContext.getSearchString()
-                                                               .toString());
+                Query query = session.createQuery(hql);
+
+                for (int i = 0; i < parameters.size(); i++) {
+                    query.setParameter(i, parameters.get(i));
+                }
 
-                for (int i = 0;
-                        i < searchContext.getBindableParameters().size();
-                        i++) {
-                    query.setParameter(i,
-                        searchContext.getBindableParameters().get(i));
+                if (request != null) {
+                    query.setFirstResult(request.getOffset());
+                    query.setMaxResults(request.getLimit());
                 }
 
                 List ret = query.list();
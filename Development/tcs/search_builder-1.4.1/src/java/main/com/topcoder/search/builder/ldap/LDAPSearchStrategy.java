@@ -3,12 +3,14 @@
  */
 package com.topcoder.search.builder.ldap;
 
+import com.topcoder.search.builder.OperationNotSupportedException;
+import com.topcoder.search.builder.PagedSearchStrategy;
 import com.topcoder.search.builder.PersistenceOperationException;
 import com.topcoder.search.builder.SearchBuilderConfigurationException;
 import com.topcoder.search.builder.SearchBuilderHelper;
 import com.topcoder.search.builder.SearchContext;
 import com.topcoder.search.builder.SearchFragmentBuilder;
-import com.topcoder.search.builder.SearchStrategy;
+import com.topcoder.search.builder.SearchRequest;
 import com.topcoder.search.builder.UnrecognizedFilterException;
 import com.topcoder.search.builder.filter.Filter;
 
@@ -26,6 +28,7 @@ import com.topcoder.util.objectfactory.impl.SpecificationConfigurationException;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -56,10 +59,51 @@ import java.util.Map;
  * SearchContext class, allowing concurrent calls to be supported.
  * </p>
  *
+ * <p>
+ * Version 1.4.2 also returns pages of results for SearchRequests given by an
+ * offset. As the LDAP SDK does not expose the paged results control, the
+ * entries before the page are skipped and the reading stops at the end of the
+ * page, so that only the page is copied. Sorted and seek key requests are not
+ * supported.
+ * </p>
+ *
+ * <p>
+ * Version 1.4.2 also pools the connections: instead of connecting and binding
+ * for each search, the authenticated connections are kept after the searches,
+ * up to the pool size, and reused by the next ones. An idle connection is
+ * reused only if it is still connected and was idle for less than the maximum
+ * idle time, since the servers drop the idle connections; otherwise it is
+ * disconnected and a new one is opened. If a search fails on a reused
+ * connection, it is retried once on a new connection, bound again. A paged
+ * search which stops before the last entry discards its connection, since the
+ * rest of its search is still outstanding on the connection. A pool size of 0
+ * disables the pooling, each search then opening its own connection as
+ * before.
+ * </p>
+ *
  * @author ShindouHikaru, TCSDEVELOPER
- * @version 1.3
+ * @version 1.4.2
  */
-public class LDAPSearchStrategy implements SearchStrategy {
+public class LDAPSearchStrategy implements PagedSearchStrategy {
+    /**
+     * <p>
+     * The default maximum number of idle connections kept in the pool.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    /**
+     * <p>
+     * The default maximum time, in milliseconds, for which an idle connection
+     * is reused.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public static final long DEFAULT_MAX_IDLE_TIME = 60000;
+
     /**
      * It will hold a LDAPConnectionInformation object, used to create a LDAP
      * connection. After the initialization, it should not be null. It will be
@@ -82,6 +126,37 @@ public class LDAPSearchStrategy implements SearchStrategy {
      */
     private final ClassAssociator searchFragmentBuilders;
 
+    /**
+     * <p>
+     * The maximum number of idle connections kept in the pool, 0 if the
+     * connections are not pooled. It is initialized in the constructor, and
+     * never changed.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final int poolSize;
+
+    /**
+     * <p>
+     * The maximum time, in milliseconds, for which an idle connection is
+     * reused. It is initialized in the constructor, and never changed.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final long maxIdleTime;
+
+    /**
+     * <p>
+     * The idle connections of the pool, as IdleConnection instances, the most
+     * recently used last. It is accessed while holding its lock.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private final LinkedList idleConnections = new LinkedList();
+
     /**
      * <p>
      * Create a new instance.
@@ -106,6 +181,45 @@ public class LDAPSearchStrategy implements SearchStrategy {
      */
     public LDAPSearchStrategy(LDAPConnectionInformation connectionInfo,
         Map associations) {
+        this(connectionInfo, associations, DEFAULT_POOL_SIZE,
+            DEFAULT_MAX_IDLE_TIME);
+    }
+
+    /**
+     * <p>
+     * Create a new instance, choosing how the connections are pooled.
+     * </p>
+     *
+     * @param connectionInfo
+     *            a ConnectionInformation object
+     * @param associations
+     *            A map of filter to SearchFragmentBuilder mappings.
+     * @param poolSize
+     *            the maximum number of idle connections kept in the pool, 0
+     *            to disable the pooling.
+     * @param maxIdleTime
+     *            the maximum time, in milliseconds, for which an idle
+     *            connection is reused.
+     * @throws IllegalArgumentException
+     *             if any parameter is Null, if associations contains invalid
+     *             values, or if poolSize or maxIdleTime is negative.
+     * @since 1.4.2
+     */
+    public LDAPSearchStrategy(LDAPConnectionInformation connectionInfo,
+        Map associations, int poolSize, long maxIdleTime) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException(
+                "The poolSize should not be negative.");
+        }
+
+        if (maxIdleTime < 0) {
+            throw new IllegalArgumentException(
+                "The maxIdleTime should not be negative.");
+        }
+
+        this.poolSize = poolSize;
+        this.maxIdleTime = maxIdleTime;
+
         if (connectionInfo == null) {
             throw new IllegalArgumentException(
                 "The LDAPConnectionInformation should not be null.");
@@ -178,6 +292,27 @@ public class LDAPSearchStrategy implements SearchStrategy {
 
         this.searchFragmentBuilders = SearchBuilderHelper.loadClassAssociator(namespace);
 
+        // the pooling is optional
+        String size = SearchBuilderHelper.getConfigProperty(namespace,
+                "connectionPool.size", false);
+        String idleTime = SearchBuilderHelper.getConfigProperty(namespace,
+                "connectionPool.maxIdleTime", false);
+
+        try {
+            poolSize = ((size == null) || (size.trim().length() == 0))
+                ? DEFAULT_POOL_SIZE : Integer.parseInt(size.trim());
+            maxIdleTime = ((idleTime == null) || (idleTime.trim().length() == 0))
+                ? DEFAULT_MAX_IDLE_TIME : Long.parseLong(idleTime.trim());
+        } catch (NumberFormatException e) {
+            throw new SearchBuilderConfigurationException(
+                "The connectionPool properties should be integers.", e);
+        }
+
+        if ((poolSize < 0) || (maxIdleTime < 0)) {
+            throw new SearchBuilderConfigurationException(
+                "The connectionPool properties should not be negative.");
+        }
+
         try {
             String objectFactoryNS = SearchBuilderHelper.getConfigProperty(namespace,
                     "connectionInfoFactoryNamespace", true);
@@ -271,45 +406,279 @@ public class LDAPSearchStrategy implements SearchStrategy {
         SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
         SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
 
-        LDAPSDKConnection connection = null;
+        return doSearch(context, filter, returnFields, aliasMap, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * <p>
+     * Search LDAP directory and return specified fields, returning only the
+     * requested page of the entries.
+     * </p>
+     *
+     * @param context
+     *            a search string used to conduct the search
+     * @param filter
+     *            The filter that is used to constrain the search.
+     * @param returnFields
+     *            names of fields should be returned
+     * @param aliasMap
+     *            a map of strings, holding the alternate names of fields as
+     *            keys and their actual values in the datastore as the
+     *            respective values.
+     * @param request
+     *            the page of results to return, given by an offset and without
+     *            sort fields
+     * @return an Iterator of Entry objects holding the page of results
+     * @throws IllegalArgumentException
+     *             if any parameter is Null, or if aliasMap contains non-String
+     *             or null or empty String elements. or if any paramter is empty
+     *             or any element in the fields parameter is empty
+     * @throws OperationNotSupportedException
+     *             if the request has sort fields or a seek key
+     * @throws PersistenceOperationException
+     *             if any error when operating over data store
+     * @throws UnrecognizedFilterException
+     *             if an appropriate SearchFragmentHandler cannot be found for a
+     *             filter.
+     * @since 1.4.2
+     */
+    public Object search(String context, Filter filter, List returnFields,
+        Map aliasMap, SearchRequest request)
+        throws PersistenceOperationException, UnrecognizedFilterException,
+            OperationNotSupportedException {
+        if (context == null) {
+            throw new IllegalArgumentException(
+                "The context should not be null.");
+        }
+
+        if (context.trim().length() == 0) {
+            throw new IllegalArgumentException(
+                "The context should not be empty.");
+        }
+
+        if (filter == null) {
+            throw new IllegalArgumentException(
+                "The filter should not be null.");
+        }
+
+        if (request == null) {
+            throw new IllegalArgumentException(
+                "The request should not be null.");
+        }
+
+        // the fields can be empty
+        SearchBuilderHelper.checkList(returnFields, "returnFields", String.class);
+        SearchBuilderHelper.checkaliasMap(aliasMap, "aliasMap");
+
+        if (request.getSortFields().size() > 0) {
+            throw new OperationNotSupportedException(
+                "The LDAP search does not support sorting.");
+        }
+
+        return doSearch(context, filter, returnFields, aliasMap,
+            request.getOffset(), request.getLimit());
+    }
+
+    /**
+     * <p>
+     * Search LDAP directory, copying the entries of the given range.
+     * </p>
+     *
+     * @param context
+     *            a search string used to conduct the search
+     * @param filter
+     *            The filter that is used to constrain the search.
+     * @param returnFields
+     *            names of fields should be returned
+     * @param aliasMap
+     *            the alias map
+     * @param offset
+     *            the number of entries to skip
+     * @param limit
+     *            the maximum number of entries to return
+     * @return an Iterator of Entry objects holding search result
+     * @throws PersistenceOperationException
+     *             if any error when operating over data store
+     * @throws UnrecognizedFilterException
+     *             if an appropriate SearchFragmentHandler cannot be found for a
+     *             filter.
+     * @since 1.4.2
+     */
+    private Object doSearch(String context, Filter filter, List returnFields,
+        Map aliasMap, int offset, int limit)
+        throws PersistenceOperationException, UnrecognizedFilterException {
+        // get the array of the return fields
+        String[] array = (String[]) returnFields.toArray(new String[0]);
+
+        // get the context firstly
+        String searchString = buildSearchContext(context, filter,
+                returnFields, aliasMap).getSearchString().toString();
+
+        LDAPSDKConnection connection = takeIdleConnection();
+        boolean reused = connection != null;
+        boolean reusable = false;
 
         try {
-            connection = connect();
+            if (!reused) {
+                connection = connect();
+            }
 
-            // get the array of the return fields
-            String[] array = (String[]) returnFields.toArray(new String[0]);
+            Iterator it;
 
-            // get the context firstly
-            SearchContext searchContext = buildSearchContext(context, filter,
-                    returnFields, aliasMap);
+            try {
+                it = connection.search(context, connectionInfo.getScope(),
+                        searchString, array);
+            } catch (LDAPSDKException e) {
+                if (!reused) {
+                    throw e;
+                }
 
-            Iterator it = connection.search(context, connectionInfo.getScope(),
-                    searchContext.getSearchString().toString(), array);
+                // the server may have dropped the idle connection, bind again
+                // on a new one, not disconnecting the dropped one twice
+                disconnectQuietly(connection);
+                connection = null;
+                connection = connect();
+                it = connection.search(context, connectionInfo.getScope(),
+                        searchString, array);
+            }
 
             // here we should shadow copy the iterator, otherwise the pre
             // iterator is related to the connection
             // when the connection is closed, it can not work any more
             List list = new ArrayList();
 
-            while (it.hasNext()) {
+            // skip the entries before the page
+            for (int i = 0; (i < offset) && it.hasNext(); ++i) {
+                it.next();
+            }
+
+            while (it.hasNext() && (list.size() < limit)) {
                 list.add(it.next());
             }
 
+            // the connection can not abandon a search which is not read to
+            // its end, the connection is then not reused
+            reusable = !it.hasNext();
+
             return list.iterator();
         } catch (LDAPSDKException e) {
             throw new PersistenceOperationException("Search the  ldap failed.",
                 e);
         } finally {
             if (connection != null) {
-                // close the connection for each search in the finally block
-                try {
-                    connection.disconnect();
-                } catch (LDAPSDKException e) {
-                    throw new PersistenceOperationException("can not disconnect the ldap connection.",
-                        e);
+                if (reusable && releaseConnection(connection)) {
+                    // kept in the pool for the next searches
+                    connection = null;
+                } else {
+                    // close the connection in the finally block
+                    try {
+                        connection.disconnect();
+                    } catch (LDAPSDKException e) {
+                        throw new PersistenceOperationException("can not disconnect the ldap connection.",
+                            e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Takes a healthy connection from the pool. The idle connections which are
+     * no more connected or were idle for too long are disconnected.
+     * </p>
+     *
+     * @return the connection, or null if the pool has no healthy connection
+     * @since 1.4.2
+     */
+    private LDAPSDKConnection takeIdleConnection() {
+        if (poolSize == 0) {
+            return null;
+        }
+
+        List stale = new ArrayList();
+        LDAPSDKConnection connection = null;
+        long now = System.currentTimeMillis();
+
+        synchronized (idleConnections) {
+            while ((connection == null) && !idleConnections.isEmpty()) {
+                IdleConnection idle = (IdleConnection) idleConnections.removeLast();
+
+                if (((now - idle.since) <= maxIdleTime)
+                        && idle.connection.isConnected()) {
+                    connection = idle.connection;
+                } else {
+                    stale.add(idle.connection);
                 }
             }
         }
+
+        for (Iterator it = stale.iterator(); it.hasNext();) {
+            disconnectQuietly((LDAPSDKConnection) it.next());
+        }
+
+        return connection;
+    }
+
+    /**
+     * <p>
+     * Puts a connection back into the pool, unless it is full.
+     * </p>
+     *
+     * @param connection
+     *            the connection, authenticated and healthy
+     * @return whether the connection is kept in the pool
+     * @since 1.4.2
+     */
+    private boolean releaseConnection(LDAPSDKConnection connection) {
+        synchronized (idleConnections) {
+            if (idleConnections.size() >= poolSize) {
+                return false;
+            }
+
+            idleConnections.addLast(new IdleConnection(connection,
+                    System.currentTimeMillis()));
+
+            return true;
+        }
+    }
+
+    /**
+     * <p>
+     * Disconnects a connection, ignoring the errors.
+     * </p>
+     *
+     * @param connection
+     *            the connection to disconnect
+     * @since 1.4.2
+     */
+    private static void disconnectQuietly(LDAPSDKConnection connection) {
+        try {
+            connection.disconnect();
+        } catch (LDAPSDKException e) {
+            // ignore, the connection is dropped anyway
+        }
+    }
+
+    /**
+     * <p>
+     * Disconnects the idle connections of the pool. The connections used by
+     * the running searches are still put back into the pool after them.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    public void closeIdleConnections() {
+        List connections;
+
+        synchronized (idleConnections) {
+            connections = new ArrayList(idleConnections);
+            idleConnections.clear();
+        }
+
+        for (Iterator it = connections.iterator(); it.hasNext();) {
+            disconnectQuietly(((IdleConnection) it.next()).connection);
+        }
     }
 
     /**
@@ -412,4 +781,36 @@ public class LDAPSearchStrategy implements SearchStrategy {
                 e);
         }
     }
+
+    /**
+     * <p>
+     * An idle connection of the pool, with the time since when it is idle.
+     * </p>
+     *
+     * @since 1.4.2
+     */
+    private static final class IdleConnection {
+        /**
+         * The authenticated connection.
+         */
+        private final LDAPSDKConnection connection;
+
+        /**
+         * The time since when the connection is idle, in milliseconds.
+         */
+        private final long since;
+
+        /**
+         * Creates an idle connection.
+         *
+         * @param connection
+         *            the authenticated connection
+         * @param since
+         *            the time since when the connection is idle
+         */
+        IdleConnection(LDAPSDKConnection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
 }
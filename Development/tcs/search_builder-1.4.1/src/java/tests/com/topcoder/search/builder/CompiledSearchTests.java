@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.BetweenFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.InFilter;
+import com.topcoder.search.builder.filter.LikeFilter;
+import com.topcoder.search.builder.filter.NotFilter;
+import com.topcoder.search.builder.filter.NullFilter;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for CompiledSearch and SearchBundle.compile. The searches are
+ * done by mock strategies, so no datastore is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class CompiledSearchTests extends TestCase {
+    /**
+     * The context.
+     */
+    private static final String CONTEXT = "select * from people where ";
+
+    /**
+     * The searchable fields.
+     */
+    private Map fields = null;
+
+    /**
+     * The map of alias name and real name.
+     */
+    private Map aliasMap = null;
+
+    /**
+     * The setUp of the unit test.
+     */
+    protected void setUp() {
+        fields = new HashMap();
+        fields.put("name", null);
+        fields.put("age", new MockValidator() {
+            public String getMessage(Object obj) {
+                return ((Integer) obj).intValue() < 0 ? "negative age" : null;
+            }
+        });
+        fields.put("id", null);
+        fields.put("city", null);
+        fields.put("weight", null);
+
+        aliasMap = new HashMap();
+        aliasMap.put("The age", "age");
+    }
+
+    /**
+     * Creates a filter with the given values.
+     *
+     * @param name
+     *            the compared name
+     * @param age
+     *            the lower age
+     * @param ids
+     *            the ids of the IN list
+     * @return the filter
+     */
+    private static Filter createFilter(String name, int age, int[] ids) {
+        List list = new ArrayList();
+        for (int i = 0; i < ids.length; ++i) {
+            list.add(new Integer(ids[i]));
+        }
+        List filters = new ArrayList();
+        filters.add(new EqualToFilter("name", name));
+        filters.add(new BetweenFilter("The age", new Integer(99), new Integer(age)));
+        filters.add(new NotFilter(new InFilter("id", list)));
+        filters.add(new LikeFilter("city", "SW:New"));
+        filters.add(new NullFilter("weight"));
+        return new AndFilter(filters);
+    }
+
+    /**
+     * The accuracy test of compile: the parameters are the values of the
+     * filter, in the order of the filter tree.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testcompile_parameters() throws Exception {
+        MockSearchStrategy strategy = new MockSearchStrategy(true);
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        CompiledSearch search = bundle.compile(createFilter("a", 1, new int[] {5, 6}));
+
+        assertEquals("the parameter count is wrong.", 5, search.getParameterCount());
+        assertEquals("the parameter name is wrong.", "The age", search.getParameterName(2));
+        assertEquals("the parameter type is wrong.", String.class, search.getParameterType(0));
+        assertEquals("the parameter type is wrong.", Integer.class, search.getParameterType(4));
+        assertEquals("the values are wrong.", Arrays.asList(new Object[] {"a", new Integer(1), new Integer(99),
+            new Integer(5), new Integer(6)}), search.getParameterValues());
+        assertEquals("the search should be compiled once.", 1, strategy.compileCount);
+    }
+
+    /**
+     * The accuracy test of search with a compilable strategy: the compiled
+     * search is run with the new values.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_compiled() throws Exception {
+        MockSearchStrategy strategy = new MockSearchStrategy(true);
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        CompiledSearch search = bundle.compile(createFilter("a", 1, new int[] {5}));
+
+        List values = Arrays.asList(new Object[] {"b", new Integer(2), new Integer(50), new Integer(7)});
+        assertSame("the result is wrong.", MockSearchStrategy.RESULT, search.search(values));
+        search.search();
+
+        assertEquals("the search should be compiled once.", 1, strategy.compileCount);
+        assertEquals("the compiled search should be run.", 2, strategy.compiledSearchCount);
+        assertNull("the filter should not be searched.", strategy.lastFilter);
+        assertEquals("the values are wrong.", search.getParameterValues(), strategy.lastValues);
+    }
+
+    /**
+     * The accuracy test of search with a strategy which does not compile the
+     * filter: the filter is rebuilt with the new values.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_rebuilt() throws Exception {
+        MockSearchStrategy strategy = new MockSearchStrategy(false);
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        CompiledSearch search = bundle.compile(createFilter("a", 1, new int[] {5}));
+
+        search.search(Arrays.asList(new Object[] {"b", new Integer(2), new Integer(50), new Integer(7)}));
+
+        List filters = ((AndFilter) strategy.lastFilter).getFilters();
+        assertEquals("the value is wrong.", "b", ((EqualToFilter) filters.get(0)).getValue());
+        assertEquals("the lower threshold is wrong.", new Integer(2),
+            ((BetweenFilter) filters.get(1)).getLowerThreshold());
+        assertEquals("the upper threshold is wrong.", new Integer(50),
+            ((BetweenFilter) filters.get(1)).getUpperThreshold());
+        assertEquals("the IN list is wrong.", Arrays.asList(new Object[] {new Integer(7)}),
+            ((InFilter) ((NotFilter) filters.get(2)).getFilter()).getList());
+        assertTrue("the LIKE filter should be kept.", filters.get(3) instanceof LikeFilter);
+        assertTrue("the NULL filter should be kept.", filters.get(4) instanceof NullFilter);
+    }
+
+    /**
+     * The failure test of search with a value rejected by the validator of
+     * its field, found through its alias.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_invalidValue() throws Exception {
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, new MockSearchStrategy(true));
+        CompiledSearch search = bundle.compile(createFilter("a", 1, new int[] {5}));
+
+        try {
+            search.search(Arrays.asList(new Object[] {"b", new Integer(-2), new Integer(50), new Integer(7)}));
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            assertFalse("the exception should not be wrapped.", e instanceof PersistenceOperationException);
+        }
+    }
+
+    /**
+     * The failure test of search with values of the wrong count or type.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_invalidParameters() throws Exception {
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, new MockSearchStrategy(true));
+        CompiledSearch search = bundle.compile(createFilter("a", 1, new int[] {5}));
+
+        try {
+            search.search(Arrays.asList(new Object[] {"b", new Integer(2), new Integer(50)}));
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            search.search(Arrays.asList(new Object[] {"b", "2", new Integer(50), new Integer(7)}));
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            search.search(null);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The failure test of compile with an invalid filter.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testcompile_invalidFilter() throws Exception {
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, new MockSearchStrategy(true));
+
+        try {
+            bundle.compile(new EqualToFilter("age", new Integer(-1)));
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            // expected
+        }
+        try {
+            bundle.compile(null);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * A mock strategy recording the searches.
+     * </p>
+     */
+    private static class MockSearchStrategy implements CompilableSearchStrategy {
+        /**
+         * The result of the searches.
+         */
+        static final Object RESULT = new Object();
+
+        /**
+         * Whether the filters are compiled.
+         */
+        private final boolean compiling;
+
+        /**
+         * The number of compiled filters.
+         */
+        private int compileCount = 0;
+
+        /**
+         * The number of runs of compiled searches.
+         */
+        private int compiledSearchCount = 0;
+
+        /**
+         * The last searched filter.
+         */
+        private Filter lastFilter = null;
+
+        /**
+         * The last values given to a compiled search.
+         */
+        private List lastValues = null;
+
+        /**
+         * Creates the strategy.
+         *
+         * @param compiling
+         *            whether the filters are compiled
+         */
+        MockSearchStrategy(boolean compiling) {
+            this.compiling = compiling;
+        }
+
+        /**
+         * Compiles the filter if enabled.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @return the compiled search, or null
+         */
+        public Object compile(String context, Filter filter, List returnFields, Map aliasMap) {
+            if (!compiling) {
+                return null;
+            }
+            ++compileCount;
+            return filter;
+        }
+
+        /**
+         * Records the values of the compiled search.
+         *
+         * @param compiledSearch
+         *            the compiled search
+         * @param values
+         *            the values
+         * @return the result
+         */
+        public Object search(Object compiledSearch, List values) {
+            ++compiledSearchCount;
+            lastValues = values;
+            return RESULT;
+        }
+
+        /**
+         * Records the filter.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @return the result
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap) {
+            lastFilter = filter;
+            return RESULT;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for SearchBundleManager.searchAll, the result combiners and
+ * BoundedSearchExecutor. The searches are done by mock strategies, so no
+ * datastore is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class FederatedSearchTests extends TestCase {
+    /**
+     * The context.
+     */
+    private static final String CONTEXT = "select * from people where ";
+
+    /**
+     * The manager to test.
+     */
+    private SearchBundleManager manager = null;
+
+    /**
+     * The searched filters, by the names of the bundles.
+     */
+    private Map filters = null;
+
+    /**
+     * The setUp of the unit test.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    protected void setUp() throws Exception {
+        manager = new SearchBundleManager();
+        filters = new LinkedHashMap();
+    }
+
+    /**
+     * Adds a bundle searched with the given strategy.
+     *
+     * @param name
+     *            the name of the bundle
+     * @param strategy
+     *            the strategy of the bundle
+     * @throws Exception
+     *             to JUnit
+     */
+    private void addBundle(String name, SearchStrategy strategy) throws Exception {
+        Map fields = new HashMap();
+        fields.put("name", null);
+        manager.addSearchBundle(new SearchBundle(name, fields, new HashMap(), CONTEXT, strategy));
+        filters.put(name, new EqualToFilter("name", "a"));
+    }
+
+    /**
+     * The accuracy test of searchAll with the default combiner, and with the
+     * concatenating one.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAll_accuracy() throws Exception {
+        addBundle("database", new MockSearchStrategy(Arrays.asList(new Object[] {"a", "b"}), 0));
+        addBundle("ldap", new MockSearchStrategy(Arrays.asList(new Object[] {"c"}), 0));
+
+        Map results = (Map) manager.searchAll(filters);
+        assertEquals("the results are wrong.", Arrays.asList(new Object[] {"database", "ldap"}),
+            new ArrayList(results.keySet()));
+        assertEquals("the result is wrong.", Arrays.asList(new Object[] {"c"}), results.get("ldap"));
+
+        List list = (List) manager.searchAll(filters, new ArrayList(), new ListSearchResultCombiner(), 10000);
+        assertEquals("the results are wrong.", Arrays.asList(new Object[] {"a", "b", "c"}), list);
+    }
+
+    /**
+     * The accuracy test of searchAll: the bundles are searched in parallel, so
+     * the searches take the time of the slowest one.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAll_parallel() throws Exception {
+        addBundle("first", new MockSearchStrategy(new ArrayList(), 500));
+        addBundle("second", new MockSearchStrategy(new ArrayList(), 500));
+        addBundle("third", new MockSearchStrategy(new ArrayList(), 500));
+
+        long start = System.currentTimeMillis();
+        manager.searchAll(filters);
+        assertTrue("the bundles should be searched in parallel.", System.currentTimeMillis() - start < 1400);
+    }
+
+    /**
+     * The accuracy test of searchAll: a bundle not done in time is cancelled,
+     * and its failure is given to the combiner.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAll_timeout() throws Exception {
+        MockSearchStrategy slow = new MockSearchStrategy(new ArrayList(), 60000);
+        addBundle("fast", new MockSearchStrategy(Arrays.asList(new Object[] {"a"}), 0));
+        addBundle("slow", slow);
+
+        List list = (List) manager.searchAll(filters, new ArrayList(), new ListSearchResultCombiner(true), 200);
+        assertEquals("the results are wrong.", Arrays.asList(new Object[] {"a"}), list);
+
+        synchronized (slow) {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!slow.interrupted && System.currentTimeMillis() < deadline) {
+                slow.wait(100);
+            }
+        }
+        assertTrue("the slow search should be cancelled.", slow.interrupted);
+
+        try {
+            manager.searchAll(filters, new ArrayList(), new MapSearchResultCombiner(), 200);
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The failure test of searchAll: the failure of a bundle is thrown by the
+     * default combiner.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAll_failure() throws Exception {
+        addBundle("ok", new MockSearchStrategy(new ArrayList(), 0));
+        addBundle("failing", new MockSearchStrategy(null, 0));
+
+        try {
+            manager.searchAll(filters);
+            fail("PersistenceOperationException should be thrown.");
+        } catch (PersistenceOperationException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The failure test of searchAll with invalid parameters.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAll_invalid() throws Exception {
+        addBundle("ok", new MockSearchStrategy(new ArrayList(), 0));
+
+        try {
+            manager.searchAll(new HashMap());
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            manager.searchAll(filters, new ArrayList(), new MapSearchResultCombiner(), -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        filters.put("unknown", new EqualToFilter("name", "a"));
+        try {
+            manager.searchAll(filters);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        filters.remove("unknown");
+        filters.put("ok", new EqualToFilter("unknown", "a"));
+        try {
+            manager.searchAll(filters);
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The accuracy test of BoundedSearchExecutor: no more workers than the
+     * maximum are started, and a worker runs the queued searches.
+     */
+    public void testBoundedSearchExecutor() {
+        final List workers = new ArrayList();
+        BoundedSearchExecutor executor = new BoundedSearchExecutor(2, new SearchExecutor() {
+            public void execute(Runnable search) {
+                workers.add(search);
+            }
+        });
+        final List runs = new ArrayList();
+
+        for (int i = 0; i < 3; ++i) {
+            final Integer id = new Integer(i);
+            executor.execute(new Runnable() {
+                public void run() {
+                    runs.add(id);
+                }
+            });
+        }
+
+        assertEquals("only two workers should be started.", 2, workers.size());
+        ((Runnable) workers.get(0)).run();
+        assertEquals("the searches are run in order.",
+            Arrays.asList(new Object[] {new Integer(0), new Integer(1), new Integer(2)}), runs);
+
+        // the queue is empty, so the second worker stops at once, and a new one can be started
+        ((Runnable) workers.get(1)).run();
+        executor.execute(new Runnable() {
+            public void run() {
+                // empty
+            }
+        });
+        assertEquals("a worker should be started.", 3, workers.size());
+
+        try {
+            new BoundedSearchExecutor(0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * A mock strategy returning a given result after a delay.
+     * </p>
+     */
+    private static class MockSearchStrategy implements SearchStrategy {
+        /**
+         * The result, or null to fail.
+         */
+        private final List result;
+
+        /**
+         * The delay of the search, in milliseconds.
+         */
+        private final long delay;
+
+        /**
+         * Whether a search was interrupted.
+         */
+        private boolean interrupted = false;
+
+        /**
+         * Creates the strategy.
+         *
+         * @param result
+         *            the result, or null to fail
+         * @param delay
+         *            the delay of the search, in milliseconds
+         */
+        MockSearchStrategy(List result, long delay) {
+            this.result = result;
+            this.delay = delay;
+        }
+
+        /**
+         * Returns the result after the delay.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @return the result
+         * @throws PersistenceOperationException
+         *             if the result is null, or the search is interrupted
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap)
+            throws PersistenceOperationException {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    synchronized (this) {
+                        interrupted = true;
+                        notifyAll();
+                    }
+                    throw new PersistenceOperationException("interrupted", e);
+                }
+            }
+            if (result == null) {
+                throw new PersistenceOperationException("failed");
+            }
+            return result;
+        }
+    }
+}
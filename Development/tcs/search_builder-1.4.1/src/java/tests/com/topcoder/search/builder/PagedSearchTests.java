@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for SearchRequest, and the paged and asynchronous searches of
+ * SearchBundle. The searches are done by mock strategies, so no datastore is
+ * needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class PagedSearchTests extends TestCase {
+    /**
+     * The context.
+     */
+    private static final String CONTEXT = "select * from people where ";
+
+    /**
+     * The searchable fields.
+     */
+    private Map fields = null;
+
+    /**
+     * The map of alias name and real name.
+     */
+    private Map aliasMap = null;
+
+    /**
+     * The setUp of the unit test.
+     */
+    protected void setUp() {
+        fields = new HashMap();
+        fields.put("name", null);
+        fields.put("age", null);
+
+        aliasMap = new HashMap();
+        aliasMap.put("The age", "age");
+    }
+
+    /**
+     * The accuracy test of the SearchRequest constructors.
+     */
+    public void testSearchRequest_accuracy() {
+        SearchRequest request = new SearchRequest(20, 10, Arrays.asList(new String[] {"name"}), true);
+        assertEquals("the offset is wrong.", 20, request.getOffset());
+        assertEquals("the limit is wrong.", 10, request.getLimit());
+        assertEquals("the sort fields are wrong.", Arrays.asList(new String[] {"name"}), request.getSortFields());
+        assertTrue("the order is wrong.", request.isDescending());
+        assertNull("there should be no seek key.", request.getSeekKey());
+
+        request = new SearchRequest(Arrays.asList(new String[] {"name", "The age"}), false,
+            Arrays.asList(new Object[] {"a", new Integer(1)}), 5);
+        assertEquals("the offset is wrong.", 0, request.getOffset());
+        assertEquals("the seek key is wrong.", Arrays.asList(new Object[] {"a", new Integer(1)}),
+            request.getSeekKey());
+    }
+
+    /**
+     * The failure test of the SearchRequest constructors.
+     */
+    public void testSearchRequest_failure() {
+        try {
+            new SearchRequest(-1, 10);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new SearchRequest(0, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new SearchRequest(new ArrayList(), false, new ArrayList(), 10);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new SearchRequest(Arrays.asList(new String[] {"name"}), false, Arrays.asList(new Object[] {"a", "b"}),
+                10);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The accuracy test of the paged search: the request is given to the
+     * strategy.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_paged() throws Exception {
+        MockPagedSearchStrategy strategy = new MockPagedSearchStrategy();
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        SearchRequest request = new SearchRequest(0, 10);
+
+        assertSame("the result is wrong.", MockPagedSearchStrategy.RESULT,
+            bundle.search(new EqualToFilter("name", "a"), new ArrayList(), request));
+        assertSame("the request is wrong.", request, strategy.lastRequest);
+    }
+
+    /**
+     * The failure test of the paged search with a strategy which is not a
+     * PagedSearchStrategy.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_notPaged() throws Exception {
+        SearchStrategy strategy = new SearchStrategy() {
+            public Object search(String context, Filter filter, List returnFields, Map aliasMap) {
+                return null;
+            }
+        };
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+
+        try {
+            bundle.search(new EqualToFilter("name", "a"), new ArrayList(), new SearchRequest(0, 10));
+            fail("OperationNotSupportedException should be thrown.");
+        } catch (OperationNotSupportedException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The accuracy test of the asynchronous searches.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAsync_accuracy() throws Exception {
+        MockPagedSearchStrategy strategy = new MockPagedSearchStrategy();
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+
+        SearchFuture search = bundle.searchAsync(new EqualToFilter("name", "a"), new ArrayList());
+        assertSame("the result is wrong.", MockPagedSearchStrategy.RESULT, search.get());
+        assertTrue("the search should be done.", search.isDone());
+        assertNull("the search should not be paged.", strategy.lastRequest);
+
+        SearchRequest request = new SearchRequest(0, 10);
+        search = bundle.searchAsync(new EqualToFilter("name", "a"), new ArrayList(), request);
+        assertSame("the result is wrong.", MockPagedSearchStrategy.RESULT, search.get(10000));
+        assertSame("the request is wrong.", request, strategy.lastRequest);
+    }
+
+    /**
+     * The accuracy test of the cancellation of an asynchronous search, and of
+     * the timeout of get.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearchAsync_cancel() throws Exception {
+        SearchStrategy strategy = new SearchStrategy() {
+            public Object search(String context, Filter filter, List returnFields, Map aliasMap)
+                throws PersistenceOperationException {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    throw new PersistenceOperationException("interrupted", e);
+                }
+                return null;
+            }
+        };
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        SearchFuture search = bundle.searchAsync(new EqualToFilter("name", "a"), new ArrayList());
+
+        try {
+            search.get(10);
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            assertFalse("the search should not be done.", search.isDone());
+        }
+
+        assertTrue("the search should be cancelled.", search.cancel());
+        assertTrue("the search should be done.", search.isDone());
+        assertTrue("the search should be cancelled.", search.isCancelled());
+        assertFalse("the search is already cancelled.", search.cancel());
+        try {
+            search.get();
+            fail("SearchBuilderException should be thrown.");
+        } catch (SearchBuilderException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The accuracy test of setSearchExecutor: the searches are run by the
+     * given executor.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsetSearchExecutor() throws Exception {
+        final List tasks = new ArrayList();
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, new MockPagedSearchStrategy());
+        bundle.setSearchExecutor(new SearchExecutor() {
+            public void execute(Runnable search) {
+                tasks.add(search);
+            }
+        });
+
+        SearchFuture search = bundle.searchAsync(new EqualToFilter("name", "a"), new ArrayList());
+        assertFalse("the search should not be done.", search.isDone());
+        ((Runnable) tasks.get(0)).run();
+        assertSame("the result is wrong.", MockPagedSearchStrategy.RESULT, search.get());
+    }
+
+    /**
+     * The accuracy test of run: the interrupted status of the thread running
+     * the search is kept when the search is not cancelled.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testrun_keepsInterrupt() throws Exception {
+        final List tasks = new ArrayList();
+        SearchBundle bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, new MockPagedSearchStrategy());
+        bundle.setSearchExecutor(new SearchExecutor() {
+            public void execute(Runnable search) {
+                tasks.add(search);
+            }
+        });
+
+        SearchFuture search = bundle.searchAsync(new EqualToFilter("name", "a"), new ArrayList());
+        Thread.currentThread().interrupt();
+        ((Runnable) tasks.get(0)).run();
+        assertTrue("the interrupted status should be kept.", Thread.interrupted());
+        assertSame("the result is wrong.", MockPagedSearchStrategy.RESULT, search.get());
+    }
+
+    /**
+     * <p>
+     * A mock paged strategy recording the requests.
+     * </p>
+     */
+    private static class MockPagedSearchStrategy implements PagedSearchStrategy {
+        /**
+         * The result of the searches.
+         */
+        static final Object RESULT = new Object();
+
+        /**
+         * The last request, or null if the last search was not paged.
+         */
+        private volatile SearchRequest lastRequest = null;
+
+        /**
+         * Records the search.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @return the result
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap) {
+            lastRequest = null;
+            return RESULT;
+        }
+
+        /**
+         * Records the paged search.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @param request
+         *            the request
+         * @return the result
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap,
+            SearchRequest request) {
+            lastRequest = request;
+            return RESULT;
+        }
+    }
+}
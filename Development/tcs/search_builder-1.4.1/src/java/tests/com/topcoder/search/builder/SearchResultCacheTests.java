@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder;
+
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for SearchResultCache, and the cached searches of
+ * SearchBundle. The searches are done by a mock strategy counting them, so no
+ * datastore is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class SearchResultCacheTests extends TestCase {
+    /**
+     * The context.
+     */
+    private static final String CONTEXT = "select * from people where ";
+
+    /**
+     * The mock strategy of the bundle.
+     */
+    private CountingSearchStrategy strategy = null;
+
+    /**
+     * The bundle to test.
+     */
+    private SearchBundle bundle = null;
+
+    /**
+     * The cache of the bundle.
+     */
+    private SearchResultCache cache = null;
+
+    /**
+     * The setUp of the unit test.
+     */
+    protected void setUp() {
+        Map fields = new HashMap();
+        fields.put("name", null);
+        fields.put("age", null);
+
+        Map aliasMap = new HashMap();
+        aliasMap.put("The age", "age");
+
+        strategy = new CountingSearchStrategy();
+        bundle = new SearchBundle("bundle", fields, aliasMap, CONTEXT, strategy);
+        cache = new SearchResultCache(2, 0);
+        bundle.setResultCache(cache);
+    }
+
+    /**
+     * The accuracy test of the cached searches: the second search is a hit,
+     * and gets its own copy of the result.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_cached() throws Exception {
+        List first = (List) bundle.search(new EqualToFilter("name", "a"));
+        first.clear();
+        List second = (List) bundle.search(new EqualToFilter("name", "a"));
+
+        assertEquals("the strategy should search once.", 1, strategy.count);
+        assertEquals("the result is wrong.", Arrays.asList(new Object[] {"name"}), second);
+        assertEquals("the hits are wrong.", 1, cache.getHitCount());
+        assertEquals("the misses are wrong.", 1, cache.getMissCount());
+
+        bundle.search(new EqualToFilter("name", "b"));
+        bundle.search(new EqualToFilter("name", "a"), Arrays.asList(new Object[] {"age"}));
+        assertEquals("the values and return fields are in the key.", 3, strategy.count);
+
+        bundle.search(new EqualToFilter("name", "a"), new ArrayList(), new SearchRequest(0, 10));
+        bundle.search(new EqualToFilter("name", "a"), new ArrayList(), new SearchRequest(0, 10));
+        assertEquals("the paged searches are not cached.", 5, strategy.count);
+    }
+
+    /**
+     * The accuracy test of the signature of the filters: the children of AND
+     * filters in another order share a result, and the type of the values
+     * matters.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_signature() throws Exception {
+        Filter name = new EqualToFilter("name", "a");
+        Filter age = new EqualToFilter("age", new Integer(1));
+
+        bundle.search(new AndFilter(name, age));
+        bundle.search(new AndFilter(age, name));
+        assertEquals("the AND filters should share a result.", 1, strategy.count);
+
+        bundle.search(new AndFilter(name, new EqualToFilter("age", new Long(1))));
+        assertEquals("the type of the values should matter.", 2, strategy.count);
+    }
+
+    /**
+     * The accuracy test of the cached Iterator results: each search gets an
+     * iterator over all the entries.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_iterator() throws Exception {
+        strategy.iterator = true;
+
+        for (int i = 0; i < 2; ++i) {
+            Iterator it = (Iterator) bundle.search(new EqualToFilter("name", "a"));
+            assertEquals("the result is wrong.", "name", it.next());
+            assertFalse("the result is wrong.", it.hasNext());
+        }
+        assertEquals("the strategy should search once.", 1, strategy.count);
+    }
+
+    /**
+     * The accuracy test of the invalidation by field, by alias and by bundle.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testinvalidate() throws Exception {
+        List nameField = Arrays.asList(new Object[] {"name"});
+        bundle.search(new EqualToFilter("The age", new Integer(1)), nameField);
+        bundle.search(new EqualToFilter("name", "a"), nameField);
+
+        cache.invalidateField("age");
+        assertEquals("the search on the age should be removed.", 1, cache.size());
+
+        bundle.search(new EqualToFilter("name", "a"));
+        cache.invalidateField("unknown");
+        assertEquals("the search of all the fields should be removed.", 1, cache.size());
+
+        cache.invalidate();
+        assertEquals("the cache should be empty.", 0, cache.size());
+
+        bundle.search(new EqualToFilter("name", "a"));
+        bundle.setSearchStrategy(strategy);
+        assertEquals("the cache should be empty.", 0, cache.size());
+        assertEquals("the invalidations are not evictions.", 0, cache.getEvictionCount());
+    }
+
+    /**
+     * The accuracy test of the invalidation during a search: its result is
+     * returned but not cached.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testinvalidate_duringSearch() throws Exception {
+        strategy.invalidated = cache;
+        List result = (List) bundle.search(new EqualToFilter("name", "a"));
+        assertEquals("the result is wrong.", Arrays.asList(new Object[] {"name"}), result);
+        assertEquals("the stale result should not be cached.", 0, cache.size());
+
+        strategy.invalidated = null;
+        bundle.search(new EqualToFilter("name", "a"));
+        bundle.search(new EqualToFilter("name", "a"));
+        assertEquals("the next result should be cached.", 2, strategy.count);
+    }
+
+    /**
+     * The accuracy test of the evictions by size and by age.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testeviction() throws Exception {
+        bundle.search(new EqualToFilter("name", "a"));
+        bundle.search(new EqualToFilter("name", "b"));
+        bundle.search(new EqualToFilter("name", "a"));
+        bundle.search(new EqualToFilter("name", "c"));
+        assertEquals("the cache should be full.", 2, cache.size());
+        assertEquals("the least recently used should be evicted.", 1, cache.getEvictionCount());
+        bundle.search(new EqualToFilter("name", "a"));
+        assertEquals("the recently used should stay.", 3, strategy.count);
+
+        cache = new SearchResultCache(10, 50);
+        bundle.setResultCache(cache);
+        bundle.search(new EqualToFilter("name", "a"));
+        Thread.sleep(100);
+        bundle.search(new EqualToFilter("name", "a"));
+        assertEquals("the expired result should be searched again.", 5, strategy.count);
+        assertEquals("the expired result should be evicted.", 1, cache.getEvictionCount());
+    }
+
+    /**
+     * The failure test of the SearchResultCache constructor and
+     * invalidateField.
+     */
+    public void testSearchResultCache_failure() {
+        try {
+            new SearchResultCache(0, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new SearchResultCache(1, -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            cache.invalidateField(" ");
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * <p>
+     * A mock paged strategy counting the searches, and returning the names of
+     * the fields of the filters.
+     * </p>
+     */
+    private static class CountingSearchStrategy implements PagedSearchStrategy {
+        /**
+         * The number of searches.
+         */
+        private int count = 0;
+
+        /**
+         * Whether the result is an Iterator instead of a List.
+         */
+        private boolean iterator = false;
+
+        /**
+         * The cache invalidated during the searches, or null.
+         */
+        private SearchResultCache invalidated = null;
+
+        /**
+         * Counts the search.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @return a list holding the name of the field of the filter
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap) {
+            ++count;
+            if (invalidated != null) {
+                invalidated.invalidateField("name");
+            }
+            List result = new ArrayList();
+            result.add(filter instanceof EqualToFilter ? ((EqualToFilter) filter).getName() : "and");
+            return iterator ? (Object) result.iterator() : result;
+        }
+
+        /**
+         * Counts the paged search.
+         *
+         * @param context
+         *            the context
+         * @param filter
+         *            the filter
+         * @param returnFields
+         *            the return fields
+         * @param aliasMap
+         *            the alias map
+         * @param request
+         *            the request
+         * @return a list holding the name of the field of the filter
+         */
+        public Object search(String context, Filter filter, List returnFields, Map aliasMap,
+            SearchRequest request) {
+            return search(context, filter, returnFields, aliasMap);
+        }
+    }
+}
@@ -12,9 +12,11 @@ import com.topcoder.search.builder.database.NotFragmentBuilderDBTests;
 import com.topcoder.search.builder.database.NullFragmentBuilderDBTests;
 import com.topcoder.search.builder.database.OrFragmentBuilderDBTests;
 import com.topcoder.search.builder.database.RangeFragmentBuilderDBTests;
+import com.topcoder.search.builder.database.SearchPlanTests;
 import com.topcoder.search.builder.filter.AndFilterTests;
 import com.topcoder.search.builder.filter.BetweenFilterTests;
 import com.topcoder.search.builder.filter.EqualToFilterTests;
+import com.topcoder.search.builder.filter.FilterTreeValidatorTests;
 import com.topcoder.search.builder.filter.GreaterThanFilterTests;
 import com.topcoder.search.builder.filter.GreaterThanorEqualToFilterTests;
 import com.topcoder.search.builder.filter.InFilterTests;
@@ -37,6 +39,7 @@ import com.topcoder.search.builder.hibernate.RangeFragmentBuilderHibernateTests;
 import com.topcoder.search.builder.ldap.AndFragmentBuilderTests;
 import com.topcoder.search.builder.ldap.EqualsFragmentBuilderTests;
 import com.topcoder.search.builder.ldap.InFragmentBuilderTests;
+import com.topcoder.search.builder.ldap.LDAPConnectionPoolTests;
 import com.topcoder.search.builder.ldap.LDAPConnectionInformationTests;
 import com.topcoder.search.builder.ldap.LDAPSearchStrategyTests;
 import com.topcoder.search.builder.ldap.LikeFragmentBuilderTests;
@@ -90,6 +93,7 @@ public class UnitTests extends TestCase {
         suite.addTestSuite(EqualsFragmentBuilderTests.class);
         suite.addTestSuite(InFragmentBuilderTests.class);
         suite.addTestSuite(LDAPSearchStrategyTests.class);
+        suite.addTestSuite(LDAPConnectionPoolTests.class);
         suite.addTestSuite(LikeFragmentBuilderTests.class);
         suite.addTestSuite(NotFragmentBuilderTests.class);
         suite.addTestSuite(NullFragmentBuilderTests.class);
@@ -104,11 +108,17 @@ public class UnitTests extends TestCase {
         suite.addTestSuite(NullFragmentBuilderDBTests.class);
         suite.addTestSuite(OrFragmentBuilderDBTests.class);
         suite.addTestSuite(RangeFragmentBuilderDBTests.class);
+        suite.addTestSuite(SearchPlanTests.class);
+        suite.addTestSuite(CompiledSearchTests.class);
+        suite.addTestSuite(PagedSearchTests.class);
+        suite.addTestSuite(FederatedSearchTests.class);
+        suite.addTestSuite(SearchResultCacheTests.class);
         suite.addTestSuite(SearchBundleManagerTests.class);
         suite.addTestSuite(SearchBundleTests.class);
         suite.addTestSuite(UnrecognizedFilterExceptionTests.class);
         suite.addTestSuite(Demo.class);
         suite.addTestSuite(NullFilterTests.class);
+        suite.addTestSuite(FilterTreeValidatorTests.class);
 
         suite.addTestSuite(AndFragmentBuilderHibernateTests.class);
         suite.addTestSuite(EqualsFragmentBuilderHibernateTests.class);
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.database;
+
+import com.topcoder.db.connectionfactory.DBConnectionFactoryImpl;
+
+import com.topcoder.search.builder.OperationNotSupportedException;
+import com.topcoder.search.builder.SearchContext;
+import com.topcoder.search.builder.SearchFragmentBuilder;
+import com.topcoder.search.builder.SearchRequest;
+import com.topcoder.search.builder.UnrecognizedFilterException;
+import com.topcoder.search.builder.filter.AndFilter;
+import com.topcoder.search.builder.filter.BetweenFilter;
+import com.topcoder.search.builder.filter.EqualToFilter;
+import com.topcoder.search.builder.filter.Filter;
+import com.topcoder.search.builder.filter.InFilter;
+import com.topcoder.search.builder.filter.LikeFilter;
+import com.topcoder.search.builder.filter.NotFilter;
+import com.topcoder.search.builder.filter.NullFilter;
+import com.topcoder.search.builder.filter.OrFilter;
+
+import com.topcoder.util.classassociations.ClassAssociator;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for SearchPlan, and the plan cache and paged SQL of DatabaseSearchStrategy.
+ * No database is needed, as the plans are built without searching.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class SearchPlanTests extends TestCase {
+    /**
+     * The context.
+     */
+    private static final String CONTEXT = "select * from people where ";
+
+    /**
+     * The associations Map, with the fragment builders of the database package.
+     */
+    private Map associations = null;
+
+    /**
+     * The map of alias name and real name.
+     */
+    private Map aliasMap = null;
+
+    /**
+     * The setUp of the unit test.
+     */
+    protected void setUp() {
+        associations = new HashMap();
+        associations.put(AndFilter.class, new AndFragmentBuilder());
+        associations.put(OrFilter.class, new OrFragmentBuilder());
+        associations.put(NotFilter.class, new NotFragmentBuilder());
+        associations.put(EqualToFilter.class, new EqualsFragmentBuilder());
+        associations.put(BetweenFilter.class, new RangeFragmentBuilder());
+        associations.put(InFilter.class, new InFragmentBuilder());
+        associations.put(LikeFilter.class, new LikeFragmentBuilder());
+        associations.put(NullFilter.class, new NullFragmentBuilder());
+
+        aliasMap = new HashMap();
+        aliasMap.put("The age", "age");
+    }
+
+    /**
+     * Creates a filter of a fixed shape with the given values.
+     *
+     * @param name
+     *            the compared name
+     * @param age
+     *            the lower age
+     * @param ids
+     *            the ids of the IN list
+     * @return the filter
+     */
+    private static Filter createFilter(String name, int age, Integer[] ids) {
+        List filters = new ArrayList();
+        filters.add(new EqualToFilter("name", name));
+        filters.add(new BetweenFilter("The age", new Integer(99), new Integer(age)));
+        filters.add(new NotFilter(new InFilter("id", Arrays.asList(ids))));
+        filters.add(new OrFilter(new NullFilter("weight"), new LikeFilter("city", "SW:New_")));
+        return new AndFilter(filters);
+    }
+
+    /**
+     * Gets the plan of a search and binds it.
+     *
+     * @param strategy
+     *            the strategy
+     * @param filter
+     *            the filter
+     * @param plans
+     *            the list to add the plan to
+     * @return the bound parameters
+     * @throws UnrecognizedFilterException
+     *             to JUnit
+     */
+    private List bind(DatabaseSearchStrategy strategy, Filter filter, List plans)
+        throws UnrecognizedFilterException {
+        List values = new ArrayList();
+        SearchPlan plan = strategy.getSearchPlan(CONTEXT, filter, new ArrayList(), aliasMap, values);
+        plans.add(plan);
+        return Arrays.asList(plan.bind(values));
+    }
+
+    /**
+     * The accuracy test of signature: the filters with the same shape have the
+     * same signature, and their values are collected in the binding order.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsignature_accuracy() throws Exception {
+        ClassAssociator fragmentBuilders = new ClassAssociator();
+        for (Iterator it = associations.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry) it.next();
+            fragmentBuilders.addClassAssociation((Class) entry.getKey(), entry.getValue());
+        }
+        List values1 = new ArrayList();
+        List values2 = new ArrayList();
+        List values3 = new ArrayList();
+        String signature1 = SearchPlan.signature(createFilter("a", 1, new Integer[] {new Integer(1)}),
+            fragmentBuilders, values1);
+        String signature2 = SearchPlan.signature(createFilter("b", 2, new Integer[] {new Integer(2)}),
+            fragmentBuilders, values2);
+        String signature3 = SearchPlan.signature(createFilter("a", 1, new Integer[] {new Integer(1),
+            new Integer(2)}), fragmentBuilders, values3);
+
+        assertNotNull("the filter should have a signature.", signature1);
+        assertEquals("the signatures should be equal.", signature1, signature2);
+        assertFalse("the IN-list size should be part of the signature.", signature1.equals(signature3));
+        assertEquals("the values are wrong.", Arrays.asList(new Object[] {"b", new Integer(2), new Integer(99),
+            new Integer(2)}), values2);
+    }
+
+    /**
+     * The accuracy test of getSearchPlan: the plan is reused for a filter of
+     * the same shape, and binds its values.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testgetSearchPlan_accuracy() throws Exception {
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations);
+        List plans = new ArrayList();
+        List first = bind(strategy, createFilter("a", 1, new Integer[] {new Integer(1)}), plans);
+        List second = bind(strategy, createFilter("b", 2, new Integer[] {new Integer(3)}), plans);
+
+        assertSame("the plan should be reused.", plans.get(0), plans.get(1));
+        assertEquals("the SQL is wrong.", CONTEXT + " (name = ? AND age >= ? AND age <= ? AND NOT (id IN (?))"
+            + " AND (weight IS NULL OR city LIKE ? ESCAPE ?))", ((SearchPlan) plans.get(1)).getSql());
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"a", new Integer(1),
+            new Integer(99), new Integer(1), "New\\_%", "\\"}), first);
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"b", new Integer(2),
+            new Integer(99), new Integer(3), "New\\_%", "\\"}), second);
+
+        bind(strategy, new LikeFilter("city", "SW:Old"), plans);
+        bind(strategy, new LikeFilter("city", "SW:New"), plans);
+        assertNotSame("the LIKE pattern should be part of the shape.", plans.get(2), plans.get(3));
+    }
+
+    /**
+     * The accuracy test of getSearchPlan with a fragment builder which is not
+     * one of the database package: the plan is not cached.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testgetSearchPlan_customBuilder() throws Exception {
+        associations.put(EqualToFilter.class, new SearchFragmentBuilder() {
+            public void buildSearch(Filter filter, SearchContext searchContext) {
+                searchContext.getSearchString().append("name = UPPER(?)");
+                searchContext.getBindableParameters().add(((EqualToFilter) filter).getValue().toString()
+                    .toUpperCase());
+            }
+        });
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations);
+        List plans = new ArrayList();
+        List first = bind(strategy, new EqualToFilter("name", "a"), plans);
+        List second = bind(strategy, new EqualToFilter("name", "b"), plans);
+
+        assertNotSame("the plan should not be reused.", plans.get(0), plans.get(1));
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"A"}), first);
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"B"}), second);
+    }
+
+    /**
+     * The accuracy test of getSearchPlan when buildSearchContext is
+     * overridden, or the cache is disabled: the plan is not cached.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testgetSearchPlan_notCached() throws Exception {
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations) {
+            protected SearchContext buildSearchContext(String context, Filter filter, List returnFields,
+                Map aliasMap) throws UnrecognizedFilterException {
+                return super.buildSearchContext(context, filter, returnFields, aliasMap);
+            }
+        };
+        List plans = new ArrayList();
+        bind(strategy, new EqualToFilter("name", "a"), plans);
+        bind(strategy, new EqualToFilter("name", "a"), plans);
+        assertNotSame("the plan should not be reused.", plans.get(0), plans.get(1));
+
+        strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null, associations, false, 0);
+        bind(strategy, new EqualToFilter("name", "a"), plans);
+        bind(strategy, new EqualToFilter("name", "a"), plans);
+        assertNotSame("the plan should not be reused.", plans.get(2), plans.get(3));
+    }
+
+    /**
+     * The accuracy test of compile: the plan is built for the filters handled
+     * by the fragment builders of this package, and run with other values.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testcompile_accuracy() throws Exception {
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations, false, 0);
+        SearchPlan plan = (SearchPlan) strategy.compile(CONTEXT, createFilter("a", 1,
+            new Integer[] {new Integer(1)}), new ArrayList(), aliasMap);
+
+        assertEquals("the SQL is wrong.", CONTEXT + " (name = ? AND age >= ? AND age <= ? AND NOT (id IN (?))"
+            + " AND (weight IS NULL OR city LIKE ? ESCAPE ?))", plan.getSql());
+        assertEquals("the value count is wrong.", 4, plan.getValueCount());
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"b", new Integer(2),
+            new Integer(99), new Integer(3), "New\\_%", "\\"}), Arrays.asList(plan.bind(Arrays.asList(
+            new Object[] {"b", new Integer(2), new Integer(99), new Integer(3)}))));
+
+        try {
+            strategy.search(plan, new ArrayList());
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The accuracy test of compile with a fragment builder which is not one of
+     * the database package: the filter is not compiled.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testcompile_customBuilder() throws Exception {
+        associations.put(EqualToFilter.class, new SearchFragmentBuilder() {
+            public void buildSearch(Filter filter, SearchContext searchContext) {
+                searchContext.getSearchString().append("name = UPPER(?)");
+            }
+        });
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations);
+
+        assertNull("the filter should not be compiled.", strategy.compile(CONTEXT, new EqualToFilter("name", "a"),
+            new ArrayList(), aliasMap));
+    }
+
+    /**
+     * The accuracy test of buildPagedSql with a seek key and the LIMIT paging
+     * syntax.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testbuildPagedSql_seek() throws Exception {
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations);
+        List parameters = new ArrayList();
+        parameters.add("x");
+        SearchRequest request = new SearchRequest(Arrays.asList(new String[] {"name", "The age"}), false,
+            Arrays.asList(new Object[] {"a", new Integer(1)}), 10);
+
+        assertEquals("the SQL is wrong.", CONTEXT + " (name = ?) AND ((name > ?) OR (name = ? AND age > ?))"
+            + " ORDER BY name ASC, age ASC LIMIT ? OFFSET ?",
+            strategy.buildPagedSql(CONTEXT + " name = ?", CONTEXT + " ", request, aliasMap, parameters));
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {"x", "a", "a", new Integer(1),
+            new Integer(10), new Integer(0)}), parameters);
+    }
+
+    /**
+     * The accuracy test of buildPagedSql with an offset and the ROW_NUMBER
+     * paging syntax.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testbuildPagedSql_rowNumber() throws Exception {
+        DatabaseSearchStrategy strategy = new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null,
+            associations, false, 0, DatabaseSearchStrategy.PAGING_ROW_NUMBER);
+        aliasMap.put("The age", "p.age");
+        List parameters = new ArrayList();
+        SearchRequest request = new SearchRequest(20, 10, Arrays.asList(new String[] {"The age"}), true);
+
+        assertEquals("the SQL is wrong.", "SELECT * FROM (SELECT paged_query.*, ROW_NUMBER() OVER"
+            + " (ORDER BY age DESC) paged_row FROM (" + CONTEXT + " name = ?) paged_query) paged_rows"
+            + " WHERE paged_row > ? AND paged_row <= ? ORDER BY paged_row",
+            strategy.buildPagedSql(CONTEXT + " name = ?", CONTEXT + " ", request, aliasMap, parameters));
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {new Integer(20), new Integer(30)}),
+            parameters);
+
+        // no upper bound when the limit reaches past Integer.MAX_VALUE
+        parameters.clear();
+        request = new SearchRequest(20, Integer.MAX_VALUE, Arrays.asList(new String[] {"The age"}), true);
+        assertEquals("the SQL is wrong.", "SELECT * FROM (SELECT paged_query.*, ROW_NUMBER() OVER"
+            + " (ORDER BY age DESC) paged_row FROM (" + CONTEXT + " name = ?) paged_query) paged_rows"
+            + " WHERE paged_row > ? ORDER BY paged_row",
+            strategy.buildPagedSql(CONTEXT + " name = ?", CONTEXT + " ", request, aliasMap, parameters));
+        assertEquals("the parameters are wrong.", Arrays.asList(new Object[] {new Integer(20)}), parameters);
+
+        try {
+            strategy.buildPagedSql(CONTEXT + " name = ?", CONTEXT + " ", new SearchRequest(0, 10), aliasMap,
+                new ArrayList());
+            fail("OperationNotSupportedException should be thrown.");
+        } catch (OperationNotSupportedException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The failure test of the constructor with a negative plan cache size.
+     */
+    public void testconstructor_negativePlanCacheSize() {
+        try {
+            new DatabaseSearchStrategy(new DBConnectionFactoryImpl(), null, associations, false, -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
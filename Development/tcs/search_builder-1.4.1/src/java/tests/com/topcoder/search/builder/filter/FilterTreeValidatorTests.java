@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.filter;
+
+import com.topcoder.search.builder.MockValidator;
+import com.topcoder.search.builder.ValidationResult;
+
+import com.topcoder.util.datavalidator.IntegerValidator;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for FilterTreeValidator. The results are compared with
+ * those of Filter.isValid.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class FilterTreeValidatorTests extends TestCase {
+    /**
+     * the map validators to check valid.
+     */
+    private Map validators = null;
+
+    /**
+     * the map alias to check valid.
+     */
+    private Map alias = null;
+
+    /**
+     * the number of messages asked to the counting validator.
+     */
+    private int count = 0;
+
+    /**
+     * setUp.
+     */
+    public void setUp() {
+        validators = new HashMap();
+        validators.put("age", IntegerValidator.inRange(0, 100));
+        validators.put("id", new MockValidator() {
+            public String getMessage(Object obj) {
+                ++count;
+                return ((Integer) obj).intValue() < 0 ? "negative id" : null;
+            }
+        });
+        validators.put("name", new MockValidator());
+        alias = new HashMap();
+        alias.put("The age", "age");
+    }
+
+    /**
+     * Creates an AND filter of the given filters.
+     *
+     * @param f1 the first filter
+     * @param f2 the second filter
+     * @return the AND filter
+     */
+    private static Filter and(Filter f1, Filter f2) {
+        List filters = new ArrayList();
+        filters.add(f1);
+        filters.add(f2);
+        return new AndFilter(filters);
+    }
+
+    /**
+     * Checks that validate returns the result of isValid.
+     *
+     * @param filter the filter to validate
+     */
+    private void assertSameResult(Filter filter) {
+        ValidationResult expected = filter.isValid(validators, alias);
+        ValidationResult result = FilterTreeValidator.validate(filter, validators, alias);
+        assertEquals("the validity is wrong.", expected.isValid(), result.isValid());
+        assertEquals("the message is wrong.", expected.getMessage(), result.getMessage());
+        if (!expected.isValid()) {
+            assertEquals("the failed filter is wrong.", expected.getFailedFilter().getClass(),
+                result.getFailedFilter().getClass());
+        }
+    }
+
+    /**
+     * The accuracy test of validate with valid and invalid filters of each
+     * kind, found by name and by alias.
+     */
+    public void testvalidate_accuracy() {
+        List ids = new ArrayList();
+        ids.add(new Integer(1));
+        ids.add(new Integer(2));
+        Filter valid = and(new OrFilter(new EqualToFilter("The age", new Integer(5)),
+            new BetweenFilter("age", new Integer(50), new Integer(10))),
+            and(new NotFilter(new InFilter("id", ids)), new LikeFilter("name", "SW:a")));
+        assertSameResult(valid);
+        assertTrue("the filter should be valid.",
+            FilterTreeValidator.validate(valid, validators, alias).isValid());
+
+        assertSameResult(and(valid, new GreaterThanFilter("The age", new Integer(500))));
+        assertSameResult(and(valid, new BetweenFilter("age", new Integer(50), new Integer(-10))));
+        assertSameResult(and(valid, new BetweenFilter("age", new Integer(500), new Integer(10))));
+        ids.add(new Integer(-1));
+        assertSameResult(and(new NotFilter(new InFilter("id", ids)), valid));
+        assertSameResult(new InFilter("unknown", ids));
+    }
+
+    /**
+     * The accuracy test of validate: the message of a validator is asked once
+     * for each value.
+     */
+    public void testvalidate_memoized() {
+        List ids = new ArrayList();
+        ids.add(new Integer(1));
+        ids.add(new Integer(1));
+        ids.add(new Integer(2));
+        Filter filter = and(new InFilter("id", ids), new OrFilter(new EqualToFilter("id", new Integer(2)),
+            new LessThanFilter("id", new Integer(3))));
+
+        assertTrue("the filter should be valid.", FilterTreeValidator.validate(filter, validators, alias).isValid());
+        assertEquals("the validator should be called once for each value.", 3, count);
+    }
+
+    /**
+     * The failure test of validate with a field without rule.
+     */
+    public void testvalidate_noRule() {
+        try {
+            FilterTreeValidator.validate(new EqualToFilter("unknown", new Integer(1)), validators, alias);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            FilterTreeValidator.validate(new LikeFilter("unknown", "SW:a"), validators, alias);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * The failure test of validate with null parameters.
+     */
+    public void testvalidate_null() {
+        try {
+            FilterTreeValidator.validate(null, validators, alias);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            FilterTreeValidator.validate(new EqualToFilter("age", new Integer(1)), null, alias);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.ldap;
+
+import com.topcoder.search.builder.SearchRequest;
+import com.topcoder.search.builder.filter.EqualToFilter;
+
+import com.topcoder.util.net.ldap.sdkinterface.LDAPSDK;
+import com.topcoder.util.net.ldap.sdkinterface.LDAPSDKConnection;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * Unit test cases for the connection pool of LDAPSearchStrategy. The searches
+ * are done on the LocalLDAPSDKFactory stand-in, so no LDAP server is needed.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class LDAPConnectionPoolTests extends TestCase {
+    /**
+     * The context of the searches.
+     */
+    private static final String CONTEXT = "dc=guessant,dc=org";
+
+    /**
+     * The connection information.
+     */
+    private LDAPConnectionInformation ldapInfo = null;
+
+    /**
+     * The associations of the filters and fragment builders.
+     */
+    private Map associations = null;
+
+    /**
+     * The alias map.
+     */
+    private Map aliasMap = null;
+
+    /**
+     * The setUp of the unit test.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    protected void setUp() throws Exception {
+        LocalLDAPSDKFactory.reset();
+        LocalLDAPSDKFactory.setEntries(Arrays.asList(new String[] {"e1", "e2", "e3"}));
+
+        ldapInfo = new LDAPConnectionInformation(new LDAPSDK(LocalLDAPSDKFactory.class.getName()), "localhost",
+            389, false, LDAPSDKConnection.SCOPE_BASE, "cn=Manager,dc=guessant,dc=org", "secret");
+        associations = new HashMap();
+        associations.put(EqualToFilter.class, new EqualsFragmentBuilder());
+        aliasMap = new HashMap();
+        aliasMap.put("sb", "searchbuild");
+    }
+
+    /**
+     * Runs a search and counts its entries.
+     *
+     * @param strategy
+     *            the strategy
+     * @return the number of entries
+     * @throws Exception
+     *             to JUnit
+     */
+    private int search(LDAPSearchStrategy strategy) throws Exception {
+        int count = 0;
+        for (Iterator it = (Iterator) strategy.search(CONTEXT, new EqualToFilter("sb", "a"), new ArrayList(),
+            aliasMap); it.hasNext(); it.next()) {
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * The accuracy test of the pool: the connection is bound once and reused.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_reused() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations);
+
+        assertEquals("the entries are wrong.", 3, search(strategy));
+        assertEquals("the entries are wrong.", 3, search(strategy));
+        assertEquals("the entries are wrong.", 3, search(strategy));
+
+        assertEquals("the connection should be reused.", 1, LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("the connection should be bound once.", 1, LocalLDAPSDKFactory.getBindCount());
+        assertEquals("the connection should not be closed.", 0, LocalLDAPSDKFactory.getDisconnectCount());
+        assertEquals("the filter is wrong.", "(searchbuild=a)", LocalLDAPSDKFactory.getLastFilter());
+
+        strategy.closeIdleConnections();
+        assertEquals("the connection should be closed.", 1, LocalLDAPSDKFactory.getDisconnectCount());
+    }
+
+    /**
+     * The accuracy test of the pool with a connection which is no more
+     * connected: it is replaced by a new one.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_disconnected() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations);
+        search(strategy);
+        LocalLDAPSDKFactory.breakConnections(false);
+
+        assertEquals("the entries are wrong.", 3, search(strategy));
+        assertEquals("a new connection should be opened.", 2, LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("the new connection should be bound.", 2, LocalLDAPSDKFactory.getBindCount());
+        assertEquals("the searches are wrong.", 2, LocalLDAPSDKFactory.getSearchCount());
+    }
+
+    /**
+     * The accuracy test of the pool with a connection dropped by the server:
+     * the search is retried on a new connection.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_dropped() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations);
+        search(strategy);
+        LocalLDAPSDKFactory.breakConnections(true);
+
+        assertEquals("the entries are wrong.", 3, search(strategy));
+        assertEquals("a new connection should be opened.", 2, LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("the new connection should be bound.", 2, LocalLDAPSDKFactory.getBindCount());
+        assertEquals("the dropped connection should be closed.", 1, LocalLDAPSDKFactory.getDisconnectCount());
+
+        search(strategy);
+        assertEquals("the new connection should be reused.", 2, LocalLDAPSDKFactory.getConnectionCount());
+    }
+
+    /**
+     * The accuracy test of the strategy without pool: each search opens and
+     * closes its connection.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_notPooled() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations, 0,
+            LDAPSearchStrategy.DEFAULT_MAX_IDLE_TIME);
+        search(strategy);
+        search(strategy);
+
+        assertEquals("each search should connect.", 2, LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("each search should disconnect.", 2, LocalLDAPSDKFactory.getDisconnectCount());
+    }
+
+    /**
+     * The accuracy test of the maximum idle time: the connections idle for
+     * too long are replaced.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_idleTooLong() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations, 1, 0);
+        search(strategy);
+        Thread.sleep(20);
+        search(strategy);
+
+        assertEquals("the idle connection should be replaced.", 2, LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("the idle connection should be closed.", 1, LocalLDAPSDKFactory.getDisconnectCount());
+    }
+
+    /**
+     * Runs a paged search and gets its entries.
+     *
+     * @param strategy
+     *            the strategy
+     * @param request
+     *            the page
+     * @return the entries of the page
+     * @throws Exception
+     *             to JUnit
+     */
+    private List search(LDAPSearchStrategy strategy, SearchRequest request) throws Exception {
+        Iterator it = (Iterator) strategy.search(CONTEXT, new EqualToFilter("sb", "a"), new ArrayList(),
+            aliasMap, request);
+
+        List page = new ArrayList();
+        while (it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    /**
+     * The accuracy test of a paged search on the pool: the connection of a
+     * search stopped before its end is not reused, the one of the last page is.
+     *
+     * @throws Exception
+     *             to JUnit
+     */
+    public void testsearch_paged() throws Exception {
+        LDAPSearchStrategy strategy = new LDAPSearchStrategy(ldapInfo, associations);
+        assertEquals("the page is wrong.", Arrays.asList(new String[] {"e2"}),
+            search(strategy, new SearchRequest(1, 1)));
+        assertEquals("the unfinished search should be closed.", 1, LocalLDAPSDKFactory.getDisconnectCount());
+
+        assertEquals("the page is wrong.", Arrays.asList(new String[] {"e3"}),
+            search(strategy, new SearchRequest(2, 1)));
+        assertEquals("the entries are wrong.", 3, search(strategy));
+        assertEquals("the connection of the last page should be reused.", 2,
+            LocalLDAPSDKFactory.getConnectionCount());
+        assertEquals("the connection of the last page should not be closed.", 1,
+            LocalLDAPSDKFactory.getDisconnectCount());
+    }
+
+    /**
+     * The failure test of the constructor with negative pool settings.
+     */
+    public void testconstructor_negative() {
+        try {
+            new LDAPSearchStrategy(ldapInfo, associations, -1, 0);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new LDAPSearchStrategy(ldapInfo, associations, 1, -1);
+            fail("IllegalArgumentException should be thrown.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
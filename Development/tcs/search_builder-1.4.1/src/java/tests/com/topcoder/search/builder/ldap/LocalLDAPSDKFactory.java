@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2006 TopCoder Inc., All Rights Reserved.
+ */
+package com.topcoder.search.builder.ldap;
+
+import com.topcoder.util.net.ldap.sdkinterface.LDAPSDKConnection;
+import com.topcoder.util.net.ldap.sdkinterface.LDAPSDKException;
+import com.topcoder.util.net.ldap.sdkinterface.LDAPSDKFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * <p>
+ * A local stand-in for the LDAP SDK, used by the tests and benchmarks of the
+ * LDAP search strategy without LDAP server. Its connections support connect,
+ * authenticate, authenticateAnonymous, search, isConnected and disconnect. A
+ * search returns all the entries set by setEntries, whatever its filter, and
+ * the connections, binds, searches and disconnections are counted.
+ * </p>
+ *
+ * <p>
+ * As the LDAPSDK creates the factory by its class name, the state is static,
+ * and is cleared by reset.
+ * </p>
+ *
+ * @author TCSDEVELOPER
+ * @version 1.4.2
+ * @since 1.4.2
+ */
+public class LocalLDAPSDKFactory implements LDAPSDKFactory {
+    /**
+     * The entries returned by the searches.
+     */
+    private static List entries = new ArrayList();
+
+    /**
+     * The open connections, as ConnectionState instances.
+     */
+    private static List openConnections = new ArrayList();
+
+    /**
+     * The number of created connections.
+     */
+    private static int connectionCount = 0;
+
+    /**
+     * The number of binds.
+     */
+    private static int bindCount = 0;
+
+    /**
+     * The number of searches.
+     */
+    private static int searchCount = 0;
+
+    /**
+     * The number of disconnections.
+     */
+    private static int disconnectCount = 0;
+
+    /**
+     * The last searched filter.
+     */
+    private static String lastFilter = null;
+
+    /**
+     * Creates the factory, as done by LDAPSDK.
+     */
+    public LocalLDAPSDKFactory() {
+        // empty
+    }
+
+    /**
+     * Clears the state of the stand-in.
+     */
+    public static synchronized void reset() {
+        entries = new ArrayList();
+        openConnections = new ArrayList();
+        connectionCount = 0;
+        bindCount = 0;
+        searchCount = 0;
+        disconnectCount = 0;
+        lastFilter = null;
+    }
+
+    /**
+     * Sets the entries returned by the searches.
+     *
+     * @param newEntries
+     *            the entries
+     */
+    public static synchronized void setEntries(List newEntries) {
+        entries = new ArrayList(newEntries);
+    }
+
+    /**
+     * Breaks the open connections, as a server dropping them.
+     *
+     * @param silently
+     *            if true, the connections still tell that they are connected,
+     *            and fail at the next search; if false, they tell that they
+     *            are not connected
+     */
+    public static synchronized void breakConnections(boolean silently) {
+        for (Iterator it = openConnections.iterator(); it.hasNext();) {
+            ConnectionState state = (ConnectionState) it.next();
+            state.broken = true;
+            state.connected = silently;
+        }
+    }
+
+    /**
+     * Gets the number of created connections.
+     *
+     * @return the number of created connections
+     */
+    public static synchronized int getConnectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Gets the number of binds.
+     *
+     * @return the number of binds
+     */
+    public static synchronized int getBindCount() {
+        return bindCount;
+    }
+
+    /**
+     * Gets the number of searches.
+     *
+     * @return the number of searches
+     */
+    public static synchronized int getSearchCount() {
+        return searchCount;
+    }
+
+    /**
+     * Gets the number of disconnections.
+     *
+     * @return the number of disconnections
+     */
+    public static synchronized int getDisconnectCount() {
+        return disconnectCount;
+    }
+
+    /**
+     * Gets the last searched filter.
+     *
+     * @return the last searched filter
+     */
+    public static synchronized String getLastFilter() {
+        return lastFilter;
+    }
+
+    /**
+     * Creates a connection.
+     *
+     * @return the connection
+     */
+    public LDAPSDKConnection createConnection() {
+        return newConnection();
+    }
+
+    /**
+     * Creates a SSL connection, which is not different from the others.
+     *
+     * @return the connection
+     */
+    public LDAPSDKConnection createSSLConnection() {
+        return newConnection();
+    }
+
+    /**
+     * Creates a connection, implemented by a proxy so that the methods not
+     * supported by the stand-in need no code.
+     *
+     * @return the connection
+     */
+    private static LDAPSDKConnection newConnection() {
+        synchronized (LocalLDAPSDKFactory.class) {
+            ++connectionCount;
+        }
+        return (LDAPSDKConnection) Proxy.newProxyInstance(LocalLDAPSDKFactory.class.getClassLoader(),
+            new Class[] {LDAPSDKConnection.class}, new ConnectionState());
+    }
+
+    /**
+     * <p>
+     * The state of a connection, handling its methods.
+     * </p>
+     */
+    private static class ConnectionState implements InvocationHandler {
+        /**
+         * Whether the connection tells that it is connected.
+         */
+        private boolean connected = false;
+
+        /**
+         * Whether the connection fails at the next search.
+         */
+        private boolean broken = false;
+
+        /**
+         * Handles a method of the connection.
+         *
+         * @param proxy
+         *            the connection
+         * @param method
+         *            the method
+         * @param args
+         *            the arguments
+         * @return the result of the method
+         * @throws LDAPSDKException
+         *             if the connection is broken or not connected
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws LDAPSDKException {
+            String name = method.getName();
+            synchronized (LocalLDAPSDKFactory.class) {
+                if (name.equals("connect")) {
+                    connected = true;
+                    openConnections.add(this);
+                    return null;
+                }
+                if (name.equals("authenticate") || name.equals("authenticateAnonymous")) {
+                    checkConnected();
+                    ++bindCount;
+                    return null;
+                }
+                if (name.equals("search")) {
+                    checkConnected();
+                    if (broken) {
+                        throw new LDAPSDKException("The connection is dropped.");
+                    }
+                    ++searchCount;
+                    lastFilter = (String) args[2];
+                    return new ArrayList(entries).iterator();
+                }
+                if (name.equals("isConnected")) {
+                    return Boolean.valueOf(connected);
+                }
+                if (name.equals("disconnect")) {
+                    connected = false;
+                    openConnections.remove(this);
+                    ++disconnectCount;
+                    return null;
+                }
+                if (name.equals("equals")) {
+                    return Boolean.valueOf(proxy == args[0]);
+                }
+                if (name.equals("hashCode")) {
+                    return new Integer(System.identityHashCode(proxy));
+                }
+                if (name.equals("toString")) {
+                    return "LocalLDAPSDKConnection";
+                }
+            }
+            throw new UnsupportedOperationException("The method " + name + " is not supported by the stand-in.");
+        }
+
+        /**
+         * Checks that the connection is connected.
+         *
+         * @throws LDAPSDKException
+         *             if the connection is not connected
+         */
+        private void checkConnected() throws LDAPSDKException {
+            if (!connected) {
+                throw new LDAPSDKException("The connection is not connected.");
+            }
+        }
+    }
+}